@@ -0,0 +1,105 @@
+package com.softwareverde.database.mysql.benchmark;
+
+import com.softwareverde.database.mysql.MysqlBatchWriter;
+import com.softwareverde.database.mysql.MysqlBulkLoader;
+import com.softwareverde.database.mysql.MysqlDatabaseConnection;
+import com.softwareverde.database.query.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures write throughput, in rows per second, of each insert path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchInsertBenchmark {
+    protected static final int ROW_COUNT = 10000;
+    protected static final List<String> COLUMN_NAMES = Arrays.asList("id", "hash", "value", "label");
+
+    protected BenchmarkDatabase _benchmarkDatabase;
+    protected MysqlDatabaseConnection _databaseConnection;
+
+    protected Object[] _createRow(final long id) {
+        return new Object[]{ id, BenchmarkDatabase.sha256(id), (id * 31L), ("label-" + id) };
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        _benchmarkDatabase = new BenchmarkDatabase();
+        _databaseConnection = _benchmarkDatabase.getDatabase().newConnection();
+        _databaseConnection.executeDdl("CREATE TABLE inserts (id BIGINT UNSIGNED NOT NULL PRIMARY KEY, hash BINARY(32) NOT NULL, value BIGINT NOT NULL, label VARCHAR(32) NOT NULL) ENGINE=InnoDB");
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws Exception {
+        _databaseConnection.executeDdl("TRUNCATE TABLE inserts");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        _databaseConnection.close();
+        _benchmarkDatabase.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void singleRowStatements() throws Exception {
+        for (long id = 1L; id <= ROW_COUNT; ++id) {
+            final Object[] row = _createRow(id);
+            _databaseConnection.executeSql(
+                new Query("INSERT INTO inserts (id, hash, value, label) VALUES (?, ?, ?, ?)")
+                    .setParameter((Long) row[0])
+                    .setParameter((byte[]) row[1])
+                    .setParameter((Long) row[2])
+                    .setParameter((String) row[3])
+            );
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void multiRowStatements() throws Exception {
+        try (final MysqlBatchWriter batchWriter = new MysqlBatchWriter(_databaseConnection, "inserts", COLUMN_NAMES)) {
+            for (long id = 1L; id <= ROW_COUNT; ++id) {
+                batchWriter.addRow(_createRow(id));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void driverBatching() throws Exception {
+        try (final MysqlBatchWriter batchWriter = new MysqlBatchWriter(_databaseConnection, "inserts", COLUMN_NAMES)) {
+            batchWriter.setUseDriverBatching(true);
+            for (long id = 1L; id <= ROW_COUNT; ++id) {
+                batchWriter.addRow(_createRow(id));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void loadDataLocalInfile() throws Exception {
+        final MysqlBulkLoader bulkLoader = new MysqlBulkLoader(_databaseConnection, "inserts", COLUMN_NAMES);
+        final long[] nextId = { 1L };
+        bulkLoader.load(() -> {
+            if (nextId[0] > ROW_COUNT) { return null; }
+            final Object[] row = _createRow(nextId[0]);
+            nextId[0] += 1L;
+            return row;
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.softwareverde.database.mysql.benchmark;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.softwareverde.database.mysql.MysqlDatabase;
+import com.softwareverde.database.mysql.MysqlDatabaseConnection;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * Provides the database benchmarks run against.
+ *  Connects to the server described by the JMH_MYSQL_HOST, JMH_MYSQL_PORT, JMH_MYSQL_USERNAME, and JMH_MYSQL_PASSWORD
+ *  environment variables if JMH_MYSQL_HOST is set; otherwise an embedded MariaDB instance is started.
+ *  The benchmark schema is (re)created on start.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+    public static final String SCHEMA = "java_db_mysql_benchmark";
+
+    /**
+     * Returns a deterministic 32-byte value for the index, used to fill binary columns.
+     */
+    public static byte[] sha256(final long index) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return messageDigest.digest(ByteBuffer.allocate(8).putLong(index).array());
+        }
+        catch (final Exception exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    protected final DB _embeddedDatabase;
+    protected final MysqlDatabase _database;
+
+    public BenchmarkDatabase() throws Exception {
+        final String hostname = System.getenv("JMH_MYSQL_HOST");
+        if (hostname != null) {
+            final String port = System.getenv("JMH_MYSQL_PORT");
+            final String username = System.getenv("JMH_MYSQL_USERNAME");
+            final String password = System.getenv("JMH_MYSQL_PASSWORD");
+
+            _embeddedDatabase = null;
+            _database = new MysqlDatabase(hostname, (port != null ? Integer.parseInt(port) : MysqlDatabase.DEFAULT_PORT), (username != null ? username : "root"), (password != null ? password : ""));
+        }
+        else {
+            final DBConfigurationBuilder configurationBuilder = DBConfigurationBuilder.newBuilder();
+            configurationBuilder.setPort(0);
+            configurationBuilder.addArg("--local-infile=1");
+            configurationBuilder.addArg("--max-allowed-packet=64M");
+
+            _embeddedDatabase = DB.newEmbeddedDB(configurationBuilder.build());
+            _embeddedDatabase.start();
+            _database = new MysqlDatabase("localhost", _embeddedDatabase.getConfiguration().getPort(), "root", "");
+        }
+
+        try (final MysqlDatabaseConnection databaseConnection = _database.newConnection()) {
+            databaseConnection.executeDdl("DROP DATABASE IF EXISTS `" + SCHEMA + "`");
+            databaseConnection.executeDdl("CREATE DATABASE `" + SCHEMA + "`");
+        }
+        _database.setSchema(SCHEMA);
+    }
+
+    public MysqlDatabase getDatabase() {
+        return _database;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (_embeddedDatabase != null) {
+            _embeddedDatabase.stop();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.softwareverde.database.mysql.benchmark;
+
+import com.softwareverde.database.mysql.MysqlDatabaseConnection;
+import com.softwareverde.database.mysql.MysqlDatabaseConnectionFactory;
+import com.softwareverde.database.mysql.PooledMysqlDatabaseConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of acquiring (and releasing) a connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConnectionBenchmark {
+    protected BenchmarkDatabase _benchmarkDatabase;
+    protected MysqlDatabaseConnectionFactory _connectionFactory;
+    protected PooledMysqlDatabaseConnectionFactory _pooledConnectionFactory;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        _benchmarkDatabase = new BenchmarkDatabase();
+        _connectionFactory = _benchmarkDatabase.getDatabase().newConnectionFactory();
+        _pooledConnectionFactory = _benchmarkDatabase.getDatabase().newPooledConnectionFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        _pooledConnectionFactory.close();
+        _benchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public void newConnection() throws Exception {
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            databaseConnection.getRawConnection();
+        }
+    }
+
+    @Benchmark
+    public void newPooledConnection() throws Exception {
+        try (final MysqlDatabaseConnection databaseConnection = _pooledConnectionFactory.newConnection()) {
+            databaseConnection.getRawConnection();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.softwareverde.database.mysql.benchmark;
+
+import com.softwareverde.util.Util;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The line-based statement splitter SqlScriptRunner used prior to SqlScriptTokenizer, retained as a benchmark baseline.
+ *  Derived from ScriptRunner (Copyright 2004 Clinton Begin; Apache License, Version 2.0).
+ */
+public class LegacySqlScriptParser {
+    protected static final Pattern DELIMITER_PATTERN = Pattern.compile("^\\s*(--)?\\s*delimiter\\s*=?\\s*([^\\s]+)+\\s*.*$", Pattern.CASE_INSENSITIVE);
+
+    protected String _delimiter = ";";
+    protected Boolean _fullLineDelimiter = false;
+
+    protected void _addStatement(final List<String> statements, final StringBuffer command) {
+        final String commandString = command.toString();
+        if (Util.isBlank(commandString)) { return; }
+        statements.add(commandString);
+    }
+
+    public List<String> parseScript(final Reader reader) throws IOException {
+        final ArrayList<String> statements = new ArrayList<>();
+
+        final LineNumberReader lineReader = new LineNumberReader(reader);
+        StringBuffer command = null;
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            if (command == null) {
+                command = new StringBuffer();
+            }
+            final String trimmedLine = line.trim();
+            final Matcher delimiterMatcher = DELIMITER_PATTERN.matcher(trimmedLine);
+            if ( (trimmedLine.length() < 1) || trimmedLine.startsWith("//") ) {
+                // Do nothing
+            }
+            else if (delimiterMatcher.matches()) {
+                _delimiter = delimiterMatcher.group(2);
+                _fullLineDelimiter = false;
+            }
+            else if (trimmedLine.startsWith("--")) {
+                // Do nothing
+            }
+            else if ( ((! _fullLineDelimiter) && trimmedLine.endsWith(_delimiter)) || (_fullLineDelimiter && trimmedLine.equals(_delimiter)) ) {
+                command.append(line, 0, line.lastIndexOf(_delimiter));
+                command.append(" ");
+                _addStatement(statements, command);
+                command = null;
+            }
+            else {
+                command.append(line);
+                command.append("\n");
+            }
+        }
+        if (command != null) {
+            _addStatement(statements, command);
+        }
+
+        return statements;
+    }
+}
@@ -0,0 +1,105 @@
+package com.softwareverde.database.mysql.benchmark;
+
+import com.softwareverde.database.mysql.MysqlBatchWriter;
+import com.softwareverde.database.mysql.MysqlDatabase;
+import com.softwareverde.database.mysql.MysqlDatabaseConnection;
+import com.softwareverde.database.mysql.MysqlDatabaseConnectionFactory;
+import com.softwareverde.database.mysql.MysqlPerformanceProfile;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput, in rows per second, of reading a large result and of bulk writes under each performance profile.
+ *  "DEFAULT" applies no profile.  The compressed profile is expected to be slower against a local server, where
+ *  bandwidth is not the bottleneck; run against a remote server (see BenchmarkDatabase) to measure its benefit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PerformanceProfileBenchmark {
+    protected static final int READ_ROW_COUNT = 100000;
+    protected static final int WRITE_ROW_COUNT = 10000;
+    protected static final List<String> COLUMN_NAMES = Arrays.asList("id", "hash", "value", "label");
+
+    @Param({ "DEFAULT", "OLTP_LOW_LATENCY", "BULK_ANALYTICS", "WAN_COMPRESSED" })
+    public String performanceProfile;
+
+    protected BenchmarkDatabase _benchmarkDatabase;
+    protected MysqlDatabaseConnection _databaseConnection;
+
+    protected Object[] _createRow(final long id) {
+        return new Object[]{ id, BenchmarkDatabase.sha256(id), (id * 31L), ("label-" + id) };
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        _benchmarkDatabase = new BenchmarkDatabase();
+        final MysqlDatabase database = _benchmarkDatabase.getDatabase();
+
+        try (final MysqlDatabaseConnection databaseConnection = database.newConnection()) {
+            databaseConnection.executeDdl("CREATE TABLE reads (id BIGINT UNSIGNED NOT NULL PRIMARY KEY, hash BINARY(32) NOT NULL, value BIGINT NOT NULL, label VARCHAR(32) NOT NULL) ENGINE=InnoDB");
+            databaseConnection.executeDdl("CREATE TABLE writes (id BIGINT UNSIGNED NOT NULL PRIMARY KEY, hash BINARY(32) NOT NULL, value BIGINT NOT NULL, label VARCHAR(32) NOT NULL) ENGINE=InnoDB");
+
+            try (final MysqlBatchWriter batchWriter = new MysqlBatchWriter(databaseConnection, "reads", COLUMN_NAMES)) {
+                for (long id = 1L; id <= READ_ROW_COUNT; ++id) {
+                    batchWriter.addRow(_createRow(id));
+                }
+            }
+        }
+
+        final MysqlDatabaseConnectionFactory connectionFactory = database.newConnectionFactory();
+        if (! "DEFAULT".equals(performanceProfile)) {
+            connectionFactory.setPerformanceProfile(MysqlPerformanceProfile.valueOf(performanceProfile));
+        }
+        _databaseConnection = connectionFactory.newConnection();
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws Exception {
+        _databaseConnection.executeDdl("TRUNCATE TABLE writes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        _databaseConnection.close();
+        _benchmarkDatabase.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READ_ROW_COUNT)
+    public void readLargeResult(final Blackhole blackhole) throws Exception {
+        final List<Row> rows = _databaseConnection.query(new Query("SELECT id, hash, value, label FROM reads"));
+        for (final Row row : rows) {
+            blackhole.consume(row.getLong("id"));
+            blackhole.consume(row.getBytes("hash"));
+            blackhole.consume(row.getString("label"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITE_ROW_COUNT)
+    public void bulkWrite() throws Exception {
+        try (final MysqlBatchWriter batchWriter = new MysqlBatchWriter(_databaseConnection, "writes", COLUMN_NAMES)) {
+            batchWriter.setUseDriverBatching(true);
+            for (long id = 1L; id <= WRITE_ROW_COUNT; ++id) {
+                batchWriter.addRow(_createRow(id));
+            }
+        }
+    }
+}
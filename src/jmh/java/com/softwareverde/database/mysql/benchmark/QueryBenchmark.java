@@ -0,0 +1,78 @@
+package com.softwareverde.database.mysql.benchmark;
+
+import com.softwareverde.database.mysql.MysqlBatchWriter;
+import com.softwareverde.database.mysql.MysqlDatabase;
+import com.softwareverde.database.mysql.MysqlDatabaseConnection;
+import com.softwareverde.database.mysql.MysqlDatabaseConnectionFactory;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures small-query round trips (primary key lookups), with and without prepared statement caching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+    protected static final Integer ROW_COUNT = 10000;
+
+    @Param({ "0", "64" })
+    public Integer preparedStatementCacheSize;
+
+    @Param({ "false", "true" })
+    public Boolean useServerPreparedStatements;
+
+    protected BenchmarkDatabase _benchmarkDatabase;
+    protected MysqlDatabaseConnection _databaseConnection;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        _benchmarkDatabase = new BenchmarkDatabase();
+        final MysqlDatabase database = _benchmarkDatabase.getDatabase();
+
+        try (final MysqlDatabaseConnection databaseConnection = database.newConnection()) {
+            databaseConnection.executeDdl("CREATE TABLE lookups (id INT UNSIGNED NOT NULL PRIMARY KEY, hash BINARY(32) NOT NULL, value BIGINT NOT NULL) ENGINE=InnoDB");
+
+            try (final MysqlBatchWriter batchWriter = new MysqlBatchWriter(databaseConnection, "lookups", Arrays.asList("id", "hash", "value"))) {
+                for (int i = 1; i <= ROW_COUNT; ++i) {
+                    batchWriter.addRow(i, BenchmarkDatabase.sha256(i), (i * 7L));
+                }
+            }
+        }
+
+        final MysqlDatabaseConnectionFactory connectionFactory = database.newConnectionFactory();
+        connectionFactory.setPreparedStatementCacheSize(preparedStatementCacheSize);
+        connectionFactory.setUseServerPreparedStatements(useServerPreparedStatements);
+        _databaseConnection = connectionFactory.newConnection();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        _databaseConnection.close();
+        _benchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public List<Row> selectByPrimaryKey() throws Exception {
+        final Long id = (ThreadLocalRandom.current().nextLong(ROW_COUNT) + 1L);
+        return _databaseConnection.query(
+            new Query("SELECT id, hash, value FROM lookups WHERE id = ?")
+                .setParameter(id)
+        );
+    }
+}
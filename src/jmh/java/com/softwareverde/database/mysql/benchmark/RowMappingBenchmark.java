@@ -0,0 +1,124 @@
+package com.softwareverde.database.mysql.benchmark;
+
+import com.softwareverde.database.mysql.MysqlBatchWriter;
+import com.softwareverde.database.mysql.MysqlDatabase;
+import com.softwareverde.database.mysql.MysqlDatabaseConnection;
+import com.softwareverde.database.mysql.MysqlDatabaseConnectionFactory;
+import com.softwareverde.database.mysql.row.MysqlTypedRow;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping a wide, large result into rows.
+ *  Scores are per row; with the gc profiler, gc.alloc.rate.norm reports the bytes allocated per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RowMappingBenchmark {
+    protected static final int ROW_COUNT = 50000;
+    protected static final String QUERY = "SELECT * FROM wide_rows";
+
+    @Param({ "false", "true" })
+    public Boolean useColumnarRows;
+
+    protected BenchmarkDatabase _benchmarkDatabase;
+    protected MysqlDatabaseConnection _databaseConnection;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        _benchmarkDatabase = new BenchmarkDatabase();
+        final MysqlDatabase database = _benchmarkDatabase.getDatabase();
+
+        final List<String> columnNames = new ArrayList<>();
+        final StringBuilder createTable = new StringBuilder("CREATE TABLE wide_rows (id BIGINT UNSIGNED NOT NULL PRIMARY KEY");
+        columnNames.add("id");
+        for (int i = 0; i < 6; ++i) { createTable.append(", int_" + i + " INT NOT NULL"); columnNames.add("int_" + i); }
+        for (int i = 0; i < 3; ++i) { createTable.append(", bigint_" + i + " BIGINT NULL"); columnNames.add("bigint_" + i); }
+        for (int i = 0; i < 3; ++i) { createTable.append(", double_" + i + " DOUBLE NOT NULL"); columnNames.add("double_" + i); }
+        for (int i = 0; i < 2; ++i) { createTable.append(", hash_" + i + " BINARY(32) NOT NULL"); columnNames.add("hash_" + i); }
+        for (int i = 0; i < 4; ++i) { createTable.append(", text_" + i + " VARCHAR(64) NOT NULL"); columnNames.add("text_" + i); }
+        createTable.append(") ENGINE=InnoDB");
+
+        try (final MysqlDatabaseConnection databaseConnection = database.newConnection()) {
+            databaseConnection.executeDdl(createTable.toString());
+
+            try (final MysqlBatchWriter batchWriter = new MysqlBatchWriter(databaseConnection, "wide_rows", columnNames)) {
+                for (long id = 1L; id <= ROW_COUNT; ++id) {
+                    final Object[] values = new Object[columnNames.size()];
+                    int index = 0;
+                    values[index++] = id;
+                    for (int i = 0; i < 6; ++i) { values[index++] = (int) (id * (i + 1)); }
+                    for (int i = 0; i < 3; ++i) { values[index++] = ((id % 10L == 0L) ? null : (id << (i + 8))); }
+                    for (int i = 0; i < 3; ++i) { values[index++] = (id / (i + 3D)); }
+                    for (int i = 0; i < 2; ++i) { values[index++] = BenchmarkDatabase.sha256(id + i); }
+                    for (int i = 0; i < 4; ++i) { values[index++] = ("text-" + i + "-" + id); }
+                    batchWriter.addRow(values);
+                }
+            }
+        }
+
+        final MysqlDatabaseConnectionFactory connectionFactory = database.newConnectionFactory();
+        connectionFactory.setUseColumnarRows(useColumnarRows);
+        _databaseConnection = connectionFactory.newConnection();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        _databaseConnection.close();
+        _benchmarkDatabase.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void queryAndReadRows(final Blackhole blackhole) throws Exception {
+        final List<Row> rows = _databaseConnection.query(new Query(QUERY));
+        for (final Row row : rows) {
+            blackhole.consume(row.getLong("id"));
+            blackhole.consume(row.getInteger("int_0"));
+            blackhole.consume(row.getBytes("hash_0"));
+            blackhole.consume(row.getString("text_0"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void streamAndReadRows(final Blackhole blackhole) throws Exception {
+        _databaseConnection.streamQuery(new Query(QUERY), (final Row row) -> {
+            blackhole.consume(row.getLong("id"));
+            blackhole.consume(row.getInteger("int_0"));
+            blackhole.consume(row.getBytes("hash_0"));
+            blackhole.consume(row.getString("text_0"));
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROW_COUNT)
+    public void visitAndReadRows(final Blackhole blackhole) throws Exception {
+        final ByteBuffer hashBuffer = ByteBuffer.allocate(32);
+        _databaseConnection.visitQuery(new Query(QUERY), (final MysqlTypedRow row) -> {
+            hashBuffer.clear();
+            blackhole.consume(row.getLong(0));
+            blackhole.consume(row.getInt(1));
+            blackhole.consume(row.readBytes(13, hashBuffer));
+            blackhole.consume(row.getString(15));
+        });
+    }
+}
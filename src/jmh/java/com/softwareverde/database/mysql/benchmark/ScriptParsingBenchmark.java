@@ -0,0 +1,80 @@
+package com.softwareverde.database.mysql.benchmark;
+
+import com.softwareverde.database.mysql.SqlScriptTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures splitting a large, mysqldump-style script into statements, in statements per second.
+ *  Does not require a database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScriptParsingBenchmark {
+    protected static final int TABLE_COUNT = 50;
+    protected static final int INSERT_COUNT_PER_TABLE = 400;
+    protected static final int STATEMENT_COUNT = (TABLE_COUNT * (2 + INSERT_COUNT_PER_TABLE));
+
+    protected String _script;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final StringBuilder script = new StringBuilder();
+        for (int tableIndex = 0; tableIndex < TABLE_COUNT; ++tableIndex) {
+            final String tableName = ("table_" + tableIndex);
+            script.append("--\n-- Table structure for table `").append(tableName).append("`\n--\n\n");
+            script.append("DROP TABLE IF EXISTS `").append(tableName).append("`;\n");
+            script.append("CREATE TABLE `").append(tableName).append("` (\n");
+            script.append("  `id` int(10) unsigned NOT NULL AUTO_INCREMENT,\n");
+            script.append("  `name` varchar(255) NOT NULL,\n");
+            script.append("  `description` text DEFAULT NULL,\n");
+            script.append("  PRIMARY KEY (`id`)\n");
+            script.append(") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;\n\n");
+
+            for (int insertIndex = 0; insertIndex < INSERT_COUNT_PER_TABLE; ++insertIndex) {
+                script.append("INSERT INTO `").append(tableName).append("` VALUES ");
+                for (int rowIndex = 0; rowIndex < 20; ++rowIndex) {
+                    final int id = ((insertIndex * 20) + rowIndex + 1);
+                    if (rowIndex > 0) { script.append(','); }
+                    script.append('(').append(id).append(",'name-").append(id).append("','A description of row ").append(id).append(", with \\'quotes\\' and punctuation.')");
+                }
+                script.append(";\n");
+            }
+            script.append('\n');
+        }
+        _script = script.toString();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENT_COUNT)
+    public void legacyLineParser(final Blackhole blackhole) throws Exception {
+        final LegacySqlScriptParser legacySqlScriptParser = new LegacySqlScriptParser();
+        final List<String> statements = legacySqlScriptParser.parseScript(new StringReader(_script));
+        for (final String statement : statements) {
+            blackhole.consume(statement);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENT_COUNT)
+    public void streamingTokenizer(final Blackhole blackhole) throws Exception {
+        final SqlScriptTokenizer sqlScriptTokenizer = new SqlScriptTokenizer(new StringReader(_script));
+        String statement;
+        while ((statement = sqlScriptTokenizer.nextStatement()) != null) {
+            blackhole.consume(statement);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import com.softwareverde.logging.Logger;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking facade over a MysqlDatabaseConnectionFactory.
+ *  Each operation borrows a connection from the factory, executes on the executor, and completes the returned future;
+ *  failures complete the future exceptionally with a DatabaseException.  Independent operations submitted together
+ *  (e.g. via queryAll()) execute concurrently, each on its own connection.
+ *
+ *  At most maxConnectionCount operations hold a connection at once; the remainder wait for a permit, so the factory
+ *  (e.g. a pool) is never asked for more connections than configured.  By default, operations run on virtual threads
+ *  when the runtime supports them (Java 21+), and otherwise on a pool of maxConnectionCount platform threads.
+ */
+public class MysqlAsyncQueryExecutor implements AutoCloseable {
+    public interface ConnectionCallback<T> {
+        T run(MysqlDatabaseConnection databaseConnection) throws Exception;
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor if the runtime provides one, otherwise null.
+     */
+    protected static ExecutorService _newVirtualThreadExecutorService() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        }
+        catch (final Exception exception) {
+            return null; // Virtual threads are unavailable prior to Java 21...
+        }
+    }
+
+    protected static ExecutorService _newPlatformThreadExecutorService(final Integer threadCount) {
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threadCount, threadCount, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setName("MysqlAsyncQueryExecutor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    protected final MysqlDatabaseConnectionFactory _connectionFactory;
+    protected final Semaphore _connectionPermits;
+    protected final ExecutorService _executorService;
+    protected final Boolean _ownsExecutorService;
+
+    protected <T> T _execute(final ConnectionCallback<T> connectionCallback) throws Exception {
+        _connectionPermits.acquire();
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            return connectionCallback.run(databaseConnection);
+        }
+        finally {
+            _connectionPermits.release();
+        }
+    }
+
+    public MysqlAsyncQueryExecutor(final MysqlDatabaseConnectionFactory connectionFactory, final Integer maxConnectionCount) {
+        if (maxConnectionCount < 1) {
+            throw new IllegalArgumentException("Invalid value for maxConnectionCount; value must be greater than 0.");
+        }
+
+        final ExecutorService virtualThreadExecutorService = _newVirtualThreadExecutorService();
+
+        _connectionFactory = connectionFactory;
+        _connectionPermits = new Semaphore(maxConnectionCount, true);
+        _executorService = (virtualThreadExecutorService != null ? virtualThreadExecutorService : _newPlatformThreadExecutorService(maxConnectionCount));
+        _ownsExecutorService = true;
+    }
+
+    /**
+     * Executes operations on the provided executor, which is not shut down by close().
+     */
+    public MysqlAsyncQueryExecutor(final MysqlDatabaseConnectionFactory connectionFactory, final Integer maxConnectionCount, final ExecutorService executorService) {
+        if (maxConnectionCount < 1) {
+            throw new IllegalArgumentException("Invalid value for maxConnectionCount; value must be greater than 0.");
+        }
+
+        _connectionFactory = connectionFactory;
+        _connectionPermits = new Semaphore(maxConnectionCount, true);
+        _executorService = executorService;
+        _ownsExecutorService = false;
+    }
+
+    /**
+     * Executes the callback with a dedicated connection, which is closed once the callback returns.
+     *  Use for transactions or sequences of dependent statements.
+     */
+    public <T> CompletableFuture<T> execute(final ConnectionCallback<T> connectionCallback) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            _executorService.execute(() -> {
+                try {
+                    future.complete(_execute(connectionCallback));
+                }
+                catch (final Exception exception) {
+                    if (exception instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    future.completeExceptionally(exception instanceof DatabaseException ? exception : new DatabaseException(exception));
+                }
+            });
+        }
+        catch (final Exception exception) {
+            future.completeExceptionally(new DatabaseException(exception));
+        }
+        return future;
+    }
+
+    public CompletableFuture<List<Row>> query(final Query query) {
+        return this.execute(databaseConnection -> databaseConnection.query(query));
+    }
+
+    /**
+     * Executes the statement and completes with its last insert id, if any.
+     */
+    public CompletableFuture<Long> executeSql(final Query query) {
+        return this.execute(databaseConnection -> databaseConnection.executeSql(query));
+    }
+
+    /**
+     * Executes the queries concurrently and completes with their results, in the order of the queries.
+     *  Completes exceptionally if any query fails.
+     */
+    public CompletableFuture<List<List<Row>>> queryAll(final List<Query> queries) {
+        final ArrayList<CompletableFuture<List<Row>>> futures = new ArrayList<>(queries.size());
+        for (final Query query : queries) {
+            futures.add(this.query(query));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(unused -> {
+            final ArrayList<List<Row>> results = new ArrayList<>(futures.size());
+            for (final CompletableFuture<List<Row>> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Returns the number of connection permits not currently held by an operation.
+     */
+    public Integer getAvailablePermitCount() {
+        return _connectionPermits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        if (! _ownsExecutorService) { return; }
+
+        _executorService.shutdown();
+        try {
+            if (! _executorService.awaitTermination(30L, TimeUnit.SECONDS)) {
+                Logger.warn("MysqlAsyncQueryExecutor did not terminate within 30 seconds.");
+                _executorService.shutdownNow();
+            }
+        }
+        catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            _executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.row.Row;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Accumulates rows and writes them as multi-row INSERT statements.
+ *  Rows are flushed automatically once a statement would exceed the server's max_allowed_packet,
+ *  the prepared statement placeholder limit, or the configured maximum row count.
+ *  Statements for full batches are prepared once and reused.
+ *
+ *  When driver batching is enabled, each row is instead added to a single-row statement via addBatch(),
+ *  allowing the MariaDB driver to send the batch with its bulk protocol (requires the "useBulkStmts" connection property).
+ *
+ *  Rows must be flushed (or the writer closed) for them to be written.  The writer does not manage transactions.
+ */
+public class MysqlBatchWriter implements AutoCloseable {
+    public enum Mode {
+        INSERT, INSERT_IGNORE, UPSERT, REPLACE
+    }
+
+    public static final Integer MAX_PLACEHOLDER_COUNT = 65535;
+    public static final Integer DEFAULT_MAX_ROW_COUNT = 10000;
+    public static final Long DEFAULT_MAX_PACKET_BYTE_COUNT = (4L * 1024L * 1024L);
+
+    protected static final Integer STATEMENT_OVERHEAD_BYTE_COUNT = 1024;
+    protected static final Integer PARAMETER_OVERHEAD_BYTE_COUNT = 4;
+
+    /**
+     * Returns a conservative estimate of the number of bytes the value occupies within a statement.
+     */
+    protected static Long _estimateByteCount(final Object value) {
+        if (value == null) { return 4L; }
+        if (value instanceof byte[]) { return (((byte[]) value).length * 2L) + 3L; }
+        if ( (value instanceof Number) || (value instanceof Boolean) ) { return 24L; }
+        return (value.toString().length() * 4L) + 2L; // Worst-case UTF-8 with escaping...
+    }
+
+    protected final MysqlDatabaseConnection _databaseConnection;
+    protected final String _tableName;
+    protected final List<String> _columnNames;
+    protected final Mode _mode;
+
+    protected final ArrayList<Object[]> _pendingRows = new ArrayList<>();
+    protected Long _pendingByteCount = 0L;
+
+    protected List<String> _updateColumnNames;
+    protected Integer _maxRowCount = DEFAULT_MAX_ROW_COUNT;
+    protected Long _maxPacketByteCount = null;
+    protected Boolean _useDriverBatching = false;
+
+    protected PreparedStatement _fullBatchStatement = null;
+    protected Integer _fullBatchRowCount = null;
+
+    protected Long _rowCount = 0L;
+    protected Long _statementCount = 0L;
+    protected Long _executionDurationNanos = 0L;
+
+    protected String _getInsertPrefix() {
+        switch (_mode) {
+            case INSERT_IGNORE: { return "INSERT IGNORE INTO "; }
+            case REPLACE: { return "REPLACE INTO "; }
+            default: { return "INSERT INTO "; }
+        }
+    }
+
+    protected String _createStatementSql(final Integer rowCount) {
+        final Integer columnCount = _columnNames.size();
+        final StringBuilder stringBuilder = new StringBuilder(_getInsertPrefix());
+        stringBuilder.append(MysqlUtil.quoteIdentifier(_tableName));
+        stringBuilder.append(" (");
+        for (int i = 0; i < columnCount; ++i) {
+            if (i > 0) { stringBuilder.append(", "); }
+            stringBuilder.append(MysqlUtil.quoteIdentifier(_columnNames.get(i)));
+        }
+        stringBuilder.append(") VALUES ");
+
+        final StringBuilder rowPlaceholders = new StringBuilder("(");
+        for (int i = 0; i < columnCount; ++i) {
+            if (i > 0) { rowPlaceholders.append(", "); }
+            rowPlaceholders.append("?");
+        }
+        rowPlaceholders.append(")");
+
+        for (int i = 0; i < rowCount; ++i) {
+            if (i > 0) { stringBuilder.append(", "); }
+            stringBuilder.append(rowPlaceholders);
+        }
+
+        if (_mode == Mode.UPSERT) {
+            final List<String> updateColumnNames = (_updateColumnNames != null ? _updateColumnNames : _columnNames);
+            stringBuilder.append(" ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < updateColumnNames.size(); ++i) {
+                if (i > 0) { stringBuilder.append(", "); }
+                final String columnName = MysqlUtil.quoteIdentifier(updateColumnNames.get(i));
+                stringBuilder.append(columnName);
+                stringBuilder.append(" = VALUES(");
+                stringBuilder.append(columnName);
+                stringBuilder.append(")");
+            }
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Returns the maximum number of rows that may be written by a single statement, irrespective of their size.
+     */
+    protected Integer _getMaxRowCountPerStatement() {
+        final Integer maxRowCountByPlaceholders = (MAX_PLACEHOLDER_COUNT / Math.max(1, _columnNames.size()));
+        return Math.max(1, Math.min(_maxRowCount, maxRowCountByPlaceholders));
+    }
+
+    protected Long _getMaxPacketByteCount() throws DatabaseException {
+        if (_maxPacketByteCount == null) {
+            final List<Row> rows = _databaseConnection.query("SELECT @@max_allowed_packet AS max_allowed_packet", null);
+            final Long maxAllowedPacket = (rows.isEmpty() ? null : rows.get(0).getLong("max_allowed_packet"));
+            _maxPacketByteCount = (maxAllowedPacket != null ? maxAllowedPacket : DEFAULT_MAX_PACKET_BYTE_COUNT);
+        }
+        return _maxPacketByteCount;
+    }
+
+    protected void _bindRows(final PreparedStatement preparedStatement, final List<Object[]> rows) throws SQLException {
+        int parameterIndex = 1;
+        for (final Object[] row : rows) {
+            for (final Object value : row) {
+                if (value == null) {
+                    preparedStatement.setNull(parameterIndex, Types.NULL);
+                }
+                else {
+                    preparedStatement.setObject(parameterIndex, value);
+                }
+                parameterIndex += 1;
+            }
+        }
+    }
+
+    protected void _executeMultiRowStatement(final Connection connection, final List<Object[]> rows) throws SQLException {
+        final Integer rowCount = rows.size();
+        final Boolean isFullBatch = rowCount.equals(_getMaxRowCountPerStatement());
+
+        if (isFullBatch) {
+            if ( (_fullBatchStatement == null) || (! rowCount.equals(_fullBatchRowCount)) ) {
+                _closeFullBatchStatement();
+                _fullBatchStatement = connection.prepareStatement(_createStatementSql(rowCount));
+                _fullBatchRowCount = rowCount;
+            }
+
+            _bindRows(_fullBatchStatement, rows);
+            _fullBatchStatement.executeUpdate();
+            _fullBatchStatement.clearParameters();
+        }
+        else {
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(_createStatementSql(rowCount))) {
+                _bindRows(preparedStatement, rows);
+                preparedStatement.executeUpdate();
+            }
+        }
+        _statementCount += 1L;
+    }
+
+    protected void _executeDriverBatch(final Connection connection, final List<Object[]> rows) throws SQLException {
+        try (final PreparedStatement preparedStatement = connection.prepareStatement(_createStatementSql(1))) {
+            for (final Object[] row : rows) {
+                _bindRows(preparedStatement, Collections.singletonList(row));
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+        _statementCount += 1L;
+    }
+
+    protected void _closeFullBatchStatement() {
+        if (_fullBatchStatement == null) { return; }
+
+        try {
+            _fullBatchStatement.close();
+        }
+        catch (final SQLException exception) { }
+
+        _fullBatchStatement = null;
+        _fullBatchRowCount = null;
+    }
+
+    public MysqlBatchWriter(final MysqlDatabaseConnection databaseConnection, final String tableName, final List<String> columnNames, final Mode mode) {
+        if (columnNames.isEmpty()) {
+            throw new IllegalArgumentException("Invalid value for columnNames; at least one column is required.");
+        }
+
+        _databaseConnection = databaseConnection;
+        _tableName = tableName;
+        _columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+        _mode = mode;
+    }
+
+    public MysqlBatchWriter(final MysqlDatabaseConnection databaseConnection, final String tableName, final List<String> columnNames) {
+        this(databaseConnection, tableName, columnNames, Mode.INSERT);
+    }
+
+    /**
+     * Sets the columns updated when an UPSERT encounters a duplicate key.  By default, all columns are updated.
+     */
+    public void setUpdateColumnNames(final List<String> updateColumnNames) {
+        _updateColumnNames = (updateColumnNames != null ? Collections.unmodifiableList(new ArrayList<>(updateColumnNames)) : null);
+    }
+
+    public void setMaxRowCount(final Integer maxRowCount) {
+        if (maxRowCount < 1) {
+            throw new IllegalArgumentException("Invalid value for maxRowCount; value must be greater than 0.");
+        }
+        _maxRowCount = maxRowCount;
+    }
+
+    /**
+     * Sets the maximum size of a single statement.  By default, the server's max_allowed_packet is used.
+     */
+    public void setMaxPacketByteCount(final Long maxPacketByteCount) {
+        _maxPacketByteCount = maxPacketByteCount;
+    }
+
+    /**
+     * When enabled, rows are sent via JDBC batching of a single-row statement instead of as multi-row statements.
+     */
+    public void setUseDriverBatching(final Boolean useDriverBatching) {
+        _useDriverBatching = useDriverBatching;
+    }
+
+    /**
+     * Queues the row for insertion; values must be provided in the same order as the writer's column names.
+     *  Pending rows are flushed first if the new row would not fit within the current statement.
+     */
+    public void addRow(final Object... values) throws DatabaseException {
+        if (values.length != _columnNames.size()) {
+            throw new IllegalArgumentException("Expected " + _columnNames.size() + " values, found " + values.length + ".");
+        }
+
+        long rowByteCount = 4L;
+        for (final Object value : values) {
+            rowByteCount += (_estimateByteCount(value) + PARAMETER_OVERHEAD_BYTE_COUNT);
+        }
+
+        final Long maxStatementByteCount = (_getMaxPacketByteCount() - STATEMENT_OVERHEAD_BYTE_COUNT);
+        final Boolean exceedsPacketSize = ( (! _pendingRows.isEmpty()) && ((_pendingByteCount + rowByteCount) > maxStatementByteCount) );
+        if ( exceedsPacketSize || (_pendingRows.size() >= _getMaxRowCountPerStatement()) ) {
+            this.flush();
+        }
+
+        _pendingRows.add(values.clone());
+        _pendingByteCount += rowByteCount;
+    }
+
+    /**
+     * Writes all pending rows.
+     */
+    public void flush() throws DatabaseException {
+        if (_pendingRows.isEmpty()) { return; }
+
+        final Long startTime = System.nanoTime();
+        synchronized (_databaseConnection) {
+            final Connection connection = _databaseConnection.getRawConnection();
+            try {
+                if (_useDriverBatching) {
+                    _executeDriverBatch(connection, _pendingRows);
+                }
+                else {
+                    _executeMultiRowStatement(connection, _pendingRows);
+                }
+            }
+            catch (final SQLException exception) {
+                throw new DatabaseException(exception);
+            }
+        }
+        _executionDurationNanos += (System.nanoTime() - startTime);
+
+        _rowCount += _pendingRows.size();
+        _pendingRows.clear();
+        _pendingByteCount = 0L;
+    }
+
+    public Integer getPendingRowCount() {
+        return _pendingRows.size();
+    }
+
+    /**
+     * Returns the number of rows written so far.
+     */
+    public Long getRowCount() {
+        return _rowCount;
+    }
+
+    /**
+     * Returns the number of statements (or driver batches) executed so far.
+     */
+    public Long getStatementCount() {
+        return _statementCount;
+    }
+
+    /**
+     * Returns the rows written per second, measured over the time spent executing statements.
+     */
+    public Double getRowsPerSecond() {
+        if (_executionDurationNanos <= 0L) { return 0D; }
+        return (_rowCount * 1000000000D / _executionDurationNanos);
+    }
+
+    /**
+     * Flushes any pending rows and releases the writer's prepared statement.
+     */
+    @Override
+    public void close() throws DatabaseException {
+        try {
+            this.flush();
+        }
+        finally {
+            _closeFullBatchStatement();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Loads rows into a table via LOAD DATA LOCAL INFILE.
+ *  Rows are encoded as they are read by the driver and streamed to the server through the MariaDB driver's
+ *  local-infile InputStream; no temporary file is written.  Requires the "allowLocalInfile" connection property
+ *  (enabled by default by MysqlDatabaseConnectionFactory) and local_infile to be enabled on the server.
+ *  Since the file is LOCAL, the server cannot abort the transfer on a duplicate key, so duplicates are either
+ *  ignored (the default) or replace the existing row; use IGNORE and compare the affected row count to detect them.
+ */
+public class MysqlBulkLoader {
+    public enum DuplicateKeyMode {
+        IGNORE, REPLACE
+    }
+
+    public static final String DEFAULT_CHARACTER_SET = "binary";
+
+    protected static final Pattern CHARACTER_SET_PATTERN = Pattern.compile("[A-Za-z0-9_]+");
+
+    protected final MysqlDatabaseConnection _databaseConnection;
+    protected final String _tableName;
+    protected final List<String> _columnNames;
+
+    protected DuplicateKeyMode _duplicateKeyMode = DuplicateKeyMode.IGNORE;
+    protected String _characterSet = DEFAULT_CHARACTER_SET;
+
+    protected Long _rowCount = 0L;
+    protected Long _byteCount = 0L;
+    protected Long _durationMs = 0L;
+
+    protected String _createStatementSql() {
+        final StringBuilder stringBuilder = new StringBuilder("LOAD DATA LOCAL INFILE 'stream' ");
+        stringBuilder.append(_duplicateKeyMode == DuplicateKeyMode.REPLACE ? "REPLACE " : "IGNORE ");
+
+        stringBuilder.append("INTO TABLE ");
+        stringBuilder.append(MysqlUtil.quoteIdentifier(_tableName));
+        stringBuilder.append(" CHARACTER SET ");
+        stringBuilder.append(_characterSet);
+        stringBuilder.append(" FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' (");
+        for (int i = 0; i < _columnNames.size(); ++i) {
+            if (i > 0) { stringBuilder.append(", "); }
+            stringBuilder.append(MysqlUtil.quoteIdentifier(_columnNames.get(i)));
+        }
+        stringBuilder.append(")");
+        return stringBuilder.toString();
+    }
+
+    public MysqlBulkLoader(final MysqlDatabaseConnection databaseConnection, final String tableName, final List<String> columnNames) {
+        if (columnNames.isEmpty()) {
+            throw new IllegalArgumentException("Invalid value for columnNames; at least one column is required.");
+        }
+
+        _databaseConnection = databaseConnection;
+        _tableName = tableName;
+        _columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+    }
+
+    /**
+     * Sets how rows that duplicate an existing unique key are handled.  By default, duplicate rows are skipped.
+     */
+    public void setDuplicateKeyMode(final DuplicateKeyMode duplicateKeyMode) {
+        _duplicateKeyMode = duplicateKeyMode;
+    }
+
+    /**
+     * Sets the character set the server uses to interpret the stream.  Strings are always encoded as UTF-8,
+     *  so this should be "binary" (the default), "utf8mb4", or "utf8".
+     */
+    public void setCharacterSet(final String characterSet) {
+        if ( (characterSet == null) || (! CHARACTER_SET_PATTERN.matcher(characterSet).matches()) ) {
+            throw new IllegalArgumentException("Invalid value for characterSet: " + characterSet);
+        }
+
+        _characterSet = characterSet;
+    }
+
+    /**
+     * Loads all rows from the producer, whose values must be in the same order as the loader's column names.
+     *  Returns the number of rows affected.
+     */
+    public Long load(final MysqlTsvInputStream.RowProducer rowProducer) throws DatabaseException {
+        final Long startTime = System.currentTimeMillis();
+        final MysqlTsvInputStream inputStream = new MysqlTsvInputStream(rowProducer);
+
+        final long affectedRowCount;
+        synchronized (_databaseConnection) {
+            final Connection connection = _databaseConnection.getRawConnection();
+            try (final Statement statement = connection.createStatement()) {
+                final org.mariadb.jdbc.Statement mariaDbStatement = statement.unwrap(org.mariadb.jdbc.Statement.class);
+                mariaDbStatement.setLocalInfileInputStream(inputStream);
+                affectedRowCount = statement.executeLargeUpdate(_createStatementSql());
+            }
+            catch (final SQLException exception) {
+                throw new DatabaseException(exception);
+            }
+        }
+
+        _rowCount += inputStream.getRowCount();
+        _byteCount += inputStream.getByteCount();
+        _durationMs += (System.currentTimeMillis() - startTime);
+        return affectedRowCount;
+    }
+
+    public Long load(final Iterator<Object[]> rows) throws DatabaseException {
+        return this.load(() -> (rows.hasNext() ? rows.next() : null));
+    }
+
+    /**
+     * Returns the number of rows streamed to the server across all loads.
+     */
+    public Long getRowCount() {
+        return _rowCount;
+    }
+
+    /**
+     * Returns the number of encoded bytes streamed to the server across all loads.
+     */
+    public Long getByteCount() {
+        return _byteCount;
+    }
+
+    public Long getDurationMs() {
+        return _durationMs;
+    }
+}
@@ -27,9 +27,22 @@ public class MysqlDatabase extends MysqlDatabaseConnectionFactory implements Jdb
 
     public void setSchema(final String schema) {
         _schema = schema;
+        _connectionString = null;
     }
 
     public MysqlDatabaseConnectionFactory newConnectionFactory() {
-        return new MysqlDatabaseConnectionFactory(_hostname, _port, _schema, _username, _password, _connectionProperties);
+        final MysqlDatabaseConnectionFactory connectionFactory = new MysqlDatabaseConnectionFactory(_hostname, _port, _schema, _username, _password, _connectionProperties);
+        _copyConfigurationTo(connectionFactory);
+        return connectionFactory;
+    }
+
+    /**
+     * Returns a new connection factory that reuses physical connections.
+     *  The returned factory should be closed once it is no longer needed.
+     */
+    public PooledMysqlDatabaseConnectionFactory newPooledConnectionFactory() {
+        final PooledMysqlDatabaseConnectionFactory connectionFactory = new PooledMysqlDatabaseConnectionFactory(_hostname, _port, _schema, _username, _password, _connectionProperties);
+        _copyConfigurationTo(connectionFactory);
+        return connectionFactory;
     }
 }
@@ -1,17 +1,563 @@
 package com.softwareverde.database.mysql;
 
+import com.softwareverde.database.DatabaseException;
 import com.softwareverde.database.jdbc.JdbcDatabaseConnection;
+import com.softwareverde.database.mysql.metrics.MysqlInstrumentation;
 import com.softwareverde.database.mysql.row.MysqlRowFactory;
+import com.softwareverde.database.mysql.row.MysqlTypedRow;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.query.parameter.TypedParameter;
+import com.softwareverde.database.row.Row;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MysqlDatabaseConnection extends JdbcDatabaseConnection {
+    public static final Integer DEFAULT_STREAMING_FETCH_SIZE = 1024;
 
-    protected MysqlDatabaseConnection(final Connection connection, final MysqlRowFactory rowFactory) {
+    public interface RowCallback {
+        void onRow(Row row) throws Exception;
+    }
+
+    public interface TypedRowVisitor {
+        void visit(MysqlTypedRow row) throws Exception;
+    }
+
+    protected static Query _toQuery(final String queryString, final String[] parameters) {
+        final Query query = new Query(queryString);
+        if (parameters != null) {
+            for (final String parameter : parameters) {
+                query.setParameter(parameter);
+            }
+        }
+        return query;
+    }
+
+    protected static void _bindParameters(final PreparedStatement preparedStatement, final List<TypedParameter> parameters) throws SQLException {
+        if (parameters == null) { return; }
+
+        int parameterIndex = 1;
+        for (final TypedParameter typedParameter : parameters) {
+            final Object value = (typedParameter != null ? typedParameter.value : null);
+            if (value == null) {
+                preparedStatement.setNull(parameterIndex, Types.NULL);
+            }
+            else {
+                preparedStatement.setObject(parameterIndex, value);
+            }
+            parameterIndex += 1;
+        }
+    }
+
+    protected final MysqlRowFactory _mysqlRowFactory;
+    protected final MysqlPreparedStatementCache _preparedStatementCache;
+    protected Integer _mysqlRowsAffectedCount = null;
+    protected MysqlInstrumentation _instrumentation = null;
+    protected MysqlQueryResultCache _queryResultCache = null;
+    protected final ArrayList<String> _uncommittedWrites = new ArrayList<>(0);
+
+    protected Boolean _isInTransaction() {
+        try {
+            return (! this.getRawConnection().getAutoCommit());
+        }
+        catch (final SQLException exception) {
+            return true;
+        }
+    }
+
+    protected void _invalidateQueryResultCache(final String query) {
+        if (_queryResultCache == null) { return; }
+        _queryResultCache.invalidate(query);
+    }
+
+    /**
+     * Invalidates the results affected by the write; within a transaction, the results are invalidated again (and are
+     *  not cached by other connections until then) once the transaction ends.
+     */
+    protected void _onWrite(final String query) {
+        if (_queryResultCache == null) { return; }
+
+        if (_isInTransaction()) {
+            _queryResultCache.beginUncommittedWrite(query);
+            _uncommittedWrites.add(query);
+        }
+        else {
+            _queryResultCache.invalidate(query);
+        }
+    }
+
+    protected void _endUncommittedWrites(final Boolean wasCommitted) {
+        if (_uncommittedWrites.isEmpty()) { return; }
+
+        for (final String query : _uncommittedWrites) {
+            _queryResultCache.endUncommittedWrite(query, wasCommitted);
+        }
+        _uncommittedWrites.clear();
+    }
+
+    /**
+     * Ends the writes of a transaction that was committed via the raw connection (e.g. via TransactionUtil), which is
+     *  only observed once the connection is next used.  A transaction that was rolled back is treated as committed.
+     */
+    protected void _endCompletedTransaction() {
+        if ( (! _uncommittedWrites.isEmpty()) && (! _isInTransaction()) ) {
+            _endUncommittedWrites(true);
+        }
+    }
+
+    /**
+     * Returns the query's parameters for instrumentation, or null if instrumentation is disabled.
+     */
+    protected List<TypedParameter> _getInstrumentedParameters(final Query query) {
+        if (_instrumentation == null) { return null; }
+        return query.getParameters();
+    }
+
+    protected List<TypedParameter> _getInstrumentedParameters(final String[] parameters) {
+        if ( (_instrumentation == null) || (parameters == null) ) { return null; }
+        return _toQuery("", parameters).getParameters();
+    }
+
+    protected void _onStatementExecuted(final String query, final List<TypedParameter> parameters, final long startTime, final long rowCount, final long startByteCount) {
+        if (_instrumentation == null) { return; }
+
+        final long byteCount = (_mysqlRowFactory.getMaterializedByteCount() - startByteCount);
+        _instrumentation.onStatementExecuted(query, parameters, (System.nanoTime() - startTime), rowCount, byteCount);
+    }
+
+    protected void _onStatementExecuted(final String query, final List<TypedParameter> parameters, final long startTime) {
+        if (_instrumentation == null) { return; }
+
+        final Integer rowsAffectedCount = this.getRowsAffectedCount();
+        _instrumentation.onStatementExecuted(query, parameters, (System.nanoTime() - startTime), (rowsAffectedCount != null ? rowsAffectedCount : 0L), 0L);
+    }
+
+    protected void _onStatementFailed(final String query, final List<TypedParameter> parameters, final long startTime) {
+        if (_instrumentation == null) { return; }
+        _instrumentation.onStatementFailed(query, parameters, (System.nanoTime() - startTime));
+    }
+
+    /**
+     * Prepares a forward-only, read-only statement that streams its results from the server fetchSize rows at a time.
+     */
+    protected PreparedStatement _prepareStreamingStatement(final Query query, final Integer fetchSize) throws SQLException {
+        final Connection connection = this.getRawConnection();
+        final PreparedStatement preparedStatement = connection.prepareStatement(query.getQueryString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            preparedStatement.setFetchSize(fetchSize);
+            _bindParameters(preparedStatement, query.getParameters());
+            return preparedStatement;
+        }
+        catch (final SQLException exception) {
+            preparedStatement.close();
+            throw exception;
+        }
+    }
+
+    protected List<Row> _queryCachedStatement(final Query query) throws DatabaseException {
+        final String queryString = query.getQueryString();
+        try {
+            final PreparedStatement preparedStatement = _preparedStatementCache.getPreparedStatement(this.getRawConnection(), queryString, false);
+            try {
+                _bindParameters(preparedStatement, query.getParameters());
+
+                final ArrayList<Row> rows = new ArrayList<>();
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        rows.add(_mysqlRowFactory.fromResultSet(resultSet));
+                    }
+                }
+                preparedStatement.clearParameters();
+                return rows;
+            }
+            catch (final Exception exception) {
+                _preparedStatementCache.invalidate(queryString, false);
+                throw exception;
+            }
+        }
+        catch (final Exception exception) {
+            if (exception instanceof DatabaseException) { throw (DatabaseException) exception; }
+            throw new DatabaseException(exception);
+        }
+    }
+
+    protected Long _executeCachedStatement(final Query query) throws DatabaseException {
+        final String queryString = query.getQueryString();
+        try {
+            final PreparedStatement preparedStatement = _preparedStatementCache.getPreparedStatement(this.getRawConnection(), queryString, true);
+            try {
+                _bindParameters(preparedStatement, query.getParameters());
+                _mysqlRowsAffectedCount = preparedStatement.executeUpdate();
+
+                Long lastInsertId = null;
+                try (final ResultSet resultSet = preparedStatement.getGeneratedKeys()) {
+                    if (resultSet.next()) {
+                        lastInsertId = resultSet.getLong(1);
+                    }
+                }
+                preparedStatement.clearParameters();
+                return lastInsertId;
+            }
+            catch (final SQLException exception) {
+                _preparedStatementCache.invalidate(queryString, true);
+                throw exception;
+            }
+        }
+        catch (final SQLException exception) {
+            throw new DatabaseException(exception);
+        }
+    }
+
+    protected MysqlDatabaseConnection(final Connection connection, final MysqlRowFactory rowFactory, final MysqlPreparedStatementCache preparedStatementCache) {
         super(connection, rowFactory);
+        _mysqlRowFactory = rowFactory;
+        _preparedStatementCache = preparedStatementCache;
+    }
+
+    protected MysqlDatabaseConnection(final Connection connection, final MysqlRowFactory rowFactory) {
+        this(connection, rowFactory, null);
     }
 
     public MysqlDatabaseConnection(final Connection connection) {
-        super(connection, new MysqlRowFactory());
+        this(connection, new MysqlRowFactory());
+    }
+
+    /**
+     * Executes the query and invokes rowCallback for each row as it is read from the server.
+     *  Unlike query(), the result is never materialized, so arbitrarily large results are processed in constant memory.
+     *  The connection may not be used for other statements from within rowCallback.
+     */
+    public synchronized void streamQuery(final Query query, final RowCallback rowCallback) throws DatabaseException {
+        this.streamQuery(query, DEFAULT_STREAMING_FETCH_SIZE, rowCallback);
+    }
+
+    public synchronized void streamQuery(final Query query, final Integer fetchSize, final RowCallback rowCallback) throws DatabaseException {
+        final long startTime = System.nanoTime();
+        final long startByteCount = _mysqlRowFactory.getMaterializedByteCount();
+        long rowCount = 0L;
+        try (
+            final PreparedStatement preparedStatement = _prepareStreamingStatement(query, fetchSize);
+            final ResultSet resultSet = preparedStatement.executeQuery()
+        ) {
+            while (resultSet.next()) {
+                final Row row = _mysqlRowFactory.fromResultSet(resultSet);
+                rowCount += 1L;
+                rowCallback.onRow(row);
+            }
+            _onStatementExecuted(query.getQueryString(), _getInstrumentedParameters(query), startTime, rowCount, startByteCount);
+        }
+        catch (final Exception exception) {
+            _onStatementFailed(query.getQueryString(), _getInstrumentedParameters(query), startTime);
+            if (exception instanceof DatabaseException) { throw (DatabaseException) exception; }
+            throw new DatabaseException(exception);
+        }
+    }
+
+    public synchronized void streamQuery(final String query, final String[] parameters, final RowCallback rowCallback) throws DatabaseException {
+        this.streamQuery(_toQuery(query, parameters), DEFAULT_STREAMING_FETCH_SIZE, rowCallback);
+    }
+
+    /**
+     * Executes the query and invokes rowVisitor for each row as it is read from the server, without materializing Rows.
+     *  The visitor reads the current row via MysqlTypedRow's primitive accessors; the same MysqlTypedRow instance is
+     *  passed for every row.  Like streamQuery(), the connection may not be used for other statements from within rowVisitor.
+     */
+    public synchronized void visitQuery(final Query query, final TypedRowVisitor rowVisitor) throws DatabaseException {
+        this.visitQuery(query, DEFAULT_STREAMING_FETCH_SIZE, rowVisitor);
+    }
+
+    public synchronized void visitQuery(final Query query, final Integer fetchSize, final TypedRowVisitor rowVisitor) throws DatabaseException {
+        final long startTime = System.nanoTime();
+        final long startByteCount = _mysqlRowFactory.getMaterializedByteCount();
+        long rowCount = 0L;
+        try (
+            final PreparedStatement preparedStatement = _prepareStreamingStatement(query, fetchSize);
+            final ResultSet resultSet = preparedStatement.executeQuery()
+        ) {
+            final MysqlTypedRow typedRow = new MysqlTypedRow(resultSet);
+            while (resultSet.next()) {
+                rowCount += 1L;
+                rowVisitor.visit(typedRow);
+            }
+            _onStatementExecuted(query.getQueryString(), _getInstrumentedParameters(query), startTime, rowCount, startByteCount);
+        }
+        catch (final Exception exception) {
+            _onStatementFailed(query.getQueryString(), _getInstrumentedParameters(query), startTime);
+            if (exception instanceof DatabaseException) { throw (DatabaseException) exception; }
+            throw new DatabaseException(exception);
+        }
+    }
+
+    /**
+     * Executes the query and returns a cursor over its rows, which are read from the server as the cursor is advanced.
+     *  The cursor must be closed before the connection is used for another statement; use try-with-resources.
+     */
+    public MysqlRowCursor openCursor(final Query query) throws DatabaseException {
+        return this.openCursor(query, DEFAULT_STREAMING_FETCH_SIZE);
+    }
+
+    public MysqlRowCursor openCursor(final Query query, final Integer fetchSize) throws DatabaseException {
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = _prepareStreamingStatement(query, fetchSize);
+            final ResultSet resultSet = preparedStatement.executeQuery();
+            return new MysqlRowCursor(preparedStatement, resultSet, _mysqlRowFactory);
+        }
+        catch (final SQLException exception) {
+            if (preparedStatement != null) {
+                try { preparedStatement.close(); }
+                catch (final SQLException closeException) { exception.addSuppressed(closeException); }
+            }
+            throw new DatabaseException(exception);
+        }
+    }
+
+    protected List<Row> _query(final Query query) throws DatabaseException {
+        final long startTime = System.nanoTime();
+        final long startByteCount = _mysqlRowFactory.getMaterializedByteCount();
+        try {
+            final List<Row> rows = (_preparedStatementCache == null ? super.query(query) : _queryCachedStatement(query));
+            _onStatementExecuted(query.getQueryString(), _getInstrumentedParameters(query), startTime, rows.size(), startByteCount);
+            return rows;
+        }
+        catch (final DatabaseException exception) {
+            _onStatementFailed(query.getQueryString(), _getInstrumentedParameters(query), startTime);
+            throw exception;
+        }
+    }
+
+    @Override
+    public synchronized List<Row> query(final Query query) throws DatabaseException {
+        if (_queryResultCache == null) { return _query(query); }
+        return this.query(query, _queryResultCache.getDefaultTtl());
+    }
+
+    /**
+     * Executes the query, serving and caching its result via the connection's MysqlQueryResultCache for cacheTtlMs.
+     *  Without a result cache, with a cacheTtlMs of zero, or while within a transaction, the query is always executed.
+     */
+    public synchronized List<Row> query(final Query query, final Long cacheTtlMs) throws DatabaseException {
+        _endCompletedTransaction();
+        if ( (_queryResultCache == null) || (cacheTtlMs < 1L) || _isInTransaction() ) { return _query(query); }
+
+        final List<Row> cachedRows = _queryResultCache.get(query);
+        if (cachedRows != null) { return new ArrayList<>(cachedRows); }
+
+        final Long invalidationCount = _queryResultCache.getInvalidationCount();
+        final List<Row> rows = _query(query);
+        _queryResultCache.put(query, new ArrayList<>(rows), cacheTtlMs, invalidationCount);
+        return rows;
+    }
+
+    @Override
+    public synchronized List<Row> query(final String query, final String[] parameters) throws DatabaseException {
+        if (_queryResultCache != null) { return this.query(_toQuery(query, parameters)); }
+
+        final long startTime = System.nanoTime();
+        final long startByteCount = _mysqlRowFactory.getMaterializedByteCount();
+        try {
+            final List<Row> rows = (_preparedStatementCache == null ? super.query(query, parameters) : _queryCachedStatement(_toQuery(query, parameters)));
+            _onStatementExecuted(query, _getInstrumentedParameters(parameters), startTime, rows.size(), startByteCount);
+            return rows;
+        }
+        catch (final DatabaseException exception) {
+            _onStatementFailed(query, _getInstrumentedParameters(parameters), startTime);
+            throw exception;
+        }
+    }
+
+    @Override
+    public synchronized Long executeSql(final Query query) throws DatabaseException {
+        _endCompletedTransaction();
+        final long startTime = System.nanoTime();
+        try {
+            final Long lastInsertId = (_preparedStatementCache == null ? super.executeSql(query) : _executeCachedStatement(query));
+            _onStatementExecuted(query.getQueryString(), _getInstrumentedParameters(query), startTime);
+            return lastInsertId;
+        }
+        catch (final DatabaseException exception) {
+            _onStatementFailed(query.getQueryString(), _getInstrumentedParameters(query), startTime);
+            throw exception;
+        }
+        finally {
+            _onWrite(query.getQueryString());
+        }
+    }
+
+    @Override
+    public synchronized Long executeSql(final String query, final String[] parameters) throws DatabaseException {
+        _endCompletedTransaction();
+        final long startTime = System.nanoTime();
+        try {
+            final Long lastInsertId = (_preparedStatementCache == null ? super.executeSql(query, parameters) : _executeCachedStatement(_toQuery(query, parameters)));
+            _onStatementExecuted(query, _getInstrumentedParameters(parameters), startTime);
+            return lastInsertId;
+        }
+        catch (final DatabaseException exception) {
+            _onStatementFailed(query, _getInstrumentedParameters(parameters), startTime);
+            throw exception;
+        }
+        finally {
+            _onWrite(query);
+        }
+    }
+
+    /**
+     * Executes the DDL and invalidates any cached prepared statements and query results, since they may reference
+     *  the altered schema.  DDL implicitly commits any open transaction.
+     */
+    @Override
+    public synchronized void executeDdl(final String query) throws DatabaseException {
+        final long startTime = System.nanoTime();
+        try {
+            super.executeDdl(query);
+            _onStatementExecuted(query, null, startTime);
+        }
+        catch (final DatabaseException exception) {
+            _onStatementFailed(query, null, startTime);
+            throw exception;
+        }
+        finally {
+            if (_preparedStatementCache != null) {
+                _preparedStatementCache.clear();
+            }
+            _endUncommittedWrites(true);
+            _invalidateQueryResultCache(query);
+        }
+    }
+
+    @Override
+    public synchronized void executeDdl(final Query query) throws DatabaseException {
+        final long startTime = System.nanoTime();
+        try {
+            super.executeDdl(query);
+            _onStatementExecuted(query.getQueryString(), _getInstrumentedParameters(query), startTime);
+        }
+        catch (final DatabaseException exception) {
+            _onStatementFailed(query.getQueryString(), _getInstrumentedParameters(query), startTime);
+            throw exception;
+        }
+        finally {
+            if (_preparedStatementCache != null) {
+                _preparedStatementCache.clear();
+            }
+            _endUncommittedWrites(true);
+            _invalidateQueryResultCache(query.getQueryString());
+        }
+    }
+
+    /**
+     * Prepares the statement without executing it.  If the connection caches prepared statements, the statement is
+     *  cached for subsequent executions: returnGeneratedKeys should be false for statements executed via query(),
+     *  and true for statements executed via executeSql().
+     */
+    public synchronized void prepareStatement(final String query, final Boolean returnGeneratedKeys) throws DatabaseException {
+        try {
+            if (_preparedStatementCache != null) {
+                _preparedStatementCache.getPreparedStatement(this.getRawConnection(), query, returnGeneratedKeys);
+                return;
+            }
+
+            final Connection connection = this.getRawConnection();
+            try (final PreparedStatement preparedStatement = (returnGeneratedKeys ? connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS) : connection.prepareStatement(query))) {
+                preparedStatement.getParameterMetaData(); // Validates the statement against the server, even when prepared client-side...
+            }
+        }
+        catch (final SQLException exception) {
+            throw new DatabaseException(exception);
+        }
+    }
+
+    @Override
+    public Integer getRowsAffectedCount() {
+        if (_preparedStatementCache == null) { return super.getRowsAffectedCount(); }
+        return _mysqlRowsAffectedCount;
+    }
+
+    /**
+     * Sets the instrumentation notified of each statement executed via query(), executeSql(), executeDdl(),
+     *  streamQuery(), and visitQuery(); statements executed via openCursor() or getRawConnection() are not recorded.  May be null.
+     */
+    public synchronized void setInstrumentation(final MysqlInstrumentation instrumentation) {
+        _instrumentation = instrumentation;
+        _mysqlRowFactory.setByteCountingEnabled(instrumentation != null);
+    }
+
+    public MysqlInstrumentation getInstrumentation() {
+        return _instrumentation;
+    }
+
+    /**
+     * Sets the result cache consulted by query() and invalidated by executeSql() and executeDdl().  May be null.
+     *  The cache is typically shared by all connections of a factory; see MysqlDatabaseConnectionFactory.setQueryResultCache().
+     */
+    public synchronized void setQueryResultCache(final MysqlQueryResultCache queryResultCache) {
+        _endUncommittedWrites(true);
+        _queryResultCache = queryResultCache;
+    }
+
+    public MysqlQueryResultCache getQueryResultCache() {
+        return _queryResultCache;
+    }
+
+    /**
+     * Returns the connection's prepared statement cache, or null if statement caching is disabled.
+     */
+    public MysqlPreparedStatementCache getPreparedStatementCache() {
+        return _preparedStatementCache;
+    }
+
+    /**
+     * Commits the connection's transaction.  Equivalent to committing via getRawConnection() (e.g. via
+     *  TransactionUtil), except that the query result cache observes the commit immediately rather than once the
+     *  connection is next used.
+     */
+    public synchronized void commit() throws DatabaseException {
+        try {
+            this.getRawConnection().commit();
+        }
+        catch (final SQLException exception) {
+            throw new DatabaseException(exception);
+        }
+        finally {
+            _endUncommittedWrites(true);
+        }
+    }
+
+    /**
+     * Rolls back the connection's transaction; results read by other connections may be cached again immediately.
+     */
+    public synchronized void rollback() throws DatabaseException {
+        Boolean wasRolledBack = false;
+        try {
+            this.getRawConnection().rollback();
+            wasRolledBack = true;
+        }
+        catch (final SQLException exception) {
+            throw new DatabaseException(exception);
+        }
+        finally {
+            _endUncommittedWrites(! wasRolledBack);
+        }
+    }
+
+    @Override
+    public void close() throws DatabaseException {
+        synchronized (this) {
+            _endUncommittedWrites(true);
+        }
+
+        if (_preparedStatementCache != null) {
+            synchronized (this) {
+                _preparedStatementCache.clear();
+            }
+        }
+        super.close();
     }
 }
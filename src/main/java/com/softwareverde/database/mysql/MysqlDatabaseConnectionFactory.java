@@ -2,15 +2,108 @@ package com.softwareverde.database.mysql;
 
 import com.softwareverde.database.DatabaseException;
 import com.softwareverde.database.jdbc.JdbcDatabaseConnectionFactory;
+import com.softwareverde.database.mysql.metrics.MysqlInstrumentation;
+import com.softwareverde.database.mysql.row.MysqlColumnarRowFactory;
+import com.softwareverde.database.mysql.row.MysqlRowFactory;
 import com.softwareverde.database.properties.DatabaseCredentials;
 import com.softwareverde.database.properties.DatabaseProperties;
+import com.softwareverde.logging.Logger;
 import com.softwareverde.util.Util;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 public class MysqlDatabaseConnectionFactory implements JdbcDatabaseConnectionFactory {
+    /**
+     * The timings of a warmUp(), for inclusion in a service's startup log.
+     */
+    public static class WarmUpReport {
+        public final Long driverRegistrationMs;
+        public final Integer connectionCount;
+        public final Integer failedConnectionCount;
+        public final Long minConnectMs;
+        public final Long maxConnectMs;
+        public final Integer preparedStatementCount;
+        public final Integer failedStatementCount;
+        public final Long durationMs;
+
+        public WarmUpReport(final Long driverRegistrationMs, final Integer connectionCount, final Integer failedConnectionCount, final Long minConnectMs, final Long maxConnectMs, final Integer preparedStatementCount, final Integer failedStatementCount, final Long durationMs) {
+            this.driverRegistrationMs = driverRegistrationMs;
+            this.connectionCount = connectionCount;
+            this.failedConnectionCount = failedConnectionCount;
+            this.minConnectMs = minConnectMs;
+            this.maxConnectMs = maxConnectMs;
+            this.preparedStatementCount = preparedStatementCount;
+            this.failedStatementCount = failedStatementCount;
+            this.durationMs = durationMs;
+        }
+
+        @Override
+        public String toString() {
+            return (
+                "Warmed up " + this.connectionCount + " connections (" + this.failedConnectionCount + " failed, " + this.minConnectMs + "-" + this.maxConnectMs + "ms each) " +
+                "and prepared " + this.preparedStatementCount + " statements (" + this.failedStatementCount + " failed) in " + this.durationMs + "ms; " +
+                "driver registration took " + this.driverRegistrationMs + "ms."
+            );
+        }
+    }
+
+    protected static final Pattern QUERY_STATEMENT_PATTERN = Pattern.compile("^\\s*(?:SELECT|WITH|SHOW|EXPLAIN|DESCRIBE|\\()", Pattern.CASE_INSENSITIVE);
+
+    protected static volatile Boolean _driverIsRegistered = false;
+    protected static volatile Long _driverRegistrationNanos = 0L;
+
+    /**
+     * Loads the driver, registering it with the DriverManager, once rather than for every connection.
+     */
+    protected static void _registerDriver() throws ClassNotFoundException {
+        if (_driverIsRegistered) { return; }
+
+        synchronized (MysqlDatabaseConnectionFactory.class) {
+            if (_driverIsRegistered) { return; }
+
+            final long startTime = System.nanoTime();
+            Class.forName("org.mariadb.jdbc.Driver");
+            _driverRegistrationNanos = (System.nanoTime() - startTime);
+            _driverIsRegistered = true;
+        }
+    }
+
+    /**
+     * Throws an IllegalArgumentException if any of the properties is not an option of the packaged driver,
+     *  since the driver silently ignores unrecognized options.
+     */
+    protected static void _validateConnectionProperties(final Properties properties) {
+        final HashSet<String> optionNames = new HashSet<>();
+        try {
+            for (final DriverPropertyInfo propertyInfo : new org.mariadb.jdbc.Driver().getPropertyInfo("jdbc:mariadb://localhost/", new Properties())) {
+                optionNames.add(propertyInfo.name);
+            }
+        }
+        catch (final SQLException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        for (final String propertyName : properties.stringPropertyNames()) {
+            if (! optionNames.contains(propertyName)) {
+                throw new IllegalArgumentException("Unsupported connection property: " + propertyName);
+            }
+        }
+    }
+
     public static String createConnectionString(final String hostname, final Integer port, final String schema) {
         final StringBuilder stringBuilder = new StringBuilder("jdbc:mysql://");
         stringBuilder.append(Util.coalesce(hostname, "localhost"));
@@ -23,17 +116,22 @@ public class MysqlDatabaseConnectionFactory implements JdbcDatabaseConnectionFac
     }
 
     protected static void _setDefaultConnectionProperties(final Properties properties) {
-        if (! properties.containsKey("allowPublicKeyRetrieval")) {
+        if (properties.getProperty("allowPublicKeyRetrieval") == null) {
             properties.setProperty("allowPublicKeyRetrieval", "true");
         }
 
-        if (! properties.containsKey("useSSL")) {
+        if (properties.getProperty("useSSL") == null) {
             properties.setProperty("useSSL", "false");
         }
 
-        if (! properties.containsKey("serverTimezone")) {
+        if (properties.getProperty("serverTimezone") == null) {
             properties.setProperty("serverTimezone", "UTC");
         }
+
+        if (properties.getProperty("allowLocalInfile") == null) {
+            // Required by MysqlBulkLoader; the driver only serves the file named by the executed LOAD DATA statement.
+            properties.setProperty("allowLocalInfile", "true");
+        }
     }
 
     /**
@@ -50,6 +148,12 @@ public class MysqlDatabaseConnectionFactory implements JdbcDatabaseConnectionFac
     protected String _username;
     protected String _password;
     protected String _schema;
+    protected Boolean _useColumnarRows = false;
+    protected Integer _preparedStatementCacheSize = 0;
+    protected MysqlInstrumentation _instrumentation = null;
+    protected MysqlQueryResultCache _queryResultCache = null;
+    protected List<String> _warmUpStatements = new ArrayList<>(0);
+    protected volatile String _connectionString = null;
 
     public MysqlDatabaseConnectionFactory(final DatabaseProperties databaseProperties) {
         this(databaseProperties, databaseProperties.getCredentials());
@@ -79,20 +183,269 @@ public class MysqlDatabaseConnectionFactory implements JdbcDatabaseConnectionFac
         MysqlDatabaseConnectionFactory._setDefaultConnectionProperties(_connectionProperties);
     }
 
-    @Override
-    public MysqlDatabaseConnection newConnection() throws DatabaseException {
+    /**
+     * Opens a new physical connection to the database.
+     */
+    protected Connection _newRawConnection() throws ClassNotFoundException, SQLException {
+        _registerDriver();
+
+        String connectionString = _connectionString;
+        if (connectionString == null) {
+            connectionString = MysqlDatabaseConnectionFactory.createConnectionString(_hostname, _port, _schema);
+            _connectionString = connectionString;
+        }
+
+        final Properties connectionProperties = new Properties(_connectionProperties);
+        connectionProperties.put("user", _username);
+        connectionProperties.put("password", _password);
+
+        return DriverManager.getConnection(connectionString, connectionProperties);
+    }
+
+    protected MysqlRowFactory _newRowFactory() {
+        return (_useColumnarRows ? new MysqlColumnarRowFactory() : new MysqlRowFactory());
+    }
+
+    protected MysqlPreparedStatementCache _newPreparedStatementCache() {
+        if (_preparedStatementCacheSize < 1) { return null; }
+        return new MysqlPreparedStatementCache(_preparedStatementCacheSize);
+    }
+
+    /**
+     * Attaches the factory's result cache and instrumentation, if configured, to the connection and records its acquisition.
+     */
+    protected void _onConnectionAcquired(final MysqlDatabaseConnection databaseConnection, final long startTime) {
+        databaseConnection.setQueryResultCache(_queryResultCache);
+
+        final MysqlInstrumentation instrumentation = _instrumentation;
+        if (instrumentation == null) { return; }
+
+        instrumentation.onConnectionAcquired(System.nanoTime() - startTime);
+        databaseConnection.setInstrumentation(instrumentation);
+    }
+
+    protected void _onConnectionFailed(final long startTime) {
+        final MysqlInstrumentation instrumentation = _instrumentation;
+        if (instrumentation == null) { return; }
+
+        instrumentation.onConnectionFailed(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Copies the factory's connection configuration to another factory for the same database.
+     */
+    protected void _copyConfigurationTo(final MysqlDatabaseConnectionFactory connectionFactory) {
+        connectionFactory._useColumnarRows = _useColumnarRows;
+        connectionFactory._preparedStatementCacheSize = _preparedStatementCacheSize;
+        connectionFactory._instrumentation = _instrumentation;
+        connectionFactory._queryResultCache = _queryResultCache;
+        connectionFactory._warmUpStatements = _warmUpStatements;
+    }
+
+    /**
+     * Opens a connection and prepares the warm-up statements on it, recording the connection's timing.
+     *  The connection is returned open so that the connections opened by a warm-up are distinct.
+     */
+    protected MysqlDatabaseConnection _warmUpConnection(final AtomicLong minConnectNanos, final AtomicLong maxConnectNanos, final AtomicInteger preparedStatementCount, final AtomicInteger failedStatementCount) throws DatabaseException {
+        final long startTime = System.nanoTime();
+        final MysqlDatabaseConnection databaseConnection = this.newConnection();
+        final long connectNanos = (System.nanoTime() - startTime);
+        minConnectNanos.accumulateAndGet(connectNanos, Math::min);
+        maxConnectNanos.accumulateAndGet(connectNanos, Math::max);
+
+        for (final String statement : _warmUpStatements) {
+            try {
+                final Boolean isQuery = QUERY_STATEMENT_PATTERN.matcher(statement).find();
+                databaseConnection.prepareStatement(statement, (! isQuery));
+                preparedStatementCount.incrementAndGet();
+            }
+            catch (final DatabaseException exception) {
+                Logger.warn("Unable to prepare warm-up statement: " + statement, exception);
+                failedStatementCount.incrementAndGet();
+            }
+        }
+        return databaseConnection;
+    }
+
+    /**
+     * When enabled, connections map results to MysqlColumnarRows, which share column metadata across a result set
+     *  and store numeric values unboxed.  Disabled by default.
+     */
+    public void setUseColumnarRows(final Boolean useColumnarRows) {
+        _useColumnarRows = useColumnarRows;
+    }
+
+    /**
+     * Sets the number of prepared statements each connection caches, keyed by SQL text.
+     *  Cached statements are reused across executions of query() and executeSql(), and are invalidated by executeDdl().
+     *  A value of zero (the default) disables caching.
+     */
+    public void setPreparedStatementCacheSize(final Integer preparedStatementCacheSize) {
+        _preparedStatementCacheSize = Math.max(0, preparedStatementCacheSize);
+    }
+
+    /**
+     * When enabled, statements are prepared on the server ("useServerPrepStmts") and executed via the binary protocol.
+     *  Most effective when combined with setPreparedStatementCacheSize().
+     */
+    public void setUseServerPreparedStatements(final Boolean useServerPreparedStatements) {
+        _connectionProperties.setProperty("useServerPrepStmts", String.valueOf(useServerPreparedStatements));
+    }
+
+    /**
+     * Applies the profile's connection properties, replacing any previously set values for the same properties;
+     *  individual properties may be overridden afterwards (e.g. via setUseServerPreparedStatements()).
+     *  The properties are validated against the driver's supported options, so a profile incompatible with the
+     *  packaged driver fails at startup rather than being silently ignored.
+     */
+    public void setPerformanceProfile(final MysqlPerformanceProfile performanceProfile) {
+        final Properties properties = performanceProfile.getConnectionProperties();
+        _validateConnectionProperties(properties);
+
+        for (final String propertyName : properties.stringPropertyNames()) {
+            _connectionProperties.setProperty(propertyName, properties.getProperty(propertyName));
+        }
+    }
+
+    /**
+     * Sets the instrumentation notified of connection acquisitions and of the statements executed by connections
+     *  subsequently returned by this factory, e.g. a MysqlQueryMetrics.  Disabled (null) by default.
+     */
+    public void setInstrumentation(final MysqlInstrumentation instrumentation) {
+        _instrumentation = instrumentation;
+    }
+
+    public MysqlInstrumentation getInstrumentation() {
+        return _instrumentation;
+    }
+
+    /**
+     * Sets the query result cache shared by connections subsequently returned by this factory, so that writes through
+     *  any of them invalidate the results cached by all of them.  Disabled (null) by default.
+     */
+    public void setQueryResultCache(final MysqlQueryResultCache queryResultCache) {
+        _queryResultCache = queryResultCache;
+    }
+
+    public MysqlQueryResultCache getQueryResultCache() {
+        return _queryResultCache;
+    }
+
+    /**
+     * Sets the application's frequently executed statements, which warmUp() prepares on each connection it opens.
+     *  Combined with setPreparedStatementCacheSize() on a pooled factory, the statements remain prepared on the pool's
+     *  connections; otherwise, preparing them only validates them and warms the server.
+     */
+    public void setWarmUpStatements(final List<String> warmUpStatements) {
+        _warmUpStatements = new ArrayList<>(warmUpStatements);
+    }
+
+    /**
+     * Concurrently opens connectionCount connections, prepares the warm-up statements on each, and then closes them.
+     *  For a pooled factory (e.g. MysqlDatabase.newPooledConnectionFactory()), the connections are returned to the pool,
+     *  so that the connection handshake (and TLS) has completed, and, with a prepared statement cache, the statements
+     *  remain prepared, before the service receives traffic.  For a non-pooled factory (including MysqlDatabase itself),
+     *  the connections and their statements are closed, so only the driver's registration and class loading are warm and
+     *  the statements are merely validated; each later connection still pays its own handshake and statement preparation.
+     *  Fails only if no connection could be opened; failed statements are logged and counted within the report.
+     */
+    public WarmUpReport warmUp(final Integer connectionCount) throws DatabaseException {
+        final long startTime = System.nanoTime();
         try {
-            Class.forName("org.mariadb.jdbc.Driver");
-            final String connectionString = MysqlDatabaseConnectionFactory.createConnectionString(_hostname, _port, _schema);
+            _registerDriver();
+        }
+        catch (final ClassNotFoundException exception) {
+            throw new DatabaseException(exception);
+        }
+
+        final AtomicLong minConnectNanos = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong maxConnectNanos = new AtomicLong(0L);
+        final AtomicInteger preparedStatementCount = new AtomicInteger(0);
+        final AtomicInteger failedStatementCount = new AtomicInteger(0);
+
+        final ArrayList<MysqlDatabaseConnection> databaseConnections = new ArrayList<>(connectionCount);
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, connectionCount), runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setName("MysqlDatabaseConnectionFactory - WarmUp");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Exception lastException = null;
+        try {
+            final ArrayList<CompletableFuture<MysqlDatabaseConnection>> futures = new ArrayList<>(connectionCount);
+            for (int i = 0; i < connectionCount; ++i) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return _warmUpConnection(minConnectNanos, maxConnectNanos, preparedStatementCount, failedStatementCount);
+                    }
+                    catch (final DatabaseException exception) {
+                        throw new CompletionException(exception);
+                    }
+                }, executorService));
+            }
+
+            for (final CompletableFuture<MysqlDatabaseConnection> future : futures) {
+                try {
+                    databaseConnections.add(future.join());
+                }
+                catch (final CompletionException exception) {
+                    Logger.debug(exception);
+                    lastException = exception;
+                }
+            }
+        }
+        finally {
+            executorService.shutdownNow();
+
+            for (final MysqlDatabaseConnection databaseConnection : databaseConnections) {
+                try {
+                    databaseConnection.close();
+                }
+                catch (final DatabaseException exception) {
+                    Logger.debug(exception);
+                }
+            }
+        }
+
+        if ( databaseConnections.isEmpty() && (lastException != null) ) {
+            final Throwable cause = lastException.getCause();
+            if (cause instanceof DatabaseException) { throw (DatabaseException) cause; }
+            throw new DatabaseException(cause);
+        }
 
-            final Properties connectionProperties = new Properties(_connectionProperties);
-            connectionProperties.put("user", _username);
-            connectionProperties.put("password", _password);
+        final Integer openedConnectionCount = databaseConnections.size();
+        return new WarmUpReport(
+            (_driverRegistrationNanos / 1000000L),
+            openedConnectionCount,
+            (connectionCount - openedConnectionCount),
+            (openedConnectionCount > 0 ? (minConnectNanos.get() / 1000000L) : 0L),
+            (maxConnectNanos.get() / 1000000L),
+            preparedStatementCount.get(),
+            failedStatementCount.get(),
+            ((System.nanoTime() - startTime) / 1000000L)
+        );
+    }
 
-            final Connection connection = DriverManager.getConnection(connectionString, connectionProperties);
-            return new MysqlDatabaseConnection(connection);
+    /**
+     * Returns a transaction executor that retries transactions aborted by deadlocks and lock wait timeouts,
+     *  acquiring a connection from this factory for each attempt.
+     */
+    public MysqlTransactionExecutor newTransactionExecutor() {
+        return new MysqlTransactionExecutor(this);
+    }
+
+    @Override
+    public MysqlDatabaseConnection newConnection() throws DatabaseException {
+        final long startTime = System.nanoTime();
+        try {
+            final Connection connection = _newRawConnection();
+            final MysqlDatabaseConnection databaseConnection = new MysqlDatabaseConnection(connection, _newRowFactory(), _newPreparedStatementCache());
+            _onConnectionAcquired(databaseConnection, startTime);
+            return databaseConnection;
         }
         catch (final Exception exception) {
+            _onConnectionFailed(startTime);
             throw new DatabaseException(exception);
         }
     }
@@ -7,6 +7,7 @@ import com.softwareverde.database.properties.DatabaseProperties;
 import com.softwareverde.database.query.Query;
 import com.softwareverde.database.row.Row;
 import com.softwareverde.database.util.TransactionUtil;
+import com.softwareverde.logging.Logger;
 import com.softwareverde.util.HexUtil;
 import com.softwareverde.util.IoUtil;
 import com.softwareverde.util.StringUtil;
@@ -17,30 +18,106 @@ import java.io.StringReader;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Initializes the schema and applies each upgrade step in order, recording every step within metadata_migration_history
+ *  (its checksum, status, and duration) in addition to the version within metadata.
+ *  At startup, the applied versions and their checksums are verified with a single query; only if an upgrade is
+ *  necessary is the schema's migration lock (GET_LOCK) acquired, so that only one node migrates while the others wait.
+ *  Steps are applied individually, so an interrupted upgrade resumes at the first step not marked COMPLETE.
+ */
 public class MysqlDatabaseInitializer implements com.softwareverde.database.DatabaseInitializer<Connection> {
+    /**
+     * An upgrade handler whose upgrade steps are checksummed (e.g. the SHA-256 of each step's script, via calculateChecksum).
+     *  A step whose checksum no longer matches the checksum recorded when it was applied fails initialization.
+     */
+    public interface ChecksummedUpgradeHandler extends DatabaseUpgradeHandler<Connection> {
+        /**
+         * Returns the checksum of the step upgrading the database to requiredVersion, or null if the step is not checksummed.
+         */
+        String getChecksum(Integer requiredVersion);
+    }
+
+    public static final Long DEFAULT_MIGRATION_LOCK_TIMEOUT_SECONDS = 600L;
+
+    protected static final String METADATA_INIT_SQL_FILE = "queries/metadata_init.sql";
+    protected static final Integer INIT_SCRIPT_VERSION = 0;
+    protected static final Integer ER_NO_SUCH_TABLE = 1146;
+    protected static final Integer MAX_LOCK_NAME_LENGTH = 64;
+    protected static final String MIGRATION_LOCK_SUFFIX = ".migration";
+
+    protected enum MigrationStatus {
+        STARTED, COMPLETE, FAILED
+    }
+
+    protected static class AppliedVersion {
+        public final Integer version;
+        public final String checksum;
+
+        public AppliedVersion(final Integer version, final String checksum) {
+            this.version = version;
+            this.checksum = checksum;
+        }
+    }
+
+    protected static String _hash(final String algorithm, final String value) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
+            final byte[] bytes = messageDigest.digest(StringUtil.stringToBytes(value));
+            final String uppercaseHexString = HexUtil.toHexString(bytes);
+            return uppercaseHexString.toLowerCase();
+        }
+        catch (final NoSuchAlgorithmException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    protected static String _sha256(final String value) {
+        return _hash("SHA-256", value);
+    }
+
+    /**
+     * Returns the name of the schema's migration lock.  GET_LOCK names are limited to 64 characters, so the schema name
+     *  is replaced with its SHA-1 hex if the name would otherwise exceed the limit.
+     */
+    protected static String _getMigrationLockName(final String schema) {
+        final String lockName = (schema + MIGRATION_LOCK_SUFFIX);
+        if (lockName.length() <= MAX_LOCK_NAME_LENGTH) { return lockName; }
+
+        return (_hash("SHA-1", schema) + MIGRATION_LOCK_SUFFIX);
+    }
+
+    protected static Boolean _isMissingTableException(final Throwable exception) {
+        Throwable cause = exception;
+        while (cause != null) {
+            if ( (cause instanceof SQLException) && (((SQLException) cause).getErrorCode() == ER_NO_SUCH_TABLE) ) { return true; }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the SHA-256 hex of the script, for use as a ChecksummedUpgradeHandler checksum.
+     */
+    public static String calculateChecksum(final String script) {
+        return _sha256(script);
+    }
+
     protected final SystemTime _systemTime = new SystemTime();
 
     protected final String _initSqlFileName;
     protected final Integer _requiredDatabaseVersion;
     protected final DatabaseUpgradeHandler<Connection> _databaseUpgradeHandler;
 
+    protected MysqlDatabaseConnectionFactory _parallelScriptConnectionFactory = null;
+    protected Integer _parallelScriptThreadCount = 1;
+    protected Long _migrationLockTimeoutSeconds = DEFAULT_MIGRATION_LOCK_TIMEOUT_SECONDS;
+
     protected String _hashPassword(final String password) {
-        try {
-            try {
-                final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-                final byte[] bytes = messageDigest.digest(StringUtil.stringToBytes(password));
-                final String uppercaseHexString = HexUtil.toHexString(bytes);
-                return uppercaseHexString.toLowerCase();
-            }
-            catch (final NoSuchAlgorithmException exception) {
-                throw new RuntimeException(exception);
-            }
-        }
-        catch (final Exception exception) {
-            throw new RuntimeException(exception);
-        }
+        return _sha256(password);
     }
 
     protected String _getResource(final String resourceFile) {
@@ -50,7 +127,10 @@ public class MysqlDatabaseInitializer implements com.softwareverde.database.Data
         return IoUtil.streamToString(resourceStream);
     }
 
-    protected Integer _getDatabaseVersionNumber(final DatabaseConnection<Connection> databaseConnection) {
+    /**
+     * Returns the current version, or zero if the database has not been initialized.
+     */
+    protected Integer _getDatabaseVersionNumber(final DatabaseConnection<Connection> databaseConnection) throws DatabaseException {
         try {
             final List<Row> rows = databaseConnection.query("SELECT version FROM metadata ORDER BY id DESC LIMIT 1", null);
             if (! rows.isEmpty()) {
@@ -58,10 +138,196 @@ public class MysqlDatabaseInitializer implements com.softwareverde.database.Data
                 return row.getInteger("version");
             }
         }
-        catch (final Exception exception) { }
+        catch (final DatabaseException exception) {
+            if (! _isMissingTableException(exception)) { throw exception; }
+        }
         return 0;
     }
 
+    /**
+     * Returns the applied versions, in order, with the checksums recorded when they were applied (null if not recorded),
+     *  or null if the database has not been initialized or predates metadata_migration_history.
+     */
+    protected List<AppliedVersion> _getAppliedVersions(final DatabaseConnection<Connection> databaseConnection) throws DatabaseException {
+        final List<Row> rows;
+        try {
+            rows = databaseConnection.query("SELECT metadata.version, metadata_migration_history.checksum FROM metadata LEFT OUTER JOIN metadata_migration_history ON metadata_migration_history.version = metadata.version ORDER BY metadata.version ASC", null);
+        }
+        catch (final DatabaseException exception) {
+            if (_isMissingTableException(exception)) { return null; }
+            throw exception;
+        }
+
+        final ArrayList<AppliedVersion> appliedVersions = new ArrayList<>(rows.size());
+        for (final Row row : rows) {
+            appliedVersions.add(new AppliedVersion(row.getInteger("version"), row.getString("checksum")));
+        }
+        return appliedVersions;
+    }
+
+    protected Integer _getMaxVersion(final List<AppliedVersion> appliedVersions) {
+        if (appliedVersions.isEmpty()) { return 0; }
+        return appliedVersions.get(appliedVersions.size() - 1).version;
+    }
+
+    protected void _verifyChecksums(final List<AppliedVersion> appliedVersions) throws DatabaseException {
+        if (! (_databaseUpgradeHandler instanceof ChecksummedUpgradeHandler)) { return; }
+        final ChecksummedUpgradeHandler checksummedUpgradeHandler = (ChecksummedUpgradeHandler) _databaseUpgradeHandler;
+
+        for (final AppliedVersion appliedVersion : appliedVersions) {
+            if (appliedVersion.checksum == null) { continue; } // Applied before checksums were recorded...
+
+            final String checksum = checksummedUpgradeHandler.getChecksum(appliedVersion.version);
+            if ( (checksum != null) && (! checksum.equalsIgnoreCase(appliedVersion.checksum)) ) {
+                throw new DatabaseException("Upgrade to v" + appliedVersion.version + " has changed since it was applied; recorded checksum " + appliedVersion.checksum + ", current checksum " + checksum + ".");
+            }
+        }
+    }
+
+    protected Boolean _isUpToDate(final List<AppliedVersion> appliedVersions) {
+        if (appliedVersions == null) { return false; }
+
+        final Integer databaseVersionNumber = _getMaxVersion(appliedVersions);
+        if (databaseVersionNumber < 1) { return false; }
+        return ( (_requiredDatabaseVersion == null) || (databaseVersionNumber >= _requiredDatabaseVersion) );
+    }
+
+    protected String _getChecksum(final Integer requiredVersion) {
+        if (! (_databaseUpgradeHandler instanceof ChecksummedUpgradeHandler)) { return null; }
+        return ((ChecksummedUpgradeHandler) _databaseUpgradeHandler).getChecksum(requiredVersion);
+    }
+
+    protected void _recordMigrationStep(final DatabaseConnection<Connection> databaseConnection, final Integer version, final String checksum, final MigrationStatus status, final Long durationMs) throws DatabaseException {
+        databaseConnection.executeSql(
+            new Query("INSERT INTO metadata_migration_history (version, checksum, status, duration_ms, timestamp) VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE checksum = VALUES(checksum), status = VALUES(status), duration_ms = VALUES(duration_ms), timestamp = VALUES(timestamp)")
+                .setParameter(version)
+                .setParameter(checksum)
+                .setParameter(status.name())
+                .setParameter(durationMs)
+                .setParameter(_systemTime.getCurrentTimeInSeconds())
+        );
+    }
+
+    /**
+     * Returns the name of the migration lock for the connection's selected schema.  A connection without a selected
+     *  schema cannot be initialized, and would otherwise contend for a lock not associated with any schema.
+     */
+    protected String _getMigrationLockName(final DatabaseConnection<Connection> databaseConnection) throws DatabaseException {
+        final List<Row> rows = databaseConnection.query(new Query("SELECT DATABASE() AS schema_name"));
+        final String schema = rows.get(0).getString("schema_name");
+        if (schema == null) {
+            throw new DatabaseException("Unable to acquire migration lock; no schema is selected.");
+        }
+        return _getMigrationLockName(schema);
+    }
+
+    /**
+     * Waits up to the migration lock timeout for the schema's migration lock.  The lock is held by the connection,
+     *  and is released automatically if the connection is closed.
+     */
+    protected void _acquireMigrationLock(final DatabaseConnection<Connection> databaseConnection, final String lockName) throws DatabaseException {
+        final List<Row> rows = databaseConnection.query(
+            new Query("SELECT GET_LOCK(?, ?) AS is_acquired")
+                .setParameter(lockName)
+                .setParameter(_migrationLockTimeoutSeconds)
+        );
+        final Integer isAcquired = rows.get(0).getInteger("is_acquired");
+        if ( (isAcquired == null) || (isAcquired != 1) ) {
+            throw new DatabaseException("Unable to acquire migration lock within " + _migrationLockTimeoutSeconds + " seconds.");
+        }
+    }
+
+    protected void _releaseMigrationLock(final DatabaseConnection<Connection> databaseConnection, final String lockName) {
+        try {
+            databaseConnection.query(
+                new Query("SELECT RELEASE_LOCK(?) AS is_released")
+                    .setParameter(lockName)
+            );
+        }
+        catch (final DatabaseException exception) {
+            Logger.warn("Unable to release migration lock.", exception);
+        }
+    }
+
+    protected String _getMetadataInitScript() {
+        final String metadataInitScript = _getResource(METADATA_INIT_SQL_FILE);
+        if (metadataInitScript == null) { throw new RuntimeException("Unable to load: " + METADATA_INIT_SQL_FILE); }
+        return metadataInitScript;
+    }
+
+    /**
+     * Initializes and upgrades the database; must be called while holding the migration lock.
+     */
+    protected void _migrate(final DatabaseConnection<Connection> maintenanceDatabaseConnection) throws Exception {
+        { // Check/Handle Database Initialization....
+            final Integer databaseVersionNumber = _getDatabaseVersionNumber(maintenanceDatabaseConnection);
+            if (databaseVersionNumber < 1) {
+                final Long startTime = System.currentTimeMillis();
+                _runSqlScript(_getMetadataInitScript(), maintenanceDatabaseConnection);
+
+                String checksum = null;
+                if (_initSqlFileName != null) {
+                    final String initScript = IoUtil.getResource(_initSqlFileName);
+                    if (_parallelScriptConnectionFactory != null) {
+                        _runSqlScriptInParallel(initScript);
+                    }
+                    else {
+                        _runSqlScript(initScript, maintenanceDatabaseConnection);
+                    }
+                    checksum = _sha256(initScript);
+                }
+
+                _recordMigrationStep(maintenanceDatabaseConnection, INIT_SCRIPT_VERSION, checksum, MigrationStatus.COMPLETE, (System.currentTimeMillis() - startTime));
+            }
+            else {
+                _runSqlScript(_getMetadataInitScript(), maintenanceDatabaseConnection); // Creates any metadata tables added since the database was initialized...
+            }
+        }
+
+        final List<AppliedVersion> appliedVersions = _getAppliedVersions(maintenanceDatabaseConnection);
+        _verifyChecksums(appliedVersions);
+
+        if (_requiredDatabaseVersion != null) { // Check/Handle Database Upgrade...
+            Integer databaseVersionNumber = _getMaxVersion(appliedVersions); // Get the updated database version after initialization...
+            while (databaseVersionNumber < _requiredDatabaseVersion) {
+                final Integer nextVersionNumber = databaseVersionNumber + 1;
+                final String checksum = _getChecksum(nextVersionNumber);
+                final Long startTime = System.currentTimeMillis();
+                _recordMigrationStep(maintenanceDatabaseConnection, nextVersionNumber, checksum, MigrationStatus.STARTED, null);
+
+                final Boolean upgradeWasSuccessful;
+                try {
+                    upgradeWasSuccessful = _databaseUpgradeHandler.onUpgrade(maintenanceDatabaseConnection, databaseVersionNumber, nextVersionNumber);
+                }
+                catch (final Exception exception) {
+                    _recordMigrationStep(maintenanceDatabaseConnection, nextVersionNumber, checksum, MigrationStatus.FAILED, (System.currentTimeMillis() - startTime));
+                    throw exception;
+                }
+                if (! upgradeWasSuccessful) {
+                    _recordMigrationStep(maintenanceDatabaseConnection, nextVersionNumber, checksum, MigrationStatus.FAILED, (System.currentTimeMillis() - startTime));
+                    throw new RuntimeException("Unable to upgrade database from v" + databaseVersionNumber + " to v" + nextVersionNumber + ".");
+                }
+
+                TransactionUtil.startTransaction(maintenanceDatabaseConnection);
+                try {
+                    maintenanceDatabaseConnection.executeSql(
+                        new Query("INSERT INTO metadata (version, timestamp) VALUES (?, ?)")
+                            .setParameter(nextVersionNumber)
+                            .setParameter(_systemTime.getCurrentTimeInSeconds())
+                    );
+                    _recordMigrationStep(maintenanceDatabaseConnection, nextVersionNumber, checksum, MigrationStatus.COMPLETE, (System.currentTimeMillis() - startTime));
+                    TransactionUtil.commitTransaction(maintenanceDatabaseConnection);
+                }
+                catch (final DatabaseException exception) {
+                    TransactionUtil.rollbackTransaction(maintenanceDatabaseConnection);
+                    throw exception;
+                }
+
+                databaseVersionNumber = nextVersionNumber;
+            }
+        }
+    }
+
     protected void _runSqlScript(final String databaseInitFileContents, final DatabaseConnection<Connection> databaseConnection) throws DatabaseException {
         try {
             TransactionUtil.startTransaction(databaseConnection);
@@ -74,6 +340,11 @@ public class MysqlDatabaseInitializer implements com.softwareverde.database.Data
         }
     }
 
+    protected void _runSqlScriptInParallel(final String databaseInitFileContents) throws DatabaseException {
+        final ParallelSqlScriptRunner scriptRunner = new ParallelSqlScriptRunner(_parallelScriptConnectionFactory, _parallelScriptThreadCount, true);
+        scriptRunner.runScript(new StringReader(databaseInitFileContents));
+    }
+
     public MysqlDatabaseInitializer() {
         this(null, 1, new DatabaseUpgradeHandler<Connection>() {
             @Override
@@ -97,6 +368,23 @@ public class MysqlDatabaseInitializer implements com.softwareverde.database.Data
         _databaseUpgradeHandler = databaseUpgradeHandler;
     }
 
+    /**
+     * When set, the init script is executed concurrently across threadCount connections from the connectionFactory
+     *  via ParallelSqlScriptRunner, instead of serially within a single transaction.
+     *  The connectionFactory must connect with the maintenance credentials.
+     */
+    public void setParallelScriptExecution(final MysqlDatabaseConnectionFactory connectionFactory, final Integer threadCount) {
+        _parallelScriptConnectionFactory = connectionFactory;
+        _parallelScriptThreadCount = threadCount;
+    }
+
+    /**
+     * Sets how long a node waits for another node's migration to complete before initialization fails.
+     */
+    public void setMigrationLockTimeoutSeconds(final Long migrationLockTimeoutSeconds) {
+        _migrationLockTimeoutSeconds = migrationLockTimeoutSeconds;
+    }
+
     /**
      * Creates the schema if it does not exist and a maintenance user to use instead of root.
      *  The maintenance username is [schema]_maintenance; its password being the sha256 hash of the root password.
@@ -162,48 +450,35 @@ public class MysqlDatabaseInitializer implements com.softwareverde.database.Data
 
     @Override
     public Integer getDatabaseVersionNumber(final DatabaseConnection<Connection> databaseConnection) {
-        return _getDatabaseVersionNumber(databaseConnection);
+        try {
+            return _getDatabaseVersionNumber(databaseConnection);
+        }
+        catch (final DatabaseException exception) {
+            throw new RuntimeException(exception);
+        }
     }
 
     @Override
     public void initializeDatabase(final DatabaseConnection<Connection> maintenanceDatabaseConnection) throws DatabaseException {
         try {
-            { // Check/Handle Database Initialization....
-                final Integer databaseVersionNumber = _getDatabaseVersionNumber(maintenanceDatabaseConnection);
-                if (databaseVersionNumber < 1) {
-                    final String metadataInitSqlFile = "queries/metadata_init.sql";
-                    final String query = _getResource(metadataInitSqlFile);
-                    if (query == null) { throw new RuntimeException("Unable to load: "+ metadataInitSqlFile); }
-
-                    _runSqlScript(query, maintenanceDatabaseConnection);
-
-                    if (_initSqlFileName != null) {
-                        final String initScript = IoUtil.getResource(_initSqlFileName);
-                        _runSqlScript(initScript, maintenanceDatabaseConnection);
-                    }
-                }
+            final List<AppliedVersion> appliedVersions = _getAppliedVersions(maintenanceDatabaseConnection);
+            if (_isUpToDate(appliedVersions)) {
+                _verifyChecksums(appliedVersions);
+                return;
             }
 
-            if (_requiredDatabaseVersion != null) { // Check/Handle Database Upgrade...
-                Integer databaseVersionNumber = _getDatabaseVersionNumber(maintenanceDatabaseConnection); // Get the updated database version after initialization...
-                while (databaseVersionNumber < _requiredDatabaseVersion) {
-                    final Integer nextVersionNumber = databaseVersionNumber + 1;
-                    final Boolean upgradeWasSuccessful = _databaseUpgradeHandler.onUpgrade(maintenanceDatabaseConnection, databaseVersionNumber, nextVersionNumber);
-                    if (! upgradeWasSuccessful) {
-                        throw new RuntimeException("Unable to upgrade database from v" + databaseVersionNumber + " to v" + nextVersionNumber + ".");
-                    }
-
-                    maintenanceDatabaseConnection.executeSql(
-                        new Query("INSERT INTO metadata (version, timestamp) VALUES (?, ?)")
-                            .setParameter(nextVersionNumber)
-                            .setParameter(_systemTime.getCurrentTimeInSeconds())
-                    );
-                    databaseVersionNumber = nextVersionNumber;
-                }
+            final String migrationLockName = _getMigrationLockName(maintenanceDatabaseConnection);
+            _acquireMigrationLock(maintenanceDatabaseConnection, migrationLockName);
+            try {
+                _migrate(maintenanceDatabaseConnection); // Re-reads the version, since another node may have migrated while this node waited...
+            }
+            finally {
+                _releaseMigrationLock(maintenanceDatabaseConnection, migrationLockName);
             }
         }
         catch (final Exception exception) {
+            if (exception instanceof DatabaseException) { throw (DatabaseException) exception; }
             throw new DatabaseException(exception);
         }
     }
-}
\ No newline at end of file
+}
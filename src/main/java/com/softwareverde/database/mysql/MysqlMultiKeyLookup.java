@@ -0,0 +1,522 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import com.softwareverde.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fetches the rows matching a collection of (optionally composite) keys, indexed by key.
+ *  Keys are de-duplicated and split into chunks, each fetched via a single prepared "WHERE key IN (?, ...)" query, or
+ *  "WHERE (keyA, keyB) IN ((?, ?), ...)" for composite keys.  Chunks are sized to a power of two (up to the maximum
+ *  chunk size), padded by repeating their last key, so that only a handful of distinct statements are ever prepared;
+ *  the SQL of each size is built once, and each size is prepared once per connection (or, if the connection has a
+ *  prepared statement cache, reused via that cache).  Chunks are fetched concurrently, each group of chunks on its own
+ *  connection.
+ *
+ *  Above the temporary-table threshold, the keys are instead inserted into a temporary table on a single connection
+ *  and the rows are fetched via one "WHERE key IN (SELECT key FROM ...)" semi-join, which avoids parsing and planning
+ *  a very large number of IN-lists.  Creating the temporary table requires the CREATE TEMPORARY TABLES privilege, which
+ *  the users created by MysqlDatabaseInitializer are not granted; if it cannot be created, a warning is logged and this
+ *  and all subsequent lookups use IN-lists.
+ *
+ *  Key values must be Longs (or narrower integers), Strings, or byte[]s, and each key must have the same value types:
+ *  Longs for integer columns up to a signed BIGINT, Strings for character columns, and byte[]s for binary columns.
+ *  Rows are indexed by reading each key column as the key's value type, so a BIGINT UNSIGNED column whose values may
+ *  exceed Long.MAX_VALUE must be looked up with String keys (the value's decimal representation).
+ *  The select-list must include the key columns, whose values are used to index the rows.  String keys are indexed by
+ *  the value returned by the server, so a row matching a key only under the column's collation (e.g. a key differing
+ *  in case) is not returned for that key.
+ */
+public class MysqlMultiKeyLookup {
+    public static class Key {
+        /**
+         * Creates a key from its column values, in the order of the lookup's key columns.
+         */
+        public static Key of(final Object... values) {
+            final Object[] normalizedValues = new Object[values.length];
+            for (int i = 0; i < values.length; ++i) {
+                final Object value = values[i];
+                if ( (value instanceof Integer) || (value instanceof Short) || (value instanceof Byte) ) {
+                    normalizedValues[i] = ((Number) value).longValue();
+                }
+                else if ( (value instanceof Long) || (value instanceof String) || (value instanceof byte[]) ) {
+                    normalizedValues[i] = value;
+                }
+                else {
+                    throw new IllegalArgumentException("Unsupported key value type: " + (value != null ? value.getClass().getSimpleName() : "null"));
+                }
+            }
+            return new Key(normalizedValues);
+        }
+
+        protected final Object[] _values;
+
+        protected Key(final Object[] values) {
+            _values = values;
+        }
+
+        public Object getValue(final int index) {
+            return _values[index];
+        }
+
+        public int getColumnCount() {
+            return _values.length;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (this == object) { return true; }
+            if (! (object instanceof Key)) { return false; }
+            return Arrays.deepEquals(_values, ((Key) object)._values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.deepHashCode(_values);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.deepToString(_values);
+        }
+    }
+
+    public static final Integer DEFAULT_MAX_CHUNK_SIZE = 1024;
+    public static final Integer DEFAULT_TEMPORARY_TABLE_THRESHOLD = 50000;
+
+    protected static final Integer MAX_PLACEHOLDER_COUNT = 65535;
+    protected static final String TEMPORARY_TABLE_NAME = "_multi_key_lookup";
+
+    /**
+     * Returns the size of the next chunk: the maximum chunk size, or for the final chunk, the smallest power of two
+     *  (up to the maximum) holding the remaining keys.
+     */
+    protected static Integer _getChunkSize(final Integer remainingKeyCount, final Integer maxChunkSize) {
+        if (remainingKeyCount >= maxChunkSize) { return maxChunkSize; }
+
+        int chunkSize = 1;
+        while (chunkSize < remainingKeyCount) {
+            chunkSize <<= 1;
+        }
+        return Math.min(chunkSize, maxChunkSize);
+    }
+
+    /**
+     * Splits the keys into chunks of cacheable sizes; the final chunk is padded by repeating its last key.
+     */
+    protected static List<List<Key>> _splitIntoChunks(final List<Key> keys, final Integer maxChunkSize) {
+        final ArrayList<List<Key>> chunks = new ArrayList<>((keys.size() / maxChunkSize) + 1);
+
+        int index = 0;
+        while (index < keys.size()) {
+            final int remainingKeyCount = (keys.size() - index);
+            final int chunkSize = _getChunkSize(remainingKeyCount, maxChunkSize);
+            final int keyCount = Math.min(chunkSize, remainingKeyCount);
+
+            final ArrayList<Key> chunk = new ArrayList<>(chunkSize);
+            chunk.addAll(keys.subList(index, (index + keyCount)));
+            final Key lastKey = chunk.get(chunk.size() - 1);
+            while (chunk.size() < chunkSize) {
+                chunk.add(lastKey);
+            }
+
+            chunks.add(chunk);
+            index += keyCount;
+        }
+        return chunks;
+    }
+
+    protected static void _setParameter(final Query query, final Object value) {
+        if (value instanceof Long) {
+            query.setParameter((Long) value);
+        }
+        else if (value instanceof String) {
+            query.setParameter((String) value);
+        }
+        else {
+            query.setParameter((byte[]) value);
+        }
+    }
+
+    protected final MysqlDatabaseConnectionFactory _connectionFactory;
+    protected final String _tableName;
+    protected final List<String> _keyColumnNames;
+
+    protected Integer _threadCount = Runtime.getRuntime().availableProcessors();
+    protected Integer _maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+    protected Integer _temporaryTableThreshold = DEFAULT_TEMPORARY_TABLE_THRESHOLD;
+    protected String _columns = "*";
+    protected String _whereClause = null;
+    protected volatile boolean _isTemporaryTableUnavailable = false;
+
+    protected final ConcurrentHashMap<Integer, String> _chunkQueries = new ConcurrentHashMap<>();
+
+    protected String _joinKeyColumnNames() {
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (final String keyColumnName : _keyColumnNames) {
+            if (stringBuilder.length() > 0) { stringBuilder.append(", "); }
+            stringBuilder.append(MysqlUtil.quoteIdentifier(keyColumnName));
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Returns the placeholders for keyCount keys; each key is a parenthesized row if it is composite or asRows is set.
+     */
+    protected String _getPlaceholders(final Integer keyCount, final Boolean asRows) {
+        final int keyColumnCount = _keyColumnNames.size();
+        final boolean isRow = (asRows || (keyColumnCount > 1));
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < keyCount; ++i) {
+            if (i > 0) { stringBuilder.append(", "); }
+            if (isRow) { stringBuilder.append("("); }
+            for (int j = 0; j < keyColumnCount; ++j) {
+                if (j > 0) { stringBuilder.append(", "); }
+                stringBuilder.append("?");
+            }
+            if (isRow) { stringBuilder.append(")"); }
+        }
+        return stringBuilder.toString();
+    }
+
+    protected String _createSelectQuery(final String keyCondition) {
+        return (
+            "SELECT " + _columns + " FROM " + MysqlUtil.quoteIdentifier(_tableName) +
+            " WHERE " + (_keyColumnNames.size() > 1 ? ("(" + _joinKeyColumnNames() + ")") : _joinKeyColumnNames()) + " IN (" + keyCondition + ")" +
+            (_whereClause != null ? (" AND (" + _whereClause + ")") : "")
+        );
+    }
+
+    protected String _createChunkQuery(final Integer chunkSize) {
+        return _chunkQueries.computeIfAbsent(chunkSize, (size) -> _createSelectQuery(_getPlaceholders(size, false)));
+    }
+
+    protected String _createTemporaryTableQuery() {
+        // The key columns' types (and collations) are copied from the table...
+        return ("CREATE TEMPORARY TABLE " + MysqlUtil.quoteIdentifier(TEMPORARY_TABLE_NAME) + " SELECT " + _joinKeyColumnNames() + " FROM " + MysqlUtil.quoteIdentifier(_tableName) + " LIMIT 0");
+    }
+
+    protected String _createTemporaryTableInsertQuery(final Integer chunkSize) {
+        return ("INSERT INTO " + MysqlUtil.quoteIdentifier(TEMPORARY_TABLE_NAME) + " VALUES " + _getPlaceholders(chunkSize, true));
+    }
+
+    protected Query _bindKeys(final Query query, final List<Key> keys) {
+        for (final Key key : keys) {
+            for (int i = 0; i < key.getColumnCount(); ++i) {
+                _setParameter(query, key.getValue(i));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Returns the key of the row, reading each key column as the type of the corresponding value of the template key.
+     */
+    protected Key _getKey(final Row row, final Key templateKey) {
+        final Object[] values = new Object[_keyColumnNames.size()];
+        for (int i = 0; i < values.length; ++i) {
+            final String keyColumnName = _keyColumnNames.get(i);
+            final Object templateValue = templateKey.getValue(i);
+            if (templateValue instanceof Long) {
+                values[i] = row.getLong(keyColumnName);
+            }
+            else if (templateValue instanceof String) {
+                values[i] = row.getString(keyColumnName);
+            }
+            else {
+                values[i] = row.getBytes(keyColumnName);
+            }
+        }
+        return new Key(values);
+    }
+
+    protected void _indexRows(final List<Row> rows, final Key templateKey, final Map<Key, List<Row>> rowsByKey) {
+        for (final Row row : rows) {
+            final Key key = _getKey(row, templateKey);
+            rowsByKey.computeIfAbsent(key, (unused) -> new ArrayList<>(1)).add(row);
+        }
+    }
+
+    /**
+     * Executes the chunk's query via the statement prepared for its size, preparing it if this is the first chunk of
+     *  that size on the connection.
+     */
+    protected List<Row> _queryChunk(final MysqlDatabaseConnection databaseConnection, final Map<Integer, PreparedStatement> preparedStatements, final List<Key> chunk) throws DatabaseException {
+        final Query query = _bindKeys(new Query(_createChunkQuery(chunk.size())), chunk);
+        if (databaseConnection.getPreparedStatementCache() != null) {
+            return databaseConnection.query(query);
+        }
+
+        try {
+            PreparedStatement preparedStatement = preparedStatements.get(chunk.size());
+            if (preparedStatement == null) {
+                final Connection connection = databaseConnection.getRawConnection();
+                preparedStatement = connection.prepareStatement(query.getQueryString());
+                preparedStatements.put(chunk.size(), preparedStatement);
+            }
+
+            MysqlDatabaseConnection._bindParameters(preparedStatement, query.getParameters());
+            final ArrayList<Row> rows = new ArrayList<>();
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(databaseConnection._mysqlRowFactory.fromResultSet(resultSet));
+                }
+            }
+            preparedStatement.clearParameters();
+            return rows;
+        }
+        catch (final SQLException exception) {
+            throw new DatabaseException(exception);
+        }
+    }
+
+    protected Map<Key, List<Row>> _fetchChunks(final List<List<Key>> chunks, final Key templateKey) throws DatabaseException {
+        final HashMap<Key, List<Row>> rowsByKey = new HashMap<>();
+        final HashMap<Integer, PreparedStatement> preparedStatements = new HashMap<>();
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            try {
+                for (final List<Key> chunk : chunks) {
+                    final List<Row> rows = _queryChunk(databaseConnection, preparedStatements, chunk);
+                    _indexRows(rows, templateKey, rowsByKey);
+                }
+            }
+            finally {
+                for (final PreparedStatement preparedStatement : preparedStatements.values()) {
+                    MysqlPreparedStatementCache._closeStatement(preparedStatement);
+                }
+            }
+        }
+        return rowsByKey;
+    }
+
+    /**
+     * Fetches the rows via a temporary table, or returns null if the temporary table could not be created (e.g. the user
+     *  lacks the CREATE TEMPORARY TABLES privilege), in which case subsequent lookups use IN-lists.
+     *  The statements are executed on the raw connection: the temporary table is private to the connection, so executing
+     *  them via executeDdl() would needlessly clear the connection's prepared statement cache and invalidate cached query
+     *  results of the table, and the semi-join's results must not be cached.
+     */
+    protected Map<Key, List<Row>> _fetchViaTemporaryTable(final List<Key> keys, final Key templateKey) throws DatabaseException {
+        final String dropTemporaryTableQuery = ("DROP TEMPORARY TABLE IF EXISTS " + MysqlUtil.quoteIdentifier(TEMPORARY_TABLE_NAME));
+        final HashMap<Key, List<Row>> rowsByKey = new HashMap<>();
+        final HashMap<Integer, PreparedStatement> insertStatements = new HashMap<>();
+
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            final Connection connection = databaseConnection.getRawConnection();
+            try (final Statement statement = connection.createStatement()) {
+                statement.execute(dropTemporaryTableQuery);
+                statement.execute(_createTemporaryTableQuery());
+            }
+            catch (final SQLException exception) {
+                Logger.warn("Unable to create temporary table; the CREATE TEMPORARY TABLES privilege is required. Falling back to IN-lists: " + exception.getMessage());
+                _isTemporaryTableUnavailable = true;
+                return null;
+            }
+
+            try {
+                for (final List<Key> chunk : _splitIntoChunks(keys, _maxChunkSize)) {
+                    final Query query = _bindKeys(new Query(_createTemporaryTableInsertQuery(chunk.size())), chunk);
+                    PreparedStatement preparedStatement = insertStatements.get(chunk.size());
+                    if (preparedStatement == null) {
+                        preparedStatement = connection.prepareStatement(query.getQueryString());
+                        insertStatements.put(chunk.size(), preparedStatement);
+                    }
+
+                    MysqlDatabaseConnection._bindParameters(preparedStatement, query.getParameters());
+                    preparedStatement.executeUpdate();
+                    preparedStatement.clearParameters();
+                }
+
+                final ArrayList<Row> rows = new ArrayList<>();
+                try (
+                    final PreparedStatement preparedStatement = connection.prepareStatement(_createSelectQuery("SELECT " + _joinKeyColumnNames() + " FROM " + MysqlUtil.quoteIdentifier(TEMPORARY_TABLE_NAME)));
+                    final ResultSet resultSet = preparedStatement.executeQuery()
+                ) {
+                    while (resultSet.next()) {
+                        rows.add(databaseConnection._mysqlRowFactory.fromResultSet(resultSet));
+                    }
+                }
+                _indexRows(rows, templateKey, rowsByKey);
+            }
+            finally {
+                for (final PreparedStatement preparedStatement : insertStatements.values()) {
+                    MysqlPreparedStatementCache._closeStatement(preparedStatement);
+                }
+
+                try (final Statement statement = connection.createStatement()) {
+                    statement.execute(dropTemporaryTableQuery);
+                }
+            }
+        }
+        catch (final SQLException exception) {
+            throw new DatabaseException(exception);
+        }
+        return rowsByKey;
+    }
+
+    public MysqlMultiKeyLookup(final MysqlDatabaseConnectionFactory connectionFactory, final String tableName, final String keyColumnName) {
+        this(connectionFactory, tableName, Collections.singletonList(keyColumnName));
+    }
+
+    public MysqlMultiKeyLookup(final MysqlDatabaseConnectionFactory connectionFactory, final String tableName, final List<String> keyColumnNames) {
+        if (keyColumnNames.isEmpty()) {
+            throw new IllegalArgumentException("Invalid value for keyColumnNames; at least one key column is required.");
+        }
+
+        _connectionFactory = connectionFactory;
+        _tableName = tableName;
+        _keyColumnNames = Collections.unmodifiableList(new ArrayList<>(keyColumnNames));
+    }
+
+    /**
+     * Sets the maximum number of connections used to fetch chunks concurrently.
+     *  Defaults to the number of available processors.
+     */
+    public void setThreadCount(final Integer threadCount) {
+        _threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Sets the maximum number of keys fetched by a single query; limited by the server's maximum of 65535 placeholders
+     *  per statement.
+     */
+    public void setMaxChunkSize(final Integer maxChunkSize) {
+        final int maxPlaceholderChunkSize = (MAX_PLACEHOLDER_COUNT / _keyColumnNames.size());
+        _maxChunkSize = Math.max(1, Math.min(maxChunkSize, maxPlaceholderChunkSize));
+        _chunkQueries.clear();
+    }
+
+    /**
+     * Sets the number of distinct keys above which they are joined via a temporary table rather than fetched via
+     *  IN-lists; null disables the temporary table.  The temporary table requires the CREATE TEMPORARY TABLES privilege.
+     */
+    public void setTemporaryTableThreshold(final Integer temporaryTableThreshold) {
+        _temporaryTableThreshold = temporaryTableThreshold;
+    }
+
+    /**
+     * Sets the select-list of the lookup (e.g. "id, hash"), which must include the key columns; defaults to "*".
+     */
+    public void setColumns(final String columns) {
+        _columns = columns;
+        _chunkQueries.clear();
+    }
+
+    /**
+     * Restricts the lookup to rows matching the SQL condition.  The condition is not parameterized and must not
+     *  contain untrusted input.
+     */
+    public void setWhereClause(final String whereClause) {
+        _whereClause = whereClause;
+        _chunkQueries.clear();
+    }
+
+    /**
+     * Returns the rows matching each key, in the order of the provided keys.  Keys without any matching rows are absent
+     *  from the map.  If any chunk fails, the failure is rethrown.
+     */
+    public Map<Key, List<Row>> lookup(final Collection<Key> keys) throws DatabaseException {
+        final ArrayList<Key> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        final LinkedHashMap<Key, List<Row>> rowsByKey = new LinkedHashMap<>(distinctKeys.size() * 2);
+        if (distinctKeys.isEmpty()) { return rowsByKey; }
+
+        final Key templateKey = distinctKeys.get(0);
+        for (final Key key : distinctKeys) {
+            if (key.getColumnCount() != _keyColumnNames.size()) {
+                throw new IllegalArgumentException("Key " + key + " does not match key columns: " + _keyColumnNames);
+            }
+        }
+
+        final ArrayList<Map<Key, List<Row>>> results = new ArrayList<>();
+        final boolean shouldUseTemporaryTable = ( (_temporaryTableThreshold != null) && (distinctKeys.size() > _temporaryTableThreshold) && (! _isTemporaryTableUnavailable) );
+        final Map<Key, List<Row>> temporaryTableResult = (shouldUseTemporaryTable ? _fetchViaTemporaryTable(distinctKeys, templateKey) : null);
+        if (temporaryTableResult != null) {
+            results.add(temporaryTableResult);
+        }
+        else {
+            final List<List<Key>> chunks = _splitIntoChunks(distinctKeys, _maxChunkSize);
+            final int groupCount = Math.min(_threadCount, chunks.size());
+            if (groupCount < 2) {
+                results.add(_fetchChunks(chunks, templateKey));
+            }
+            else {
+                final ArrayList<List<List<Key>>> chunkGroups = new ArrayList<>(groupCount);
+                for (int i = 0; i < groupCount; ++i) {
+                    chunkGroups.add(new ArrayList<>());
+                }
+                for (int i = 0; i < chunks.size(); ++i) {
+                    chunkGroups.get(i % groupCount).add(chunks.get(i));
+                }
+
+                final ForkJoinPool forkJoinPool = new ForkJoinPool(groupCount);
+                try {
+                    final ArrayList<CompletableFuture<Map<Key, List<Row>>>> futures = new ArrayList<>(groupCount);
+                    for (final List<List<Key>> chunkGroup : chunkGroups) {
+                        futures.add(CompletableFuture.supplyAsync(() -> {
+                            try {
+                                return _fetchChunks(chunkGroup, templateKey);
+                            }
+                            catch (final Exception exception) {
+                                throw new CompletionException(exception);
+                            }
+                        }, forkJoinPool));
+                    }
+
+                    for (final CompletableFuture<Map<Key, List<Row>>> future : futures) {
+                        results.add(future.join());
+                    }
+                }
+                catch (final CompletionException exception) {
+                    final Throwable cause = (exception.getCause() != null ? exception.getCause() : exception);
+                    if (cause instanceof DatabaseException) { throw (DatabaseException) cause; }
+                    throw new DatabaseException(cause);
+                }
+                finally {
+                    forkJoinPool.shutdownNow();
+                }
+            }
+        }
+
+        for (final Key key : distinctKeys) {
+            for (final Map<Key, List<Row>> result : results) {
+                final List<Row> rows = result.get(key);
+                if (rows != null) {
+                    rowsByKey.put(key, rows);
+                    break;
+                }
+            }
+        }
+        return rowsByKey;
+    }
+
+    /**
+     * Returns the rows matching each single-column key; equivalent to lookup() with keys created via Key.of().
+     */
+    public Map<Key, List<Row>> lookupValues(final Collection<?> values) throws DatabaseException {
+        final ArrayList<Key> keys = new ArrayList<>(values.size());
+        for (final Object value : values) {
+            keys.add(Key.of(value));
+        }
+        return this.lookup(keys);
+    }
+}
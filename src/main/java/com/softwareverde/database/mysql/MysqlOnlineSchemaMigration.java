@@ -0,0 +1,545 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseConnection;
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import com.softwareverde.database.util.TransactionUtil;
+import com.softwareverde.logging.Logger;
+import com.softwareverde.util.IoUtil;
+import com.softwareverde.util.type.time.SystemTime;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies an ALTER TABLE specification without locking the table for the duration of the copy, in the style of
+ *  pt-online-schema-change.  The table's structure is copied to a shadow table ("_[table]_new"), which is altered while
+ *  empty; triggers on the original table replay every subsequent INSERT, UPDATE, and DELETE onto the shadow table while
+ *  the existing rows are copied over in key-ordered chunks.  Once the copy completes, the tables are swapped via a
+ *  single, atomic RENAME TABLE, and the triggers and the original table ("_[table]_old") are dropped.
+ *
+ *  Each chunk is copied within its own short transaction, together with the update of the migration's progress in the
+ *  metadata_online_migrations table.  If the migration is interrupted, running it again (i.e. on the next start, when
+ *  used from a DatabaseUpgradeHandler) resumes from the last copied chunk.  Before each chunk, the copy waits while
+ *  the server's Threads_running exceeds the configured maximum, or while any configured replica lags too far behind.
+ *  Reading a replica's status requires the REPLICATION CLIENT privilege (SLAVE MONITOR on MariaDB 10.5+) on the replica,
+ *  which the users created by MysqlDatabaseInitializer are not granted; if a replica's status cannot be read, a warning
+ *  is logged and the migration fails after the configured maximum wait.
+ *
+ *  The table must have a single-column integer primary key (or other unique, indexed integer column), and must not be
+ *  referenced by foreign keys.  Creating triggers may require the SUPER privilege (or log_bin_trust_function_creators)
+ *  when binary logging is enabled.  Rows violating a unique key added by the specification are silently discarded.
+ */
+public class MysqlOnlineSchemaMigration {
+    public interface ProgressListener {
+        void onProgress(Long copiedRowCount, Long lastCopiedKey, Long maxKey);
+    }
+
+    public static final Integer DEFAULT_CHUNK_SIZE = 1000;
+    public static final Long DEFAULT_MAX_THREADS_RUNNING = 50L;
+    public static final Long DEFAULT_THROTTLE_INTERVAL_MS = TimeUnit.SECONDS.toMillis(1L);
+    public static final Long DEFAULT_MAX_REPLICA_STATUS_UNAVAILABLE_MS = TimeUnit.MINUTES.toMillis(5L);
+
+    protected static final Integer MAX_IDENTIFIER_LENGTH = 64;
+    protected static final String METADATA_INIT_SQL_FILE = "queries/metadata_init.sql";
+
+    protected enum State {
+        COPYING, SWAPPED, COMPLETE
+    }
+
+    protected static class Progress {
+        public Long id;
+        public State state;
+        public Long lastCopiedKey;
+        public Long maxKey;
+        public Long copiedRowCount;
+    }
+
+    /**
+     * Returns the columns of the original table that also exist within the shadow table, in the original table's order.
+     *  Columns added by the migration receive their defaults; dropped columns are not copied.
+     */
+    protected static List<String> _getSharedColumnNames(final List<String> columnNames, final List<String> shadowColumnNames) {
+        final HashSet<String> shadowColumnNameSet = new HashSet<>(shadowColumnNames.size());
+        for (final String columnName : shadowColumnNames) {
+            shadowColumnNameSet.add(columnName.toLowerCase());
+        }
+
+        final ArrayList<String> sharedColumnNames = new ArrayList<>(columnNames.size());
+        for (final String columnName : columnNames) {
+            if (shadowColumnNameSet.contains(columnName.toLowerCase())) {
+                sharedColumnNames.add(columnName);
+            }
+        }
+        return sharedColumnNames;
+    }
+
+    /**
+     * Returns true if the column names include columnName; column names are case-insensitive.
+     */
+    protected static Boolean _containsColumnName(final List<String> columnNames, final String columnName) {
+        for (final String existingColumnName : columnNames) {
+            if (existingColumnName.equalsIgnoreCase(columnName)) { return true; }
+        }
+        return false;
+    }
+
+    protected static String _joinColumnNames(final List<String> columnNames, final String prefix) {
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (final String columnName : columnNames) {
+            if (stringBuilder.length() > 0) { stringBuilder.append(", "); }
+            stringBuilder.append(prefix);
+            stringBuilder.append(MysqlUtil.quoteIdentifier(columnName));
+        }
+        return stringBuilder.toString();
+    }
+
+    protected final SystemTime _systemTime = new SystemTime();
+    protected final DatabaseConnection<Connection> _databaseConnection;
+    protected final String _tableName;
+    protected final String _keyColumnName;
+    protected final String _alterSpecification;
+
+    protected final String _shadowTableName;
+    protected final String _oldTableName;
+    protected final String _insertTriggerName;
+    protected final String _updateTriggerName;
+    protected final String _deleteTriggerName;
+
+    protected Integer _chunkSize = DEFAULT_CHUNK_SIZE;
+    protected Long _maxThreadsRunning = DEFAULT_MAX_THREADS_RUNNING;
+    protected Long _maxReplicationLagSeconds = ReplicatedMysqlDatabaseConnectionFactory.DEFAULT_MAX_REPLICATION_LAG_SECONDS;
+    protected Long _throttleIntervalMs = DEFAULT_THROTTLE_INTERVAL_MS;
+    protected Long _maxReplicaStatusUnavailableMs = DEFAULT_MAX_REPLICA_STATUS_UNAVAILABLE_MS;
+    protected final ArrayList<MysqlDatabaseConnectionFactory> _replicaConnectionFactories = new ArrayList<>();
+    protected Boolean _dropOldTable = true;
+    protected ProgressListener _progressListener = null;
+
+    protected String _getResource(final String resourceFile) {
+        final ClassLoader classLoader = this.getClass().getClassLoader();
+        final InputStream resourceStream = classLoader.getResourceAsStream(resourceFile);
+        if (resourceStream == null) { return null; }
+        return IoUtil.streamToString(resourceStream);
+    }
+
+    /**
+     * Creates the progress table for databases initialized before it existed; metadata_init.sql is idempotent.
+     */
+    protected void _initializeProgressTable() throws Exception {
+        final String metadataInitScript = _getResource(METADATA_INIT_SQL_FILE);
+        if (metadataInitScript == null) { throw new DatabaseException("Unable to load: " + METADATA_INIT_SQL_FILE); }
+
+        final SqlScriptRunner scriptRunner = new SqlScriptRunner(null, true, true);
+        for (final String statement : scriptRunner.parseScript(new StringReader(metadataInitScript))) {
+            _databaseConnection.executeDdl(statement);
+        }
+    }
+
+    protected Progress _loadProgress() throws DatabaseException {
+        final List<Row> rows = _databaseConnection.query(
+            new Query("SELECT id, alter_specification, state, last_copied_key, max_key, copied_row_count FROM metadata_online_migrations WHERE table_name = ? AND state != ? ORDER BY id DESC LIMIT 1")
+                .setParameter(_tableName)
+                .setParameter(State.COMPLETE.name())
+        );
+        if (rows.isEmpty()) { return null; }
+
+        final Row row = rows.get(0);
+        if (! _alterSpecification.equals(row.getString("alter_specification"))) {
+            throw new DatabaseException("An unfinished migration of " + _tableName + " exists with a different specification: " + row.getString("alter_specification"));
+        }
+
+        final Progress progress = new Progress();
+        progress.id = row.getLong("id");
+        progress.state = State.valueOf(row.getString("state"));
+        progress.lastCopiedKey = row.getLong("last_copied_key");
+        progress.maxKey = row.getLong("max_key");
+        progress.copiedRowCount = row.getLong("copied_row_count");
+        return progress;
+    }
+
+    protected void _updateState(final Progress progress, final State state) throws DatabaseException {
+        _databaseConnection.executeSql(
+            new Query("UPDATE metadata_online_migrations SET state = ?, timestamp = ? WHERE id = ?")
+                .setParameter(state.name())
+                .setParameter(_systemTime.getCurrentTimeInSeconds())
+                .setParameter(progress.id)
+        );
+        progress.state = state;
+    }
+
+    protected Boolean _tableExists(final String tableName) throws DatabaseException {
+        final List<Row> rows = _databaseConnection.query(
+            new Query("SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")
+                .setParameter(tableName)
+        );
+        return (! rows.isEmpty());
+    }
+
+    /**
+     * Returns the table's non-generated columns, in order.
+     */
+    protected List<String> _getColumnNames(final String tableName) throws DatabaseException {
+        final List<Row> rows = _databaseConnection.query(
+            new Query("SELECT COLUMN_NAME FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND EXTRA NOT LIKE '%GENERATED%' AND EXTRA NOT IN ('VIRTUAL', 'PERSISTENT', 'STORED') ORDER BY ORDINAL_POSITION ASC")
+                .setParameter(tableName)
+        );
+
+        final ArrayList<String> columnNames = new ArrayList<>(rows.size());
+        for (final Row row : rows) {
+            columnNames.add(row.getString("COLUMN_NAME"));
+        }
+        return columnNames;
+    }
+
+    protected List<String> _getCopiedColumnNames() throws DatabaseException {
+        final List<String> columnNames = _getSharedColumnNames(_getColumnNames(_tableName), _getColumnNames(_shadowTableName));
+        if (! _containsColumnName(columnNames, _keyColumnName)) {
+            throw new DatabaseException("Migration of " + _tableName + " must not drop or rename its key column: " + _keyColumnName);
+        }
+        return columnNames;
+    }
+
+    protected String _createInsertTriggerQuery(final List<String> columnNames) {
+        return (
+            "CREATE TRIGGER " + MysqlUtil.quoteIdentifier(_insertTriggerName) + " AFTER INSERT ON " + MysqlUtil.quoteIdentifier(_tableName) + " FOR EACH ROW " +
+            "REPLACE INTO " + MysqlUtil.quoteIdentifier(_shadowTableName) + " (" + _joinColumnNames(columnNames, "") + ") VALUES (" + _joinColumnNames(columnNames, "NEW.") + ")"
+        );
+    }
+
+    protected String _createUpdateTriggerQuery(final List<String> columnNames) {
+        final String shadowTable = MysqlUtil.quoteIdentifier(_shadowTableName);
+        final String keyColumn = MysqlUtil.quoteIdentifier(_keyColumnName);
+        return (
+            "CREATE TRIGGER " + MysqlUtil.quoteIdentifier(_updateTriggerName) + " AFTER UPDATE ON " + MysqlUtil.quoteIdentifier(_tableName) + " FOR EACH ROW BEGIN " +
+            "DELETE IGNORE FROM " + shadowTable + " WHERE (NOT (OLD." + keyColumn + " <=> NEW." + keyColumn + ")) AND " + shadowTable + "." + keyColumn + " <=> OLD." + keyColumn + "; " +
+            "REPLACE INTO " + shadowTable + " (" + _joinColumnNames(columnNames, "") + ") VALUES (" + _joinColumnNames(columnNames, "NEW.") + "); " +
+            "END"
+        );
+    }
+
+    protected String _createDeleteTriggerQuery() {
+        final String shadowTable = MysqlUtil.quoteIdentifier(_shadowTableName);
+        final String keyColumn = MysqlUtil.quoteIdentifier(_keyColumnName);
+        return (
+            "CREATE TRIGGER " + MysqlUtil.quoteIdentifier(_deleteTriggerName) + " AFTER DELETE ON " + MysqlUtil.quoteIdentifier(_tableName) + " FOR EACH ROW " +
+            "DELETE IGNORE FROM " + shadowTable + " WHERE " + shadowTable + "." + keyColumn + " <=> OLD." + keyColumn
+        );
+    }
+
+    /**
+     * The shared lock on the copied rows prevents a concurrent DELETE (and its trigger) from completing between the
+     *  chunk's read and its insertion, which would otherwise resurrect the deleted row within the shadow table.
+     *  Rows already written by the triggers are newer than the copied rows, and are therefore retained via IGNORE.
+     */
+    protected String _createCopyChunkQuery(final List<String> columnNames) {
+        final String keyColumn = MysqlUtil.quoteIdentifier(_keyColumnName);
+        return (
+            "INSERT IGNORE INTO " + MysqlUtil.quoteIdentifier(_shadowTableName) + " (" + _joinColumnNames(columnNames, "") + ") " +
+            "SELECT " + _joinColumnNames(columnNames, "") + " FROM " + MysqlUtil.quoteIdentifier(_tableName) +
+            " WHERE " + keyColumn + " > ? AND " + keyColumn + " <= ? LOCK IN SHARE MODE"
+        );
+    }
+
+    protected String _createSwapQuery() {
+        return (
+            "RENAME TABLE " + MysqlUtil.quoteIdentifier(_tableName) + " TO " + MysqlUtil.quoteIdentifier(_oldTableName) + ", " +
+            MysqlUtil.quoteIdentifier(_shadowTableName) + " TO " + MysqlUtil.quoteIdentifier(_tableName)
+        );
+    }
+
+    protected void _dropTriggers() throws DatabaseException {
+        for (final String triggerName : new String[]{ _insertTriggerName, _updateTriggerName, _deleteTriggerName }) {
+            _databaseConnection.executeDdl("DROP TRIGGER IF EXISTS " + MysqlUtil.quoteIdentifier(triggerName));
+        }
+    }
+
+    /**
+     * Creates the shadow table and its triggers, discarding any left behind by a migration interrupted before its
+     *  progress was recorded, and records the key range to be copied.  Rows inserted beyond the recorded range are
+     *  copied by the triggers.
+     */
+    protected Progress _begin() throws DatabaseException {
+        if (_tableExists(_oldTableName)) {
+            throw new DatabaseException("Unable to migrate " + _tableName + "; " + _oldTableName + " already exists.");
+        }
+
+        _dropTriggers();
+        _databaseConnection.executeDdl("DROP TABLE IF EXISTS " + MysqlUtil.quoteIdentifier(_shadowTableName));
+        _databaseConnection.executeDdl("CREATE TABLE " + MysqlUtil.quoteIdentifier(_shadowTableName) + " LIKE " + MysqlUtil.quoteIdentifier(_tableName));
+        _databaseConnection.executeDdl("ALTER TABLE " + MysqlUtil.quoteIdentifier(_shadowTableName) + " " + _alterSpecification);
+
+        final List<String> columnNames = _getCopiedColumnNames();
+        _databaseConnection.executeDdl(_createInsertTriggerQuery(columnNames));
+        _databaseConnection.executeDdl(_createUpdateTriggerQuery(columnNames));
+        _databaseConnection.executeDdl(_createDeleteTriggerQuery());
+
+        final String keyColumn = MysqlUtil.quoteIdentifier(_keyColumnName);
+        final List<Row> rows = _databaseConnection.query("SELECT MIN(" + keyColumn + ") AS min_key, MAX(" + keyColumn + ") AS max_key FROM " + MysqlUtil.quoteIdentifier(_tableName), null);
+        final Row row = rows.get(0);
+        final Long minKey = row.getLong("min_key");
+        final Long maxKey = row.getLong("max_key");
+
+        final Progress progress = new Progress();
+        progress.state = State.COPYING;
+        progress.lastCopiedKey = (minKey != null ? (minKey - 1L) : null);
+        progress.maxKey = maxKey;
+        progress.copiedRowCount = 0L;
+        progress.id = _databaseConnection.executeSql(
+            new Query("INSERT INTO metadata_online_migrations (table_name, alter_specification, state, last_copied_key, max_key, copied_row_count, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)")
+                .setParameter(_tableName)
+                .setParameter(_alterSpecification)
+                .setParameter(progress.state.name())
+                .setParameter(progress.lastCopiedKey)
+                .setParameter(progress.maxKey)
+                .setParameter(progress.copiedRowCount)
+                .setParameter(_systemTime.getCurrentTimeInSeconds())
+        );
+        return progress;
+    }
+
+    protected Long _getThreadsRunning() throws DatabaseException {
+        final List<Row> rows = _databaseConnection.query("SHOW GLOBAL STATUS LIKE 'Threads_running'", null);
+        if (rows.isEmpty()) { return null; }
+        return rows.get(0).getLong("Value");
+    }
+
+    /**
+     * Returns the reason the copy should pause for the server's load, or null if it may proceed.
+     */
+    protected String _getThrottleReason() throws DatabaseException {
+        if (_maxThreadsRunning != null) {
+            final Long threadsRunning = _getThreadsRunning();
+            if ( (threadsRunning != null) && (threadsRunning > _maxThreadsRunning) ) {
+                return ("Threads_running is " + threadsRunning + ".");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the reason the copy should pause for a lagging replica, or null if it may proceed.
+     *  Throws if a replica's status cannot be read (e.g. the user lacks the REPLICATION CLIENT privilege) or its
+     *  replication is stopped.
+     */
+    protected String _getReplicaThrottleReason(final List<MysqlDatabaseConnection> replicaConnections) throws DatabaseException {
+        for (final MysqlDatabaseConnection replicaConnection : replicaConnections) {
+            final Long replicationLagSeconds = ReplicatedMysqlDatabaseConnectionFactory._getReplicationLagSeconds(replicaConnection);
+            if ( (replicationLagSeconds != null) && (replicationLagSeconds > _maxReplicationLagSeconds) ) {
+                return ("Replica is " + replicationLagSeconds + "s behind.");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits until the copy may proceed.  Throws once a replica's status has been unavailable for longer than the
+     *  configured maximum; the migration resumes from its last copied chunk when run again.
+     */
+    protected void _throttle(final List<MysqlDatabaseConnection> replicaConnections) throws Exception {
+        Long replicaStatusUnavailableSinceMs = null;
+        while (true) {
+            String throttleReason = _getThrottleReason();
+            if (throttleReason == null) {
+                try {
+                    throttleReason = _getReplicaThrottleReason(replicaConnections);
+                    replicaStatusUnavailableSinceMs = null;
+                }
+                catch (final DatabaseException exception) {
+                    final Long now = _systemTime.getCurrentTimeInMilliSeconds();
+                    if (replicaStatusUnavailableSinceMs == null) {
+                        Logger.warn("Replica status is unavailable; the REPLICATION CLIENT (or SLAVE MONITOR) privilege is required, and replication must be running. Pausing migration of " + _tableName + ": " + exception.getMessage());
+                        replicaStatusUnavailableSinceMs = now;
+                    }
+                    else if ( (_maxReplicaStatusUnavailableMs != null) && ((now - replicaStatusUnavailableSinceMs) >= _maxReplicaStatusUnavailableMs) ) {
+                        throw new DatabaseException("Replica status was unavailable for " + (now - replicaStatusUnavailableSinceMs) + "ms; aborting migration of " + _tableName + ".", exception);
+                    }
+                    throttleReason = ("Replica status is unavailable: " + exception.getMessage());
+                }
+            }
+            if (throttleReason == null) { return; }
+
+            Logger.debug("Throttling migration of " + _tableName + ": " + throttleReason);
+            Thread.sleep(_throttleIntervalMs);
+        }
+    }
+
+    protected void _copyRows(final Progress progress) throws Exception {
+        if (progress.maxKey == null) { return; } // The table was empty...
+
+        final String keyColumn = MysqlUtil.quoteIdentifier(_keyColumnName);
+        final String chunkEndQuery = ("SELECT " + keyColumn + " FROM " + MysqlUtil.quoteIdentifier(_tableName) + " WHERE " + keyColumn + " > ? ORDER BY " + keyColumn + " ASC LIMIT 1 OFFSET " + (_chunkSize - 1));
+        final String copyChunkQuery = _createCopyChunkQuery(_getCopiedColumnNames());
+
+        final ArrayList<MysqlDatabaseConnection> replicaConnections = new ArrayList<>(_replicaConnectionFactories.size());
+        try {
+            for (final MysqlDatabaseConnectionFactory replicaConnectionFactory : _replicaConnectionFactories) {
+                replicaConnections.add(replicaConnectionFactory.newConnection());
+            }
+
+            while (progress.lastCopiedKey < progress.maxKey) {
+                _throttle(replicaConnections);
+
+                final List<Row> rows = _databaseConnection.query(new Query(chunkEndQuery).setParameter(progress.lastCopiedKey));
+                final Long chunkEndKey = (rows.isEmpty() ? progress.maxKey : Math.min(progress.maxKey, rows.get(0).getLong(_keyColumnName)));
+
+                TransactionUtil.startTransaction(_databaseConnection);
+                try {
+                    _databaseConnection.executeSql(
+                        new Query(copyChunkQuery)
+                            .setParameter(progress.lastCopiedKey)
+                            .setParameter(chunkEndKey)
+                    );
+                    final Integer copiedRowCount = _databaseConnection.getRowsAffectedCount();
+
+                    _databaseConnection.executeSql(
+                        new Query("UPDATE metadata_online_migrations SET last_copied_key = ?, copied_row_count = copied_row_count + ?, timestamp = ? WHERE id = ?")
+                            .setParameter(chunkEndKey)
+                            .setParameter(copiedRowCount)
+                            .setParameter(_systemTime.getCurrentTimeInSeconds())
+                            .setParameter(progress.id)
+                    );
+                    TransactionUtil.commitTransaction(_databaseConnection);
+
+                    progress.lastCopiedKey = chunkEndKey;
+                    progress.copiedRowCount += copiedRowCount;
+                }
+                catch (final Exception exception) {
+                    TransactionUtil.rollbackTransaction(_databaseConnection);
+                    throw exception;
+                }
+
+                if (_progressListener != null) {
+                    _progressListener.onProgress(progress.copiedRowCount, progress.lastCopiedKey, progress.maxKey);
+                }
+            }
+        }
+        finally {
+            for (final MysqlDatabaseConnection replicaConnection : replicaConnections) {
+                try {
+                    replicaConnection.close();
+                }
+                catch (final DatabaseException exception) {
+                    Logger.debug(exception);
+                }
+            }
+        }
+    }
+
+    protected void _finish(final Progress progress) throws DatabaseException {
+        _dropTriggers(); // The triggers were renamed along with the original table...
+        if (_dropOldTable) {
+            _databaseConnection.executeDdl("DROP TABLE IF EXISTS " + MysqlUtil.quoteIdentifier(_oldTableName));
+        }
+        _updateState(progress, State.COMPLETE);
+    }
+
+    /**
+     * @param databaseConnection    a maintenance connection, e.g. the connection provided to DatabaseUpgradeHandler.onUpgrade
+     * @param keyColumnName         the table's integer primary key (or other unique, indexed integer column)
+     * @param alterSpecification    the ALTER TABLE specification, without "ALTER TABLE [table]", e.g. "ADD COLUMN ..., ADD INDEX ..."
+     */
+    public MysqlOnlineSchemaMigration(final DatabaseConnection<Connection> databaseConnection, final String tableName, final String keyColumnName, final String alterSpecification) {
+        if ((tableName.length() + 5) > MAX_IDENTIFIER_LENGTH) {
+            throw new IllegalArgumentException("Invalid value for tableName; the name is too long to derive the shadow table's name.");
+        }
+
+        _databaseConnection = databaseConnection;
+        _tableName = tableName;
+        _keyColumnName = keyColumnName;
+        _alterSpecification = alterSpecification.trim();
+
+        _shadowTableName = ("_" + tableName + "_new");
+        _oldTableName = ("_" + tableName + "_old");
+        _insertTriggerName = ("_" + tableName + "_ins");
+        _updateTriggerName = ("_" + tableName + "_upd");
+        _deleteTriggerName = ("_" + tableName + "_del");
+    }
+
+    /**
+     * Sets the number of rows copied per transaction.
+     */
+    public void setChunkSize(final Integer chunkSize) {
+        _chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * The copy pauses while the server's Threads_running exceeds maxThreadsRunning.  Null disables the check.
+     */
+    public void setMaxThreadsRunning(final Long maxThreadsRunning) {
+        _maxThreadsRunning = maxThreadsRunning;
+    }
+
+    /**
+     * The copy pauses while the replica is lagging by more than the configured maximum, or while its replication is stopped
+     *  (see setMaxReplicaStatusUnavailableMs).  The replica's user requires the REPLICATION CLIENT privilege.
+     */
+    public void addReplica(final MysqlDatabaseConnectionFactory replicaConnectionFactory) {
+        _replicaConnectionFactories.add(replicaConnectionFactory);
+    }
+
+    public void setMaxReplicationLagSeconds(final Long maxReplicationLagSeconds) {
+        _maxReplicationLagSeconds = maxReplicationLagSeconds;
+    }
+
+    public void setThrottleIntervalMs(final Long throttleIntervalMs) {
+        _throttleIntervalMs = throttleIntervalMs;
+    }
+
+    /**
+     * The migration fails once a replica's status has been unavailable (e.g. its replication is stopped) for longer than
+     *  maxReplicaStatusUnavailableMs.  Defaults to five minutes; null pauses the copy until the status is available.
+     */
+    public void setMaxReplicaStatusUnavailableMs(final Long maxReplicaStatusUnavailableMs) {
+        _maxReplicaStatusUnavailableMs = maxReplicaStatusUnavailableMs;
+    }
+
+    /**
+     * When disabled, the original table is retained as "_[table]_old" after the swap.  Enabled by default.
+     */
+    public void setDropOldTable(final Boolean dropOldTable) {
+        _dropOldTable = dropOldTable;
+    }
+
+    public void setProgressListener(final ProgressListener progressListener) {
+        _progressListener = progressListener;
+    }
+
+    /**
+     * Runs the migration, resuming the table's unfinished migration if one exists.
+     */
+    public void run() throws DatabaseException {
+        try {
+            _initializeProgressTable();
+
+            Progress progress = _loadProgress();
+            if (progress == null) {
+                progress = _begin();
+            }
+            else if ( (progress.state == State.COPYING) && (! _tableExists(_shadowTableName)) && _tableExists(_oldTableName) ) {
+                _updateState(progress, State.SWAPPED); // Interrupted after the swap, but before it was recorded...
+            }
+            else {
+                Logger.debug("Resuming migration of " + _tableName + " after " + progress.copiedRowCount + " rows.");
+            }
+
+            if (progress.state == State.COPYING) {
+                _copyRows(progress);
+
+                _databaseConnection.executeDdl(_createSwapQuery());
+                _updateState(progress, State.SWAPPED);
+            }
+
+            _finish(progress);
+        }
+        catch (final Exception exception) {
+            if (exception instanceof DatabaseException) { throw (DatabaseException) exception; }
+            throw new DatabaseException(exception);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.softwareverde.database.mysql;
+
+import java.util.Properties;
+
+/**
+ * Named sets of MariaDB Connector/J connection properties tuned for a workload; see
+ *  MysqlDatabaseConnectionFactory.setPerformanceProfile().
+ *
+ *  OLTP_LOW_LATENCY: many small, repeated statements.  Statements are prepared on the server and cached, so repeated
+ *      executions skip parsing and use the compact binary protocol; prepare and execute are pipelined into one round-trip.
+ *  BULK_ANALYTICS: large results and bulk writes.  Results are fetched in chunks rather than buffered by the driver in
+ *      their entirety, batches are sent via the server's bulk protocol, and one-off statements are not server-prepared.
+ *  WAN_COMPRESSED: links where bandwidth, rather than the server, is the bottleneck.  The protocol is compressed,
+ *      statements are server-prepared and cached, and dead connections are detected via TCP keep-alive.
+ */
+public enum MysqlPerformanceProfile {
+    OLTP_LOW_LATENCY, BULK_ANALYTICS, WAN_COMPRESSED;
+
+    public Properties getConnectionProperties() {
+        final Properties properties = new Properties();
+        properties.setProperty("useReadAheadInput", "true");
+        properties.setProperty("disablePipeline", "false");
+        properties.setProperty("useBulkStmts", "true");
+
+        switch (this) {
+            case OLTP_LOW_LATENCY: {
+                properties.setProperty("useCompression", "false");
+                properties.setProperty("useServerPrepStmts", "true");
+                properties.setProperty("cachePrepStmts", "true");
+                properties.setProperty("prepStmtCacheSize", "250");
+                properties.setProperty("defaultFetchSize", "0");
+            } break;
+
+            case BULK_ANALYTICS: {
+                properties.setProperty("useCompression", "false");
+                properties.setProperty("useServerPrepStmts", "false");
+                properties.setProperty("defaultFetchSize", "4096");
+            } break;
+
+            case WAN_COMPRESSED: {
+                properties.setProperty("useCompression", "true");
+                properties.setProperty("useServerPrepStmts", "true");
+                properties.setProperty("cachePrepStmts", "true");
+                properties.setProperty("prepStmtCacheSize", "250");
+                properties.setProperty("defaultFetchSize", "1024");
+                properties.setProperty("tcpKeepAlive", "true");
+            } break;
+        }
+
+        return properties;
+    }
+}
@@ -0,0 +1,115 @@
+package com.softwareverde.database.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least-recently-used cache of PreparedStatements for a single physical connection, keyed by SQL text.
+ *  Evicted statements are closed, which also deallocates them on the server when server-side prepares are enabled.
+ *  The cache is not thread-safe; it is guarded by its owning MysqlDatabaseConnection.
+ */
+public class MysqlPreparedStatementCache {
+    public static final Integer DEFAULT_MAX_SIZE = 64;
+
+    protected static void _closeStatement(final PreparedStatement preparedStatement) {
+        try {
+            preparedStatement.close();
+        }
+        catch (final SQLException exception) { }
+    }
+
+    protected final Integer _maxSize;
+    protected final LinkedHashMap<String, PreparedStatement> _preparedStatements;
+
+    protected Long _hitCount = 0L;
+    protected Long _missCount = 0L;
+    protected Long _evictionCount = 0L;
+
+    protected String _getKey(final String sql, final Boolean returnGeneratedKeys) {
+        return ((returnGeneratedKeys ? "K:" : "Q:") + sql);
+    }
+
+    public MysqlPreparedStatementCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public MysqlPreparedStatementCache(final Integer maxSize) {
+        _maxSize = maxSize;
+        _preparedStatements = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldestEntry) {
+                if (this.size() <= _maxSize) { return false; }
+
+                _closeStatement(eldestEntry.getValue());
+                _evictionCount += 1L;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached statement for the SQL, preparing and caching it if necessary.
+     *  Statements that have been closed externally are re-prepared.
+     */
+    public PreparedStatement getPreparedStatement(final Connection connection, final String sql, final Boolean returnGeneratedKeys) throws SQLException {
+        final String key = _getKey(sql, returnGeneratedKeys);
+
+        final PreparedStatement cachedPreparedStatement = _preparedStatements.get(key);
+        if (cachedPreparedStatement != null) {
+            if (! cachedPreparedStatement.isClosed()) {
+                _hitCount += 1L;
+                return cachedPreparedStatement;
+            }
+            _preparedStatements.remove(key);
+        }
+
+        _missCount += 1L;
+        final PreparedStatement preparedStatement = (returnGeneratedKeys ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : connection.prepareStatement(sql));
+        _preparedStatements.put(key, preparedStatement);
+        return preparedStatement;
+    }
+
+    /**
+     * Removes the statement from the cache and closes it; used when a statement is left in an unknown state.
+     */
+    public void invalidate(final String sql, final Boolean returnGeneratedKeys) {
+        final PreparedStatement preparedStatement = _preparedStatements.remove(_getKey(sql, returnGeneratedKeys));
+        if (preparedStatement != null) {
+            _closeStatement(preparedStatement);
+        }
+    }
+
+    /**
+     * Closes and removes all cached statements.
+     */
+    public void clear() {
+        for (final PreparedStatement preparedStatement : _preparedStatements.values()) {
+            _closeStatement(preparedStatement);
+        }
+        _preparedStatements.clear();
+    }
+
+    public Integer getSize() {
+        return _preparedStatements.size();
+    }
+
+    public Integer getMaxSize() {
+        return _maxSize;
+    }
+
+    public Long getHitCount() {
+        return _hitCount;
+    }
+
+    public Long getMissCount() {
+        return _missCount;
+    }
+
+    public Long getEvictionCount() {
+        return _evictionCount;
+    }
+}
@@ -0,0 +1,375 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.mysql.metrics.SqlFingerprint;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.query.parameter.TypedParameter;
+import com.softwareverde.database.row.Row;
+import com.softwareverde.util.HexUtil;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Size-bounded cache of query results, shared by the connections of a MysqlDatabaseConnectionFactory.
+ *  Results are keyed by SQL text and parameter values, expire after a per-query TTL, and are evicted least-recently-used
+ *  once their estimated size exceeds the configured byte limit.  Only plain SELECTs are cached; statements containing
+ *  locking clauses or non-deterministic functions are not.
+ *
+ *  When a connection of the factory writes via executeSql() or executeDdl(), every cached result whose SQL references
+ *  a written table is invalidated; writes that cannot be analyzed invalidate the entire cache.  Writes made within a
+ *  transaction are invalidated again once the transaction commits, and until then, results referencing the written
+ *  tables are not cached, since other connections still read the rows as they were before the write.  Writes made through
+ *  getRawConnection(), by other factories, or by other clients are not observed and are only reflected once the
+ *  affected results expire, so TTLs should be chosen accordingly.
+ */
+public class MysqlQueryResultCache {
+    public static final Long DEFAULT_MAX_BYTE_COUNT = (64L * 1024L * 1024L);
+
+    protected static final Pattern CACHEABLE_PATTERN = Pattern.compile("^\\s*SELECT\\s", Pattern.CASE_INSENSITIVE);
+    protected static final Pattern UNCACHEABLE_PATTERN = Pattern.compile(
+        "\\b(?:FOR\\s+UPDATE|FOR\\s+SHARE|LOCK\\s+IN\\s+SHARE\\s+MODE|INTO|CURRENT_DATE|CURRENT_TIME|CURRENT_TIMESTAMP|CURRENT_USER|LOCALTIME|LOCALTIMESTAMP|UTC_DATE|UTC_TIME|UTC_TIMESTAMP)\\b" +
+        "|\\b(?:NOW|SYSDATE|CURDATE|CURTIME|UNIX_TIMESTAMP|RAND|UUID|UUID_SHORT|CONNECTION_ID|LAST_INSERT_ID|FOUND_ROWS|ROW_COUNT|GET_LOCK|RELEASE_LOCK|IS_FREE_LOCK|IS_USED_LOCK|SLEEP|USER|DATABASE|SCHEMA|NEXTVAL|LASTVAL)\\s*\\(" +
+        "|@",
+        Pattern.CASE_INSENSITIVE
+    );
+    protected static final Pattern WORD_PATTERN = Pattern.compile("[\\w$]+");
+    protected static final Long ENTRY_OVERHEAD_BYTE_COUNT = 128L;
+    protected static final Long VALUE_OVERHEAD_BYTE_COUNT = 16L;
+
+    protected static class Entry {
+        public final String key;
+        public final List<Row> rows;
+        public final Set<String> words;
+        public final Long byteCount;
+        public final Long expirationTime;
+
+        public Entry(final String key, final List<Row> rows, final Set<String> words, final Long byteCount, final Long expirationTime) {
+            this.key = key;
+            this.rows = rows;
+            this.words = words;
+            this.byteCount = byteCount;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    protected static Boolean _isCacheable(final String fingerprint) {
+        return ( CACHEABLE_PATTERN.matcher(fingerprint).find() && (! UNCACHEABLE_PATTERN.matcher(fingerprint).find()) );
+    }
+
+    protected static String _getKey(final Query query) {
+        final StringBuilder stringBuilder = new StringBuilder(query.getQueryString());
+        final List<TypedParameter> parameters = query.getParameters();
+        if (parameters != null) {
+            for (final TypedParameter parameter : parameters) {
+                final Object value = (parameter != null ? parameter.value : null);
+                stringBuilder.append('\0');
+                if (value == null) {
+                    stringBuilder.append("\\N");
+                }
+                else if (value instanceof byte[]) {
+                    stringBuilder.append("0x");
+                    stringBuilder.append(HexUtil.toHexString((byte[]) value));
+                }
+                else {
+                    stringBuilder.append(value.getClass().getSimpleName());
+                    stringBuilder.append(':');
+                    stringBuilder.append(value);
+                }
+            }
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Returns the lowercase words of the fingerprinted query; a superset of the names of the tables it reads.
+     */
+    protected static Set<String> _getWords(final String fingerprint) {
+        final HashSet<String> words = new HashSet<>();
+        final Matcher matcher = WORD_PATTERN.matcher(fingerprint);
+        while (matcher.find()) {
+            words.add(matcher.group().toLowerCase());
+        }
+        return words;
+    }
+
+    protected static Long _estimateByteCount(final List<Row> rows) {
+        long byteCount = ENTRY_OVERHEAD_BYTE_COUNT;
+        for (final Row row : rows) {
+            for (final String columnName : row.getColumnNames()) {
+                final String value = row.getString(columnName);
+                byteCount += (VALUE_OVERHEAD_BYTE_COUNT + (value != null ? (value.length() * 2L) : 0L));
+            }
+        }
+        return byteCount;
+    }
+
+    protected final Long _maxByteCount;
+    protected final Long _defaultTtlMs;
+    protected final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<>(16, 0.75F, true);
+    protected final HashMap<String, Set<String>> _keysByWord = new HashMap<>();
+
+    protected final HashMap<String, Integer> _uncommittedWriteCounts = new HashMap<>();
+    protected Integer _unanalyzedUncommittedWriteCount = 0;
+
+    protected Long _byteCount = 0L;
+    protected Long _invalidationCount = 0L;
+
+    protected Long _hitCount = 0L;
+    protected Long _missCount = 0L;
+    protected Long _evictionCount = 0L;
+    protected Long _expirationCount = 0L;
+    protected Long _invalidatedEntryCount = 0L;
+
+    protected void _unindex(final Entry entry) {
+        _byteCount -= entry.byteCount;
+
+        for (final String word : entry.words) {
+            final Set<String> keys = _keysByWord.get(word);
+            if (keys == null) { continue; }
+
+            keys.remove(entry.key);
+            if (keys.isEmpty()) {
+                _keysByWord.remove(word);
+            }
+        }
+    }
+
+    protected void _remove(final Entry entry) {
+        _entries.remove(entry.key);
+        _unindex(entry);
+    }
+
+    /**
+     * Returns true if any of the words may name a table with an uncommitted write.
+     */
+    protected Boolean _hasUncommittedWrite(final Set<String> words) {
+        if (_unanalyzedUncommittedWriteCount > 0) { return true; }
+        if (_uncommittedWriteCounts.isEmpty()) { return false; }
+
+        for (final String word : words) {
+            if (_uncommittedWriteCounts.containsKey(word)) { return true; }
+        }
+        return false;
+    }
+
+    protected void _evictIfNecessary() {
+        final Iterator<Entry> iterator = _entries.values().iterator();
+        while ( (_byteCount > _maxByteCount) && iterator.hasNext() ) {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            _unindex(entry);
+            _evictionCount += 1L;
+        }
+    }
+
+    public MysqlQueryResultCache(final Long defaultTtlMs) {
+        this(defaultTtlMs, DEFAULT_MAX_BYTE_COUNT);
+    }
+
+    /**
+     * Queries executed via MysqlDatabaseConnection.query() are cached for defaultTtlMs; a defaultTtlMs of zero caches
+     *  only queries executed with an explicit TTL (see MysqlDatabaseConnection.query(Query, Long)).
+     */
+    public MysqlQueryResultCache(final Long defaultTtlMs, final Long maxByteCount) {
+        _defaultTtlMs = Math.max(0L, defaultTtlMs);
+        _maxByteCount = maxByteCount;
+    }
+
+    public Long getDefaultTtl() {
+        return _defaultTtlMs;
+    }
+
+    /**
+     * Returns the cached result of the query, or null if it is not cached or has expired.
+     *  The returned list must not be modified.  Misses are counted by the subsequent put().
+     */
+    public synchronized List<Row> get(final Query query) {
+        final String key = _getKey(query);
+        final Entry entry = _entries.get(key);
+        if (entry == null) { return null; }
+
+        if (entry.expirationTime <= System.currentTimeMillis()) {
+            _remove(entry);
+            _expirationCount += 1L;
+            return null;
+        }
+
+        _hitCount += 1L;
+        return entry.rows;
+    }
+
+    /**
+     * Returns a token identifying the cache's current invalidation state; pass it to put() to prevent caching a
+     *  result that was read before a concurrent invalidation.
+     */
+    public synchronized Long getInvalidationCount() {
+        return _invalidationCount;
+    }
+
+    /**
+     * Caches the query's result for ttlMs, unless the query is not cacheable, the cache has been invalidated since
+     *  invalidationCount was obtained, or a table referenced by the query has an uncommitted write.  Records a miss if
+     *  the query is cacheable.
+     */
+    public void put(final Query query, final List<Row> rows, final Long ttlMs, final Long invalidationCount) {
+        if (ttlMs < 1L) { return; }
+
+        final String fingerprint = SqlFingerprint.fingerprint(query.getQueryString());
+        if (! _isCacheable(fingerprint)) { return; }
+
+        synchronized (this) {
+            _missCount += 1L;
+        }
+
+        final String key = _getKey(query);
+        final Set<String> words = _getWords(fingerprint);
+        final Long byteCount = (_estimateByteCount(rows) + (key.length() * 2L));
+        if (byteCount > _maxByteCount) { return; }
+
+        final Entry entry = new Entry(key, Collections.unmodifiableList(rows), words, byteCount, (System.currentTimeMillis() + ttlMs));
+
+        synchronized (this) {
+            if (! invalidationCount.equals(_invalidationCount)) { return; }
+            if (_hasUncommittedWrite(words)) { return; }
+
+            final Entry existingEntry = _entries.get(key);
+            if (existingEntry != null) {
+                _remove(existingEntry);
+            }
+
+            _entries.put(key, entry);
+            _byteCount += byteCount;
+            for (final String word : words) {
+                _keysByWord.computeIfAbsent(word, unused -> new HashSet<>()).add(key);
+            }
+
+            _evictIfNecessary();
+        }
+    }
+
+    /**
+     * Invalidates cached results that may be affected by the statement.
+     */
+    public void invalidate(final String statement) {
+        final Set<String> tableNames = ParallelSqlScriptRunner._getTouchedTables(statement);
+        if (tableNames == null) {
+            this.clear();
+            return;
+        }
+
+        synchronized (this) {
+            _invalidationCount += 1L;
+
+            for (final String tableName : tableNames) {
+                final Set<String> keys = _keysByWord.get(tableName);
+                if (keys == null) { continue; }
+
+                for (final String key : keys.toArray(new String[0])) {
+                    final Entry entry = _entries.get(key);
+                    if (entry == null) { continue; }
+
+                    _remove(entry);
+                    _invalidatedEntryCount += 1L;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a write made within a transaction that has not yet committed.  Cached results that may be affected are
+     *  invalidated, and are not cached again until endUncommittedWrite() is called for the statement.
+     */
+    public void beginUncommittedWrite(final String statement) {
+        final Set<String> tableNames = ParallelSqlScriptRunner._getTouchedTables(statement);
+        synchronized (this) {
+            if (tableNames == null) {
+                _unanalyzedUncommittedWriteCount += 1;
+            }
+            else {
+                for (final String tableName : tableNames) {
+                    _uncommittedWriteCounts.merge(tableName, 1, Integer::sum);
+                }
+            }
+        }
+
+        this.invalidate(statement);
+    }
+
+    /**
+     * Ends a write recorded via beginUncommittedWrite() once its transaction has ended.  If the transaction committed,
+     *  the affected results are invalidated again, so that results read before the commit are not cached.
+     */
+    public void endUncommittedWrite(final String statement, final Boolean wasCommitted) {
+        final Set<String> tableNames = ParallelSqlScriptRunner._getTouchedTables(statement);
+        synchronized (this) {
+            if (tableNames == null) {
+                _unanalyzedUncommittedWriteCount = Math.max(0, (_unanalyzedUncommittedWriteCount - 1));
+            }
+            else {
+                for (final String tableName : tableNames) {
+                    _uncommittedWriteCounts.computeIfPresent(tableName, (unused, count) -> (count > 1 ? (count - 1) : null));
+                }
+            }
+        }
+
+        if (wasCommitted) {
+            this.invalidate(statement);
+        }
+    }
+
+    public synchronized void clear() {
+        _invalidationCount += 1L;
+        _invalidatedEntryCount += _entries.size();
+        _entries.clear();
+        _keysByWord.clear();
+        _byteCount = 0L;
+    }
+
+    public synchronized Integer getEntryCount() {
+        return _entries.size();
+    }
+
+    /**
+     * Returns the estimated size of the cached results.
+     */
+    public synchronized Long getByteCount() {
+        return _byteCount;
+    }
+
+    public synchronized Long getHitCount() {
+        return _hitCount;
+    }
+
+    public synchronized Long getMissCount() {
+        return _missCount;
+    }
+
+    public synchronized Double getHitRate() {
+        final long requestCount = (_hitCount + _missCount);
+        if (requestCount == 0L) { return 0D; }
+        return (_hitCount / (double) requestCount);
+    }
+
+    public synchronized Long getEvictionCount() {
+        return _evictionCount;
+    }
+
+    public synchronized Long getExpirationCount() {
+        return _expirationCount;
+    }
+
+    /**
+     * Returns the number of entries removed due to writes.
+     */
+    public synchronized Long getInvalidatedEntryCount() {
+        return _invalidatedEntryCount;
+    }
+}
@@ -0,0 +1,93 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.jdbc.row.JdbcRowFactory;
+import com.softwareverde.database.row.Row;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Forward-only iterator over a streaming ResultSet.
+ *  Rows are read from the server as the cursor advances.  The underlying ResultSet and Statement are released
+ *  when the cursor is closed, or automatically once the last row has been read.
+ *  Failures while reading are rethrown as RuntimeExceptions since Iterator does not permit checked exceptions.
+ */
+public class MysqlRowCursor implements Iterator<Row>, AutoCloseable {
+    protected final Statement _statement;
+    protected final ResultSet _resultSet;
+    protected final JdbcRowFactory _rowFactory;
+
+    protected Row _nextRow = null;
+    protected Boolean _isClosed = false;
+    protected Long _rowCount = 0L;
+
+    protected void _readNextRow() throws SQLException, DatabaseException {
+        if (_isClosed || (_nextRow != null)) { return; }
+
+        if (_resultSet.next()) {
+            _nextRow = _rowFactory.fromResultSet(_resultSet);
+        }
+        else {
+            this.close();
+        }
+    }
+
+    protected MysqlRowCursor(final Statement statement, final ResultSet resultSet, final JdbcRowFactory rowFactory) {
+        _statement = statement;
+        _resultSet = resultSet;
+        _rowFactory = rowFactory;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            _readNextRow();
+            return (_nextRow != null);
+        }
+        catch (final Exception exception) {
+            this.close();
+            throw new RuntimeException(exception);
+        }
+    }
+
+    @Override
+    public Row next() {
+        if (! this.hasNext()) { throw new NoSuchElementException(); }
+
+        final Row row = _nextRow;
+        _nextRow = null;
+        _rowCount += 1L;
+        return row;
+    }
+
+    /**
+     * Returns the number of rows consumed from the cursor so far.
+     */
+    public Long getRowCount() {
+        return _rowCount;
+    }
+
+    public Boolean isClosed() {
+        return _isClosed;
+    }
+
+    @Override
+    public void close() {
+        if (_isClosed) { return; }
+        _isClosed = true;
+
+        try {
+            _resultSet.close();
+        }
+        catch (final SQLException exception) { }
+
+        try {
+            _statement.close();
+        }
+        catch (final SQLException exception) { }
+    }
+}
@@ -0,0 +1,317 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.mysql.metrics.MysqlInstrumentation;
+import com.softwareverde.database.mysql.metrics.SqlFingerprint;
+import com.softwareverde.database.query.parameter.TypedParameter;
+import com.softwareverde.logging.Logger;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * MysqlInstrumentation that captures statements exceeding a duration threshold into a bounded ring buffer.
+ *  Each sample records the statement, its parameters (redacted by default), its row count, and, for explainable
+ *  statements, the output of EXPLAIN FORMAT=JSON.  EXPLAIN is executed asynchronously, at most once per statement
+ *  fingerprint per explain interval, and is skipped if the explain queue is full, so sampling adds no latency to the
+ *  sampled statement.  Queued EXPLAINs are executed in batches on a connection obtained from the provided factory, which
+ *  is closed once the queue is drained, so no connection is held while the sampler is idle.  Statements faster than the
+ *  threshold return immediately without allocating.
+ *
+ *  Combine with MysqlQueryMetrics via CompositeMysqlInstrumentation.
+ */
+public class MysqlSlowQuerySampler implements MysqlInstrumentation, AutoCloseable {
+    public static final Integer DEFAULT_CAPACITY = 100;
+    public static final Long DEFAULT_EXPLAIN_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1L);
+    public static final String REDACTED_PARAMETER = "<redacted>";
+
+    protected static final Integer EXPLAIN_QUEUE_SIZE = 16;
+    protected static final Pattern EXPLAINABLE_PATTERN = Pattern.compile("^\\s*(?:SELECT|INSERT|REPLACE|UPDATE|DELETE)\\s", Pattern.CASE_INSENSITIVE);
+
+    public static class SlowQuery {
+        public final Long timestamp;
+        public final String query;
+        public final String fingerprint;
+        public final List<String> parameters;
+        public final Long durationNanos;
+        public final Long rowCount;
+        public final Boolean isFailure;
+        protected volatile String _explainJson = null;
+
+        protected SlowQuery(final String query, final String fingerprint, final List<String> parameters, final Long durationNanos, final Long rowCount, final Boolean isFailure) {
+            this.timestamp = System.currentTimeMillis();
+            this.query = query;
+            this.fingerprint = fingerprint;
+            this.parameters = parameters;
+            this.durationNanos = durationNanos;
+            this.rowCount = rowCount;
+            this.isFailure = isFailure;
+        }
+
+        /**
+         * Returns the statement's EXPLAIN FORMAT=JSON output, or null if it is not explainable or has not yet been explained.
+         */
+        public String getExplainJson() {
+            return _explainJson;
+        }
+    }
+
+    protected static class Explain {
+        public final Long timestamp;
+        public volatile String json = null;
+
+        public Explain(final Long timestamp) {
+            this.timestamp = timestamp;
+        }
+    }
+
+    protected static class PendingExplain {
+        public final SlowQuery slowQuery;
+        public final List<TypedParameter> parameters;
+        public final Explain explain;
+
+        public PendingExplain(final SlowQuery slowQuery, final List<TypedParameter> parameters, final Explain explain) {
+            this.slowQuery = slowQuery;
+            this.parameters = parameters;
+            this.explain = explain;
+        }
+    }
+
+    protected final MysqlDatabaseConnectionFactory _connectionFactory;
+    protected final Long _thresholdNanos;
+    protected final AtomicReferenceArray<SlowQuery> _slowQueries;
+    protected final AtomicLong _slowQueryCount = new AtomicLong(0L);
+    protected final ConcurrentHashMap<String, Explain> _explainsByFingerprint = new ConcurrentHashMap<>();
+    protected final ArrayBlockingQueue<PendingExplain> _pendingExplains = new ArrayBlockingQueue<>(EXPLAIN_QUEUE_SIZE);
+    protected final AtomicBoolean _isExplainScheduled = new AtomicBoolean(false);
+    protected final ThreadPoolExecutor _explainExecutor;
+
+    protected Boolean _redactParameters = true;
+    protected Long _explainIntervalMs = DEFAULT_EXPLAIN_INTERVAL_MS;
+
+    protected List<String> _formatParameters(final List<TypedParameter> parameters) {
+        if (parameters == null) { return Collections.emptyList(); }
+
+        final ArrayList<String> formattedParameters = new ArrayList<>(parameters.size());
+        for (final TypedParameter parameter : parameters) {
+            final Object value = (parameter != null ? parameter.value : null);
+            if (value == null) {
+                formattedParameters.add(null);
+            }
+            else if (_redactParameters) {
+                formattedParameters.add(REDACTED_PARAMETER);
+            }
+            else if (value instanceof byte[]) {
+                formattedParameters.add("<" + ((byte[]) value).length + " bytes>");
+            }
+            else {
+                formattedParameters.add(value.toString());
+            }
+        }
+        return Collections.unmodifiableList(formattedParameters);
+    }
+
+    protected String _explain(final MysqlDatabaseConnection explainConnection, final String query, final List<TypedParameter> parameters) throws Exception {
+        try (final PreparedStatement preparedStatement = explainConnection.getRawConnection().prepareStatement("EXPLAIN FORMAT=JSON " + query)) {
+            MysqlDatabaseConnection._bindParameters(preparedStatement, parameters);
+            try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                return (resultSet.next() ? resultSet.getString(1) : null);
+            }
+        }
+    }
+
+    protected void _onExplainFailed(final PendingExplain pendingExplain, final Exception exception) {
+        Logger.debug("Unable to explain slow query: " + exception.getMessage());
+        _explainsByFingerprint.remove(pendingExplain.slowQuery.fingerprint, pendingExplain.explain);
+    }
+
+    /**
+     * Executes the queued EXPLAINs on a single connection, which is closed once the queue is empty.
+     */
+    protected void _explainPendingStatements() {
+        PendingExplain pendingExplain = _pendingExplains.poll();
+        if (pendingExplain == null) { return; }
+
+        try (final MysqlDatabaseConnection explainConnection = _connectionFactory.newConnection()) {
+            explainConnection.setInstrumentation(null);
+
+            while (pendingExplain != null) {
+                try {
+                    final String explainJson = _explain(explainConnection, pendingExplain.slowQuery.query, pendingExplain.parameters);
+                    pendingExplain.explain.json = explainJson;
+                    pendingExplain.slowQuery._explainJson = explainJson;
+                }
+                catch (final Exception exception) {
+                    _onExplainFailed(pendingExplain, exception);
+                }
+
+                if (Thread.currentThread().isInterrupted()) { break; }
+                pendingExplain = _pendingExplains.poll();
+            }
+        }
+        catch (final Exception exception) {
+            // The connection could not be opened or closed; any remaining statements will be explained when they are next sampled.
+            while (pendingExplain != null) {
+                _onExplainFailed(pendingExplain, exception);
+                pendingExplain = _pendingExplains.poll();
+            }
+        }
+    }
+
+    protected void _scheduleExplainBatch() {
+        if (_pendingExplains.isEmpty()) { return; }
+        if (! _isExplainScheduled.compareAndSet(false, true)) { return; }
+
+        try {
+            _explainExecutor.execute(() -> {
+                try {
+                    _explainPendingStatements();
+                }
+                finally {
+                    _isExplainScheduled.set(false);
+                }
+
+                // A statement may have been queued after the queue was last polled but before the flag was cleared.
+                _scheduleExplainBatch();
+            });
+        }
+        catch (final Exception exception) {
+            // The sampler is closed.
+            _isExplainScheduled.set(false);
+            _pendingExplains.clear();
+        }
+    }
+
+    protected void _scheduleExplain(final SlowQuery slowQuery, final List<TypedParameter> parameters) {
+        if (! EXPLAINABLE_PATTERN.matcher(slowQuery.query).find()) { return; }
+
+        final Long now = System.currentTimeMillis();
+        final Explain existingExplain = _explainsByFingerprint.get(slowQuery.fingerprint);
+        if ( (existingExplain != null) && ((now - existingExplain.timestamp) < _explainIntervalMs) ) {
+            slowQuery._explainJson = existingExplain.json; // May be null while the explain is pending...
+            return;
+        }
+
+        final Explain explain = new Explain(now);
+        _explainsByFingerprint.put(slowQuery.fingerprint, explain);
+
+        if (! _pendingExplains.offer(new PendingExplain(slowQuery, parameters, explain))) {
+            // The queue is full; the statement will be explained when it is next sampled.
+            _explainsByFingerprint.remove(slowQuery.fingerprint, explain);
+            return;
+        }
+
+        _scheduleExplainBatch();
+    }
+
+    protected void _sample(final String query, final List<TypedParameter> parameters, final long durationNanos, final long rowCount, final boolean isFailure) {
+        final String fingerprint = SqlFingerprint.fingerprint(query);
+        final SlowQuery slowQuery = new SlowQuery(query, fingerprint, _formatParameters(parameters), durationNanos, rowCount, isFailure);
+
+        final long index = _slowQueryCount.getAndIncrement();
+        _slowQueries.set((int) (index % _slowQueries.length()), slowQuery);
+
+        _scheduleExplain(slowQuery, parameters);
+    }
+
+    /**
+     * Samples statements taking longer than thresholdMs.  EXPLAINs are executed on connections from connectionFactory.
+     */
+    public MysqlSlowQuerySampler(final MysqlDatabaseConnectionFactory connectionFactory, final Long thresholdMs) {
+        this(connectionFactory, thresholdMs, DEFAULT_CAPACITY);
+    }
+
+    public MysqlSlowQuerySampler(final MysqlDatabaseConnectionFactory connectionFactory, final Long thresholdMs, final Integer capacity) {
+        _connectionFactory = connectionFactory;
+        _thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        _slowQueries = new AtomicReferenceArray<>(Math.max(1, capacity));
+
+        _explainExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setName("MysqlSlowQuerySampler - Explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * When enabled (the default), sampled parameter values are replaced with REDACTED_PARAMETER; null values are retained.
+     *  EXPLAIN is executed with the actual values, and its output may include them within attached conditions.
+     */
+    public void setRedactParameters(final Boolean redactParameters) {
+        _redactParameters = redactParameters;
+    }
+
+    /**
+     * Sets the minimum duration between EXPLAINs of statements sharing a fingerprint.
+     */
+    public void setExplainInterval(final Long explainIntervalMs) {
+        _explainIntervalMs = explainIntervalMs;
+    }
+
+    @Override
+    public void onConnectionAcquired(final long durationNanos) { }
+
+    @Override
+    public void onConnectionFailed(final long durationNanos) { }
+
+    @Override
+    public void onStatementExecuted(final String query, final List<TypedParameter> parameters, final long durationNanos, final long rowCount, final long byteCount) {
+        if (durationNanos < _thresholdNanos) { return; }
+        _sample(query, parameters, durationNanos, rowCount, false);
+    }
+
+    @Override
+    public void onStatementFailed(final String query, final List<TypedParameter> parameters, final long durationNanos) {
+        if (durationNanos < _thresholdNanos) { return; }
+        _sample(query, parameters, durationNanos, 0L, true);
+    }
+
+    /**
+     * Returns the retained slow statements, oldest first.
+     */
+    public List<SlowQuery> getSlowQueries() {
+        final int capacity = _slowQueries.length();
+        final long slowQueryCount = _slowQueryCount.get();
+        final long startIndex = Math.max(0L, (slowQueryCount - capacity));
+
+        final ArrayList<SlowQuery> slowQueries = new ArrayList<>(capacity);
+        for (long index = startIndex; index < slowQueryCount; ++index) {
+            final SlowQuery slowQuery = _slowQueries.get((int) (index % capacity));
+            if (slowQuery != null) {
+                slowQueries.add(slowQuery);
+            }
+        }
+        return slowQueries;
+    }
+
+    /**
+     * Returns the number of statements sampled since creation, including those no longer retained.
+     */
+    public Long getSlowQueryCount() {
+        return _slowQueryCount.get();
+    }
+
+    @Override
+    public void close() {
+        _explainExecutor.shutdownNow();
+        try {
+            _explainExecutor.awaitTermination(1L, TimeUnit.SECONDS);
+        }
+        catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        _pendingExplains.clear();
+    }
+}
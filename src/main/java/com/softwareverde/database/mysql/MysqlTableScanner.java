@@ -0,0 +1,231 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans an entire table in parallel using keyset pagination.
+ *  The table's integer primary key range (from MIN/MAX) is split into contiguous ranges, which are scanned concurrently,
+ *  each on its own connection, one page at a time via "WHERE key > lastKey ORDER BY key LIMIT pageSize"; unlike
+ *  LIMIT/OFFSET, each page costs the same regardless of its position within the table.
+ *
+ *  Pages are handed to the RowConsumer on the thread calling scan(), so the consumer need not be thread-safe.
+ *  The hand-off queue is bounded: when the consumer falls behind, the scanning threads block, so memory is bounded
+ *  regardless of table size.  Rows within a range are delivered in key order; ranges are interleaved.
+ *
+ *  Only tables with a single-column integer primary key (or other unique, indexed integer column) are supported.
+ */
+public class MysqlTableScanner {
+    public interface RowConsumer {
+        void consume(Row row) throws Exception;
+    }
+
+    public static final Integer DEFAULT_PAGE_SIZE = 1000;
+    public static final Integer RANGES_PER_THREAD = 4;
+
+    protected static final Long POLL_INTERVAL_MS = 100L;
+
+    protected static class KeyRange {
+        public final Long firstKey;
+        public final Long lastKey;
+
+        public KeyRange(final Long firstKey, final Long lastKey) {
+            this.firstKey = firstKey;
+            this.lastKey = lastKey;
+        }
+    }
+
+    /**
+     * Splits [minKey, maxKey] into at most rangeCount contiguous, non-overlapping ranges.
+     */
+    protected static List<KeyRange> _splitKeyRange(final Long minKey, final Long maxKey, final Integer rangeCount) {
+        final ArrayList<KeyRange> keyRanges = new ArrayList<>(rangeCount);
+
+        final long span = (maxKey - minKey);
+        if ( (span < 0L) || (rangeCount < 2) ) { // The span overflowed, or splitting was not requested...
+            keyRanges.add(new KeyRange(minKey, maxKey));
+            return keyRanges;
+        }
+
+        final long rangeSize = Math.max(1L, ((span / rangeCount) + 1L));
+        long firstKey = minKey;
+        while (true) {
+            final long lastKey = (((maxKey - firstKey) < rangeSize) ? maxKey : (firstKey + rangeSize - 1L));
+            keyRanges.add(new KeyRange(firstKey, lastKey));
+            if (lastKey >= maxKey) { break; }
+            firstKey = (lastKey + 1L);
+        }
+        return keyRanges;
+    }
+
+    protected final MysqlDatabaseConnectionFactory _connectionFactory;
+    protected final String _tableName;
+    protected final String _keyColumnName;
+
+    protected Integer _threadCount = Runtime.getRuntime().availableProcessors();
+    protected Integer _pageSize = DEFAULT_PAGE_SIZE;
+    protected String _columns = "*";
+    protected String _whereClause = null;
+
+    protected volatile Boolean _isAborted = false;
+
+    protected String _createPageQuery(final Boolean isFirstPage) {
+        final String keyColumn = MysqlUtil.quoteIdentifier(_keyColumnName);
+        return (
+            "SELECT " + _columns + " FROM " + MysqlUtil.quoteIdentifier(_tableName) +
+            " WHERE " + keyColumn + (isFirstPage ? " >= ?" : " > ?") + " AND " + keyColumn + " <= ?" +
+            (_whereClause != null ? (" AND (" + _whereClause + ")") : "") +
+            " ORDER BY " + keyColumn + " ASC LIMIT " + _pageSize
+        );
+    }
+
+    /**
+     * Adds the page to the queue, waiting for space while the scan is not aborted.  Returns false if the scan was aborted.
+     */
+    protected Boolean _enqueue(final ArrayBlockingQueue<List<Row>> pages, final List<Row> page) throws InterruptedException {
+        while (! _isAborted) {
+            if (pages.offer(page, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) { return true; }
+        }
+        return false;
+    }
+
+    protected void _scanKeyRange(final KeyRange keyRange, final ArrayBlockingQueue<List<Row>> pages) throws Exception {
+        final String firstPageQuery = _createPageQuery(true);
+        final String nextPageQuery = _createPageQuery(false);
+
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            Long lastKey = keyRange.firstKey;
+            Boolean isFirstPage = true;
+            while (! _isAborted) {
+                final List<Row> rows = databaseConnection.query(
+                    new Query(isFirstPage ? firstPageQuery : nextPageQuery)
+                        .setParameter(lastKey)
+                        .setParameter(keyRange.lastKey)
+                );
+                if (rows.isEmpty()) { break; }
+
+                if (! _enqueue(pages, rows)) { break; }
+                if (rows.size() < _pageSize) { break; }
+
+                lastKey = rows.get(rows.size() - 1).getLong(_keyColumnName);
+                isFirstPage = false;
+            }
+        }
+    }
+
+    public MysqlTableScanner(final MysqlDatabaseConnectionFactory connectionFactory, final String tableName, final String keyColumnName) {
+        _connectionFactory = connectionFactory;
+        _tableName = tableName;
+        _keyColumnName = keyColumnName;
+    }
+
+    /**
+     * Sets the number of ranges scanned concurrently, which is also the maximum number of connections used.
+     *  Defaults to the number of available processors.
+     */
+    public void setThreadCount(final Integer threadCount) {
+        _threadCount = Math.max(1, threadCount);
+    }
+
+    public void setPageSize(final Integer pageSize) {
+        _pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * Sets the select-list of the scan (e.g. "id, hash"), which must include the key column; defaults to "*".
+     */
+    public void setColumns(final String columns) {
+        _columns = columns;
+    }
+
+    /**
+     * Restricts the scan to rows matching the SQL condition.  The condition is not parameterized and must not
+     *  contain untrusted input.
+     */
+    public void setWhereClause(final String whereClause) {
+        _whereClause = whereClause;
+    }
+
+    /**
+     * Scans the table, passing each row to rowConsumer on the calling thread, and returns the number of rows scanned.
+     *  If rowConsumer or any range scan fails, the scan is aborted and the failure is rethrown.
+     */
+    public Long scan(final RowConsumer rowConsumer) throws DatabaseException {
+        _isAborted = false;
+
+        final Long minKey;
+        final Long maxKey;
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            final String keyColumn = MysqlUtil.quoteIdentifier(_keyColumnName);
+            final List<Row> rows = databaseConnection.query(new Query(
+                "SELECT MIN(" + keyColumn + ") AS min_key, MAX(" + keyColumn + ") AS max_key FROM " + MysqlUtil.quoteIdentifier(_tableName) +
+                (_whereClause != null ? (" WHERE " + _whereClause) : "")
+            ));
+            minKey = rows.get(0).getLong("min_key");
+            maxKey = rows.get(0).getLong("max_key");
+        }
+        if ( (minKey == null) || (maxKey == null) ) { return 0L; } // The table is empty...
+
+        final List<KeyRange> keyRanges = _splitKeyRange(minKey, maxKey, (_threadCount * RANGES_PER_THREAD));
+        final ArrayBlockingQueue<List<Row>> pages = new ArrayBlockingQueue<>(_threadCount * 2);
+        final ForkJoinPool forkJoinPool = new ForkJoinPool(_threadCount);
+
+        long rowCount = 0L;
+        try {
+            final ArrayList<CompletableFuture<Void>> futures = new ArrayList<>(keyRanges.size());
+            for (final KeyRange keyRange : keyRanges) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        _scanKeyRange(keyRange, pages);
+                    }
+                    catch (final Exception exception) {
+                        _isAborted = true;
+                        throw new CompletionException(exception);
+                    }
+                }, forkJoinPool));
+            }
+            final CompletableFuture<Void> allFutures = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+
+            while (true) {
+                final List<Row> page = pages.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (page != null) {
+                    for (final Row row : page) {
+                        rowConsumer.consume(row);
+                        rowCount += 1L;
+                    }
+                }
+                else if (allFutures.isDone()) {
+                    if (pages.isEmpty()) { break; }
+                }
+
+                if (_isAborted) { break; }
+            }
+
+            allFutures.join(); // Rethrows the first range failure, if any...
+        }
+        catch (final Exception exception) {
+            _isAborted = true;
+
+            final Throwable cause = ( ((exception instanceof CompletionException) && (exception.getCause() != null)) ? exception.getCause() : exception );
+            if (cause instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (cause instanceof DatabaseException) { throw (DatabaseException) cause; }
+            throw new DatabaseException(cause);
+        }
+        finally {
+            forkJoinPool.shutdownNow();
+        }
+
+        return rowCount;
+    }
+}
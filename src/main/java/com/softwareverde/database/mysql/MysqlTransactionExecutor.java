@@ -0,0 +1,369 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.util.TransactionUtil;
+import com.softwareverde.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs units of work within transactions, retrying those aborted by a deadlock (1213), a lock wait timeout (1205),
+ *  or another serialization failure (SQLState 40001).  Each attempt runs on a newly acquired connection (for a pooled
+ *  factory, a reset one), after a jittered, exponentially increasing delay, so that concurrent transactions that
+ *  deadlocked with one another do not collide again in lockstep.  A unit of work may therefore run more than once,
+ *  and must not have side effects outside of the transaction.
+ *
+ *  Optionally, small transactions from concurrent callers may be grouped into a single transaction via
+ *  executeGrouped(), so that they share one commit (and one log flush).  Each unit runs within its own savepoint, so a
+ *  unit that fails only rolls back its own changes; but units within a group observe each other's uncommitted writes,
+ *  and a retryable failure of any unit retries the entire group.
+ */
+public class MysqlTransactionExecutor implements AutoCloseable {
+    public interface UnitOfWork<T> {
+        T run(MysqlDatabaseConnection databaseConnection) throws Exception;
+    }
+
+    public static final Integer DEFAULT_MAX_ATTEMPT_COUNT = 5;
+    public static final Long DEFAULT_INITIAL_BACKOFF_MS = 10L;
+    public static final Long DEFAULT_MAX_BACKOFF_MS = 1000L;
+    public static final Integer DEFAULT_MAX_GROUP_SIZE = 64;
+
+    protected static final Integer ER_LOCK_WAIT_TIMEOUT = 1205;
+    protected static final Integer ER_LOCK_DEADLOCK = 1213;
+    protected static final String SERIALIZATION_FAILURE_SQL_STATE = "40001";
+
+    protected static class GroupedUnitOfWork<T> {
+        public final UnitOfWork<T> unitOfWork;
+        public final CompletableFuture<T> future = new CompletableFuture<>();
+        public T result;
+        public Exception exception;
+
+        public GroupedUnitOfWork(final UnitOfWork<T> unitOfWork) {
+            this.unitOfWork = unitOfWork;
+        }
+    }
+
+    /**
+     * Returns the retryable error code (or zero, for a serialization failure without one) of the exception or its
+     *  causes, or null if the exception is not retryable.
+     */
+    protected static Integer _getRetryableErrorCode(final Throwable exception) {
+        Throwable cause = exception;
+        while (cause != null) {
+            if (cause instanceof SQLException) {
+                final SQLException sqlException = (SQLException) cause;
+                final int errorCode = sqlException.getErrorCode();
+                if ( (errorCode == ER_LOCK_DEADLOCK) || (errorCode == ER_LOCK_WAIT_TIMEOUT) ) { return errorCode; }
+                if (SERIALIZATION_FAILURE_SQL_STATE.equals(sqlException.getSQLState())) { return 0; }
+            }
+            cause = cause.getCause();
+        }
+        return null;
+    }
+
+    /**
+     * Returns a delay selected uniformly from zero to the exponentially increasing backoff ceiling ("full jitter").
+     */
+    protected static Long _getBackoffMs(final Integer attemptCount, final Long initialBackoffMs, final Long maxBackoffMs) {
+        final long ceilingMs = Math.min(maxBackoffMs, (initialBackoffMs << Math.min(30, (attemptCount - 1))));
+        return ThreadLocalRandom.current().nextLong(Math.max(1L, ceilingMs) + 1L);
+    }
+
+    protected final MysqlDatabaseConnectionFactory _connectionFactory;
+
+    protected Integer _maxAttemptCount = DEFAULT_MAX_ATTEMPT_COUNT;
+    protected Long _initialBackoffMs = DEFAULT_INITIAL_BACKOFF_MS;
+    protected Long _maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+    protected Integer _maxGroupSize = DEFAULT_MAX_GROUP_SIZE;
+
+    protected final LongAdder _committedTransactionCount = new LongAdder();
+    protected final LongAdder _retryCount = new LongAdder();
+    protected final LongAdder _deadlockCount = new LongAdder();
+    protected final LongAdder _lockWaitTimeoutCount = new LongAdder();
+    protected final LongAdder _abortedTransactionCount = new LongAdder();
+    protected final LongAdder _groupCommitCount = new LongAdder();
+
+    protected final LinkedBlockingQueue<GroupedUnitOfWork<?>> _groupedUnitsOfWork = new LinkedBlockingQueue<>();
+    protected Thread _groupCommitThread = null;
+    protected volatile Boolean _isClosed = false;
+
+    protected void _onRetryableFailure(final Integer errorCode) {
+        if (ER_LOCK_DEADLOCK.equals(errorCode)) {
+            _deadlockCount.increment();
+        }
+        else if (ER_LOCK_WAIT_TIMEOUT.equals(errorCode)) {
+            _lockWaitTimeoutCount.increment();
+        }
+    }
+
+    /**
+     * Runs the transaction until it commits, retrying retryable failures up to the maximum attempt count.
+     */
+    protected <T> T _executeWithRetries(final UnitOfWork<T> transaction) throws DatabaseException {
+        Integer attemptCount = 0;
+        while (true) {
+            attemptCount += 1;
+            try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+                TransactionUtil.startTransaction(databaseConnection);
+                try {
+                    final T result = transaction.run(databaseConnection);
+                    TransactionUtil.commitTransaction(databaseConnection);
+                    return result;
+                }
+                catch (final Exception exception) {
+                    try {
+                        TransactionUtil.rollbackTransaction(databaseConnection);
+                    }
+                    catch (final DatabaseException rollbackException) {
+                        Logger.debug(rollbackException);
+                    }
+                    throw exception;
+                }
+            }
+            catch (final Exception exception) {
+                final Integer errorCode = _getRetryableErrorCode(exception);
+                if (errorCode != null) {
+                    _onRetryableFailure(errorCode);
+                }
+
+                if ( (errorCode == null) || (attemptCount >= _maxAttemptCount) || _isClosed ) {
+                    _abortedTransactionCount.increment();
+                    if (exception instanceof DatabaseException) { throw (DatabaseException) exception; }
+                    throw new DatabaseException(exception);
+                }
+
+                _retryCount.increment();
+                try {
+                    Thread.sleep(_getBackoffMs(attemptCount, _initialBackoffMs, _maxBackoffMs));
+                }
+                catch (final InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    _abortedTransactionCount.increment();
+                    throw new DatabaseException(exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs each unit of work within its own savepoint of the connection's transaction, recording its result or failure.
+     *  Retryable failures abort the whole transaction, and are therefore rethrown.
+     */
+    protected void _runGroup(final MysqlDatabaseConnection databaseConnection, final List<GroupedUnitOfWork<?>> group) throws Exception {
+        final Connection connection = databaseConnection.getRawConnection();
+        for (final GroupedUnitOfWork<?> groupedUnitOfWork : group) {
+            groupedUnitOfWork.result = null;
+            groupedUnitOfWork.exception = null;
+
+            final Savepoint savepoint = connection.setSavepoint();
+            try {
+                _runGroupedUnitOfWork(databaseConnection, groupedUnitOfWork);
+                connection.releaseSavepoint(savepoint);
+            }
+            catch (final Exception exception) {
+                if (_getRetryableErrorCode(exception) != null) { throw exception; }
+
+                connection.rollback(savepoint);
+                groupedUnitOfWork.exception = exception;
+            }
+        }
+    }
+
+    protected <T> void _runGroupedUnitOfWork(final MysqlDatabaseConnection databaseConnection, final GroupedUnitOfWork<T> groupedUnitOfWork) throws Exception {
+        groupedUnitOfWork.result = groupedUnitOfWork.unitOfWork.run(databaseConnection);
+    }
+
+    protected <T> void _complete(final GroupedUnitOfWork<T> groupedUnitOfWork) {
+        if (groupedUnitOfWork.exception != null) {
+            groupedUnitOfWork.future.completeExceptionally(groupedUnitOfWork.exception);
+        }
+        else {
+            groupedUnitOfWork.future.complete(groupedUnitOfWork.result);
+        }
+    }
+
+    /**
+     * Records the group's commit and completes each unit's future.  Units that failed were rolled back to their
+     *  savepoints, so they are counted as aborted rather than committed.
+     */
+    protected void _onGroupCommitted(final List<GroupedUnitOfWork<?>> group) {
+        _groupCommitCount.increment();
+        for (final GroupedUnitOfWork<?> groupedUnitOfWork : group) {
+            if (groupedUnitOfWork.exception == null) {
+                _committedTransactionCount.increment();
+            }
+            else {
+                _abortedTransactionCount.increment();
+            }
+            _complete(groupedUnitOfWork);
+        }
+    }
+
+    protected void _processGroups() {
+        final ArrayList<GroupedUnitOfWork<?>> group = new ArrayList<>(_maxGroupSize);
+        while (! _isClosed) {
+            try {
+                final GroupedUnitOfWork<?> firstUnitOfWork = _groupedUnitsOfWork.poll(100L, TimeUnit.MILLISECONDS);
+                if (firstUnitOfWork == null) { continue; }
+
+                group.add(firstUnitOfWork);
+                _groupedUnitsOfWork.drainTo(group, (_maxGroupSize - 1));
+
+                try {
+                    _executeWithRetries((final MysqlDatabaseConnection databaseConnection) -> {
+                        _runGroup(databaseConnection, group);
+                        return null;
+                    });
+                    _onGroupCommitted(group);
+                }
+                catch (final DatabaseException exception) {
+                    for (final GroupedUnitOfWork<?> groupedUnitOfWork : group) {
+                        groupedUnitOfWork.future.completeExceptionally(exception);
+                    }
+                }
+                finally {
+                    group.clear();
+                }
+            }
+            catch (final InterruptedException exception) {
+                break;
+            }
+        }
+
+        GroupedUnitOfWork<?> groupedUnitOfWork;
+        while ((groupedUnitOfWork = _groupedUnitsOfWork.poll()) != null) {
+            groupedUnitOfWork.future.completeExceptionally(new DatabaseException("Transaction executor is closed."));
+        }
+    }
+
+    protected synchronized void _startGroupCommitThread() {
+        if (_groupCommitThread != null) { return; }
+
+        _groupCommitThread = new Thread(this::_processGroups);
+        _groupCommitThread.setName("MysqlTransactionExecutor - GroupCommit");
+        _groupCommitThread.setDaemon(true);
+        _groupCommitThread.start();
+    }
+
+    public MysqlTransactionExecutor(final MysqlDatabaseConnectionFactory connectionFactory) {
+        _connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Sets the maximum number of times a transaction is attempted, including its first attempt.
+     */
+    public void setMaxAttemptCount(final Integer maxAttemptCount) {
+        _maxAttemptCount = Math.max(1, maxAttemptCount);
+    }
+
+    /**
+     * Sets the backoff ceiling before the first retry, which doubles with each subsequent retry up to maxBackoffMs.
+     */
+    public void setBackoff(final Long initialBackoffMs, final Long maxBackoffMs) {
+        _initialBackoffMs = Math.max(1L, initialBackoffMs);
+        _maxBackoffMs = Math.max(_initialBackoffMs, maxBackoffMs);
+    }
+
+    /**
+     * Sets the maximum number of units of work committed together by executeGrouped().
+     */
+    public void setMaxGroupSize(final Integer maxGroupSize) {
+        _maxGroupSize = Math.max(1, maxGroupSize);
+    }
+
+    /**
+     * Runs the unit of work within its own transaction, retrying it if the transaction is aborted by a deadlock or
+     *  lock wait timeout.  The connection must not be closed or committed by the unit of work.
+     */
+    public <T> T execute(final UnitOfWork<T> unitOfWork) throws DatabaseException {
+        if (_isClosed) { throw new DatabaseException("Transaction executor is closed."); }
+
+        final T result = _executeWithRetries(unitOfWork);
+        _committedTransactionCount.increment();
+        return result;
+    }
+
+    /**
+     * Runs the unit of work within a transaction shared with the units of work of concurrent callers, and waits for
+     *  that transaction to commit.  Groups are committed one at a time, on a single connection; callers queue while
+     *  the previous group commits, which is what allows their transactions to be grouped.
+     */
+    public <T> T executeGrouped(final UnitOfWork<T> unitOfWork) throws DatabaseException {
+        if (_isClosed) { throw new DatabaseException("Transaction executor is closed."); }
+        _startGroupCommitThread();
+
+        final GroupedUnitOfWork<T> groupedUnitOfWork = new GroupedUnitOfWork<>(unitOfWork);
+        _groupedUnitsOfWork.add(groupedUnitOfWork);
+        if ( _isClosed && _groupedUnitsOfWork.remove(groupedUnitOfWork) ) { // Closed while being queued...
+            throw new DatabaseException("Transaction executor is closed.");
+        }
+
+        try {
+            return groupedUnitOfWork.future.get();
+        }
+        catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(exception);
+        }
+        catch (final ExecutionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof DatabaseException) { throw (DatabaseException) cause; }
+            throw new DatabaseException(cause);
+        }
+    }
+
+    /**
+     * Returns the number of units of work committed, whether individually or as part of a group.
+     */
+    public Long getCommittedTransactionCount() {
+        return _committedTransactionCount.sum();
+    }
+
+    public Long getRetryCount() {
+        return _retryCount.sum();
+    }
+
+    public Long getDeadlockCount() {
+        return _deadlockCount.sum();
+    }
+
+    public Long getLockWaitTimeoutCount() {
+        return _lockWaitTimeoutCount.sum();
+    }
+
+    /**
+     * Returns the number of transactions (or groups) that failed, either due to a non-retryable failure or due to
+     *  exhausting their attempts, plus the number of grouped units of work rolled back to their savepoint.
+     */
+    public Long getAbortedTransactionCount() {
+        return _abortedTransactionCount.sum();
+    }
+
+    public Long getGroupCommitCount() {
+        return _groupCommitCount.sum();
+    }
+
+    /**
+     * Stops grouping transactions; queued units of work that have not yet started fail.
+     */
+    @Override
+    public void close() {
+        _isClosed = true;
+
+        synchronized (this) {
+            if (_groupCommitThread != null) {
+                _groupCommitThread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.util.StringUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+/**
+ * InputStream that encodes rows into the tab-separated format read by LOAD DATA with its default
+ *  FIELDS TERMINATED BY '\t' ESCAPED BY '\\' LINES TERMINATED BY '\n' options.
+ *  Rows are pulled from the RowProducer only as the stream is read, so memory use is bounded by the largest row.
+ *  Strings are encoded as UTF-8; byte[] values are written as-is (escaped); null values are written as \N.
+ *  Dates and times (java.time's LocalDate, LocalTime, and LocalDateTime, java.sql's Date, Time, and Timestamp, and
+ *  java.util.Date) are written as DATE, TIME, and DATETIME literals with up to microsecond precision, in the JVM's default
+ *  time zone for java.sql and java.util values (as the driver binds them); other temporal values (e.g. Instant or
+ *  ZonedDateTime) are rejected, since LOAD DATA does not convert between time zones.
+ */
+public class MysqlTsvInputStream extends InputStream {
+    public interface RowProducer {
+        /**
+         * Returns the next row's values, or null once all rows have been produced.
+         */
+        Object[] nextRow() throws Exception;
+    }
+
+    protected static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("uuuu-MM-dd");
+    protected static final DateTimeFormatter TIME_FORMATTER = new DateTimeFormatterBuilder()
+        .appendPattern("HH:mm:ss")
+        .appendFraction(ChronoField.NANO_OF_SECOND, 0, 6, true)
+        .toFormatter();
+    protected static final DateTimeFormatter DATE_TIME_FORMATTER = new DateTimeFormatterBuilder()
+        .append(DATE_FORMATTER)
+        .appendLiteral(' ')
+        .append(TIME_FORMATTER)
+        .toFormatter();
+
+    /**
+     * Returns the temporal value as a DATE, TIME, or DATETIME literal.
+     */
+    protected static String _formatTemporalValue(final Object value) {
+        if (value instanceof java.sql.Timestamp) {
+            return DATE_TIME_FORMATTER.format(((java.sql.Timestamp) value).toLocalDateTime());
+        }
+        if (value instanceof java.sql.Date) {
+            return DATE_FORMATTER.format(((java.sql.Date) value).toLocalDate());
+        }
+        if (value instanceof java.sql.Time) {
+            return TIME_FORMATTER.format(((java.sql.Time) value).toLocalTime());
+        }
+        if (value instanceof Date) {
+            return DATE_TIME_FORMATTER.format(LocalDateTime.ofInstant(((Date) value).toInstant(), ZoneId.systemDefault()));
+        }
+        if (value instanceof LocalDateTime) {
+            return DATE_TIME_FORMATTER.format((LocalDateTime) value);
+        }
+        if (value instanceof LocalDate) {
+            return DATE_FORMATTER.format((LocalDate) value);
+        }
+        if (value instanceof LocalTime) {
+            return TIME_FORMATTER.format((LocalTime) value);
+        }
+        throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getSimpleName() + "; temporal values must be a LocalDate, LocalTime, or LocalDateTime.");
+    }
+
+    protected final RowProducer _rowProducer;
+
+    protected byte[] _buffer = new byte[8192];
+    protected int _bufferLength = 0;
+    protected int _bufferPosition = 0;
+    protected boolean _isComplete = false;
+
+    protected long _rowCount = 0L;
+    protected long _byteCount = 0L;
+
+    protected void _ensureCapacity(final int additionalByteCount) {
+        final int requiredCapacity = (_bufferLength + additionalByteCount);
+        if (requiredCapacity <= _buffer.length) { return; }
+
+        final byte[] buffer = new byte[Math.max(requiredCapacity, _buffer.length * 2)];
+        System.arraycopy(_buffer, 0, buffer, 0, _bufferLength);
+        _buffer = buffer;
+    }
+
+    protected void _writeByte(final byte value) {
+        _ensureCapacity(1);
+        _buffer[_bufferLength] = value;
+        _bufferLength += 1;
+    }
+
+    protected void _writeEscapedBytes(final byte[] bytes) {
+        _ensureCapacity(bytes.length);
+        for (final byte value : bytes) {
+            switch (value) {
+                case 0x00: { _writeByte((byte) '\\'); _writeByte((byte) '0'); } break;
+                case '\t': { _writeByte((byte) '\\'); _writeByte((byte) 't'); } break;
+                case '\n': { _writeByte((byte) '\\'); _writeByte((byte) 'n'); } break;
+                case '\r': { _writeByte((byte) '\\'); _writeByte((byte) 'r'); } break;
+                case '\\': { _writeByte((byte) '\\'); _writeByte((byte) '\\'); } break;
+                default: { _writeByte(value); }
+            }
+        }
+    }
+
+    protected void _writeValue(final Object value) {
+        if (value == null) {
+            _writeByte((byte) '\\');
+            _writeByte((byte) 'N');
+        }
+        else if (value instanceof byte[]) {
+            _writeEscapedBytes((byte[]) value);
+        }
+        else if (value instanceof Boolean) {
+            _writeByte((byte) (((Boolean) value) ? '1' : '0'));
+        }
+        else if (value instanceof BigDecimal) {
+            _writeEscapedBytes(StringUtil.stringToBytes(((BigDecimal) value).toPlainString()));
+        }
+        else if ( (value instanceof Date) || (value instanceof TemporalAccessor) ) {
+            _writeEscapedBytes(StringUtil.stringToBytes(_formatTemporalValue(value)));
+        }
+        else {
+            _writeEscapedBytes(StringUtil.stringToBytes(value.toString()));
+        }
+    }
+
+    /**
+     * Encodes the next row into the buffer.  Returns false if there are no more rows.
+     */
+    protected boolean _fillBuffer() throws IOException {
+        _bufferLength = 0;
+        _bufferPosition = 0;
+        if (_isComplete) { return false; }
+
+        final Object[] row;
+        try {
+            row = _rowProducer.nextRow();
+        }
+        catch (final Exception exception) {
+            throw new IOException("Unable to produce row " + (_rowCount + 1L) + ".", exception);
+        }
+
+        if (row == null) {
+            _isComplete = true;
+            return false;
+        }
+
+        try {
+            for (int i = 0; i < row.length; ++i) {
+                if (i > 0) { _writeByte((byte) '\t'); }
+                _writeValue(row[i]);
+            }
+        }
+        catch (final IllegalArgumentException exception) {
+            throw new IOException("Unable to encode row " + (_rowCount + 1L) + ".", exception);
+        }
+        _writeByte((byte) '\n');
+
+        _rowCount += 1L;
+        _byteCount += _bufferLength;
+        return true;
+    }
+
+    public MysqlTsvInputStream(final RowProducer rowProducer) {
+        _rowProducer = rowProducer;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (_bufferPosition >= _bufferLength) {
+            if (! _fillBuffer()) { return -1; }
+        }
+
+        final int value = (_buffer[_bufferPosition] & 0xFF);
+        _bufferPosition += 1;
+        return value;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) { return 0; }
+
+        int readByteCount = 0;
+        while (readByteCount < length) {
+            if (_bufferPosition >= _bufferLength) {
+                if (! _fillBuffer()) { break; }
+            }
+
+            final int copyByteCount = Math.min((length - readByteCount), (_bufferLength - _bufferPosition));
+            System.arraycopy(_buffer, _bufferPosition, bytes, (offset + readByteCount), copyByteCount);
+            _bufferPosition += copyByteCount;
+            readByteCount += copyByteCount;
+        }
+
+        return (readByteCount > 0 ? readByteCount : -1);
+    }
+
+    /**
+     * Returns the number of rows encoded so far.
+     */
+    public Long getRowCount() {
+        return _rowCount;
+    }
+
+    /**
+     * Returns the number of encoded bytes produced so far.
+     */
+    public Long getByteCount() {
+        return _byteCount;
+    }
+}
@@ -0,0 +1,21 @@
+package com.softwareverde.database.mysql;
+
+public class MysqlUtil {
+    /**
+     * Quotes the identifier with backticks, escaping any embedded backticks.
+     *  Qualified identifiers (i.e. "schema.table") are quoted per-part.
+     */
+    public static String quoteIdentifier(final String identifier) {
+        final StringBuilder stringBuilder = new StringBuilder();
+        final String[] parts = identifier.split("\\.");
+        for (int i = 0; i < parts.length; ++i) {
+            if (i > 0) { stringBuilder.append('.'); }
+            stringBuilder.append('`');
+            stringBuilder.append(parts[i].replace("`", "``"));
+            stringBuilder.append('`');
+        }
+        return stringBuilder.toString();
+    }
+
+    protected MysqlUtil() { }
+}
@@ -0,0 +1,263 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.logging.Logger;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs an SQL script's statements concurrently across multiple connections.
+ *  The script is parsed up front (honoring DELIMITER blocks) and each statement is analyzed for the tables it touches.
+ *  Statements touching the same table (including tables it references via FROM, JOIN, LIKE, or REFERENCES) execute in
+ *  script order; statements on unrelated tables execute concurrently.  Statements that cannot be analyzed
+ *  (e.g. procedures, views, triggers, or statements listing comma-separated tables) act as barriers: they run alone, after every preceding statement has completed.
+ *  Session statements (SET, USE) are barriers that are executed on every connection.
+ *
+ *  Statements are executed with autocommit enabled; unlike SqlScriptRunner, the script is not run within a transaction.
+ */
+public class ParallelSqlScriptRunner {
+    protected static final String IDENTIFIER = "((?:`[^`]+`|[\\w$]+)(?:\\.(?:`[^`]+`|[\\w$]+))?)";
+
+    protected static final Pattern[] TARGET_PATTERNS = {
+        Pattern.compile("^CREATE\\s+(?:TEMPORARY\\s+)?TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + IDENTIFIER, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^CREATE\\s+(?:OR\\s+REPLACE\\s+)?(?:UNIQUE\\s+|FULLTEXT\\s+|SPATIAL\\s+)?INDEX\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?[^\\s]+\\s+(?:USING\\s+\\w+\\s+)?ON\\s+" + IDENTIFIER, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^ALTER\\s+(?:ONLINE\\s+)?(?:IGNORE\\s+)?TABLE\\s+" + IDENTIFIER, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^DROP\\s+(?:TEMPORARY\\s+)?TABLE\\s+(?:IF\\s+EXISTS\\s+)?" + IDENTIFIER + "\\s*$", Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^DROP\\s+INDEX\\s+(?:IF\\s+EXISTS\\s+)?[^\\s]+\\s+ON\\s+" + IDENTIFIER, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^(?:INSERT|REPLACE)\\s+(?:LOW_PRIORITY\\s+|DELAYED\\s+|HIGH_PRIORITY\\s+)?(?:IGNORE\\s+)?(?:INTO\\s+)?" + IDENTIFIER, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^UPDATE\\s+(?:LOW_PRIORITY\\s+)?(?:IGNORE\\s+)?" + IDENTIFIER, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^DELETE\\s+(?:LOW_PRIORITY\\s+)?(?:QUICK\\s+)?(?:IGNORE\\s+)?FROM\\s+" + IDENTIFIER, Pattern.CASE_INSENSITIVE),
+        Pattern.compile("^TRUNCATE\\s+(?:TABLE\\s+)?" + IDENTIFIER, Pattern.CASE_INSENSITIVE)
+    };
+
+    protected static final Pattern REFERENCE_PATTERN = Pattern.compile("\\b(?:REFERENCES|FROM|JOIN|LIKE)\\s+" + IDENTIFIER, Pattern.CASE_INSENSITIVE);
+    // Only the first table of a comma-separated table list (e.g. "FROM a, b" or "UPDATE a, b SET ...") is captured by the
+    //  patterns above, so statements containing such a list are not analyzed...
+    protected static final Pattern TABLE_LIST_PATTERN = Pattern.compile("(?:^UPDATE\\s+(?:LOW_PRIORITY\\s+)?(?:IGNORE\\s+)?|\\b(?:FROM|JOIN|USING)\\s+)" + IDENTIFIER + "(?:\\s+(?:AS\\s+)?[\\w$]+)?\\s*,", Pattern.CASE_INSENSITIVE);
+    protected static final Pattern SESSION_PATTERN = Pattern.compile("^(?:SET|USE)\\s", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Normalizes the identifier to its unqualified, lowercase table name.
+     *  Conflating identically named tables in different schemas only serializes more statements than necessary.
+     */
+    protected static String _normalizeIdentifier(final String identifier) {
+        final int separatorIndex = identifier.lastIndexOf('.');
+        final String tableName = (separatorIndex >= 0 ? identifier.substring(separatorIndex + 1) : identifier);
+        return tableName.replace("`", "").toLowerCase();
+    }
+
+    /**
+     * Returns the names of the tables the statement modifies or reads, or null if the statement cannot be analyzed
+     *  and must therefore be executed as a barrier.
+     */
+    protected static Set<String> _getTouchedTables(final String statement) {
+        final String trimmedStatement = statement.trim();
+
+        String targetTable = null;
+        for (final Pattern pattern : TARGET_PATTERNS) {
+            final Matcher matcher = pattern.matcher(trimmedStatement);
+            if (matcher.find()) {
+                targetTable = matcher.group(1);
+                break;
+            }
+        }
+        if (targetTable == null) { return null; }
+        if (TABLE_LIST_PATTERN.matcher(trimmedStatement).find()) { return null; }
+
+        final LinkedHashSet<String> tableNames = new LinkedHashSet<>();
+        tableNames.add(_normalizeIdentifier(targetTable));
+
+        final Matcher referenceMatcher = REFERENCE_PATTERN.matcher(trimmedStatement);
+        while (referenceMatcher.find()) {
+            tableNames.add(_normalizeIdentifier(referenceMatcher.group(1)));
+        }
+        return tableNames;
+    }
+
+    protected static Boolean _isSessionStatement(final String statement) {
+        return SESSION_PATTERN.matcher(statement.trim()).find();
+    }
+
+    protected final MysqlDatabaseConnectionFactory _connectionFactory;
+    protected final Integer _threadCount;
+    protected final Boolean _stopOnError;
+
+    protected volatile Exception _firstException = null;
+
+    protected void _execute(final Connection connection, final String statementString) {
+        if ( _stopOnError && (_firstException != null) ) { return; }
+
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute(statementString);
+        }
+        catch (final SQLException exception) {
+            final String errorMessage = String.format("Error executing '%s': %s", statementString, exception.getMessage());
+            Logger.error(errorMessage);
+
+            if (_stopOnError) {
+                synchronized (this) {
+                    if (_firstException == null) {
+                        _firstException = new SQLException(errorMessage, exception);
+                    }
+                }
+                throw new CompletionException(exception);
+            }
+        }
+    }
+
+    protected void _executeOnAvailableConnection(final LinkedBlockingQueue<Connection> availableConnections, final String statementString) {
+        final Connection connection;
+        try {
+            connection = availableConnections.take();
+        }
+        catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(exception);
+        }
+
+        try {
+            _execute(connection, statementString);
+        }
+        finally {
+            availableConnections.add(connection);
+        }
+    }
+
+    public ParallelSqlScriptRunner(final MysqlDatabaseConnectionFactory connectionFactory, final Integer threadCount, final Boolean stopOnError) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Invalid value for threadCount; value must be greater than 0.");
+        }
+
+        _connectionFactory = connectionFactory;
+        _threadCount = threadCount;
+        _stopOnError = stopOnError;
+    }
+
+    public void runScript(final Reader reader) throws DatabaseException {
+        final List<String> statements;
+        try {
+            final SqlScriptRunner sqlScriptRunner = new SqlScriptRunner(null, true, _stopOnError);
+            statements = sqlScriptRunner.parseScript(reader);
+        }
+        catch (final Exception exception) {
+            throw new DatabaseException(exception);
+        }
+
+        this.runStatements(statements);
+    }
+
+    public void runStatements(final List<String> statements) throws DatabaseException {
+        _firstException = null;
+
+        final ArrayList<MysqlDatabaseConnection> databaseConnections = new ArrayList<>(_threadCount);
+        final LinkedBlockingQueue<Connection> availableConnections = new LinkedBlockingQueue<>();
+        final ExecutorService executorService = Executors.newFixedThreadPool(_threadCount, runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setName("ParallelSqlScriptRunner");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            for (int i = 0; i < _threadCount; ++i) {
+                final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection();
+                databaseConnections.add(databaseConnection);
+
+                final Connection connection = databaseConnection.getRawConnection();
+                connection.setAutoCommit(true);
+                availableConnections.add(connection);
+            }
+
+            final ArrayList<CompletableFuture<Void>> allFutures = new ArrayList<>(statements.size());
+            final HashMap<String, CompletableFuture<Void>> lastFutureByTable = new HashMap<>();
+            final ArrayList<CompletableFuture<Void>> futuresSinceBarrier = new ArrayList<>();
+            CompletableFuture<Void> lastBarrier = CompletableFuture.completedFuture(null);
+
+            for (final String statement : statements) {
+                final Set<String> tableNames = _getTouchedTables(statement);
+                final CompletableFuture<Void> future;
+
+                if (tableNames == null) {
+                    futuresSinceBarrier.add(lastBarrier);
+                    final CompletableFuture<Void> dependencies = CompletableFuture.allOf(futuresSinceBarrier.toArray(new CompletableFuture[0]));
+
+                    if (_isSessionStatement(statement)) {
+                        future = dependencies.thenRunAsync(() -> {
+                            for (final MysqlDatabaseConnection databaseConnection : databaseConnections) {
+                                _execute(databaseConnection.getRawConnection(), statement);
+                            }
+                        }, executorService);
+                    }
+                    else {
+                        future = dependencies.thenRunAsync(() -> _executeOnAvailableConnection(availableConnections, statement), executorService);
+                    }
+
+                    lastBarrier = future;
+                    futuresSinceBarrier.clear();
+                    lastFutureByTable.clear();
+                }
+                else {
+                    final ArrayList<CompletableFuture<Void>> dependencies = new ArrayList<>();
+                    dependencies.add(lastBarrier);
+                    for (final String tableName : tableNames) {
+                        final CompletableFuture<Void> previousFuture = lastFutureByTable.get(tableName);
+                        if (previousFuture != null) {
+                            dependencies.add(previousFuture);
+                        }
+                    }
+
+                    future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0])).thenRunAsync(() -> _executeOnAvailableConnection(availableConnections, statement), executorService);
+                    for (final String tableName : tableNames) {
+                        lastFutureByTable.put(tableName, future);
+                    }
+                    futuresSinceBarrier.add(future);
+                }
+
+                allFutures.add(future);
+            }
+
+            try {
+                CompletableFuture.allOf(allFutures.toArray(new CompletableFuture[0])).join();
+            }
+            catch (final CompletionException exception) {
+                if (_firstException == null) {
+                    throw new DatabaseException(exception.getCause());
+                }
+            }
+
+            if (_firstException != null) {
+                throw new DatabaseException(_firstException);
+            }
+        }
+        catch (final SQLException exception) {
+            throw new DatabaseException(exception);
+        }
+        finally {
+            executorService.shutdownNow();
+
+            for (final MysqlDatabaseConnection databaseConnection : databaseConnections) {
+                try {
+                    databaseConnection.close();
+                }
+                catch (final DatabaseException exception) {
+                    Logger.debug(exception);
+                }
+            }
+        }
+    }
+}
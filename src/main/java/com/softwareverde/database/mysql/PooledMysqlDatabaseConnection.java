@@ -0,0 +1,32 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.mysql.row.MysqlRowFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A MysqlDatabaseConnection borrowed from a PooledMysqlDatabaseConnectionFactory.
+ *  Closing the connection returns the underlying physical connection to the pool instead of closing it.
+ *  The physical connection's prepared statement cache is retained across borrows.
+ */
+public class PooledMysqlDatabaseConnection extends MysqlDatabaseConnection {
+    protected final PooledMysqlDatabaseConnectionFactory _connectionPool;
+    protected final PooledMysqlDatabaseConnectionFactory.PooledConnection _pooledConnection;
+    protected final AtomicBoolean _isReturned = new AtomicBoolean(false);
+
+    protected PooledMysqlDatabaseConnection(final PooledMysqlDatabaseConnectionFactory connectionPool, final PooledMysqlDatabaseConnectionFactory.PooledConnection pooledConnection, final MysqlRowFactory rowFactory) {
+        super(pooledConnection.connection, rowFactory, pooledConnection.preparedStatementCache);
+        _connectionPool = connectionPool;
+        _pooledConnection = pooledConnection;
+    }
+
+    @Override
+    public void close() {
+        if (! _isReturned.compareAndSet(false, true)) { return; }
+
+        synchronized (this) {
+            _endUncommittedWrites(true);
+        }
+        _connectionPool._returnConnection(_pooledConnection);
+    }
+}
@@ -0,0 +1,390 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.properties.DatabaseCredentials;
+import com.softwareverde.database.properties.DatabaseProperties;
+import com.softwareverde.logging.Logger;
+
+import java.sql.Connection;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A MysqlDatabaseConnectionFactory that reuses physical connections.
+ *  Connections returned by newConnection() are returned to the pool when closed, after their autocommit,
+ *  read-only, isolation, and schema state has been reset.  Idle connections are validated before being
+ *  handed out and are evicted once they exceed the maximum idle time or maximum lifetime.
+ */
+public class PooledMysqlDatabaseConnectionFactory extends MysqlDatabaseConnectionFactory implements AutoCloseable {
+    public static final Integer DEFAULT_MIN_CONNECTION_COUNT = 0;
+    public static final Integer DEFAULT_MAX_CONNECTION_COUNT = 8;
+    public static final Long DEFAULT_MAX_IDLE_TIME_MS = TimeUnit.MINUTES.toMillis(10L);
+    public static final Long DEFAULT_MAX_LIFETIME_MS = TimeUnit.MINUTES.toMillis(30L);
+    public static final Long DEFAULT_CONNECTION_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30L);
+    public static final Long DEFAULT_VALIDATION_IDLE_THRESHOLD_MS = 500L;
+    public static final Integer DEFAULT_VALIDATION_TIMEOUT_SECONDS = 1;
+
+    protected static class PooledConnection {
+        public final Connection connection;
+        public final Long creationTime;
+        public final Integer defaultTransactionIsolation;
+        public final String defaultCatalog;
+        public final MysqlPreparedStatementCache preparedStatementCache;
+        public volatile Long lastReturnTime;
+
+        public PooledConnection(final Connection connection, final Integer defaultTransactionIsolation, final String defaultCatalog, final MysqlPreparedStatementCache preparedStatementCache) {
+            this.connection = connection;
+            this.preparedStatementCache = preparedStatementCache;
+            this.creationTime = System.currentTimeMillis();
+            this.defaultTransactionIsolation = defaultTransactionIsolation;
+            this.defaultCatalog = defaultCatalog;
+            this.lastReturnTime = this.creationTime;
+        }
+    }
+
+    protected final LinkedBlockingDeque<PooledConnection> _idleConnections = new LinkedBlockingDeque<>();
+    protected final AtomicInteger _totalConnectionCount = new AtomicInteger(0);
+    protected final Object _maintenanceMutex = new Object();
+
+    protected Integer _minConnectionCount = DEFAULT_MIN_CONNECTION_COUNT;
+    protected Integer _maxConnectionCount = DEFAULT_MAX_CONNECTION_COUNT;
+    protected Long _maxIdleTimeMs = DEFAULT_MAX_IDLE_TIME_MS;
+    protected Long _maxLifetimeMs = DEFAULT_MAX_LIFETIME_MS;
+    protected Long _connectionTimeoutMs = DEFAULT_CONNECTION_TIMEOUT_MS;
+    protected Long _validationIdleThresholdMs = DEFAULT_VALIDATION_IDLE_THRESHOLD_MS;
+    protected Integer _validationTimeoutSeconds = DEFAULT_VALIDATION_TIMEOUT_SECONDS;
+
+    protected volatile Semaphore _connectionPermits = null;
+    protected ScheduledExecutorService _maintenanceExecutor = null;
+    protected volatile Boolean _isClosed = false;
+
+    protected Boolean _isExpired(final PooledConnection pooledConnection, final Long now) {
+        if ( (_maxLifetimeMs > 0L) && ((now - pooledConnection.creationTime) >= _maxLifetimeMs) ) { return true; }
+        return false;
+    }
+
+    protected Boolean _isIdleTooLong(final PooledConnection pooledConnection, final Long now) {
+        if ( (_maxIdleTimeMs > 0L) && ((now - pooledConnection.lastReturnTime) >= _maxIdleTimeMs) ) { return true; }
+        return false;
+    }
+
+    protected PooledConnection _createPooledConnection() throws DatabaseException {
+        _totalConnectionCount.incrementAndGet();
+        try {
+            final Connection connection = _newRawConnection();
+            return new PooledConnection(connection, connection.getTransactionIsolation(), connection.getCatalog(), _newPreparedStatementCache());
+        }
+        catch (final Exception exception) {
+            _totalConnectionCount.decrementAndGet();
+            throw new DatabaseException(exception);
+        }
+    }
+
+    protected void _destroyPooledConnection(final PooledConnection pooledConnection) {
+        _totalConnectionCount.decrementAndGet();
+        try {
+            if (pooledConnection.preparedStatementCache != null) {
+                pooledConnection.preparedStatementCache.clear();
+            }
+            pooledConnection.connection.close();
+        }
+        catch (final Exception exception) {
+            Logger.debug(exception);
+        }
+    }
+
+    protected Boolean _isValid(final PooledConnection pooledConnection, final Long now) {
+        if (_isExpired(pooledConnection, now)) { return false; }
+
+        // Skip the round-trip for connections that were returned very recently...
+        if ((now - pooledConnection.lastReturnTime) < _validationIdleThresholdMs) { return true; }
+
+        try {
+            return pooledConnection.connection.isValid(_validationTimeoutSeconds);
+        }
+        catch (final Exception exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Restores the connection to the state it was in when it was created.
+     *  Returns false if the connection could not be reset and should be discarded.
+     */
+    protected Boolean _resetConnection(final PooledConnection pooledConnection) {
+        final Connection connection = pooledConnection.connection;
+        try {
+            if (connection.isClosed()) { return false; }
+
+            if (! connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+
+            if (connection.isReadOnly()) {
+                connection.setReadOnly(false);
+            }
+
+            if (connection.getTransactionIsolation() != pooledConnection.defaultTransactionIsolation) {
+                connection.setTransactionIsolation(pooledConnection.defaultTransactionIsolation);
+            }
+
+            final String defaultCatalog = pooledConnection.defaultCatalog;
+            if ( (defaultCatalog != null) && (! defaultCatalog.equals(connection.getCatalog())) ) {
+                connection.setCatalog(defaultCatalog);
+
+                // Cached statements may have resolved unqualified tables against the other schema...
+                if (pooledConnection.preparedStatementCache != null) {
+                    pooledConnection.preparedStatementCache.clear();
+                }
+            }
+
+            connection.clearWarnings();
+            return true;
+        }
+        catch (final Exception exception) {
+            Logger.debug(exception);
+            return false;
+        }
+    }
+
+    /**
+     * Creates the pool's permits and starts its maintenance, once; called by every newConnection(), so the pool is
+     *  only locked until it has been initialized.
+     */
+    protected void _initialize() {
+        if (_connectionPermits != null) { return; }
+
+        synchronized (this) {
+            if (_connectionPermits != null) { return; }
+
+            final Long maintenanceIntervalMs = Math.max(1000L, Math.min(TimeUnit.SECONDS.toMillis(30L), (_maxIdleTimeMs > 0L ? (_maxIdleTimeMs / 2L) : Long.MAX_VALUE)));
+            _maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable);
+                thread.setName("MysqlConnectionPool - Maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            _maintenanceExecutor.scheduleWithFixedDelay(this::_performMaintenance, 0L, maintenanceIntervalMs, TimeUnit.MILLISECONDS);
+
+            _connectionPermits = new Semaphore(_maxConnectionCount, true);
+        }
+    }
+
+    /**
+     * Evicts idle and expired connections and then opens connections until the minimum connection count is reached.
+     */
+    protected void _performMaintenance() {
+        synchronized (_maintenanceMutex) {
+            if (_isClosed) { return; }
+
+            final Long now = System.currentTimeMillis();
+            final Iterator<PooledConnection> iterator = _idleConnections.descendingIterator(); // Oldest returned connections first...
+            while (iterator.hasNext()) {
+                final PooledConnection pooledConnection = iterator.next();
+
+                final boolean isExpired = _isExpired(pooledConnection, now);
+                final boolean isIdleTooLong = ( _isIdleTooLong(pooledConnection, now) && (_totalConnectionCount.get() > _minConnectionCount) );
+                if (isExpired || isIdleTooLong) {
+                    if (_idleConnections.removeLastOccurrence(pooledConnection)) {
+                        _destroyPooledConnection(pooledConnection);
+                    }
+                }
+            }
+
+            while ( (! _isClosed) && (_totalConnectionCount.get() < Math.min(_minConnectionCount, _maxConnectionCount)) ) {
+                try {
+                    final PooledConnection pooledConnection = _createPooledConnection();
+                    _idleConnections.offerFirst(pooledConnection);
+                }
+                catch (final DatabaseException exception) {
+                    Logger.debug(exception);
+                    break;
+                }
+            }
+        }
+    }
+
+    protected void _returnConnection(final PooledConnection pooledConnection) {
+        try {
+            final Long now = System.currentTimeMillis();
+            final boolean isOverCapacity = (_totalConnectionCount.get() > _maxConnectionCount);
+            if ( _isClosed || isOverCapacity || _isExpired(pooledConnection, now) || (! _resetConnection(pooledConnection)) ) {
+                _destroyPooledConnection(pooledConnection);
+                return;
+            }
+
+            pooledConnection.lastReturnTime = now;
+            _idleConnections.offerFirst(pooledConnection);
+
+            if (_isClosed) { // The pool may have been closed while the connection was being returned...
+                if (_idleConnections.remove(pooledConnection)) {
+                    _destroyPooledConnection(pooledConnection);
+                }
+            }
+        }
+        finally {
+            _connectionPermits.release();
+        }
+    }
+
+    public PooledMysqlDatabaseConnectionFactory(final DatabaseProperties databaseProperties) {
+        super(databaseProperties);
+    }
+
+    public PooledMysqlDatabaseConnectionFactory(final DatabaseProperties databaseProperties, final DatabaseCredentials databaseCredentials) {
+        super(databaseProperties, databaseCredentials);
+    }
+
+    public PooledMysqlDatabaseConnectionFactory(final DatabaseProperties databaseProperties, final DatabaseCredentials databaseCredentials, final Properties connectionProperties) {
+        super(databaseProperties, databaseCredentials, connectionProperties);
+    }
+
+    public PooledMysqlDatabaseConnectionFactory(final String hostname, final Integer port, final String schema, final String username, final String password) {
+        super(hostname, port, schema, username, password);
+    }
+
+    public PooledMysqlDatabaseConnectionFactory(final String hostname, final Integer port, final String schema, final String username, final String password, final Properties properties) {
+        super(hostname, port, schema, username, password, properties);
+    }
+
+    /**
+     * Sets the number of connections the pool keeps open while idle.
+     *  Must be configured before the first connection is requested.
+     */
+    public void setMinConnectionCount(final Integer minConnectionCount) {
+        _minConnectionCount = Math.max(0, minConnectionCount);
+    }
+
+    /**
+     * Sets the maximum number of connections that may be checked out of the pool at once.
+     *  Must be configured before the first connection is requested.
+     */
+    public void setMaxConnectionCount(final Integer maxConnectionCount) {
+        if (maxConnectionCount < 1) {
+            throw new IllegalArgumentException("Invalid value for maxConnectionCount; value must be greater than 0.");
+        }
+        _maxConnectionCount = maxConnectionCount;
+    }
+
+    /**
+     * Sets the duration an idle connection may remain in the pool before being closed.  A value of zero disables idle eviction.
+     */
+    public void setMaxIdleTime(final Long maxIdleTimeMs) {
+        _maxIdleTimeMs = Math.max(0L, maxIdleTimeMs);
+    }
+
+    /**
+     * Sets the duration a connection may remain open, regardless of use.  A value of zero disables lifetime eviction.
+     *  This value should be lower than the server's wait_timeout.
+     */
+    public void setMaxLifetime(final Long maxLifetimeMs) {
+        _maxLifetimeMs = Math.max(0L, maxLifetimeMs);
+    }
+
+    /**
+     * Sets the duration newConnection() will wait for a connection to become available before failing.
+     */
+    public void setConnectionTimeout(final Long connectionTimeoutMs) {
+        _connectionTimeoutMs = Math.max(0L, connectionTimeoutMs);
+    }
+
+    /**
+     * Sets the duration a connection may be idle before it is pinged when borrowed.
+     *  Connections returned more recently than this threshold are handed out without validation.
+     */
+    public void setValidationIdleThreshold(final Long validationIdleThresholdMs) {
+        _validationIdleThresholdMs = Math.max(0L, validationIdleThresholdMs);
+    }
+
+    public void setValidationTimeout(final Integer validationTimeoutSeconds) {
+        _validationTimeoutSeconds = Math.max(0, validationTimeoutSeconds);
+    }
+
+    @Override
+    public MysqlDatabaseConnection newConnection() throws DatabaseException {
+        if (_isClosed) { throw new DatabaseException("Connection pool is closed."); }
+        _initialize();
+
+        final long startTime = System.nanoTime();
+        try {
+            if (! _connectionPermits.tryAcquire(_connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                _onConnectionFailed(startTime);
+                throw new DatabaseException("Timed out waiting for connection after " + _connectionTimeoutMs + "ms.");
+            }
+        }
+        catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            _onConnectionFailed(startTime);
+            throw new DatabaseException(exception);
+        }
+
+        try {
+            final Long now = System.currentTimeMillis();
+            PooledConnection pooledConnection;
+            while ((pooledConnection = _idleConnections.pollFirst()) != null) {
+                if (_isValid(pooledConnection, now)) { break; }
+                _destroyPooledConnection(pooledConnection);
+            }
+
+            if (pooledConnection == null) {
+                pooledConnection = _createPooledConnection();
+            }
+
+            final PooledMysqlDatabaseConnection databaseConnection = new PooledMysqlDatabaseConnection(this, pooledConnection, _newRowFactory());
+            _onConnectionAcquired(databaseConnection, startTime);
+            return databaseConnection;
+        }
+        catch (final Exception exception) {
+            _connectionPermits.release();
+            _onConnectionFailed(startTime);
+            if (exception instanceof DatabaseException) { throw (DatabaseException) exception; }
+            throw new DatabaseException(exception);
+        }
+    }
+
+    /**
+     * Warms at most the pool's maximum connection count.  Warmed connections beyond the minimum connection count
+     *  remain subject to idle eviction.
+     */
+    @Override
+    public WarmUpReport warmUp(final Integer connectionCount) throws DatabaseException {
+        return super.warmUp(Math.min(connectionCount, _maxConnectionCount));
+    }
+
+    public Integer getIdleConnectionCount() {
+        return _idleConnections.size();
+    }
+
+    public Integer getConnectionCount() {
+        return _totalConnectionCount.get();
+    }
+
+    /**
+     * Closes all idle connections and prevents new connections from being created.
+     *  Connections currently checked out are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        _isClosed = true;
+
+        synchronized (this) {
+            if (_maintenanceExecutor != null) {
+                _maintenanceExecutor.shutdownNow();
+            }
+        }
+
+        synchronized (_maintenanceMutex) {
+            PooledConnection pooledConnection;
+            while ((pooledConnection = _idleConnections.pollFirst()) != null) {
+                _destroyPooledConnection(pooledConnection);
+            }
+        }
+    }
+}
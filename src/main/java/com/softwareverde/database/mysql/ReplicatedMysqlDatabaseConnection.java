@@ -0,0 +1,209 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.mysql.row.MysqlTypedRow;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import com.softwareverde.logging.Logger;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A MysqlDatabaseConnection that executes reads on a replica when it is safe to do so.
+ *  A query is routed to a replica only if it is a plain SELECT (no locking clause or session-dependent function),
+ *  the connection is not within a transaction, and the connection has not yet written to the primary;
+ *  all other statements, and all statements issued via getRawConnection(), are executed on the primary.
+ *  query(), streamQuery(), visitQuery(), and openCursor() are all routed this way.
+ *  A read that fails on the replica is retried on the primary, unless rows were already delivered to its callback
+ *  (or, for openCursor(), once the cursor has been returned); subsequent reads then use the primary.
+ *  The replica connection is opened lazily and reused for the lifetime of this connection.
+ */
+public class ReplicatedMysqlDatabaseConnection extends MysqlDatabaseConnection {
+    protected static final String[] PRIMARY_ONLY_KEYWORDS = { "FOR UPDATE", "FOR SHARE", "LOCK IN SHARE MODE", "GET_LOCK", "RELEASE_LOCK", "IS_USED_LOCK", "LAST_INSERT_ID", "FOUND_ROWS", "ROW_COUNT", " INTO " };
+
+    protected interface ReadOperation<T> {
+        T run(MysqlDatabaseConnection databaseConnection) throws DatabaseException;
+    }
+
+    protected static Boolean _isReplicaSafe(final String query) {
+        final String normalizedQuery = query.trim().toUpperCase();
+        if (! normalizedQuery.startsWith("SELECT")) { return false; }
+
+        for (final String keyword : PRIMARY_ONLY_KEYWORDS) {
+            if (normalizedQuery.contains(keyword)) { return false; }
+        }
+        return true;
+    }
+
+    protected final ReplicatedMysqlDatabaseConnectionFactory _connectionFactory;
+    protected final MysqlDatabaseConnection _primaryDatabaseConnection;
+    protected MysqlDatabaseConnection _replicaDatabaseConnection = null;
+    protected Boolean _replicaIsUnavailable = false;
+    protected Boolean _hasWritten = false;
+
+    /**
+     * Returns the connection the query should be executed on.
+     */
+    protected MysqlDatabaseConnection _getReadConnection(final String query) {
+        if ( _hasWritten || _replicaIsUnavailable || (! _isReplicaSafe(query)) || _isInTransaction() ) {
+            return _primaryDatabaseConnection;
+        }
+
+        if (_replicaDatabaseConnection == null) {
+            _replicaDatabaseConnection = _connectionFactory._newReplicaConnection();
+            if (_replicaDatabaseConnection == null) {
+                _replicaIsUnavailable = true;
+                return _primaryDatabaseConnection;
+            }
+        }
+        return _replicaDatabaseConnection;
+    }
+
+    protected void _closeReplicaConnection() {
+        if (_replicaDatabaseConnection == null) { return; }
+
+        try {
+            _replicaDatabaseConnection.close();
+        }
+        catch (final DatabaseException exception) {
+            Logger.debug(exception);
+        }
+        _replicaDatabaseConnection = null;
+    }
+
+    protected ReplicatedMysqlDatabaseConnection(final ReplicatedMysqlDatabaseConnectionFactory connectionFactory, final MysqlDatabaseConnection primaryDatabaseConnection) {
+        super(primaryDatabaseConnection.getRawConnection(), primaryDatabaseConnection._mysqlRowFactory);
+        _connectionFactory = connectionFactory;
+        _primaryDatabaseConnection = primaryDatabaseConnection;
+    }
+
+    /**
+     * Runs the read on the connection selected by _getReadConnection().  If the read fails on the replica, the replica is
+     *  abandoned and the read is retried on the primary, unless hasDeliveredRows (when provided) indicates the failure
+     *  occurred after rows were already passed to the caller.
+     */
+    protected <T> T _read(final Query query, final AtomicBoolean hasDeliveredRows, final ReadOperation<T> readOperation) throws DatabaseException {
+        final MysqlDatabaseConnection databaseConnection = _getReadConnection(query.getQueryString());
+        if (databaseConnection == _primaryDatabaseConnection) {
+            return readOperation.run(_primaryDatabaseConnection);
+        }
+
+        try {
+            return readOperation.run(databaseConnection);
+        }
+        catch (final DatabaseException exception) {
+            Logger.debug(exception);
+
+            // The replica may have failed or fallen behind; retry on the primary.
+            _closeReplicaConnection();
+            _replicaIsUnavailable = true;
+
+            if ( (hasDeliveredRows != null) && hasDeliveredRows.get() ) { throw exception; }
+            return readOperation.run(_primaryDatabaseConnection);
+        }
+    }
+
+    @Override
+    public synchronized List<Row> query(final Query query) throws DatabaseException {
+        return _read(query, null, (final MysqlDatabaseConnection databaseConnection) -> databaseConnection.query(query));
+    }
+
+    @Override
+    public synchronized List<Row> query(final Query query, final Long cacheTtlMs) throws DatabaseException {
+        return _read(query, null, (final MysqlDatabaseConnection databaseConnection) -> databaseConnection.query(query, cacheTtlMs));
+    }
+
+    @Override
+    public synchronized void streamQuery(final Query query, final Integer fetchSize, final RowCallback rowCallback) throws DatabaseException {
+        final AtomicBoolean hasDeliveredRows = new AtomicBoolean(false);
+        _read(query, hasDeliveredRows, (final MysqlDatabaseConnection databaseConnection) -> {
+            databaseConnection.streamQuery(query, fetchSize, (final Row row) -> {
+                hasDeliveredRows.set(true);
+                rowCallback.onRow(row);
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void visitQuery(final Query query, final Integer fetchSize, final TypedRowVisitor rowVisitor) throws DatabaseException {
+        final AtomicBoolean hasDeliveredRows = new AtomicBoolean(false);
+        _read(query, hasDeliveredRows, (final MysqlDatabaseConnection databaseConnection) -> {
+            databaseConnection.visitQuery(query, fetchSize, (final MysqlTypedRow row) -> {
+                hasDeliveredRows.set(true);
+                rowVisitor.visit(row);
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized MysqlRowCursor openCursor(final Query query, final Integer fetchSize) throws DatabaseException {
+        return _read(query, null, (final MysqlDatabaseConnection databaseConnection) -> databaseConnection.openCursor(query, fetchSize));
+    }
+
+    @Override
+    public synchronized List<Row> query(final String query, final String[] parameters) throws DatabaseException {
+        return this.query(_toQuery(query, parameters));
+    }
+
+    @Override
+    public synchronized Long executeSql(final Query query) throws DatabaseException {
+        _hasWritten = true;
+        return _primaryDatabaseConnection.executeSql(query);
+    }
+
+    @Override
+    public synchronized Long executeSql(final String query, final String[] parameters) throws DatabaseException {
+        _hasWritten = true;
+        return _primaryDatabaseConnection.executeSql(query, parameters);
+    }
+
+    @Override
+    public synchronized void executeDdl(final String query) throws DatabaseException {
+        _hasWritten = true;
+        _primaryDatabaseConnection.executeDdl(query);
+    }
+
+    @Override
+    public synchronized void executeDdl(final Query query) throws DatabaseException {
+        _hasWritten = true;
+        _primaryDatabaseConnection.executeDdl(query);
+    }
+
+    @Override
+    public synchronized void commit() throws DatabaseException {
+        _primaryDatabaseConnection.commit();
+    }
+
+    @Override
+    public synchronized void rollback() throws DatabaseException {
+        _primaryDatabaseConnection.rollback();
+    }
+
+    @Override
+    public Integer getRowsAffectedCount() {
+        return _primaryDatabaseConnection.getRowsAffectedCount();
+    }
+
+    @Override
+    public MysqlPreparedStatementCache getPreparedStatementCache() {
+        return _primaryDatabaseConnection.getPreparedStatementCache();
+    }
+
+    /**
+     * Returns true if a replica connection is currently open for this connection's reads.
+     */
+    public synchronized Boolean isUsingReplica() {
+        return (_replicaDatabaseConnection != null);
+    }
+
+    @Override
+    public void close() throws DatabaseException {
+        synchronized (this) {
+            _closeReplicaConnection();
+        }
+        _primaryDatabaseConnection.close();
+    }
+}
@@ -0,0 +1,284 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.jdbc.JdbcDatabaseConnectionFactory;
+import com.softwareverde.database.mysql.metrics.MysqlInstrumentation;
+import com.softwareverde.database.properties.DatabaseProperties;
+import com.softwareverde.database.row.Row;
+import com.softwareverde.logging.Logger;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection factory for a primary database and a set of read replicas.
+ *  Connections returned by newConnection() execute writes, DDL, and transactions on the primary, and route standalone
+ *  SELECTs to a healthy replica (see ReplicatedMysqlDatabaseConnection), so existing DAO code scales reads without changes.
+ *  Replicas are health-checked periodically; replicas that are unreachable, are not replicating (e.g. standalone servers,
+ *  or servers whose replication was reset), or lag the primary by more than the configured threshold are skipped until
+ *  they recover.  Replicas are not used until their first health check completes.  If no replica is available, reads are served by the primary.
+ *
+ *  The health check reads SHOW REPLICA STATUS (or SHOW SLAVE STATUS), which requires the replica's user to be granted
+ *  the REPLICATION CLIENT privilege (SLAVE MONITOR on MariaDB 10.5+); the users created by MysqlDatabaseInitializer
+ *  are not granted it.  Without it, every replica is considered unhealthy and an error naming the privilege is logged.
+ */
+public class ReplicatedMysqlDatabaseConnectionFactory implements JdbcDatabaseConnectionFactory, AutoCloseable {
+    public static final Long DEFAULT_MAX_REPLICATION_LAG_SECONDS = 5L;
+    public static final Long DEFAULT_HEALTH_CHECK_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5L);
+
+    protected static class Replica {
+        public final MysqlDatabaseConnectionFactory connectionFactory;
+        public volatile Boolean isHealthy = true;
+        public volatile Long replicationLagSeconds = null;
+
+        public Replica(final MysqlDatabaseConnectionFactory connectionFactory) {
+            this.connectionFactory = connectionFactory;
+        }
+    }
+
+    protected static final Integer SPECIFIC_ACCESS_DENIED_ERROR_CODE = 1227; // ER_SPECIFIC_ACCESS_DENIED_ERROR
+
+    /**
+     * Returns true if the exception was caused by the user lacking a privilege required by the statement (e.g. the
+     *  REPLICATION CLIENT privilege required by SHOW REPLICA STATUS).
+     */
+    protected static Boolean _isMissingPrivilege(final Throwable exception) {
+        Throwable cause = exception;
+        while (cause != null) {
+            if ( (cause instanceof SQLException) && (((SQLException) cause).getErrorCode() == SPECIFIC_ACCESS_DENIED_ERROR_CODE) ) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the replica's lag behind its primary in seconds, or null if the server is not replicating (e.g. it is
+     *  standalone, or replication was reset).  Throws if replication is configured but stopped or broken.
+     */
+    protected static Long _getReplicationLagSeconds(final MysqlDatabaseConnection databaseConnection) throws DatabaseException {
+        List<Row> rows;
+        try {
+            rows = databaseConnection.query("SHOW REPLICA STATUS", null);
+        }
+        catch (final DatabaseException exception) {
+            rows = databaseConnection.query("SHOW SLAVE STATUS", null); // Servers predating MariaDB 10.5 / MySQL 8.0.22...
+        }
+        if (rows.isEmpty()) { return null; }
+
+        final Row row = rows.get(0);
+        final List<String> columnNames = row.getColumnNames();
+        for (final String columnName : new String[]{ "Seconds_Behind_Source", "Seconds_Behind_Master" }) {
+            if (columnNames.contains(columnName)) {
+                final Long replicationLagSeconds = row.getLong(columnName);
+                if (replicationLagSeconds == null) { // Replication is stopped or broken...
+                    throw new DatabaseException("Replication is not running.");
+                }
+                return replicationLagSeconds;
+            }
+        }
+        return null;
+    }
+
+    protected final MysqlDatabaseConnectionFactory _primaryConnectionFactory;
+    protected final List<Replica> _replicas;
+    protected final AtomicInteger _nextReplicaIndex = new AtomicInteger(0);
+
+    protected Long _maxReplicationLagSeconds = DEFAULT_MAX_REPLICATION_LAG_SECONDS;
+    protected Long _healthCheckIntervalMs = DEFAULT_HEALTH_CHECK_INTERVAL_MS;
+    protected ScheduledExecutorService _healthCheckExecutor = null;
+
+    /**
+     * Returns true if the replica passed its last health check while replicating within maxReplicationLagSeconds.
+     *  A server that is not replicating is not available, since its data may be arbitrarily stale.
+     */
+    protected static Boolean _isAvailable(final Replica replica, final Long maxReplicationLagSeconds) {
+        if (! replica.isHealthy) { return false; }
+
+        final Long replicationLagSeconds = replica.replicationLagSeconds;
+        return ( (replicationLagSeconds != null) && (replicationLagSeconds <= maxReplicationLagSeconds) );
+    }
+
+    protected void _checkReplicaHealth(final Replica replica) {
+        try (final MysqlDatabaseConnection databaseConnection = replica.connectionFactory.newConnection()) {
+            final Long replicationLagSeconds = _getReplicationLagSeconds(databaseConnection);
+            if ( (replicationLagSeconds == null) && (replica.replicationLagSeconds != null) ) {
+                Logger.warn("Replica is not replicating; reads are not routed to it.");
+            }
+            replica.replicationLagSeconds = replicationLagSeconds;
+            replica.isHealthy = true;
+        }
+        catch (final Exception exception) {
+            if (replica.isHealthy) {
+                if (_isMissingPrivilege(exception)) {
+                    Logger.error("Replica health check requires the REPLICATION CLIENT privilege (SLAVE MONITOR on MariaDB 10.5+); reads are not routed to the replica until it is granted: " + exception.getMessage());
+                }
+                else {
+                    Logger.warn("Replica health check failed: " + exception.getMessage());
+                }
+            }
+            replica.isHealthy = false;
+        }
+    }
+
+    protected void _checkReplicaHealth() {
+        for (final Replica replica : _replicas) {
+            _checkReplicaHealth(replica);
+        }
+    }
+
+    protected synchronized void _initialize() {
+        if ( (_healthCheckExecutor != null) || _replicas.isEmpty() ) { return; }
+
+        _healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setName("MysqlReplica - Health Check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        _healthCheckExecutor.scheduleWithFixedDelay(this::_checkReplicaHealth, 0L, _healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the next available replica in round-robin order, or null if no replica is available.
+     */
+    protected Replica _selectReplica() {
+        final int replicaCount = _replicas.size();
+        if (replicaCount == 0) { return null; }
+
+        final int startIndex = Math.floorMod(_nextReplicaIndex.getAndIncrement(), replicaCount);
+        for (int i = 0; i < replicaCount; ++i) {
+            final Replica replica = _replicas.get((startIndex + i) % replicaCount);
+            if (_isAvailable(replica, _maxReplicationLagSeconds)) { return replica; }
+        }
+        return null;
+    }
+
+    /**
+     * Opens a read-only connection to an available replica, or returns null if no replica is available.
+     *  Replicas that fail to connect are marked unhealthy until their next successful health check.
+     */
+    protected MysqlDatabaseConnection _newReplicaConnection() {
+        _initialize();
+
+        Replica replica;
+        while ((replica = _selectReplica()) != null) {
+            try {
+                final MysqlDatabaseConnection databaseConnection = replica.connectionFactory.newConnection();
+                databaseConnection.getRawConnection().setReadOnly(true);
+                return databaseConnection;
+            }
+            catch (final Exception exception) {
+                Logger.warn("Unable to connect to replica: " + exception.getMessage());
+                replica.isHealthy = false;
+            }
+        }
+        return null;
+    }
+
+    public ReplicatedMysqlDatabaseConnectionFactory(final MysqlDatabaseConnectionFactory primaryConnectionFactory, final List<? extends MysqlDatabaseConnectionFactory> replicaConnectionFactories) {
+        _primaryConnectionFactory = primaryConnectionFactory;
+
+        final ArrayList<Replica> replicas = new ArrayList<>(replicaConnectionFactories.size());
+        for (final MysqlDatabaseConnectionFactory replicaConnectionFactory : replicaConnectionFactories) {
+            replicas.add(new Replica(replicaConnectionFactory));
+        }
+        _replicas = Collections.unmodifiableList(replicas);
+    }
+
+    public ReplicatedMysqlDatabaseConnectionFactory(final DatabaseProperties primaryDatabaseProperties, final List<? extends DatabaseProperties> replicaDatabaseProperties) {
+        _primaryConnectionFactory = new MysqlDatabaseConnectionFactory(primaryDatabaseProperties);
+
+        final ArrayList<Replica> replicas = new ArrayList<>(replicaDatabaseProperties.size());
+        for (final DatabaseProperties databaseProperties : replicaDatabaseProperties) {
+            replicas.add(new Replica(new MysqlDatabaseConnectionFactory(databaseProperties)));
+        }
+        _replicas = Collections.unmodifiableList(replicas);
+    }
+
+    /**
+     * Sets the maximum replication lag, in seconds, a replica may have before reads are no longer routed to it.
+     */
+    public void setMaxReplicationLag(final Long maxReplicationLagSeconds) {
+        _maxReplicationLagSeconds = maxReplicationLagSeconds;
+    }
+
+    /**
+     * Sets the interval between replica health checks.  Must be configured before the first connection is requested.
+     */
+    public void setHealthCheckInterval(final Long healthCheckIntervalMs) {
+        _healthCheckIntervalMs = Math.max(1L, healthCheckIntervalMs);
+    }
+
+    /**
+     * Sets the instrumentation of the primary's and each replica's connection factory.
+     */
+    public void setInstrumentation(final MysqlInstrumentation instrumentation) {
+        _primaryConnectionFactory.setInstrumentation(instrumentation);
+        for (final Replica replica : _replicas) {
+            replica.connectionFactory.setInstrumentation(instrumentation);
+        }
+    }
+
+    /**
+     * Returns a connection that executes writes and transactions on the primary and routes standalone reads to a replica.
+     */
+    @Override
+    public ReplicatedMysqlDatabaseConnection newConnection() throws DatabaseException {
+        _initialize();
+
+        final MysqlDatabaseConnection primaryDatabaseConnection = _primaryConnectionFactory.newConnection();
+        return new ReplicatedMysqlDatabaseConnection(this, primaryDatabaseConnection);
+    }
+
+    /**
+     * Returns a connection to the primary.
+     */
+    public MysqlDatabaseConnection newPrimaryConnection() throws DatabaseException {
+        return _primaryConnectionFactory.newConnection();
+    }
+
+    /**
+     * Returns a read-only connection to an available replica, or to the primary if no replica is available.
+     */
+    public MysqlDatabaseConnection newReadOnlyConnection() throws DatabaseException {
+        final MysqlDatabaseConnection replicaDatabaseConnection = _newReplicaConnection();
+        if (replicaDatabaseConnection != null) { return replicaDatabaseConnection; }
+
+        final MysqlDatabaseConnection primaryDatabaseConnection = _primaryConnectionFactory.newConnection();
+        try {
+            primaryDatabaseConnection.getRawConnection().setReadOnly(true);
+        }
+        catch (final Exception exception) {
+            primaryDatabaseConnection.close();
+            throw new DatabaseException(exception);
+        }
+        return primaryDatabaseConnection;
+    }
+
+    public Integer getAvailableReplicaCount() {
+        int availableReplicaCount = 0;
+        for (final Replica replica : _replicas) {
+            if (_isAvailable(replica, _maxReplicationLagSeconds)) {
+                availableReplicaCount += 1;
+            }
+        }
+        return availableReplicaCount;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (_healthCheckExecutor != null) {
+                _healthCheckExecutor.shutdownNow();
+            }
+        }
+    }
+}
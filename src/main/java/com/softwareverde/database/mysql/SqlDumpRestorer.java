@@ -0,0 +1,280 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Restores mysqldump-style scripts faster than SqlScriptRunner.
+ *  Statements are committed in transactions of a configurable size rather than individually, consecutive DML statements
+ *  are sent via JDBC batching, and unique_checks/foreign_key_checks are disabled for the duration of the restore and
+ *  then restored to their original values.  Disabling the binary log is opt-in, since it prevents replicas from
+ *  receiving the restored data and requires elevated privileges.
+ */
+public class SqlDumpRestorer {
+    public interface ProgressListener {
+        void onProgress(Long statementCount, Long characterCount, Double statementsPerSecond, Double charactersPerSecond);
+    }
+
+    public static final Integer DEFAULT_TRANSACTION_STATEMENT_COUNT = 1000;
+    public static final Integer DEFAULT_BATCH_STATEMENT_COUNT = 100;
+    public static final Long DEFAULT_PROGRESS_INTERVAL_MS = TimeUnit.SECONDS.toMillis(1L);
+
+    protected static final Pattern DML_PATTERN = Pattern.compile("^(?:INSERT|REPLACE|UPDATE|DELETE)\\s", Pattern.CASE_INSENSITIVE);
+    protected static final Integer MAX_ERROR_STATEMENT_LENGTH = 256;
+
+    /**
+     * Returns true if the statement may be sent as part of a JDBC batch.
+     */
+    protected static Boolean _isDml(final String statement) {
+        return DML_PATTERN.matcher(statement).find();
+    }
+
+    /**
+     * Shortens the statement for inclusion in an error message; dumped INSERTs are commonly several megabytes.
+     */
+    protected static String _truncateStatement(final String statement) {
+        if (statement.length() <= MAX_ERROR_STATEMENT_LENGTH) { return statement; }
+        return (statement.substring(0, MAX_ERROR_STATEMENT_LENGTH) + "... (" + statement.length() + " characters)");
+    }
+
+    protected static SQLException _newStatementException(final String statement, final Integer lineNumber, final SQLException exception) {
+        return new SQLException(String.format("Error executing '%s' (line %d): %s", _truncateStatement(statement), lineNumber, exception.getMessage()), exception);
+    }
+
+    /**
+     * Returns the index of the failed statement within the batch, as reported by the driver's update counts.
+     *  Drivers either mark the failed statement as EXECUTE_FAILED or stop at the failure, reporting only the
+     *  statements that succeeded before it.
+     */
+    protected static Integer _getFailedBatchIndex(final BatchUpdateException exception, final Integer batchSize) {
+        final int[] updateCounts = exception.getUpdateCounts();
+        if (updateCounts == null) { return 0; }
+
+        for (int i = 0; i < updateCounts.length; ++i) {
+            if (updateCounts[i] == Statement.EXECUTE_FAILED) { return i; }
+        }
+        return Math.min(updateCounts.length, (batchSize - 1));
+    }
+
+    protected final Connection _connection;
+
+    protected Integer _transactionStatementCount = DEFAULT_TRANSACTION_STATEMENT_COUNT;
+    protected Integer _batchStatementCount = DEFAULT_BATCH_STATEMENT_COUNT;
+    protected Boolean _disableChecks = true;
+    protected Boolean _disableBinaryLog = false;
+    protected ProgressListener _progressListener = null;
+    protected Long _progressIntervalMs = DEFAULT_PROGRESS_INTERVAL_MS;
+
+    protected Long _statementCount = 0L;
+    protected Long _characterCount = 0L;
+    protected Long _startTime = 0L;
+    protected Long _lastProgressTime = 0L;
+
+    protected Integer _uncommittedStatementCount = 0;
+    protected final List<String> _batchedStatements = new ArrayList<>();
+    protected final List<Integer> _batchedLineNumbers = new ArrayList<>(); // The starting line of each batched statement.
+
+    protected void _reportProgress(final Boolean isComplete) {
+        if (_progressListener == null) { return; }
+
+        final Long now = System.currentTimeMillis();
+        if ( (! isComplete) && ((now - _lastProgressTime) < _progressIntervalMs) ) { return; }
+        _lastProgressTime = now;
+
+        final Double elapsedSeconds = (Math.max(1L, (now - _startTime)) / 1000D);
+        _progressListener.onProgress(_statementCount, _characterCount, (_statementCount / elapsedSeconds), (_characterCount / elapsedSeconds));
+    }
+
+    protected String _getSessionVariable(final String variableName) throws SQLException {
+        try (
+            final Statement statement = _connection.createStatement();
+            final ResultSet resultSet = statement.executeQuery("SELECT @@SESSION." + variableName)
+        ) {
+            return (resultSet.next() ? resultSet.getString(1) : null);
+        }
+    }
+
+    protected void _setSessionVariable(final String variableName, final String value) throws SQLException {
+        try (final Statement statement = _connection.createStatement()) {
+            statement.execute("SET SESSION " + variableName + " = " + value);
+        }
+    }
+
+    protected void _executeBatch(final Statement batchStatement) throws SQLException {
+        final int batchSize = _batchedStatements.size();
+        if (batchSize < 1) { return; }
+
+        try {
+            batchStatement.executeBatch();
+        }
+        catch (final BatchUpdateException exception) {
+            final Integer failedIndex = _getFailedBatchIndex(exception, batchSize);
+            throw _newStatementException(_batchedStatements.get(failedIndex), _batchedLineNumbers.get(failedIndex), exception);
+        }
+        catch (final SQLException exception) {
+            throw new SQLException(String.format("Error executing batch of %d statements (lines %d-%d): %s", batchSize, _batchedLineNumbers.get(0), _batchedLineNumbers.get(batchSize - 1), exception.getMessage()), exception);
+        }
+        batchStatement.clearBatch();
+        _batchedStatements.clear();
+        _batchedLineNumbers.clear();
+    }
+
+    protected void _commitIfNecessary(final Statement batchStatement, final Boolean force) throws SQLException {
+        if ( (! force) && (_uncommittedStatementCount < _transactionStatementCount) ) { return; }
+
+        _executeBatch(batchStatement);
+        _connection.commit();
+        _uncommittedStatementCount = 0;
+    }
+
+    protected void _restore(final SqlScriptTokenizer tokenizer) throws IOException, SQLException {
+        try (
+            final Statement batchStatement = _connection.createStatement();
+            final Statement statement = _connection.createStatement()
+        ) {
+            String statementString;
+            while ((statementString = tokenizer.nextStatement()) != null) {
+                if (_isDml(statementString)) {
+                    batchStatement.addBatch(statementString);
+                    _batchedStatements.add(statementString);
+                    _batchedLineNumbers.add(tokenizer.getStartingLineNumber());
+                    if (_batchedStatements.size() >= _batchStatementCount) {
+                        _executeBatch(batchStatement);
+                    }
+                }
+                else {
+                    _executeBatch(batchStatement);
+                    try {
+                        statement.execute(statementString);
+                    }
+                    catch (final SQLException exception) {
+                        throw _newStatementException(statementString, tokenizer.getStartingLineNumber(), exception);
+                    }
+                }
+
+                _statementCount += 1L;
+                _characterCount = tokenizer.getCharacterCount();
+                _uncommittedStatementCount += 1;
+
+                _commitIfNecessary(batchStatement, false);
+                _reportProgress(false);
+            }
+
+            _commitIfNecessary(batchStatement, true);
+        }
+    }
+
+    public SqlDumpRestorer(final Connection connection) {
+        _connection = connection;
+    }
+
+    /**
+     * Sets the number of statements committed per transaction.
+     */
+    public void setTransactionStatementCount(final Integer transactionStatementCount) {
+        _transactionStatementCount = Math.max(1, transactionStatementCount);
+    }
+
+    /**
+     * Sets the maximum number of consecutive DML statements sent per JDBC batch.  A value of 1 disables batching.
+     */
+    public void setBatchStatementCount(final Integer batchStatementCount) {
+        _batchStatementCount = Math.max(1, batchStatementCount);
+    }
+
+    /**
+     * When enabled (the default), unique_checks and foreign_key_checks are disabled for the session during the restore.
+     */
+    public void setDisableChecks(final Boolean disableChecks) {
+        _disableChecks = disableChecks;
+    }
+
+    /**
+     * When enabled, sql_log_bin is disabled for the session during the restore.  Disabled by default.
+     */
+    public void setDisableBinaryLog(final Boolean disableBinaryLog) {
+        _disableBinaryLog = disableBinaryLog;
+    }
+
+    public void setProgressListener(final ProgressListener progressListener, final Long progressIntervalMs) {
+        _progressListener = progressListener;
+        _progressIntervalMs = progressIntervalMs;
+    }
+
+    /**
+     * Restores the script.  If a statement fails, the current transaction is rolled back and the restore stops;
+     *  previously committed transactions are retained.
+     */
+    public void restore(final Reader reader) throws DatabaseException {
+        _statementCount = 0L;
+        _characterCount = 0L;
+        _uncommittedStatementCount = 0;
+        _batchedStatements.clear();
+        _batchedLineNumbers.clear();
+        _startTime = System.currentTimeMillis();
+        _lastProgressTime = _startTime;
+
+        try {
+            final Boolean originalAutoCommit = _connection.getAutoCommit();
+            final String originalUniqueChecks = (_disableChecks ? _getSessionVariable("unique_checks") : null);
+            final String originalForeignKeyChecks = (_disableChecks ? _getSessionVariable("foreign_key_checks") : null);
+            final String originalSqlLogBin = (_disableBinaryLog ? _getSessionVariable("sql_log_bin") : null);
+
+            try {
+                if (_disableChecks) {
+                    _setSessionVariable("unique_checks", "0");
+                    _setSessionVariable("foreign_key_checks", "0");
+                }
+                if (_disableBinaryLog) {
+                    _setSessionVariable("sql_log_bin", "0");
+                }
+                _connection.setAutoCommit(false);
+
+                _restore(new SqlScriptTokenizer(reader));
+                _reportProgress(true);
+            }
+            catch (final Exception exception) {
+                _connection.rollback();
+                throw exception;
+            }
+            finally {
+                _connection.setAutoCommit(originalAutoCommit);
+
+                if (originalUniqueChecks != null) {
+                    _setSessionVariable("unique_checks", originalUniqueChecks);
+                }
+                if (originalForeignKeyChecks != null) {
+                    _setSessionVariable("foreign_key_checks", originalForeignKeyChecks);
+                }
+                if (originalSqlLogBin != null) {
+                    _setSessionVariable("sql_log_bin", originalSqlLogBin);
+                }
+            }
+        }
+        catch (final Exception exception) {
+            throw new DatabaseException(exception);
+        }
+    }
+
+    public Long getStatementCount() {
+        return _statementCount;
+    }
+
+    /**
+     * Returns the number of characters of the script read so far.
+     */
+    public Long getCharacterCount() {
+        return _characterCount;
+    }
+}
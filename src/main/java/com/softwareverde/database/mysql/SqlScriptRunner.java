@@ -25,6 +25,9 @@
  *      2019-07 - Renamed to SqlScriptRunner.
  *      2021-01 - Removed sql log creation.
  *      2021-05 - FIX: scripts ending with setting the SQL delimiter no longer attempt to execute an empty command.
+ *      2026-10 - Separated script parsing from execution (parseScript).
+ *      2026-10 - Replaced the line-based parser with SqlScriptTokenizer; delimiters within strings and comments are
+ *                  now ignored, and multiple statements per line are supported.
  *
  */
 
@@ -34,12 +37,12 @@ import com.softwareverde.logging.Logger;
 import com.softwareverde.util.Util;
 
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.io.Reader;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.regex.Matcher;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /**
@@ -62,6 +65,13 @@ public class SqlScriptRunner {
     private String delimiter = DEFAULT_DELIMITER;
     private boolean fullLineDelimiter = false;
 
+    /**
+     * Receives each command parsed from a script, in order.
+     */
+    public interface CommandHandler {
+        void onCommand(String command, int lineNumber) throws SQLException;
+    }
+
     /**
      * Default constructor
      */
@@ -111,46 +121,11 @@ public class SqlScriptRunner {
      */
     private void runScript(Connection conn, Reader reader) throws IOException,
             SQLException {
-        StringBuffer command = null;
         try {
-            LineNumberReader lineReader = new LineNumberReader(reader);
-            String line;
-            while ((line = lineReader.readLine()) != null) {
-                if (command == null) {
-                    command = new StringBuffer();
-                }
-                String trimmedLine = line.trim();
-                final Matcher delimMatch = delimP.matcher(trimmedLine);
-                if (trimmedLine.length() < 1
-                        || trimmedLine.startsWith("//")) {
-                    // Do nothing
-                } else if (delimMatch.matches()) {
-                    setDelimiter(delimMatch.group(2), false);
-                } else if (trimmedLine.startsWith("--")) {
-                    // Do nothing
-                } else if (!fullLineDelimiter
-                        && trimmedLine.endsWith(getDelimiter())
-                        || fullLineDelimiter
-                        && trimmedLine.equals(getDelimiter())) {
-                    command.append(line.substring(0, line
-                            .lastIndexOf(getDelimiter())));
-                    command.append(" ");
-                    this.execCommand(conn, command, lineReader);
-                    command = null;
-                } else {
-                    command.append(line);
-                    command.append("\n");
-                }
-            }
-            if (command != null) {
-                this.execCommand(conn, command, lineReader);
-            }
+            parseScript(reader, (command, lineNumber) -> this.execCommand(conn, command, lineNumber));
             if (!autoCommit) {
                 conn.commit();
             }
-        }
-        catch (IOException e) {
-            throw new IOException(String.format("Error executing '%s': %s", command, e.getMessage()), e);
         } finally {
             if (! this.autoCommit) {
                 conn.rollback();
@@ -158,8 +133,47 @@ public class SqlScriptRunner {
         }
     }
 
-    private void execCommand(Connection conn, StringBuffer command, LineNumberReader lineReader) throws SQLException {
-        final String commandString = (command != null ? command.toString() : null);
+    /**
+     * Parses an SQL script (read in using the Reader parameter) into commands,
+     * honoring DELIMITER changes, without executing them.
+     *
+     * @param reader - the source of the script
+     * @param commandHandler - receives each non-blank command
+     * @throws SQLException if the commandHandler throws
+     * @throws IOException if there is an error reading from the Reader
+     */
+    public void parseScript(Reader reader, CommandHandler commandHandler) throws IOException,
+            SQLException {
+        final SqlScriptTokenizer tokenizer = new SqlScriptTokenizer(reader);
+        tokenizer.setDelimiter(getDelimiter(), fullLineDelimiter);
+        try {
+            String command;
+            while ((command = tokenizer.nextStatement()) != null) {
+                commandHandler.onCommand(command, tokenizer.getLineNumber());
+            }
+        }
+        catch (IOException e) {
+            throw new IOException(String.format("Error reading script (line %d): %s", tokenizer.getLineNumber(), e.getMessage()), e);
+        }
+        finally {
+            setDelimiter(tokenizer.getDelimiter(), tokenizer.isFullLineDelimiter());
+        }
+    }
+
+    /**
+     * Parses an SQL script into its commands without executing them.
+     */
+    public List<String> parseScript(Reader reader) throws IOException {
+        final List<String> commands = new ArrayList<>();
+        try {
+            parseScript(reader, (command, lineNumber) -> commands.add(command));
+        } catch (SQLException e) {
+            throw new RuntimeException(e); // Unreachable; the handler does not throw.
+        }
+        return commands;
+    }
+
+    private void execCommand(Connection conn, String commandString, int lineNumber) throws SQLException {
         if (Util.isBlank(commandString)) { return; }
 
         try (Statement statement = conn.createStatement()) {
@@ -167,7 +181,7 @@ public class SqlScriptRunner {
                 statement.execute(commandString);
             }
             catch (SQLException e) {
-                final String errText = String.format("Error executing '%s' (line %d): %s", commandString, lineReader.getLineNumber(), e.getMessage());
+                final String errText = String.format("Error executing '%s' (line %d): %s", commandString, lineNumber, e.getMessage());
                 printlnError(errText);
 
                 if (stopOnError) {
@@ -0,0 +1,378 @@
+package com.softwareverde.database.mysql;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass, character-level splitter of SQL scripts into statements.
+ *  Statements are emitted incrementally via nextStatement(); only the current statement is held in memory.
+ *  Delimiters within quoted strings, backtick-quoted identifiers, and comments are ignored, and multiple statements
+ *  may share a line.  Supports "--", "#", and line-leading "//" comments, block comments (executable comments and
+ *  optimizer hints, "/*!" and "/*+", are retained), and DELIMITER directives (including the "-- DELIMITER" form).
+ */
+public class SqlScriptTokenizer {
+    public static final String DEFAULT_DELIMITER = ";";
+
+    protected static final Pattern DELIMITER_DIRECTIVE_PATTERN = Pattern.compile("^\\s*(?:--)?\\s*delimiter(?:\\s*=\\s*|\\s+)(\\S+).*$", Pattern.CASE_INSENSITIVE);
+    protected static final Pattern DELIMITER_DIRECTIVE_PREFIX_PATTERN = Pattern.compile("^\\s*delimiter[\\s=]", Pattern.CASE_INSENSITIVE);
+    protected static final Integer MAX_DIRECTIVE_LINE_LENGTH = 1024;
+    protected static final Integer MAX_RETAINED_CAPACITY = (1024 * 1024);
+
+    protected enum State {
+        NORMAL, SINGLE_QUOTE, DOUBLE_QUOTE, BACKTICK, LINE_COMMENT, BLOCK_COMMENT, EXECUTABLE_COMMENT
+    }
+
+    protected final Reader _reader;
+    protected final char[] _readBuffer = new char[8192];
+    protected int _readBufferLength = 0;
+    protected int _readBufferPosition = 0;
+
+    protected StringBuilder _statement = new StringBuilder();
+    protected final StringBuilder _comment = new StringBuilder();
+    protected State _state = State.NORMAL;
+
+    protected String _delimiter = DEFAULT_DELIMITER;
+    protected Boolean _fullLineDelimiter = false;
+
+    protected int _lineStartIndex = 0;
+    protected boolean _statementHasContent = false;
+    protected boolean _statementHasContentBeforeLine = false;
+    protected boolean _lineHasContent = false;
+    protected int _unquotedRunLength = 0;
+
+    protected int _lineNumber = 1;
+    protected int _statementLineNumber = 0;
+    protected int _contentStartLineNumber = 0; // The line on which the pending statement's first content appeared.
+    protected int _statementStartLineNumber = 0;
+    protected long _characterCount = 0L;
+
+    protected boolean _fillReadBuffer() throws IOException {
+        if (_readBufferPosition < _readBufferLength) { return true; }
+
+        final int readCount = _reader.read(_readBuffer, 0, _readBuffer.length);
+        if (readCount <= 0) { return false; }
+
+        _readBufferLength = readCount;
+        _readBufferPosition = 0;
+        return true;
+    }
+
+    protected int _read() throws IOException {
+        if (! _fillReadBuffer()) { return -1; }
+
+        final char character = _readBuffer[_readBufferPosition];
+        _readBufferPosition += 1;
+        _characterCount += 1L;
+        if (character == '\n') {
+            _lineNumber += 1;
+        }
+        return character;
+    }
+
+    /**
+     * Returns the unread character at the offset (zero being the next character) without consuming it,
+     *  or -1 at the end of the stream.  Shifts the unread portion of the buffer to the front when necessary.
+     */
+    protected int _peek(final int offset) throws IOException {
+        while ((_readBufferPosition + offset) >= _readBufferLength) {
+            if (_readBufferPosition > 0) {
+                final int unreadCount = (_readBufferLength - _readBufferPosition);
+                System.arraycopy(_readBuffer, _readBufferPosition, _readBuffer, 0, unreadCount);
+                _readBufferLength = unreadCount;
+                _readBufferPosition = 0;
+            }
+
+            final int readCount = _reader.read(_readBuffer, _readBufferLength, (_readBuffer.length - _readBufferLength));
+            if (readCount <= 0) { return -1; }
+            _readBufferLength += readCount;
+        }
+        return _readBuffer[_readBufferPosition + offset];
+    }
+
+    protected void _append(final char character) {
+        _statement.append(character);
+        if (! Character.isWhitespace(character)) {
+            if (! _statementHasContent) {
+                _contentStartLineNumber = _lineNumber;
+            }
+            _statementHasContent = true;
+            _lineHasContent = true;
+        }
+    }
+
+    protected void _resetStatement() {
+        if (_statement.capacity() > MAX_RETAINED_CAPACITY) {
+            _statement = new StringBuilder();
+        }
+        else {
+            _statement.setLength(0);
+        }
+
+        _lineStartIndex = 0;
+        _statementHasContent = false;
+        _statementHasContentBeforeLine = false;
+        _lineHasContent = false;
+        _unquotedRunLength = 0;
+    }
+
+    /**
+     * Returns the trimmed statement text preceding endIndex, or null if it is blank, and resets the statement.
+     */
+    protected String _takeStatement(final int endIndex) {
+        final String statement = _statement.substring(0, endIndex).trim();
+        _statementLineNumber = _lineNumber;
+        _statementStartLineNumber = _contentStartLineNumber;
+        _resetStatement();
+        return (statement.isEmpty() ? null : statement);
+    }
+
+    /**
+     * Applies the line as a DELIMITER directive if it is one, removing it from the statement.
+     */
+    protected boolean _applyDelimiterDirective(final String line) {
+        final Matcher matcher = DELIMITER_DIRECTIVE_PATTERN.matcher(line);
+        if (! matcher.matches()) { return false; }
+
+        this.setDelimiter(matcher.group(1), false);
+        _statement.setLength(_lineStartIndex);
+        _lineHasContent = false;
+        _statementHasContent = _statementHasContentBeforeLine;
+        return true;
+    }
+
+    protected String _getCurrentLine() {
+        return _statement.substring(_lineStartIndex);
+    }
+
+    protected boolean _isDirectiveCandidate() {
+        return ( (! _statementHasContentBeforeLine) && ((_statement.length() - _lineStartIndex) <= MAX_DIRECTIVE_LINE_LENGTH) );
+    }
+
+    /**
+     * Processes the end of a line in the NORMAL state.  Returns the completed statement if the line completed one.
+     */
+    protected String _onEndOfLine() {
+        if (_isDirectiveCandidate() && _applyDelimiterDirective(_getCurrentLine().trim())) {
+            _lineStartIndex = _statement.length();
+            return null;
+        }
+
+        if (_fullLineDelimiter && _getCurrentLine().trim().equals(_delimiter)) {
+            final String statement = _takeStatement(_lineStartIndex);
+            if (statement != null) { return statement; }
+        }
+
+        _lineStartIndex = _statement.length();
+        _statementHasContentBeforeLine = _statementHasContent;
+        _lineHasContent = false;
+        return null;
+    }
+
+    protected boolean _endsWithDelimiter() {
+        final int delimiterLength = _delimiter.length();
+        if (_unquotedRunLength < delimiterLength) { return false; }
+
+        final int offset = (_statement.length() - delimiterLength);
+        for (int i = 0; i < delimiterLength; ++i) {
+            if (_statement.charAt(offset + i) != _delimiter.charAt(i)) { return false; }
+        }
+        return true;
+    }
+
+    public SqlScriptTokenizer(final Reader reader) {
+        _reader = reader;
+    }
+
+    public void setDelimiter(final String delimiter, final Boolean fullLineDelimiter) {
+        _delimiter = delimiter;
+        _fullLineDelimiter = fullLineDelimiter;
+        _unquotedRunLength = 0;
+    }
+
+    public String getDelimiter() {
+        return _delimiter;
+    }
+
+    public Boolean isFullLineDelimiter() {
+        return _fullLineDelimiter;
+    }
+
+    /**
+     * Returns the next non-blank statement, without its delimiter, or null once the script has been fully read.
+     *  A trailing statement without a delimiter is returned as-is.
+     */
+    public String nextStatement() throws IOException {
+        while (true) {
+            final int value = _read();
+            if (value < 0) {
+                if (_state == State.NORMAL) {
+                    final String statement = _onEndOfLine();
+                    if (statement != null) { return statement; }
+                }
+                _state = State.NORMAL;
+                return _takeStatement(_statement.length());
+            }
+
+            final char character = (char) value;
+            switch (_state) {
+                case SINGLE_QUOTE:
+                case DOUBLE_QUOTE: {
+                    _append(character);
+                    if (character == '\\') {
+                        final int escapedValue = _read();
+                        if (escapedValue >= 0) {
+                            _append((char) escapedValue);
+                        }
+                    }
+                    else if (character == (_state == State.SINGLE_QUOTE ? '\'' : '"')) {
+                        _state = State.NORMAL;
+                    }
+                } break;
+
+                case BACKTICK: {
+                    _append(character);
+                    if (character == '`') {
+                        _state = State.NORMAL;
+                    }
+                } break;
+
+                case LINE_COMMENT: {
+                    if (character == '\n') {
+                        _state = State.NORMAL;
+                        if ( (! _statementHasContent) && (_comment.length() <= MAX_DIRECTIVE_LINE_LENGTH) ) {
+                            final Matcher matcher = DELIMITER_DIRECTIVE_PATTERN.matcher(_comment);
+                            if (matcher.matches()) {
+                                this.setDelimiter(matcher.group(1), false);
+                            }
+                        }
+                        _append(character);
+                        final String statement = _onEndOfLine();
+                        if (statement != null) { return statement; }
+                    }
+                    else if (_comment.length() <= MAX_DIRECTIVE_LINE_LENGTH) {
+                        _comment.append(character);
+                    }
+                } break;
+
+                case BLOCK_COMMENT: {
+                    if ( (character == '*') && (_peek(0) == '/') ) {
+                        _read();
+                        _state = State.NORMAL;
+                        _statement.append(' ');
+                    }
+                    else if (character == '\n') {
+                        _statement.append(character);
+                    }
+                } break;
+
+                case EXECUTABLE_COMMENT: {
+                    _append(character);
+                    if ( (character == '*') && (_peek(0) == '/') ) {
+                        _append((char) _read());
+                        _state = State.NORMAL;
+                    }
+                } break;
+
+                default: {
+                    if ( (character == '\'') || (character == '"') || (character == '`') ) {
+                        _append(character);
+                        _state = (character == '\'' ? State.SINGLE_QUOTE : (character == '"' ? State.DOUBLE_QUOTE : State.BACKTICK));
+                        _unquotedRunLength = 0;
+                        break;
+                    }
+
+                    if (character == '#') {
+                        _comment.setLength(0);
+                        _state = State.LINE_COMMENT;
+                        _unquotedRunLength = 0;
+                        break;
+                    }
+
+                    if ( (character == '-') && (_peek(0) == '-') ) {
+                        final int nextValue = _peek(1);
+                        if ( (nextValue < 0) || Character.isWhitespace((char) nextValue) ) {
+                            _read();
+                            _comment.setLength(0);
+                            _comment.append("--");
+                            _state = State.LINE_COMMENT;
+                            _unquotedRunLength = 0;
+                            break;
+                        }
+                    }
+
+                    if ( (character == '/') && (_peek(0) == '/') && (! _lineHasContent) ) {
+                        _read();
+                        _comment.setLength(0);
+                        _state = State.LINE_COMMENT;
+                        _unquotedRunLength = 0;
+                        break;
+                    }
+
+                    if ( (character == '/') && (_peek(0) == '*') ) {
+                        _read();
+                        final int nextValue = _peek(0);
+                        if ( (nextValue == '!') || (nextValue == '+') ) {
+                            _append('/');
+                            _append('*');
+                            _state = State.EXECUTABLE_COMMENT;
+                        }
+                        else {
+                            _state = State.BLOCK_COMMENT;
+                        }
+                        _unquotedRunLength = 0;
+                        break;
+                    }
+
+                    _append(character);
+
+                    if (character == '\n') {
+                        _unquotedRunLength = 0;
+                        final String statement = _onEndOfLine();
+                        if (statement != null) { return statement; }
+                        break;
+                    }
+
+                    _unquotedRunLength += 1;
+                    if ( (! _fullLineDelimiter) && _endsWithDelimiter() ) {
+                        if (_isDirectiveCandidate() && DELIMITER_DIRECTIVE_PREFIX_PATTERN.matcher(_getCurrentLine()).find()) {
+                            // The delimiter is the argument of a DELIMITER directive; consume the remainder of the line.
+                            int nextValue;
+                            while ( ((nextValue = _read()) >= 0) && (nextValue != '\n') ) {
+                                _statement.append((char) nextValue);
+                            }
+                            _applyDelimiterDirective(_getCurrentLine().trim());
+                            _lineStartIndex = _statement.length();
+                            break;
+                        }
+
+                        final String statement = _takeStatement(_statement.length() - _delimiter.length());
+                        if (statement != null) { return statement; }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the line number on which the most recently returned statement ended.
+     */
+    public Integer getLineNumber() {
+        return _statementLineNumber;
+    }
+
+    /**
+     * Returns the line number on which the most recently returned statement began.
+     */
+    public Integer getStartingLineNumber() {
+        return _statementStartLineNumber;
+    }
+
+    /**
+     * Returns the number of characters read from the script so far.
+     */
+    public Long getCharacterCount() {
+        return _characterCount;
+    }
+}
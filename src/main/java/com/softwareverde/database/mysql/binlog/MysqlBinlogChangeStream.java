@@ -0,0 +1,700 @@
+package com.softwareverde.database.mysql.binlog;
+
+import com.github.shyiko.mysql.binlog.BinaryLogClient;
+import com.github.shyiko.mysql.binlog.BinaryLogFileReader;
+import com.github.shyiko.mysql.binlog.event.DeleteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.QueryEventData;
+import com.github.shyiko.mysql.binlog.event.RotateEventData;
+import com.github.shyiko.mysql.binlog.event.TableMapEventData;
+import com.github.shyiko.mysql.binlog.event.UpdateRowsEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.mysql.MysqlDatabaseConnection;
+import com.softwareverde.database.mysql.MysqlDatabaseConnectionFactory;
+import com.softwareverde.database.mysql.SqlScriptRunner;
+import com.softwareverde.database.properties.DatabaseCredentials;
+import com.softwareverde.database.properties.DatabaseProperties;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import com.softwareverde.logging.Logger;
+import com.softwareverde.util.IoUtil;
+import com.softwareverde.util.type.time.SystemTime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams the row changes of a schema's tables from the server's binary log, so that consumers (e.g. cache
+ *  invalidation or search indexing) may process each change once rather than repeatedly polling for modified rows.
+ *
+ *  The stream connects as a replica (requiring the REPLICATION SLAVE and REPLICATION CLIENT privileges) and decodes the
+ *  row-based events of the schema named by the DatabaseProperties (binlog_format must be ROW).  Each changed row is
+ *  delivered to the ChangeConsumer as a RowChange whose before and after images are MysqlColumnarRows; the columns'
+ *  names and types are resolved via information_schema when a table is first seen, and again after any DDL statement.
+ *
+ *  Decoded changes are passed from the replication thread to the consumer thread via a bounded queue; once the queue is
+ *  full, the replication thread stops reading from the server until the consumer catches up.  After the consumer has
+ *  processed every change of a transaction, the position following its commit (and, when enabled, the executed GTID
+ *  set) becomes the stream's checkpoint, which is periodically stored within the metadata_binlog_checkpoints table under
+ *  the consumer's name.  A restarted stream resumes from its stored checkpoint, so changes are delivered at least once:
+ *  the changes processed since the last stored checkpoint may be delivered again.
+ *
+ *  Since table definitions are read from information_schema rather than from the binary log, a stream that lags behind
+ *  a schema change may map the rows logged before the change with the table's new definition.
+ *
+ *  The binary log client (com.zendesk:mysql-binlog-connector-java) is an optional dependency of this library; applications
+ *  using this class must include it on their runtime classpath.
+ */
+public class MysqlBinlogChangeStream implements AutoCloseable {
+    public enum ChangeType {
+        INSERT, UPDATE, DELETE
+    }
+
+    public static class RowChange {
+        public final ChangeType changeType;
+        public final String schemaName;
+        public final String tableName;
+        public final Row before; // Null for an INSERT.
+        public final Row after; // Null for a DELETE.
+        public final Long timestamp;
+
+        public RowChange(final ChangeType changeType, final String schemaName, final String tableName, final Row before, final Row after, final Long timestamp) {
+            this.changeType = changeType;
+            this.schemaName = schemaName;
+            this.tableName = tableName;
+            this.before = before;
+            this.after = after;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public static class Checkpoint {
+        public final String binlogFilename;
+        public final Long binlogPosition;
+        public final String gtidSet;
+
+        public Checkpoint(final String binlogFilename, final Long binlogPosition, final String gtidSet) {
+            this.binlogFilename = binlogFilename;
+            this.binlogPosition = binlogPosition;
+            this.gtidSet = gtidSet;
+        }
+
+        @Override
+        public String toString() {
+            return (this.binlogFilename + ":" + this.binlogPosition + (this.gtidSet != null ? (" (" + this.gtidSet + ")") : ""));
+        }
+    }
+
+    public interface ChangeConsumer {
+        void onChange(RowChange rowChange) throws Exception;
+    }
+
+    public static final Integer DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final Long DEFAULT_CHECKPOINT_INTERVAL_MS = TimeUnit.SECONDS.toMillis(1L);
+
+    protected static final String METADATA_INIT_SQL_FILE = "queries/metadata_init.sql";
+    protected static final String CHECKPOINT_TABLE_NAME = "metadata_binlog_checkpoints";
+
+    /**
+     * Returns true if the statement may change the definition of a table.
+     */
+    protected static Boolean _isDdlStatement(final String sql) {
+        final String statement = sql.trim().toUpperCase();
+        return (statement.startsWith("ALTER") || statement.startsWith("CREATE") || statement.startsWith("DROP") || statement.startsWith("RENAME") || statement.startsWith("TRUNCATE"));
+    }
+
+    protected static EventDeserializer _createEventDeserializer() {
+        final EventDeserializer eventDeserializer = new EventDeserializer();
+        eventDeserializer.setCompatibilityMode(
+            EventDeserializer.CompatibilityMode.DATE_AND_TIME_AS_LONG_MICRO,
+            EventDeserializer.CompatibilityMode.CHAR_AND_BINARY_AS_BYTE_ARRAY
+        );
+        return eventDeserializer;
+    }
+
+    protected static class QueuedEvent {
+        public static final QueuedEvent END_OF_STREAM = new QueuedEvent(null, null);
+
+        public final RowChange rowChange;
+        public final Checkpoint checkpoint;
+
+        public QueuedEvent(final RowChange rowChange, final Checkpoint checkpoint) {
+            this.rowChange = rowChange;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    protected final SystemTime _systemTime = new SystemTime();
+    protected final DatabaseProperties _databaseProperties;
+    protected final DatabaseCredentials _databaseCredentials;
+    protected final MysqlDatabaseConnectionFactory _connectionFactory;
+    protected final String _consumerName;
+
+    protected Long _serverId = ThreadLocalRandom.current().nextLong(65536L, 4294967296L);
+    protected Boolean _useGtid = false;
+    protected HashSet<String> _tableNames = null;
+    protected Integer _queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    protected Long _checkpointIntervalMs = DEFAULT_CHECKPOINT_INTERVAL_MS;
+    protected ChangeConsumer _changeConsumer = null;
+
+    protected final HashMap<String, MysqlBinlogTable> _configuredTables = new HashMap<>();
+
+    // Accessed only by the replication thread...
+    protected final HashMap<String, MysqlBinlogTable> _tables = new HashMap<>();
+    protected final HashMap<Long, MysqlBinlogTable> _tablesById = new HashMap<>();
+    protected String _binlogFilename = null;
+    protected Boolean _transactionHasChanges = false;
+    protected Long _lastQueuedCheckpointMs = 0L;
+
+    // Accessed only by the consumer thread...
+    protected Checkpoint _pendingCheckpoint = null;
+    protected Long _lastStoredCheckpointMs = 0L;
+
+    protected ArrayBlockingQueue<QueuedEvent> _queue = null;
+    protected BinaryLogClient _binaryLogClient = null;
+    protected Thread _replicationThread = null;
+    protected Thread _consumerThread = null;
+    protected Boolean _isReplaying = false;
+    protected volatile Boolean _isClosed = false;
+    protected volatile Exception _failure = null;
+    protected volatile Checkpoint _checkpoint = null;
+
+    protected final LongAdder _changeCount = new LongAdder();
+    protected final LongAdder _transactionCount = new LongAdder();
+
+    protected String _getTableKey(final String schemaName, final String tableName) {
+        return (schemaName.toLowerCase() + "." + tableName.toLowerCase());
+    }
+
+    protected Boolean _isTableIncluded(final String schemaName, final String tableName) {
+        if (schemaName == null || tableName == null) { return false; }
+        if (! schemaName.equalsIgnoreCase(_databaseProperties.getSchema())) { return false; }
+        if (tableName.equalsIgnoreCase(CHECKPOINT_TABLE_NAME)) { return false; }
+        return ( (_tableNames == null) || _tableNames.contains(tableName.toLowerCase()) );
+    }
+
+    protected String _getResource(final String resourceFile) {
+        final ClassLoader classLoader = this.getClass().getClassLoader();
+        final InputStream resourceStream = classLoader.getResourceAsStream(resourceFile);
+        if (resourceStream == null) { return null; }
+        return IoUtil.streamToString(resourceStream);
+    }
+
+    /**
+     * Creates the checkpoint table for databases initialized before it existed; metadata_init.sql is idempotent.
+     */
+    protected void _initializeCheckpointTable() throws DatabaseException {
+        final String metadataInitScript = _getResource(METADATA_INIT_SQL_FILE);
+        if (metadataInitScript == null) { throw new DatabaseException("Unable to load: " + METADATA_INIT_SQL_FILE); }
+
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            final SqlScriptRunner scriptRunner = new SqlScriptRunner(null, true, true);
+            for (final String statement : scriptRunner.parseScript(new StringReader(metadataInitScript))) {
+                databaseConnection.executeDdl(statement);
+            }
+        }
+        catch (final IOException exception) {
+            throw new DatabaseException(exception);
+        }
+    }
+
+    protected Checkpoint _loadCheckpoint() throws DatabaseException {
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            final List<Row> rows = databaseConnection.query(
+                new Query("SELECT binlog_filename, binlog_position, gtid_set FROM metadata_binlog_checkpoints WHERE consumer_name = ?")
+                    .setParameter(_consumerName)
+            );
+            if (rows.isEmpty()) { return null; }
+
+            final Row row = rows.get(0);
+            return new Checkpoint(row.getString("binlog_filename"), row.getLong("binlog_position"), row.getString("gtid_set"));
+        }
+    }
+
+    protected void _storeCheckpoint(final Checkpoint checkpoint) throws DatabaseException {
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            databaseConnection.executeSql(
+                new Query("INSERT INTO metadata_binlog_checkpoints (consumer_name, binlog_filename, binlog_position, gtid_set, timestamp) VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE binlog_filename = VALUES(binlog_filename), binlog_position = VALUES(binlog_position), gtid_set = VALUES(gtid_set), timestamp = VALUES(timestamp)")
+                    .setParameter(_consumerName)
+                    .setParameter(checkpoint.binlogFilename)
+                    .setParameter(checkpoint.binlogPosition)
+                    .setParameter(checkpoint.gtidSet)
+                    .setParameter(_systemTime.getCurrentTimeInSeconds())
+            );
+        }
+    }
+
+    protected String _getExecutedGtidSet() throws DatabaseException {
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            final List<Row> rows = databaseConnection.query(new Query("SELECT @@GLOBAL.gtid_executed AS gtid_executed"));
+            if (rows.isEmpty()) { return ""; }
+            final String gtidSet = rows.get(0).getString("gtid_executed");
+            return (gtidSet != null ? gtidSet.replace("\n", "") : "");
+        }
+    }
+
+    protected MysqlBinlogTable _loadTable(final String schemaName, final String tableName) throws DatabaseException {
+        try (final MysqlDatabaseConnection databaseConnection = _connectionFactory.newConnection()) {
+            final List<Row> rows = databaseConnection.query(
+                new Query("SELECT COLUMN_NAME, DATA_TYPE, COLUMN_TYPE, CHARACTER_SET_NAME FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION")
+                    .setParameter(schemaName)
+                    .setParameter(tableName)
+            );
+
+            final ArrayList<MysqlBinlogTable.Column> columns = new ArrayList<>(rows.size());
+            for (final Row row : rows) {
+                columns.add(new MysqlBinlogTable.Column(row.getString("COLUMN_NAME"), row.getString("DATA_TYPE"), row.getString("COLUMN_TYPE"), row.getString("CHARACTER_SET_NAME")));
+            }
+            return new MysqlBinlogTable(schemaName, tableName, columns);
+        }
+    }
+
+    protected MysqlBinlogTable _getTable(final String schemaName, final String tableName) throws DatabaseException {
+        final String tableKey = _getTableKey(schemaName, tableName);
+
+        final MysqlBinlogTable configuredTable;
+        synchronized (_configuredTables) {
+            configuredTable = _configuredTables.get(tableKey);
+        }
+        if (configuredTable != null) { return configuredTable; }
+
+        MysqlBinlogTable table = _tables.get(tableKey);
+        if (table == null) {
+            table = _loadTable(schemaName, tableName);
+            _tables.put(tableKey, table);
+        }
+        return table;
+    }
+
+    /**
+     * Blocks the replication thread while the queue is full, until the consumer catches up or the stream is closed.
+     */
+    protected void _enqueue(final QueuedEvent queuedEvent) throws InterruptedException {
+        while (! _queue.offer(queuedEvent, 100L, TimeUnit.MILLISECONDS)) {
+            if (_isClosed) { return; }
+        }
+    }
+
+    protected void _onTableMap(final TableMapEventData tableMapEventData) throws DatabaseException {
+        final long tableId = tableMapEventData.getTableId();
+        final String schemaName = tableMapEventData.getDatabase();
+        final String tableName = tableMapEventData.getTable();
+
+        if (! _isTableIncluded(schemaName, tableName)) {
+            _tablesById.remove(tableId);
+            return;
+        }
+
+        _tablesById.put(tableId, _getTable(schemaName, tableName));
+    }
+
+    protected void _onRows(final ChangeType changeType, final long tableId, final BitSet beforeColumns, final BitSet afterColumns, final List<Serializable[]> beforeImages, final List<Serializable[]> afterImages, final Long timestamp) throws InterruptedException {
+        final MysqlBinlogTable table = _tablesById.get(tableId);
+        if (table == null) { return; } // Excluded table...
+
+        final int rowCount = (beforeImages != null ? beforeImages.size() : afterImages.size());
+        for (int i = 0; i < rowCount; ++i) {
+            final Row before = (beforeImages != null ? table.toRow(beforeImages.get(i), beforeColumns) : null);
+            final Row after = (afterImages != null ? table.toRow(afterImages.get(i), afterColumns) : null);
+            _enqueue(new QueuedEvent(new RowChange(changeType, table.getSchemaName(), table.getTableName(), before, after, timestamp), null));
+        }
+        _transactionHasChanges = true;
+    }
+
+    /**
+     * Queues the position following the committed transaction as a checkpoint, once its changes have been queued.
+     *  Transactions without any included changes only advance the checkpoint periodically.
+     */
+    protected void _onCommit(final EventHeaderV4 eventHeader) throws InterruptedException {
+        final Long nowMs = _systemTime.getCurrentTimeInMilliSeconds();
+        if ( (! _transactionHasChanges) && ((nowMs - _lastQueuedCheckpointMs) < _checkpointIntervalMs) ) { return; }
+
+        final String gtidSet = ( (_useGtid && (_binaryLogClient != null)) ? _binaryLogClient.getGtidSet() : null );
+        _enqueue(new QueuedEvent(null, new Checkpoint(_binlogFilename, eventHeader.getNextPosition(), gtidSet)));
+        _transactionHasChanges = false;
+        _lastQueuedCheckpointMs = nowMs;
+    }
+
+    protected void _onEvent(final Event event) {
+        if (_isClosed) { return; }
+
+        try {
+            final EventHeaderV4 eventHeader = event.getHeader();
+            final EventType eventType = eventHeader.getEventType();
+            final Long timestamp = eventHeader.getTimestamp();
+
+            if (eventType == EventType.ROTATE) {
+                final RotateEventData rotateEventData = event.getData();
+                _binlogFilename = rotateEventData.getBinlogFilename();
+            }
+            else if (eventType == EventType.TABLE_MAP) {
+                _onTableMap(event.getData());
+            }
+            else if (EventType.isWrite(eventType)) {
+                final WriteRowsEventData writeRowsEventData = event.getData();
+                _onRows(ChangeType.INSERT, writeRowsEventData.getTableId(), null, writeRowsEventData.getIncludedColumns(), null, writeRowsEventData.getRows(), timestamp);
+            }
+            else if (EventType.isUpdate(eventType)) {
+                final UpdateRowsEventData updateRowsEventData = event.getData();
+                final List<Map.Entry<Serializable[], Serializable[]>> rows = updateRowsEventData.getRows();
+                final ArrayList<Serializable[]> beforeImages = new ArrayList<>(rows.size());
+                final ArrayList<Serializable[]> afterImages = new ArrayList<>(rows.size());
+                for (final Map.Entry<Serializable[], Serializable[]> row : rows) {
+                    beforeImages.add(row.getKey());
+                    afterImages.add(row.getValue());
+                }
+                _onRows(ChangeType.UPDATE, updateRowsEventData.getTableId(), updateRowsEventData.getIncludedColumnsBeforeUpdate(), updateRowsEventData.getIncludedColumns(), beforeImages, afterImages, timestamp);
+            }
+            else if (EventType.isDelete(eventType)) {
+                final DeleteRowsEventData deleteRowsEventData = event.getData();
+                _onRows(ChangeType.DELETE, deleteRowsEventData.getTableId(), deleteRowsEventData.getIncludedColumns(), null, deleteRowsEventData.getRows(), null, timestamp);
+            }
+            else if (eventType == EventType.XID) {
+                _onCommit(eventHeader);
+            }
+            else if (eventType == EventType.QUERY) {
+                final QueryEventData queryEventData = event.getData();
+                final String sql = queryEventData.getSql();
+                if ("COMMIT".equalsIgnoreCase(sql.trim())) { // Transactions on non-transactional tables...
+                    _onCommit(eventHeader);
+                }
+                else if (_isDdlStatement(sql)) {
+                    _tables.clear();
+                }
+            }
+        }
+        catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            _fail(exception);
+        }
+        catch (final Exception exception) {
+            _fail(exception);
+        }
+    }
+
+    protected void _storePendingCheckpoint(final Boolean force) {
+        final Checkpoint checkpoint = _pendingCheckpoint;
+        if ( (checkpoint == null) || _isReplaying ) { return; }
+
+        final Long nowMs = _systemTime.getCurrentTimeInMilliSeconds();
+        if ( (! force) && ((nowMs - _lastStoredCheckpointMs) < _checkpointIntervalMs) ) { return; }
+
+        try {
+            _storeCheckpoint(checkpoint);
+            _pendingCheckpoint = null;
+            _lastStoredCheckpointMs = nowMs;
+        }
+        catch (final DatabaseException exception) {
+            Logger.warn("Unable to store binlog checkpoint: " + checkpoint, exception);
+        }
+    }
+
+    protected void _consumeChanges() {
+        try {
+            while (! _isClosed) {
+                final QueuedEvent queuedEvent = _queue.poll(_checkpointIntervalMs, TimeUnit.MILLISECONDS);
+                if (queuedEvent == null) {
+                    _storePendingCheckpoint(false);
+                    continue;
+                }
+                if (queuedEvent == QueuedEvent.END_OF_STREAM) { break; }
+
+                if (queuedEvent.rowChange != null) {
+                    _changeConsumer.onChange(queuedEvent.rowChange);
+                    _changeCount.increment();
+                }
+                else {
+                    _pendingCheckpoint = queuedEvent.checkpoint;
+                    _checkpoint = queuedEvent.checkpoint;
+                    _transactionCount.increment();
+                    _storePendingCheckpoint(false);
+                }
+            }
+        }
+        catch (final InterruptedException exception) {
+            // Closed...
+        }
+        catch (final Exception exception) {
+            _fail(exception);
+        }
+        finally {
+            // Every change preceding the pending checkpoint has been consumed, even if a subsequent change failed.
+            _storePendingCheckpoint(true);
+        }
+    }
+
+    protected void _fail(final Exception exception) {
+        if (_isClosed) { return; }
+
+        Logger.error("Binlog change stream failed.", exception);
+        _failure = exception;
+        this.close();
+    }
+
+    protected synchronized void _startConsumerThread() {
+        _queue = new ArrayBlockingQueue<>(_queueCapacity);
+
+        _consumerThread = new Thread(this::_consumeChanges);
+        _consumerThread.setName("MysqlBinlogChangeStream - Consumer");
+        _consumerThread.setDaemon(true);
+        _consumerThread.start();
+    }
+
+    public MysqlBinlogChangeStream(final DatabaseProperties databaseProperties, final String consumerName) {
+        this(databaseProperties, databaseProperties.getCredentials(), consumerName);
+    }
+
+    /**
+     * Creates a change stream for the schema named by the DatabaseProperties, connecting with the provided credentials
+     *  (which must be granted the replication privileges).  The consumer name identifies the stream's checkpoint.
+     */
+    public MysqlBinlogChangeStream(final DatabaseProperties databaseProperties, final DatabaseCredentials databaseCredentials, final String consumerName) {
+        _databaseProperties = databaseProperties;
+        _databaseCredentials = databaseCredentials;
+        _connectionFactory = new MysqlDatabaseConnectionFactory(databaseProperties, databaseCredentials);
+        _consumerName = consumerName;
+    }
+
+    public void setChangeConsumer(final ChangeConsumer changeConsumer) {
+        _changeConsumer = changeConsumer;
+    }
+
+    /**
+     * Sets the server id reported to the primary, which must be unique among its replicas.  By default, a random id is
+     *  selected above the range typically assigned to servers.
+     */
+    public void setServerId(final Long serverId) {
+        _serverId = serverId;
+    }
+
+    /**
+     * Restricts the stream to the provided tables of the schema; by default, every table is included.
+     */
+    public void setTableNames(final Collection<String> tableNames) {
+        if (tableNames == null) {
+            _tableNames = null;
+            return;
+        }
+
+        _tableNames = new HashSet<>(tableNames.size());
+        for (final String tableName : tableNames) {
+            _tableNames.add(tableName.toLowerCase());
+        }
+    }
+
+    /**
+     * Registers the definition of a table, which is then used instead of information_schema; e.g. when replaying a
+     *  recorded binary log without a server.
+     */
+    public void setTable(final MysqlBinlogTable table) {
+        synchronized (_configuredTables) {
+            _configuredTables.put(_getTableKey(table.getSchemaName(), table.getTableName()), table);
+        }
+    }
+
+    /**
+     * When enabled, the stream checkpoints (and resumes from) the executed GTID set rather than the binlog position,
+     *  which remains valid after the replication client is pointed at a different server.  Requires MySQL's gtid_mode.
+     */
+    public void setUseGtid(final Boolean useGtid) {
+        _useGtid = useGtid;
+    }
+
+    /**
+     * Sets the maximum number of decoded changes awaiting the consumer before the stream stops reading from the server.
+     */
+    public void setQueueCapacity(final Integer queueCapacity) {
+        _queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Sets the minimum interval between stored checkpoints.
+     */
+    public void setCheckpointIntervalMs(final Long checkpointIntervalMs) {
+        _checkpointIntervalMs = Math.max(1L, checkpointIntervalMs);
+    }
+
+    /**
+     * Connects to the server and begins delivering changes to the ChangeConsumer, resuming from the stored checkpoint
+     *  or, if none exists, from the server's current position.  Returns once the replication thread has started.
+     */
+    public synchronized void start() throws DatabaseException {
+        if (_changeConsumer == null) { throw new DatabaseException("ChangeConsumer not set."); }
+        if ( (_consumerThread != null) || _isClosed ) { throw new DatabaseException("Change stream already started."); }
+
+        _initializeCheckpointTable();
+        final Checkpoint checkpoint = _loadCheckpoint();
+        _checkpoint = checkpoint;
+
+        final BinaryLogClient binaryLogClient = new BinaryLogClient(_databaseProperties.getHostname(), _databaseProperties.getPort(), _databaseCredentials.username, _databaseCredentials.password);
+        binaryLogClient.setServerId(_serverId);
+        binaryLogClient.setKeepAlive(true);
+        binaryLogClient.setEventDeserializer(_createEventDeserializer());
+        if (_useGtid) {
+            binaryLogClient.setGtidSet( ((checkpoint != null) && (checkpoint.gtidSet != null)) ? checkpoint.gtidSet : _getExecutedGtidSet() );
+        }
+        else if (checkpoint != null) {
+            binaryLogClient.setBinlogFilename(checkpoint.binlogFilename);
+            binaryLogClient.setBinlogPosition(checkpoint.binlogPosition);
+        }
+        _binlogFilename = (checkpoint != null ? checkpoint.binlogFilename : null);
+
+        binaryLogClient.registerEventListener(this::_onEvent);
+        binaryLogClient.registerLifecycleListener(new BinaryLogClient.AbstractLifecycleListener() {
+            @Override
+            public void onConnect(final BinaryLogClient binaryLogClient) {
+                if (_binlogFilename == null) {
+                    _binlogFilename = binaryLogClient.getBinlogFilename();
+                }
+            }
+
+            @Override
+            public void onCommunicationFailure(final BinaryLogClient binaryLogClient, final Exception exception) {
+                Logger.warn("Binlog connection failed: " + exception.getMessage());
+            }
+
+            @Override
+            public void onEventDeserializationFailure(final BinaryLogClient binaryLogClient, final Exception exception) {
+                _fail(exception);
+            }
+        });
+        _binaryLogClient = binaryLogClient;
+
+        _startConsumerThread();
+
+        _replicationThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    binaryLogClient.connect();
+                }
+                catch (final Exception exception) {
+                    _fail(exception);
+                }
+            }
+        });
+        _replicationThread.setName("MysqlBinlogChangeStream - Replication");
+        _replicationThread.setDaemon(true);
+        _replicationThread.start();
+    }
+
+    /**
+     * Delivers the changes within a recorded binary log file (e.g. one copied from the server's data directory or
+     *  fetched via mysqlbinlog --read-from-remote-server --raw) to the ChangeConsumer, blocking until every change has
+     *  been consumed.  Checkpoints are not stored.  The stream is closed once the replay completes.
+     */
+    public void replay(final InputStream binlogInputStream) throws DatabaseException {
+        synchronized (this) {
+            if (_changeConsumer == null) { throw new DatabaseException("ChangeConsumer not set."); }
+            if ( (_consumerThread != null) || _isClosed ) { throw new DatabaseException("Change stream already started."); }
+
+            _isReplaying = true;
+            _startConsumerThread();
+        }
+
+        try (final BinaryLogFileReader binaryLogFileReader = new BinaryLogFileReader(binlogInputStream, _createEventDeserializer())) {
+            Event event;
+            while ( (! _isClosed) && ((event = binaryLogFileReader.readEvent()) != null) ) {
+                _onEvent(event);
+            }
+
+            if (! _isClosed) {
+                _enqueue(QueuedEvent.END_OF_STREAM);
+            }
+            _consumerThread.join();
+        }
+        catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(exception);
+        }
+        catch (final IOException exception) {
+            throw new DatabaseException(exception);
+        }
+        finally {
+            this.close();
+        }
+
+        final Exception failure = _failure;
+        if (failure != null) {
+            if (failure instanceof DatabaseException) { throw (DatabaseException) failure; }
+            throw new DatabaseException(failure);
+        }
+    }
+
+    /**
+     * Returns the position following the most recent transaction whose changes have all been consumed, or the stored
+     *  checkpoint if no transaction has been consumed since the stream started.
+     */
+    public Checkpoint getCheckpoint() {
+        return _checkpoint;
+    }
+
+    /**
+     * Returns the exception that stopped the stream, or null if the stream has not failed.
+     */
+    public Exception getFailure() {
+        return _failure;
+    }
+
+    public Boolean isRunning() {
+        return ( (_consumerThread != null) && (! _isClosed) );
+    }
+
+    public Long getChangeCount() {
+        return _changeCount.sum();
+    }
+
+    /**
+     * Returns the number of checkpointed transactions whose changes have been consumed.
+     */
+    public Long getTransactionCount() {
+        return _transactionCount.sum();
+    }
+
+    /**
+     * Disconnects from the server and stops the consumer thread, storing the latest checkpoint.
+     *  Changes queued but not yet consumed are discarded, and are delivered again when the stream is restarted.
+     */
+    @Override
+    public void close() {
+        final BinaryLogClient binaryLogClient;
+        final Thread consumerThread;
+        synchronized (this) {
+            if (_isClosed) { return; }
+            _isClosed = true;
+
+            binaryLogClient = _binaryLogClient;
+            consumerThread = _consumerThread;
+        }
+
+        if (binaryLogClient != null) {
+            try {
+                binaryLogClient.disconnect();
+            }
+            catch (final IOException exception) {
+                Logger.debug(exception);
+            }
+        }
+
+        if ( (consumerThread != null) && (consumerThread != Thread.currentThread()) ) {
+            consumerThread.interrupt();
+        }
+    }
+}
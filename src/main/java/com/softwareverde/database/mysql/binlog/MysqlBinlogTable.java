@@ -0,0 +1,384 @@
+package com.softwareverde.database.mysql.binlog;
+
+import com.github.shyiko.mysql.binlog.event.deserialization.json.JsonBinary;
+import com.softwareverde.database.mysql.row.MysqlColumnIndex;
+import com.softwareverde.database.mysql.row.MysqlColumnarRow;
+import com.softwareverde.logging.Logger;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The columns of a table, as resolved from information_schema, used to convert the raw values of a row-based binary log
+ *  event into a MysqlColumnarRow.  Values are converted to the same representation as when the column is read via JDBC:
+ *  unsigned integers are widened (BIGINT UNSIGNED becomes a String), DECIMALs, ENUMs, SETs, and JSON become Strings, and
+ *  temporal values are formatted in UTC (consistent with the connection's default serverTimezone) with as many
+ *  fractional digits as the column's precision.  Character values are decoded with the column's character set.
+ *
+ *  The binary log must be decoded with the DATE_AND_TIME_AS_LONG_MICRO and CHAR_AND_BINARY_AS_BYTE_ARRAY compatibility
+ *  modes, so that temporal values retain their microseconds and TIME values their sign and full range of hours.
+ */
+public class MysqlBinlogTable {
+    public static class Column {
+        public final String name;
+        public final String dataType;
+        public final Boolean isUnsigned;
+        public final List<String> values; // The permitted values of an ENUM or SET column; otherwise empty.
+        public final Integer fractionalSecondPrecision; // The number of fractional digits of a temporal column; otherwise zero.
+        public final Charset charset; // The character set of a character column; otherwise UTF-8.
+
+        public Column(final String name, final String dataType, final String columnType) {
+            this(name, dataType, columnType, null);
+        }
+
+        /**
+         * Creates a column of the type named by information_schema's DATA_TYPE and COLUMN_TYPE; characterSetName is the
+         *  column's CHARACTER_SET_NAME, or null if the column is not a character column (or is UTF-8).
+         */
+        public Column(final String name, final String dataType, final String columnType, final String characterSetName) {
+            this.name = name;
+            this.dataType = dataType.toLowerCase();
+
+            final String lowerCaseColumnType = (columnType != null ? columnType.toLowerCase() : "");
+            this.isUnsigned = lowerCaseColumnType.contains("unsigned");
+            this.values = ( (this.dataType.equals("enum") || this.dataType.equals("set")) ? _parseValues(columnType) : Collections.emptyList() );
+            this.fractionalSecondPrecision = (_isTemporalWithFractionalSeconds(this.dataType) ? _parsePrecision(lowerCaseColumnType) : 0);
+            this.charset = _getCharset(characterSetName);
+        }
+    }
+
+    protected static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneOffset.UTC);
+    protected static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+    protected static final Long MICROSECONDS_PER_SECOND = 1000000L;
+
+    protected static final HashMap<String, String> JAVA_CHARSET_NAMES = new HashMap<>();
+    static {
+        JAVA_CHARSET_NAMES.put("utf8", "UTF-8");
+        JAVA_CHARSET_NAMES.put("utf8mb3", "UTF-8");
+        JAVA_CHARSET_NAMES.put("utf8mb4", "UTF-8");
+        JAVA_CHARSET_NAMES.put("latin1", "windows-1252"); // MySQL's latin1 is cp1252...
+        JAVA_CHARSET_NAMES.put("latin2", "ISO-8859-2");
+        JAVA_CHARSET_NAMES.put("latin5", "ISO-8859-9");
+        JAVA_CHARSET_NAMES.put("latin7", "ISO-8859-13");
+        JAVA_CHARSET_NAMES.put("ascii", "US-ASCII");
+        JAVA_CHARSET_NAMES.put("binary", "ISO-8859-1");
+        JAVA_CHARSET_NAMES.put("ucs2", "UTF-16BE");
+        JAVA_CHARSET_NAMES.put("utf16", "UTF-16BE");
+        JAVA_CHARSET_NAMES.put("utf16le", "UTF-16LE");
+        JAVA_CHARSET_NAMES.put("utf32", "UTF-32BE");
+        JAVA_CHARSET_NAMES.put("cp1250", "windows-1250");
+        JAVA_CHARSET_NAMES.put("cp1251", "windows-1251");
+        JAVA_CHARSET_NAMES.put("cp1256", "windows-1256");
+        JAVA_CHARSET_NAMES.put("cp1257", "windows-1257");
+        JAVA_CHARSET_NAMES.put("cp850", "IBM850");
+        JAVA_CHARSET_NAMES.put("cp852", "IBM852");
+        JAVA_CHARSET_NAMES.put("cp866", "IBM866");
+        JAVA_CHARSET_NAMES.put("greek", "ISO-8859-7");
+        JAVA_CHARSET_NAMES.put("hebrew", "ISO-8859-8");
+        JAVA_CHARSET_NAMES.put("koi8r", "KOI8-R");
+        JAVA_CHARSET_NAMES.put("koi8u", "KOI8-U");
+        JAVA_CHARSET_NAMES.put("sjis", "Shift_JIS");
+        JAVA_CHARSET_NAMES.put("cp932", "windows-31j");
+        JAVA_CHARSET_NAMES.put("ujis", "EUC-JP");
+        JAVA_CHARSET_NAMES.put("eucjpms", "x-eucJP-Open");
+        JAVA_CHARSET_NAMES.put("euckr", "EUC-KR");
+        JAVA_CHARSET_NAMES.put("big5", "Big5");
+        JAVA_CHARSET_NAMES.put("gb2312", "GB2312");
+        JAVA_CHARSET_NAMES.put("gbk", "GBK");
+        JAVA_CHARSET_NAMES.put("gb18030", "GB18030");
+        JAVA_CHARSET_NAMES.put("tis620", "TIS-620");
+    }
+
+    /**
+     * Returns the Java Charset of the MySQL character set, or UTF-8 if the character set is null or unsupported.
+     */
+    protected static Charset _getCharset(final String characterSetName) {
+        if (characterSetName == null) { return StandardCharsets.UTF_8; }
+
+        final String lowerCaseCharacterSetName = characterSetName.toLowerCase();
+        final String javaCharsetName = JAVA_CHARSET_NAMES.getOrDefault(lowerCaseCharacterSetName, lowerCaseCharacterSetName);
+        try {
+            return Charset.forName(javaCharsetName);
+        }
+        catch (final Exception exception) {
+            Logger.warn("Unsupported character set: " + characterSetName + "; decoding as UTF-8.");
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    protected static Boolean _isTemporalWithFractionalSeconds(final String dataType) {
+        return (dataType.equals("datetime") || dataType.equals("timestamp") || dataType.equals("time"));
+    }
+
+    /**
+     * Parses the precision of a column type, e.g. 6 for "datetime(6)", or zero if the type has none.
+     */
+    protected static Integer _parsePrecision(final String columnType) {
+        final int startIndex = columnType.indexOf('(');
+        final int endIndex = columnType.indexOf(')', startIndex + 1);
+        if ( (startIndex < 0) || (endIndex < 0) ) { return 0; }
+
+        try {
+            return Integer.parseInt(columnType.substring(startIndex + 1, endIndex).trim());
+        }
+        catch (final NumberFormatException exception) {
+            return 0;
+        }
+    }
+
+    /**
+     * Parses the quoted values of an ENUM or SET column type, e.g. "enum('a','b')".
+     */
+    protected static List<String> _parseValues(final String columnType) {
+        final ArrayList<String> values = new ArrayList<>();
+        final int startIndex = columnType.indexOf('(');
+        final int endIndex = columnType.lastIndexOf(')');
+        if ( (startIndex < 0) || (endIndex < startIndex) ) { return values; }
+
+        StringBuilder value = null;
+        for (int i = (startIndex + 1); i < endIndex; ++i) {
+            final char c = columnType.charAt(i);
+            if (value == null) {
+                if (c == '\'') { value = new StringBuilder(); }
+                continue;
+            }
+
+            if (c == '\'') {
+                final boolean isEscapedQuote = ( ((i + 1) < endIndex) && (columnType.charAt(i + 1) == '\'') );
+                if (isEscapedQuote) {
+                    value.append(c);
+                    i += 1;
+                }
+                else {
+                    values.add(value.toString());
+                    value = null;
+                }
+            }
+            else {
+                value.append(c);
+            }
+        }
+        return values;
+    }
+
+    protected static MysqlColumnIndex.StorageType _getStorageType(final Column column) {
+        switch (column.dataType) {
+            case "tinyint":
+            case "smallint":
+            case "mediumint":
+            case "int":
+            case "integer":
+            case "year":
+            case "bit": {
+                return MysqlColumnIndex.StorageType.LONG;
+            }
+
+            case "bigint": {
+                // BIGINT UNSIGNED values may exceed Long.MAX_VALUE...
+                return (column.isUnsigned ? MysqlColumnIndex.StorageType.STRING : MysqlColumnIndex.StorageType.LONG);
+            }
+
+            case "float":
+            case "double":
+            case "real": {
+                return MysqlColumnIndex.StorageType.DOUBLE;
+            }
+
+            case "binary":
+            case "varbinary":
+            case "tinyblob":
+            case "blob":
+            case "mediumblob":
+            case "longblob": {
+                return MysqlColumnIndex.StorageType.BYTES;
+            }
+
+            default: {
+                return MysqlColumnIndex.StorageType.STRING;
+            }
+        }
+    }
+
+    protected static String _toString(final Serializable value, final Charset charset) {
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, charset);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Appends the first fractionalSecondPrecision digits of the microseconds, e.g. ".500" for 500000 with a precision of 3.
+     */
+    protected static void _appendFraction(final StringBuilder stringBuilder, final Long microseconds, final Integer fractionalSecondPrecision) {
+        if (fractionalSecondPrecision < 1) { return; }
+
+        final String digits = String.format("%06d", microseconds);
+        stringBuilder.append('.');
+        stringBuilder.append(digits, 0, Math.min(6, fractionalSecondPrecision));
+    }
+
+    protected static String _formatDateTime(final Long epochMicros, final Integer fractionalSecondPrecision) {
+        final long epochSeconds = Math.floorDiv(epochMicros, MICROSECONDS_PER_SECOND);
+        final long microseconds = Math.floorMod(epochMicros, MICROSECONDS_PER_SECOND);
+
+        final StringBuilder stringBuilder = new StringBuilder(DATETIME_FORMATTER.format(Instant.ofEpochSecond(epochSeconds)));
+        _appendFraction(stringBuilder, microseconds, fractionalSecondPrecision);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Formats the TIME value from its duration, which may be negative and may exceed 24 hours (e.g. "-838:59:59").
+     */
+    protected static String _formatTime(final Long durationMicros, final Integer fractionalSecondPrecision) {
+        final long absoluteDurationMicros = Math.abs(durationMicros);
+        final long totalSeconds = (absoluteDurationMicros / MICROSECONDS_PER_SECOND);
+        final long microseconds = (absoluteDurationMicros % MICROSECONDS_PER_SECOND);
+
+        final StringBuilder stringBuilder = new StringBuilder();
+        if (durationMicros < 0L) { stringBuilder.append('-'); }
+        stringBuilder.append(String.format("%02d:%02d:%02d", (totalSeconds / 3600L), ((totalSeconds / 60L) % 60L), (totalSeconds % 60L)));
+        _appendFraction(stringBuilder, microseconds, fractionalSecondPrecision);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Converts the binary log's representation of the value to the column's storage type.
+     */
+    protected static Object _convertValue(final Column column, final Serializable value) {
+        if (value == null) { return null; }
+
+        switch (column.dataType) {
+            case "tinyint": { return (column.isUnsigned ? (((Number) value).longValue() & 0xFFL) : ((Number) value).longValue()); }
+            case "smallint": { return (column.isUnsigned ? (((Number) value).longValue() & 0xFFFFL) : ((Number) value).longValue()); }
+            case "mediumint": { return (column.isUnsigned ? (((Number) value).longValue() & 0xFFFFFFL) : ((Number) value).longValue()); }
+            case "int":
+            case "integer": { return (column.isUnsigned ? (((Number) value).longValue() & 0xFFFFFFFFL) : ((Number) value).longValue()); }
+            case "bigint": { return (column.isUnsigned ? Long.toUnsignedString(((Number) value).longValue()) : ((Number) value).longValue()); }
+            case "year": { return ((Number) value).longValue(); }
+
+            case "bit": {
+                final long[] words = ((BitSet) value).toLongArray();
+                return (words.length > 0 ? words[0] : 0L);
+            }
+
+            case "float":
+            case "double":
+            case "real": {
+                return ((Number) value).doubleValue();
+            }
+
+            case "decimal":
+            case "numeric": {
+                return ((BigDecimal) value).toPlainString();
+            }
+
+            case "binary":
+            case "varbinary":
+            case "tinyblob":
+            case "blob":
+            case "mediumblob":
+            case "longblob": {
+                return value;
+            }
+
+            case "enum": {
+                final int index = ((Number) value).intValue(); // 1-based; 0 is the empty string stored for invalid values.
+                return ( (index > 0 && index <= column.values.size()) ? column.values.get(index - 1) : "" );
+            }
+
+            case "set": {
+                final long bitmask = ((Number) value).longValue();
+                final StringBuilder stringBuilder = new StringBuilder();
+                for (int i = 0; i < column.values.size(); ++i) {
+                    if ((bitmask & (1L << i)) == 0L) { continue; }
+                    if (stringBuilder.length() > 0) { stringBuilder.append(','); }
+                    stringBuilder.append(column.values.get(i));
+                }
+                return stringBuilder.toString();
+            }
+
+            case "json": {
+                try {
+                    return JsonBinary.parseAsString((byte[]) value);
+                }
+                catch (final IOException exception) {
+                    Logger.warn("Unable to decode JSON value for column: " + column.name, exception);
+                    return null;
+                }
+            }
+
+            case "date": { return DATE_FORMATTER.format(Instant.ofEpochSecond(Math.floorDiv(((Number) value).longValue(), MICROSECONDS_PER_SECOND))); }
+            case "datetime":
+            case "timestamp": { return _formatDateTime(((Number) value).longValue(), column.fractionalSecondPrecision); }
+            case "time": { return _formatTime(((Number) value).longValue(), column.fractionalSecondPrecision); }
+
+            default: {
+                return _toString(value, column.charset);
+            }
+        }
+    }
+
+    protected final String _schemaName;
+    protected final String _tableName;
+    protected final List<Column> _columns;
+    protected final MysqlColumnIndex _columnIndex;
+
+    public MysqlBinlogTable(final String schemaName, final String tableName, final List<Column> columns) {
+        _schemaName = schemaName;
+        _tableName = tableName;
+        _columns = Collections.unmodifiableList(new ArrayList<>(columns));
+
+        final int columnCount = columns.size();
+        final ArrayList<String> columnNames = new ArrayList<>(columnCount);
+        final MysqlColumnIndex.StorageType[] storageTypes = new MysqlColumnIndex.StorageType[columnCount];
+        for (int i = 0; i < columnCount; ++i) {
+            final Column column = columns.get(i);
+            columnNames.add(column.name);
+            storageTypes[i] = _getStorageType(column);
+        }
+        _columnIndex = MysqlColumnIndex.fromStorageTypes(columnNames, storageTypes);
+    }
+
+    public String getSchemaName() {
+        return _schemaName;
+    }
+
+    public String getTableName() {
+        return _tableName;
+    }
+
+    public List<Column> getColumns() {
+        return _columns;
+    }
+
+    /**
+     * Converts a binary log row image into a MysqlColumnarRow.
+     *  The image contains a value for each column set within includedColumns (all columns, unless binlog_row_image is
+     *  MINIMAL or NOBLOB); columns excluded from the image are null.  Values beyond the table's known columns are ignored.
+     */
+    public MysqlColumnarRow toRow(final Serializable[] rowImage, final BitSet includedColumns) {
+        final int columnCount = _columns.size();
+        final Object[] values = new Object[columnCount];
+
+        int imageIndex = 0;
+        for (int i = 0; (i < columnCount) && (imageIndex < rowImage.length); ++i) {
+            if ( (includedColumns != null) && (! includedColumns.get(i)) ) { continue; }
+
+            values[i] = _convertValue(_columns.get(i), rowImage[imageIndex]);
+            imageIndex += 1;
+        }
+
+        return MysqlColumnarRow.fromValues(_columnIndex, values);
+    }
+}
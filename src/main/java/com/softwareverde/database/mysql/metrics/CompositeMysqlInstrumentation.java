@@ -0,0 +1,44 @@
+package com.softwareverde.database.mysql.metrics;
+
+import com.softwareverde.database.query.parameter.TypedParameter;
+
+import java.util.List;
+
+/**
+ * Forwards each event to multiple MysqlInstrumentations, in order.
+ */
+public class CompositeMysqlInstrumentation implements MysqlInstrumentation {
+    protected final MysqlInstrumentation[] _instrumentations;
+
+    public CompositeMysqlInstrumentation(final MysqlInstrumentation... instrumentations) {
+        _instrumentations = instrumentations.clone();
+    }
+
+    @Override
+    public void onConnectionAcquired(final long durationNanos) {
+        for (final MysqlInstrumentation instrumentation : _instrumentations) {
+            instrumentation.onConnectionAcquired(durationNanos);
+        }
+    }
+
+    @Override
+    public void onConnectionFailed(final long durationNanos) {
+        for (final MysqlInstrumentation instrumentation : _instrumentations) {
+            instrumentation.onConnectionFailed(durationNanos);
+        }
+    }
+
+    @Override
+    public void onStatementExecuted(final String query, final List<TypedParameter> parameters, final long durationNanos, final long rowCount, final long byteCount) {
+        for (final MysqlInstrumentation instrumentation : _instrumentations) {
+            instrumentation.onStatementExecuted(query, parameters, durationNanos, rowCount, byteCount);
+        }
+    }
+
+    @Override
+    public void onStatementFailed(final String query, final List<TypedParameter> parameters, final long durationNanos) {
+        for (final MysqlInstrumentation instrumentation : _instrumentations) {
+            instrumentation.onStatementFailed(query, parameters, durationNanos);
+        }
+    }
+}
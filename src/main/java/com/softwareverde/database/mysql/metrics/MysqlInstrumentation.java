@@ -0,0 +1,23 @@
+package com.softwareverde.database.mysql.metrics;
+
+import com.softwareverde.database.query.parameter.TypedParameter;
+
+import java.util.List;
+
+/**
+ * Receives timings and sizes of the statements executed by, and the connections acquired from, a
+ *  MysqlDatabaseConnectionFactory.  Callbacks are invoked synchronously on the calling thread, so implementations
+ *  must be thread-safe and should not block.  See MysqlQueryMetrics for the default implementation.
+ */
+public interface MysqlInstrumentation {
+    void onConnectionAcquired(long durationNanos);
+    void onConnectionFailed(long durationNanos);
+
+    /**
+     * Invoked after a statement completes.  For queries, rowCount is the number of rows returned; for other statements,
+     *  the number of rows affected.  byteCount is the estimated size of the materialized rows, or zero if unknown.
+     *  parameters is null if the statement was not parameterized.
+     */
+    void onStatementExecuted(String query, List<TypedParameter> parameters, long durationNanos, long rowCount, long byteCount);
+    void onStatementFailed(String query, List<TypedParameter> parameters, long durationNanos);
+}
@@ -0,0 +1,121 @@
+package com.softwareverde.database.mysql.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free, fixed-size histogram of durations in nanoseconds.
+ *  Buckets are log-linear (as in HdrHistogram): each power of two is divided into 32 linear sub-buckets, so recorded
+ *  values are resolved to within ~3% from 1ns up to ~18 minutes; larger values are recorded in the last bucket.
+ *  Recording never allocates or blocks.
+ */
+public class MysqlLatencyHistogram {
+    protected static final int SUB_BUCKET_BITS = 5;
+    protected static final int SUB_BUCKET_COUNT = (1 << SUB_BUCKET_BITS);
+    protected static final int MAX_MAGNITUDE = 40;
+    protected static final int BUCKET_COUNT = (SUB_BUCKET_COUNT + ((MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT));
+    protected static final long MAX_TRACKABLE_VALUE = ((1L << (MAX_MAGNITUDE + 1)) - 1L);
+
+    protected static int _getBucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) { return (int) Math.max(0L, value); }
+
+        final long trackedValue = Math.min(value, MAX_TRACKABLE_VALUE);
+        final int magnitude = (63 - Long.numberOfLeadingZeros(trackedValue));
+        final int shift = (magnitude - SUB_BUCKET_BITS);
+        final int subBucketIndex = (int) ((trackedValue >>> shift) - SUB_BUCKET_COUNT);
+        return (SUB_BUCKET_COUNT + (shift * SUB_BUCKET_COUNT) + subBucketIndex);
+    }
+
+    /**
+     * Returns the largest value recorded within the bucket.
+     */
+    protected static long _getBucketUpperBound(final int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) { return bucketIndex; }
+
+        final int shift = ((bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT);
+        final int subBucketIndex = ((bucketIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT);
+        final long lowerBound = (((long) (SUB_BUCKET_COUNT + subBucketIndex)) << shift);
+        return (lowerBound + (1L << shift) - 1L);
+    }
+
+    public static class Snapshot {
+        protected final long[] _bucketCounts;
+        protected final long _count;
+        protected final long _sum;
+        protected final long _max;
+
+        protected Snapshot(final long[] bucketCounts, final long sum, final long max) {
+            long count = 0L;
+            for (final long bucketCount : bucketCounts) {
+                count += bucketCount;
+            }
+
+            _bucketCounts = bucketCounts;
+            _count = count;
+            _sum = sum;
+            _max = max;
+        }
+
+        public long getCount() {
+            return _count;
+        }
+
+        public long getSum() {
+            return _sum;
+        }
+
+        public long getMax() {
+            return _max;
+        }
+
+        public double getMean() {
+            if (_count == 0L) { return 0D; }
+            return (_sum / (double) _count);
+        }
+
+        /**
+         * Returns the value at or below which the percentile (0 to 100) of recorded values fall, or zero if empty.
+         */
+        public long getValueAtPercentile(final double percentile) {
+            if (_count == 0L) { return 0L; }
+
+            final long targetCount = Math.max(1L, (long) Math.ceil((Math.min(100D, Math.max(0D, percentile)) / 100D) * _count));
+            long cumulativeCount = 0L;
+            for (int i = 0; i < _bucketCounts.length; ++i) {
+                cumulativeCount += _bucketCounts[i];
+                if (cumulativeCount >= targetCount) {
+                    return Math.min(_getBucketUpperBound(i), _max);
+                }
+            }
+            return _max;
+        }
+    }
+
+    protected final AtomicLongArray _bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    protected final LongAdder _sum = new LongAdder();
+    protected final AtomicLong _max = new AtomicLong(0L);
+
+    public void record(final long valueNanos) {
+        final long value = Math.max(0L, valueNanos);
+        _bucketCounts.incrementAndGet(_getBucketIndex(value));
+        _sum.add(value);
+
+        long max = _max.get();
+        while ( (value > max) && (! _max.compareAndSet(max, value)) ) {
+            max = _max.get();
+        }
+    }
+
+    /**
+     * Returns a copy of the histogram's current state.
+     *  Values recorded concurrently with the copy may be partially reflected.
+     */
+    public Snapshot getSnapshot() {
+        final long[] bucketCounts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            bucketCounts[i] = _bucketCounts.get(i);
+        }
+        return new Snapshot(bucketCounts, _sum.sum(), _max.get());
+    }
+}
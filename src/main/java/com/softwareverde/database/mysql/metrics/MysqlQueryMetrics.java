@@ -0,0 +1,147 @@
+package com.softwareverde.database.mysql.metrics;
+
+import com.softwareverde.database.query.parameter.TypedParameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default MysqlInstrumentation; aggregates latency histograms, row and byte counts, and error counts per SQL fingerprint,
+ *  and connection acquisition latency and failures.  Recording is lock-free and, once a statement's SQL text has been
+ *  seen, allocation-free.  Use getSnapshot() to scrape the current values.
+ *
+ *  The number of distinct fingerprints tracked is bounded; statements beyond the limit are aggregated under
+ *  OTHER_FINGERPRINT.
+ */
+public class MysqlQueryMetrics implements MysqlInstrumentation {
+    public static final Integer DEFAULT_MAX_FINGERPRINT_COUNT = 1000;
+    public static final String OTHER_FINGERPRINT = "<other>";
+
+    protected static final Integer MAX_CACHED_QUERY_COUNT = 10000;
+
+    protected static class StatementMetrics {
+        public final String fingerprint;
+        public final MysqlLatencyHistogram latencyHistogram = new MysqlLatencyHistogram();
+        public final LongAdder errorCount = new LongAdder();
+        public final LongAdder rowCount = new LongAdder();
+        public final LongAdder byteCount = new LongAdder();
+
+        public StatementMetrics(final String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    public static class StatementSnapshot {
+        public final String fingerprint;
+        public final MysqlLatencyHistogram.Snapshot latency;
+        public final Long errorCount;
+        public final Long rowCount;
+        public final Long byteCount;
+
+        protected StatementSnapshot(final StatementMetrics statementMetrics) {
+            this.fingerprint = statementMetrics.fingerprint;
+            this.latency = statementMetrics.latencyHistogram.getSnapshot();
+            this.errorCount = statementMetrics.errorCount.sum();
+            this.rowCount = statementMetrics.rowCount.sum();
+            this.byteCount = statementMetrics.byteCount.sum();
+        }
+
+        /**
+         * Returns the number of successful executions.
+         */
+        public Long getExecutionCount() {
+            return this.latency.getCount();
+        }
+    }
+
+    public static class Snapshot {
+        public final MysqlLatencyHistogram.Snapshot connectionAcquireLatency;
+        public final Long connectionErrorCount;
+        public final List<StatementSnapshot> statements;
+
+        protected Snapshot(final MysqlLatencyHistogram.Snapshot connectionAcquireLatency, final Long connectionErrorCount, final List<StatementSnapshot> statements) {
+            this.connectionAcquireLatency = connectionAcquireLatency;
+            this.connectionErrorCount = connectionErrorCount;
+            this.statements = statements;
+        }
+    }
+
+    protected final Integer _maxFingerprintCount;
+    protected final ConcurrentHashMap<String, StatementMetrics> _statementMetricsByQuery = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<String, StatementMetrics> _statementMetricsByFingerprint = new ConcurrentHashMap<>();
+    protected final MysqlLatencyHistogram _connectionAcquireHistogram = new MysqlLatencyHistogram();
+    protected final LongAdder _connectionErrorCount = new LongAdder();
+
+    protected StatementMetrics _getStatementMetrics(final String query) {
+        final StatementMetrics cachedStatementMetrics = _statementMetricsByQuery.get(query);
+        if (cachedStatementMetrics != null) { return cachedStatementMetrics; }
+
+        final String fingerprint = SqlFingerprint.fingerprint(query);
+        StatementMetrics statementMetrics = _statementMetricsByFingerprint.get(fingerprint);
+        if (statementMetrics == null) {
+            final String trackedFingerprint = (_statementMetricsByFingerprint.size() < _maxFingerprintCount ? fingerprint : OTHER_FINGERPRINT);
+            statementMetrics = _statementMetricsByFingerprint.computeIfAbsent(trackedFingerprint, StatementMetrics::new);
+        }
+
+        if (_statementMetricsByQuery.size() < MAX_CACHED_QUERY_COUNT) {
+            _statementMetricsByQuery.put(query, statementMetrics);
+        }
+        return statementMetrics;
+    }
+
+    public MysqlQueryMetrics() {
+        this(DEFAULT_MAX_FINGERPRINT_COUNT);
+    }
+
+    public MysqlQueryMetrics(final Integer maxFingerprintCount) {
+        _maxFingerprintCount = maxFingerprintCount;
+    }
+
+    @Override
+    public void onConnectionAcquired(final long durationNanos) {
+        _connectionAcquireHistogram.record(durationNanos);
+    }
+
+    @Override
+    public void onConnectionFailed(final long durationNanos) {
+        _connectionErrorCount.increment();
+    }
+
+    @Override
+    public void onStatementExecuted(final String query, final List<TypedParameter> parameters, final long durationNanos, final long rowCount, final long byteCount) {
+        final StatementMetrics statementMetrics = _getStatementMetrics(query);
+        statementMetrics.latencyHistogram.record(durationNanos);
+        statementMetrics.rowCount.add(rowCount);
+        statementMetrics.byteCount.add(byteCount);
+    }
+
+    @Override
+    public void onStatementFailed(final String query, final List<TypedParameter> parameters, final long durationNanos) {
+        final StatementMetrics statementMetrics = _getStatementMetrics(query);
+        statementMetrics.errorCount.increment();
+    }
+
+    /**
+     * Returns the metrics recorded since creation (or the last reset), ordered by total statement time, descending.
+     */
+    public Snapshot getSnapshot() {
+        final ArrayList<StatementSnapshot> statementSnapshots = new ArrayList<>(_statementMetricsByFingerprint.size());
+        for (final StatementMetrics statementMetrics : _statementMetricsByFingerprint.values()) {
+            statementSnapshots.add(new StatementSnapshot(statementMetrics));
+        }
+        statementSnapshots.sort((statementSnapshot0, statementSnapshot1) -> Long.compare(statementSnapshot1.latency.getSum(), statementSnapshot0.latency.getSum()));
+
+        return new Snapshot(_connectionAcquireHistogram.getSnapshot(), _connectionErrorCount.sum(), Collections.unmodifiableList(statementSnapshots));
+    }
+
+    /**
+     * Discards all recorded statement metrics.  Connection metrics are retained.
+     */
+    public void reset() {
+        _statementMetricsByQuery.clear();
+        _statementMetricsByFingerprint.clear();
+    }
+}
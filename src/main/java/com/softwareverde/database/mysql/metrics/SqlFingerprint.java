@@ -0,0 +1,99 @@
+package com.softwareverde.database.mysql.metrics;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL into a fingerprint shared by all executions of the same statement shape.
+ *  String and numeric literals are replaced with "?", comments are removed, whitespace is collapsed, and lists of
+ *  placeholders (e.g. "IN (?, ?, ?)" or multi-row VALUES lists) are collapsed to "(?+)", so statements differing only
+ *  by their parameters or list lengths produce the same fingerprint.
+ */
+public class SqlFingerprint {
+    protected static final Pattern PLACEHOLDER_LIST_PATTERN = Pattern.compile("\\( ?\\?(?: ?, ?\\?)* ?\\)");
+    protected static final Pattern PLACEHOLDER_LIST_REPETITION_PATTERN = Pattern.compile("\\(\\?\\+\\)(?: ?, ?\\(\\?\\+\\))+");
+
+    protected static boolean _isIdentifierCharacter(final char character) {
+        return (Character.isLetterOrDigit(character) || (character == '_') || (character == '$'));
+    }
+
+    protected static void _appendSpace(final StringBuilder stringBuilder) {
+        final int length = stringBuilder.length();
+        if ( (length > 0) && (stringBuilder.charAt(length - 1) != ' ') ) {
+            stringBuilder.append(' ');
+        }
+    }
+
+    public static String fingerprint(final String query) {
+        final int length = query.length();
+        final StringBuilder stringBuilder = new StringBuilder(length);
+
+        int i = 0;
+        while (i < length) {
+            final char character = query.charAt(i);
+            final char nextCharacter = ((i + 1) < length ? query.charAt(i + 1) : '\0');
+
+            if ( (character == '\'') || (character == '"') ) {
+                i += 1;
+                while (i < length) {
+                    final char quotedCharacter = query.charAt(i);
+                    if (quotedCharacter == '\\') {
+                        i += 2;
+                        continue;
+                    }
+                    i += 1;
+                    if (quotedCharacter == character) {
+                        if ( (i < length) && (query.charAt(i) == character) ) { // Doubled quote...
+                            i += 1;
+                            continue;
+                        }
+                        break;
+                    }
+                }
+                stringBuilder.append('?');
+            }
+            else if (character == '`') {
+                final int endIndex = query.indexOf('`', (i + 1));
+                final int nextIndex = (endIndex < 0 ? length : (endIndex + 1));
+                stringBuilder.append(query, i, nextIndex);
+                i = nextIndex;
+            }
+            else if ( (character == '#') || ((character == '-') && (nextCharacter == '-')) ) {
+                final int endIndex = query.indexOf('\n', i);
+                i = (endIndex < 0 ? length : endIndex);
+            }
+            else if ( (character == '/') && (nextCharacter == '*') ) {
+                final int endIndex = query.indexOf("*/", (i + 2));
+                i = (endIndex < 0 ? length : (endIndex + 2));
+                _appendSpace(stringBuilder);
+            }
+            else if (Character.isWhitespace(character)) {
+                _appendSpace(stringBuilder);
+                i += 1;
+            }
+            else if (Character.isDigit(character) || ((character == '.') && Character.isDigit(nextCharacter))) {
+                final int previousIndex = (stringBuilder.length() - 1);
+                if ( (previousIndex >= 0) && _isIdentifierCharacter(stringBuilder.charAt(previousIndex)) ) { // Part of an identifier...
+                    stringBuilder.append(character);
+                    i += 1;
+                    continue;
+                }
+
+                i += 1;
+                while ( (i < length) && (_isIdentifierCharacter(query.charAt(i)) || (query.charAt(i) == '.')) ) {
+                    i += 1;
+                }
+                stringBuilder.append('?');
+            }
+            else {
+                stringBuilder.append(character);
+                i += 1;
+            }
+        }
+
+        final String fingerprint = stringBuilder.toString().trim();
+        final String collapsedFingerprint = PLACEHOLDER_LIST_PATTERN.matcher(fingerprint).replaceAll("(?+)");
+        return PLACEHOLDER_LIST_REPETITION_PATTERN.matcher(collapsedFingerprint).replaceAll("(?+)");
+    }
+
+    protected SqlFingerprint() { }
+}
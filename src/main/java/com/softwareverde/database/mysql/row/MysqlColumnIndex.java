@@ -0,0 +1,153 @@
+package com.softwareverde.database.mysql.row;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column layout of a ResultSet, resolved once from its ResultSetMetaData and shared by every row read from it.
+ *  Each column is assigned a storage type and a slot within either the row's primitive array or its object array.
+ */
+public class MysqlColumnIndex {
+    public enum StorageType {
+        LONG, DOUBLE, BYTES, STRING
+    }
+
+    protected static StorageType _getStorageType(final ResultSetMetaData resultSetMetaData, final Integer columnIndex) throws SQLException {
+        final int sqlType = resultSetMetaData.getColumnType(columnIndex);
+        switch (sqlType) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER: {
+                return StorageType.LONG;
+            }
+
+            case Types.BIGINT: {
+                // BIGINT UNSIGNED values may exceed Long.MAX_VALUE...
+                return (resultSetMetaData.isSigned(columnIndex) ? StorageType.LONG : StorageType.STRING);
+            }
+
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE: {
+                return StorageType.DOUBLE;
+            }
+
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB: {
+                return StorageType.BYTES;
+            }
+
+            default: {
+                return StorageType.STRING;
+            }
+        }
+    }
+
+    public static MysqlColumnIndex fromResultSetMetaData(final ResultSetMetaData resultSetMetaData) throws SQLException {
+        final int columnCount = resultSetMetaData.getColumnCount();
+        final List<String> columnNames = new ArrayList<>(columnCount);
+        final StorageType[] storageTypes = new StorageType[columnCount];
+        for (int i = 0; i < columnCount; ++i) {
+            final int columnIndex = (i + 1);
+            columnNames.add(resultSetMetaData.getColumnLabel(columnIndex));
+            storageTypes[i] = _getStorageType(resultSetMetaData, columnIndex);
+        }
+
+        return MysqlColumnIndex.fromStorageTypes(columnNames, storageTypes);
+    }
+
+    /**
+     * Creates a MysqlColumnIndex for columns whose storage types are already known (e.g. columns decoded from a binary log).
+     */
+    public static MysqlColumnIndex fromStorageTypes(final List<String> columnNames, final StorageType[] storageTypes) {
+        final int columnCount = storageTypes.length;
+        final int[] slots = new int[columnCount];
+
+        int primitiveSlotCount = 0;
+        int objectSlotCount = 0;
+        for (int i = 0; i < columnCount; ++i) {
+            final StorageType storageType = storageTypes[i];
+            if ( (storageType == StorageType.LONG) || (storageType == StorageType.DOUBLE) ) {
+                slots[i] = primitiveSlotCount;
+                primitiveSlotCount += 1;
+            }
+            else {
+                slots[i] = objectSlotCount;
+                objectSlotCount += 1;
+            }
+        }
+
+        return new MysqlColumnIndex(new ArrayList<>(columnNames), storageTypes, slots, primitiveSlotCount, objectSlotCount);
+    }
+
+    protected final List<String> _columnNames;
+    protected final Map<String, Integer> _columnIndexes;
+    protected final Map<String, Integer> _lowerCaseColumnIndexes;
+    protected final StorageType[] _storageTypes;
+    protected final int[] _slots;
+    protected final int _primitiveSlotCount;
+    protected final int _objectSlotCount;
+
+    protected MysqlColumnIndex(final List<String> columnNames, final StorageType[] storageTypes, final int[] slots, final int primitiveSlotCount, final int objectSlotCount) {
+        _columnNames = Collections.unmodifiableList(columnNames);
+        _storageTypes = storageTypes;
+        _slots = slots;
+        _primitiveSlotCount = primitiveSlotCount;
+        _objectSlotCount = objectSlotCount;
+
+        final int columnCount = columnNames.size();
+        _columnIndexes = new HashMap<>(columnCount * 2);
+        _lowerCaseColumnIndexes = new HashMap<>(columnCount * 2);
+        for (int i = 0; i < columnCount; ++i) {
+            final String columnName = columnNames.get(i);
+            _columnIndexes.putIfAbsent(columnName, i);
+            _lowerCaseColumnIndexes.putIfAbsent(columnName.toLowerCase(), i);
+        }
+    }
+
+    public List<String> getColumnNames() {
+        return _columnNames;
+    }
+
+    public int getColumnCount() {
+        return _storageTypes.length;
+    }
+
+    /**
+     * Returns the zero-based index of the column, or -1 if the column does not exist.
+     *  Column names are matched exactly first, then case-insensitively.
+     */
+    public int getColumnIndex(final String columnName) {
+        Integer columnIndex = _columnIndexes.get(columnName);
+        if (columnIndex == null) {
+            columnIndex = _lowerCaseColumnIndexes.get(columnName.toLowerCase());
+        }
+        return (columnIndex != null ? columnIndex : -1);
+    }
+
+    public StorageType getStorageType(final int columnIndex) {
+        return _storageTypes[columnIndex];
+    }
+
+    public int getSlot(final int columnIndex) {
+        return _slots[columnIndex];
+    }
+
+    public int getPrimitiveSlotCount() {
+        return _primitiveSlotCount;
+    }
+
+    public int getObjectSlotCount() {
+        return _objectSlotCount;
+    }
+}
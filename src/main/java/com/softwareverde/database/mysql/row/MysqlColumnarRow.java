@@ -0,0 +1,208 @@
+package com.softwareverde.database.mysql.row;
+
+import com.softwareverde.util.StringUtil;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * A MysqlRow whose values are stored positionally against a MysqlColumnIndex shared by every row of the same ResultSet.
+ *  Integral and floating-point columns are stored unboxed within a single long[]; all other columns are stored as
+ *  Strings or byte[]s within a single Object[].  Values are converted to the requested type when read.
+ */
+public class MysqlColumnarRow extends MysqlRow {
+    /**
+     * Parses the value as a Long, truncating any fraction; returns null if the value is not numeric or exceeds the range
+     *  of a Long (e.g. a BIGINT UNSIGNED value above Long.MAX_VALUE, which must be read via getString()).
+     */
+    protected static Long _parseLong(final String value) {
+        if (value == null) { return null; }
+        try {
+            return Long.parseLong(value.trim());
+        }
+        catch (final NumberFormatException exception) {
+            try {
+                return new BigDecimal(value.trim()).setScale(0, RoundingMode.DOWN).longValueExact();
+            }
+            catch (final NumberFormatException | ArithmeticException decimalException) {
+                return null;
+            }
+        }
+    }
+
+    protected static Double _parseDouble(final String value) {
+        if (value == null) { return null; }
+        try {
+            return Double.parseDouble(value.trim());
+        }
+        catch (final NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a row from values already converted to their columns' storage types: a Number for LONG and DOUBLE columns,
+     *  a byte[] for BYTES columns, and a String for STRING columns.  Null values, and values beyond the end of the array,
+     *  are stored as null.
+     */
+    public static MysqlColumnarRow fromValues(final MysqlColumnIndex columnIndex, final Object[] values) {
+        final MysqlColumnarRow row = new MysqlColumnarRow(columnIndex);
+
+        final int columnCount = columnIndex.getColumnCount();
+        for (int i = 0; i < columnCount; ++i) {
+            final Object value = (i < values.length ? values[i] : null);
+            switch (columnIndex.getStorageType(i)) {
+                case LONG: {
+                    if (value == null) {
+                        row._setPrimitiveNull(i);
+                    }
+                    else {
+                        row._setLong(i, ((Number) value).longValue());
+                    }
+                } break;
+
+                case DOUBLE: {
+                    if (value == null) {
+                        row._setPrimitiveNull(i);
+                    }
+                    else {
+                        row._setDouble(i, ((Number) value).doubleValue());
+                    }
+                } break;
+
+                default: {
+                    row._setObject(i, value);
+                }
+            }
+        }
+
+        return row;
+    }
+
+    protected final MysqlColumnIndex _columnIndex;
+    protected final long[] _primitiveValues;
+    protected final long[] _primitiveNullMask;
+    protected final Object[] _objectValues;
+
+    protected boolean _isPrimitiveNull(final int slot) {
+        return ((_primitiveNullMask[slot >>> 6] & (1L << slot)) != 0L);
+    }
+
+    protected MysqlColumnarRow(final MysqlColumnIndex columnIndex) {
+        _columnIndex = columnIndex;
+
+        final int primitiveSlotCount = columnIndex.getPrimitiveSlotCount();
+        _primitiveValues = new long[primitiveSlotCount];
+        _primitiveNullMask = new long[(primitiveSlotCount + 63) >>> 6];
+        _objectValues = new Object[columnIndex.getObjectSlotCount()];
+    }
+
+    protected void _setLong(final int columnIndex, final long value) {
+        _primitiveValues[_columnIndex.getSlot(columnIndex)] = value;
+    }
+
+    protected void _setDouble(final int columnIndex, final double value) {
+        _primitiveValues[_columnIndex.getSlot(columnIndex)] = Double.doubleToRawLongBits(value);
+    }
+
+    protected void _setPrimitiveNull(final int columnIndex) {
+        final int slot = _columnIndex.getSlot(columnIndex);
+        _primitiveNullMask[slot >>> 6] |= (1L << slot);
+    }
+
+    protected void _setObject(final int columnIndex, final Object value) {
+        _objectValues[_columnIndex.getSlot(columnIndex)] = value;
+    }
+
+    /**
+     * Returns the column's value as a Long, Double, String, or byte[], or null if the value or column does not exist.
+     */
+    protected Object _getValue(final String columnName) {
+        final int columnIndex = _columnIndex.getColumnIndex(columnName);
+        if (columnIndex < 0) { return null; }
+
+        final int slot = _columnIndex.getSlot(columnIndex);
+        switch (_columnIndex.getStorageType(columnIndex)) {
+            case LONG: {
+                if (_isPrimitiveNull(slot)) { return null; }
+                return _primitiveValues[slot];
+            }
+            case DOUBLE: {
+                if (_isPrimitiveNull(slot)) { return null; }
+                return Double.longBitsToDouble(_primitiveValues[slot]);
+            }
+            default: {
+                return _objectValues[slot];
+            }
+        }
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        return _columnIndex.getColumnNames();
+    }
+
+    @Override
+    public String getString(final String columnName) {
+        final Object value = _getValue(columnName);
+        if (value == null) { return null; }
+        if (value instanceof byte[]) { return StringUtil.bytesToString((byte[]) value); }
+        return value.toString();
+    }
+
+    @Override
+    public Long getLong(final String columnName) {
+        final Object value = _getValue(columnName);
+        if (value == null) { return null; }
+        if (value instanceof Long) { return (Long) value; }
+        if (value instanceof Double) { return ((Double) value).longValue(); }
+        if (value instanceof byte[]) { return _parseLong(StringUtil.bytesToString((byte[]) value)); }
+        return _parseLong(value.toString());
+    }
+
+    @Override
+    public Integer getInteger(final String columnName) {
+        final Long value = this.getLong(columnName);
+        if (value == null) { return null; }
+        return value.intValue();
+    }
+
+    @Override
+    public Double getDouble(final String columnName) {
+        final Object value = _getValue(columnName);
+        if (value == null) { return null; }
+        if (value instanceof Double) { return (Double) value; }
+        if (value instanceof Long) { return ((Long) value).doubleValue(); }
+        if (value instanceof byte[]) { return _parseDouble(StringUtil.bytesToString((byte[]) value)); }
+        return _parseDouble(value.toString());
+    }
+
+    @Override
+    public Float getFloat(final String columnName) {
+        final Double value = this.getDouble(columnName);
+        if (value == null) { return null; }
+        return value.floatValue();
+    }
+
+    @Override
+    public Boolean getBoolean(final String columnName) {
+        final Object value = _getValue(columnName);
+        if (value == null) { return null; }
+        if (value instanceof Long) { return (((Long) value) != 0L); }
+        if (value instanceof Double) { return (((Double) value) != 0D); }
+
+        final String stringValue = (value instanceof byte[] ? StringUtil.bytesToString((byte[]) value) : value.toString());
+        final Long longValue = _parseLong(stringValue);
+        if (longValue != null) { return (longValue != 0L); }
+        return Boolean.parseBoolean(stringValue.trim());
+    }
+
+    @Override
+    public byte[] getBytes(final String columnName) {
+        final Object value = _getValue(columnName);
+        if (value == null) { return null; }
+        if (value instanceof byte[]) { return (byte[]) value; }
+        return StringUtil.stringToBytes(value.toString());
+    }
+}
@@ -0,0 +1,87 @@
+package com.softwareverde.database.mysql.row;
+
+import com.softwareverde.database.DatabaseException;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Row factory producing MysqlColumnarRows.
+ *  The ResultSetMetaData is resolved once per ResultSet and the resulting MysqlColumnIndex is shared by all of its rows,
+ *  so each row costs a single allocation of its value arrays rather than a per-row map that is then copied.
+ *  Instances are stateful and must not be shared across connections.
+ */
+public class MysqlColumnarRowFactory extends MysqlRowFactory {
+    protected WeakReference<ResultSet> _resultSet = new WeakReference<>(null);
+    protected MysqlColumnIndex _columnIndex = null;
+
+    protected MysqlColumnIndex _getColumnIndex(final ResultSet resultSet) throws SQLException {
+        if ( (_columnIndex == null) || (_resultSet.get() != resultSet) ) {
+            _columnIndex = MysqlColumnIndex.fromResultSetMetaData(resultSet.getMetaData());
+            _resultSet = new WeakReference<>(resultSet);
+        }
+        return _columnIndex;
+    }
+
+    @Override
+    public MysqlColumnarRow fromResultSet(final ResultSet resultSet) throws DatabaseException {
+        try {
+            final MysqlColumnIndex columnIndex = _getColumnIndex(resultSet);
+            final MysqlColumnarRow row = new MysqlColumnarRow(columnIndex);
+
+            long byteCount = 0L;
+            final int columnCount = columnIndex.getColumnCount();
+            for (int i = 0; i < columnCount; ++i) {
+                final int resultSetColumnIndex = (i + 1);
+                switch (columnIndex.getStorageType(i)) {
+                    case LONG: {
+                        final long value = resultSet.getLong(resultSetColumnIndex);
+                        if (resultSet.wasNull()) {
+                            row._setPrimitiveNull(i);
+                        }
+                        else {
+                            row._setLong(i, value);
+                            byteCount += 8L;
+                        }
+                    } break;
+
+                    case DOUBLE: {
+                        final double value = resultSet.getDouble(resultSetColumnIndex);
+                        if (resultSet.wasNull()) {
+                            row._setPrimitiveNull(i);
+                        }
+                        else {
+                            row._setDouble(i, value);
+                            byteCount += 8L;
+                        }
+                    } break;
+
+                    case BYTES: {
+                        final byte[] value = resultSet.getBytes(resultSetColumnIndex);
+                        row._setObject(i, value);
+                        if (value != null) {
+                            byteCount += value.length;
+                        }
+                    } break;
+
+                    default: {
+                        final String value = resultSet.getString(resultSetColumnIndex);
+                        row._setObject(i, value);
+                        if (value != null) {
+                            byteCount += value.length();
+                        }
+                    }
+                }
+            }
+            if (_isByteCountingEnabled) {
+                _materializedByteCount += byteCount;
+            }
+
+            return row;
+        }
+        catch (final SQLException exception) {
+            throw new DatabaseException(exception);
+        }
+    }
+}
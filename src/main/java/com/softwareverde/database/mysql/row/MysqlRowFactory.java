@@ -4,12 +4,76 @@ import com.softwareverde.database.DatabaseException;
 import com.softwareverde.database.jdbc.row.JdbcRow;
 import com.softwareverde.database.jdbc.row.JdbcRowFactory;
 
+import java.lang.ref.WeakReference;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 
 public class MysqlRowFactory extends JdbcRowFactory {
+    protected static final long MAX_ESTIMATED_COLUMN_BYTE_COUNT = 256L;
+
+    protected long _materializedByteCount = 0L;
+    protected boolean _isByteCountingEnabled = false;
+
+    protected WeakReference<ResultSet> _estimatedResultSet = new WeakReference<>(null);
+    protected long _estimatedRowByteCount = 0L;
+
+    /**
+     * Returns the estimated size of a row of the ResultSet from its metadata: primitive columns are counted by their width
+     *  and other columns by their display size, capped at MAX_ESTIMATED_COLUMN_BYTE_COUNT.  Cached per ResultSet.
+     */
+    protected long _getEstimatedRowByteCount(final ResultSet resultSet) throws SQLException {
+        if (_estimatedResultSet.get() != resultSet) {
+            final ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
+            final int columnCount = resultSetMetaData.getColumnCount();
+
+            long rowByteCount = 0L;
+            for (int columnIndex = 1; columnIndex <= columnCount; ++columnIndex) {
+                final MysqlColumnIndex.StorageType storageType = MysqlColumnIndex._getStorageType(resultSetMetaData, columnIndex);
+                if ( (storageType == MysqlColumnIndex.StorageType.LONG) || (storageType == MysqlColumnIndex.StorageType.DOUBLE) ) {
+                    rowByteCount += 8L;
+                }
+                else {
+                    rowByteCount += Math.min(Math.max(0, resultSetMetaData.getColumnDisplaySize(columnIndex)), MAX_ESTIMATED_COLUMN_BYTE_COUNT);
+                }
+            }
+
+            _estimatedRowByteCount = rowByteCount;
+            _estimatedResultSet = new WeakReference<>(resultSet);
+        }
+        return _estimatedRowByteCount;
+    }
+
+    /**
+     * Enables counting of materialized bytes; set by MysqlDatabaseConnection when an instrumentation is attached.
+     *  Disabled by default so the read path does no additional work.
+     */
+    public void setByteCountingEnabled(final Boolean isByteCountingEnabled) {
+        _isByteCountingEnabled = isByteCountingEnabled;
+    }
+
+    /**
+     * Returns the estimated number of bytes of column values materialized by this factory while byte counting was enabled.
+     *  Used for instrumentation.  Rows created by this factory are estimated from the ResultSetMetaData;
+     *  MysqlColumnarRowFactory counts primitive values by their width and other values by their length.
+     */
+    public long getMaterializedByteCount() {
+        return _materializedByteCount;
+    }
+
     @Override
     public MysqlRow fromResultSet(final ResultSet resultSet) throws DatabaseException {
         final JdbcRow jdbcRow = super.fromResultSet(resultSet);
+
+        if (_isByteCountingEnabled) {
+            try {
+                _materializedByteCount += _getEstimatedRowByteCount(resultSet);
+            }
+            catch (final SQLException exception) {
+                throw new DatabaseException(exception);
+            }
+        }
+
         return new MysqlRow(jdbcRow);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+package com.softwareverde.database.mysql.row;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reusable view of the current row of a ResultSet, read via primitive accessors.
+ *  Unlike Row, values are not materialized: each accessor reads directly from the ResultSet, numeric values are
+ *  returned unboxed, and binary values are copied into a caller-supplied ByteBuffer instead of a new byte[].
+ *  A single instance is advanced across every row of the result, so it must not be retained beyond the current row.
+ *
+ *  Column indexes are zero-based.  As with JDBC, numeric accessors return zero for NULL values; use wasNull() to
+ *  distinguish them.  Resolve column indexes once (e.g. via getColumnIndex()) rather than accessing columns by name
+ *  on hot paths.
+ */
+public class MysqlTypedRow {
+    protected final ResultSet _resultSet;
+    protected final MysqlColumnIndex _columnIndex;
+    protected byte[] _scratchBuffer = null;
+
+    protected int _resolveColumnIndex(final String columnName) throws SQLException {
+        final int columnIndex = _columnIndex.getColumnIndex(columnName);
+        if (columnIndex < 0) { throw new SQLException("Unknown column: " + columnName); }
+        return columnIndex;
+    }
+
+    public MysqlTypedRow(final ResultSet resultSet) throws SQLException {
+        _resultSet = resultSet;
+        _columnIndex = MysqlColumnIndex.fromResultSetMetaData(resultSet.getMetaData());
+    }
+
+    public List<String> getColumnNames() {
+        return _columnIndex.getColumnNames();
+    }
+
+    public int getColumnCount() {
+        return _columnIndex.getColumnCount();
+    }
+
+    /**
+     * Returns the zero-based index of the column, or -1 if the column does not exist.
+     */
+    public int getColumnIndex(final String columnName) {
+        return _columnIndex.getColumnIndex(columnName);
+    }
+
+    public long getLong(final int columnIndex) throws SQLException {
+        return _resultSet.getLong(columnIndex + 1);
+    }
+
+    public long getLong(final String columnName) throws SQLException {
+        return this.getLong(_resolveColumnIndex(columnName));
+    }
+
+    public int getInt(final int columnIndex) throws SQLException {
+        return _resultSet.getInt(columnIndex + 1);
+    }
+
+    public int getInt(final String columnName) throws SQLException {
+        return this.getInt(_resolveColumnIndex(columnName));
+    }
+
+    public double getDouble(final int columnIndex) throws SQLException {
+        return _resultSet.getDouble(columnIndex + 1);
+    }
+
+    public double getDouble(final String columnName) throws SQLException {
+        return this.getDouble(_resolveColumnIndex(columnName));
+    }
+
+    public boolean getBoolean(final int columnIndex) throws SQLException {
+        return _resultSet.getBoolean(columnIndex + 1);
+    }
+
+    public boolean getBoolean(final String columnName) throws SQLException {
+        return this.getBoolean(_resolveColumnIndex(columnName));
+    }
+
+    public String getString(final int columnIndex) throws SQLException {
+        return _resultSet.getString(columnIndex + 1);
+    }
+
+    public String getString(final String columnName) throws SQLException {
+        return this.getString(_resolveColumnIndex(columnName));
+    }
+
+    /**
+     * Returns true if the value most recently read was NULL.
+     */
+    public boolean wasNull() throws SQLException {
+        return _resultSet.wasNull();
+    }
+
+    /**
+     * Copies the column's value into the buffer at its position, advancing the position.
+     *  Returns the number of bytes copied, or -1 if the value is NULL.  The value is streamed from the driver's row
+     *  buffer where the driver supports it, so no intermediate byte[] is allocated.
+     *  Throws a BufferOverflowException if the value does not fit within the buffer's remaining capacity, in which case
+     *  the buffer's position is unspecified.
+     */
+    public int readBytes(final int columnIndex, final ByteBuffer buffer) throws SQLException {
+        try (final InputStream inputStream = _resultSet.getBinaryStream(columnIndex + 1)) {
+            if (inputStream == null) { return -1; }
+
+            final boolean hasArray = buffer.hasArray();
+            final byte[] array;
+            final int arrayOffset;
+            if (hasArray) {
+                array = buffer.array();
+                arrayOffset = buffer.arrayOffset();
+            }
+            else {
+                if (_scratchBuffer == null) {
+                    _scratchBuffer = new byte[8192];
+                }
+                array = _scratchBuffer;
+                arrayOffset = 0;
+            }
+
+            int byteCount = 0;
+            while (true) {
+                if (! buffer.hasRemaining()) {
+                    if (inputStream.read() >= 0) { throw new BufferOverflowException(); }
+                    break;
+                }
+
+                final int readLength = (hasArray ? buffer.remaining() : Math.min(buffer.remaining(), array.length));
+                final int readOffset = (hasArray ? (arrayOffset + buffer.position()) : 0);
+                final int readByteCount = inputStream.read(array, readOffset, readLength);
+                if (readByteCount < 0) { break; }
+
+                if (hasArray) {
+                    buffer.position(buffer.position() + readByteCount);
+                }
+                else {
+                    buffer.put(array, 0, readByteCount);
+                }
+                byteCount += readByteCount;
+            }
+            return byteCount;
+        }
+        catch (final IOException exception) {
+            throw new SQLException(exception);
+        }
+    }
+
+    public int readBytes(final String columnName, final ByteBuffer buffer) throws SQLException {
+        return this.readBytes(_resolveColumnIndex(columnName), buffer);
+    }
+}
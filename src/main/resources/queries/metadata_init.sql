@@ -4,4 +4,39 @@ CREATE TABLE IF NOT EXISTS metadata (
     timestamp bigint unsigned NOT NULL,
     PRIMARY KEY (id),
     UNIQUE KEY metadata_version_uq (version)
-) ENGINE=InnoDB DEFAULT CHARSET=UTF8MB4;
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=UTF8MB4;
+
+CREATE TABLE IF NOT EXISTS metadata_online_migrations (
+    id int unsigned NOT NULL AUTO_INCREMENT,
+    table_name varchar(64) NOT NULL,
+    alter_specification text NOT NULL,
+    state varchar(16) NOT NULL,
+    last_copied_key bigint NULL,
+    max_key bigint NULL,
+    copied_row_count bigint unsigned NOT NULL DEFAULT 0,
+    timestamp bigint unsigned NOT NULL,
+    PRIMARY KEY (id),
+    KEY metadata_online_migrations_table_name_ix (table_name, state)
+) ENGINE=InnoDB DEFAULT CHARSET=UTF8MB4;
+
+CREATE TABLE IF NOT EXISTS metadata_migration_history (
+    id int unsigned NOT NULL AUTO_INCREMENT,
+    version int unsigned NOT NULL,
+    checksum char(64) NULL,
+    status varchar(16) NOT NULL,
+    duration_ms bigint unsigned NULL,
+    timestamp bigint unsigned NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY metadata_migration_history_version_uq (version)
+) ENGINE=InnoDB DEFAULT CHARSET=UTF8MB4;
+
+CREATE TABLE IF NOT EXISTS metadata_binlog_checkpoints (
+    id int unsigned NOT NULL AUTO_INCREMENT,
+    consumer_name varchar(255) NOT NULL,
+    binlog_filename varchar(255) NULL,
+    binlog_position bigint unsigned NULL,
+    gtid_set text NULL,
+    timestamp bigint unsigned NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY metadata_binlog_checkpoints_consumer_name_uq (consumer_name)
+) ENGINE=InnoDB DEFAULT CHARSET=UTF8MB4;
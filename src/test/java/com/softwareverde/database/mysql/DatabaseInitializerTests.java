@@ -1,10 +1,15 @@
 package com.softwareverde.database.mysql;
 
+import com.softwareverde.database.DatabaseConnection;
+import com.softwareverde.database.DatabaseException;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
 
 public class DatabaseInitializerTests {
     public static String originalSha256(final String s) {
@@ -36,4 +41,80 @@ public class DatabaseInitializerTests {
         // Assert
         Assert.assertEquals(originalPassword, newPassword);
     }
+
+    @Test
+    public void should_only_treat_missing_table_as_uninitialized() {
+        // Setup
+        final DatabaseException missingTableException = new DatabaseException(new SQLException("Table 'metadata' doesn't exist", "42S02", 1146));
+        final DatabaseException accessDeniedException = new DatabaseException(new SQLException("Access denied", "42000", 1142));
+
+        // Action
+        final Boolean isMissingTable = MysqlDatabaseInitializer._isMissingTableException(missingTableException);
+        final Boolean isAccessDeniedMissingTable = MysqlDatabaseInitializer._isMissingTableException(accessDeniedException);
+
+        // Assert
+        Assert.assertTrue(isMissingTable);
+        Assert.assertFalse(isAccessDeniedMissingTable);
+    }
+
+    @Test
+    public void should_detect_changed_upgrade_checksum() throws Exception {
+        // Setup
+        final String upgradeScript = "ALTER TABLE blocks ADD COLUMN work bigint NOT NULL DEFAULT 0;";
+        final MysqlDatabaseInitializer mysqlDatabaseInitializer = new MysqlDatabaseInitializer(null, 2, new MysqlDatabaseInitializer.ChecksummedUpgradeHandler() {
+            @Override
+            public String getChecksum(final Integer requiredVersion) {
+                return (requiredVersion == 2 ? MysqlDatabaseInitializer.calculateChecksum(upgradeScript) : null);
+            }
+
+            @Override
+            public Boolean onUpgrade(final DatabaseConnection<Connection> maintenanceDatabaseConnection, final Integer previousVersion, final Integer requiredVersion) {
+                return true;
+            }
+        });
+
+        final String originalChecksum = MysqlDatabaseInitializer.calculateChecksum(upgradeScript);
+        final String modifiedChecksum = MysqlDatabaseInitializer.calculateChecksum(upgradeScript + "\n");
+
+        // Action
+        mysqlDatabaseInitializer._verifyChecksums(Arrays.asList(
+            new MysqlDatabaseInitializer.AppliedVersion(1, null),
+            new MysqlDatabaseInitializer.AppliedVersion(2, originalChecksum)
+        ));
+
+        Boolean modifiedChecksumWasDetected = false;
+        try {
+            mysqlDatabaseInitializer._verifyChecksums(Arrays.asList(
+                new MysqlDatabaseInitializer.AppliedVersion(1, null),
+                new MysqlDatabaseInitializer.AppliedVersion(2, modifiedChecksum)
+            ));
+        }
+        catch (final DatabaseException exception) {
+            modifiedChecksumWasDetected = true;
+        }
+
+        // Assert
+        Assert.assertEquals(64, originalChecksum.length());
+        Assert.assertTrue(modifiedChecksumWasDetected);
+    }
+
+    @Test
+    public void should_hash_schema_names_that_exceed_the_lock_name_limit() {
+        // Setup
+        final StringBuilder longSchema = new StringBuilder();
+        for (int i = 0; i < 64; ++i) {
+            longSchema.append('s');
+        }
+
+        // Action
+        final String lockName = MysqlDatabaseInitializer._getMigrationLockName("bitcoin");
+        final String longLockName = MysqlDatabaseInitializer._getMigrationLockName(longSchema.toString());
+        final String otherLongLockName = MysqlDatabaseInitializer._getMigrationLockName(longSchema + "t");
+
+        // Assert
+        Assert.assertEquals("bitcoin.migration", lockName);
+        Assert.assertEquals(50, longLockName.length());
+        Assert.assertTrue(longLockName.endsWith(".migration"));
+        Assert.assertNotEquals(longLockName, otherLongLockName);
+    }
 }
@@ -0,0 +1,46 @@
+package com.softwareverde.database.mysql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class MysqlBatchWriterTests {
+    @Test
+    public void should_create_multi_row_insert() {
+        // Setup
+        final MysqlBatchWriter batchWriter = new MysqlBatchWriter(null, "blocks", Arrays.asList("hash", "height"), MysqlBatchWriter.Mode.INSERT);
+
+        // Action
+        final String sql = batchWriter._createStatementSql(3);
+
+        // Assert
+        Assert.assertEquals("INSERT INTO `blocks` (`hash`, `height`) VALUES (?, ?), (?, ?), (?, ?)", sql);
+    }
+
+    @Test
+    public void should_create_upsert_for_selected_columns() {
+        // Setup
+        final MysqlBatchWriter batchWriter = new MysqlBatchWriter(null, "schema.blocks", Arrays.asList("hash", "height"), MysqlBatchWriter.Mode.UPSERT);
+        batchWriter.setUpdateColumnNames(Arrays.asList("height"));
+
+        // Action
+        final String sql = batchWriter._createStatementSql(2);
+
+        // Assert
+        Assert.assertEquals("INSERT INTO `schema`.`blocks` (`hash`, `height`) VALUES (?, ?), (?, ?) ON DUPLICATE KEY UPDATE `height` = VALUES(`height`)", sql);
+    }
+
+    @Test
+    public void should_limit_rows_per_statement_by_placeholder_count() {
+        // Setup
+        final MysqlBatchWriter batchWriter = new MysqlBatchWriter(null, "blocks", Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j"), MysqlBatchWriter.Mode.INSERT_IGNORE);
+        batchWriter.setMaxRowCount(100000);
+
+        // Action
+        final Integer maxRowCount = batchWriter._getMaxRowCountPerStatement();
+
+        // Assert
+        Assert.assertEquals(6553, maxRowCount.intValue());
+    }
+}
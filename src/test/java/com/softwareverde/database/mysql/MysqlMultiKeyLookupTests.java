@@ -0,0 +1,173 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.mysql.row.MysqlRowFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MysqlMultiKeyLookupTests {
+    @Test
+    public void should_split_keys_into_power_of_two_chunks_padded_with_last_key() {
+        // Setup
+        final ArrayList<MysqlMultiKeyLookup.Key> keys = new ArrayList<>();
+        for (int i = 0; i < 21; ++i) {
+            keys.add(MysqlMultiKeyLookup.Key.of(i));
+        }
+
+        // Action
+        final List<List<MysqlMultiKeyLookup.Key>> chunks = MysqlMultiKeyLookup._splitIntoChunks(keys, 16);
+
+        // Assert
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertEquals(16, chunks.get(0).size());
+        Assert.assertEquals(8, chunks.get(1).size());
+        Assert.assertEquals(MysqlMultiKeyLookup.Key.of(16L), chunks.get(1).get(0));
+        Assert.assertEquals(MysqlMultiKeyLookup.Key.of(20L), chunks.get(1).get(4));
+        Assert.assertEquals(MysqlMultiKeyLookup.Key.of(20L), chunks.get(1).get(7));
+    }
+
+    @Test
+    public void should_compare_keys_by_value() {
+        // Setup
+        final MysqlMultiKeyLookup.Key key = MysqlMultiKeyLookup.Key.of(7, new byte[] { 0x01, 0x02 });
+
+        // Action
+        final MysqlMultiKeyLookup.Key equivalentKey = MysqlMultiKeyLookup.Key.of(7L, new byte[] { 0x01, 0x02 });
+
+        // Assert
+        Assert.assertEquals(key, equivalentKey);
+        Assert.assertEquals(key.hashCode(), equivalentKey.hashCode());
+    }
+
+    @Test
+    public void should_create_in_list_and_row_constructor_queries() {
+        // Setup
+        final MysqlMultiKeyLookup lookup = new MysqlMultiKeyLookup(null, "blocks", "id");
+        final MysqlMultiKeyLookup compositeLookup = new MysqlMultiKeyLookup(null, "transaction_outputs", Arrays.asList("transaction_id", "output_index"));
+        compositeLookup.setColumns("transaction_id, output_index, amount");
+
+        // Action
+        final String query = lookup._createChunkQuery(4);
+        final String compositeQuery = compositeLookup._createChunkQuery(2);
+        final String insertQuery = lookup._createTemporaryTableInsertQuery(2);
+
+        // Assert
+        Assert.assertEquals("SELECT * FROM `blocks` WHERE `id` IN (?, ?, ?, ?)", query);
+        Assert.assertEquals("SELECT transaction_id, output_index, amount FROM `transaction_outputs` WHERE (`transaction_id`, `output_index`) IN ((?, ?), (?, ?))", compositeQuery);
+        Assert.assertEquals("INSERT INTO `_multi_key_lookup` VALUES (?), (?)", insertQuery);
+    }
+
+    @Test
+    public void should_prepare_each_chunk_size_once_per_connection() throws Exception {
+        // Setup
+        final AtomicInteger preparedStatementCount = new AtomicInteger(0);
+        final AtomicInteger executedQueryCount = new AtomicInteger(0);
+        final MysqlDatabaseConnectionFactory connectionFactory = new MysqlDatabaseConnectionFactory("localhost", 3306, "test", "user", "password") {
+            @Override
+            public MysqlDatabaseConnection newConnection() {
+                final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, arguments) -> {
+                    if (! method.getName().equals("prepareStatement")) { return null; }
+
+                    preparedStatementCount.incrementAndGet();
+                    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, (statementProxy, statementMethod, statementArguments) -> {
+                        if (! statementMethod.getName().equals("executeQuery")) { return null; }
+
+                        executedQueryCount.incrementAndGet();
+                        return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (resultSetProxy, resultSetMethod, resultSetArguments) -> {
+                            return (resultSetMethod.getName().equals("next") ? false : null);
+                        });
+                    });
+                });
+                return new MysqlDatabaseConnection(connection, new MysqlRowFactory());
+            }
+        };
+
+        final MysqlMultiKeyLookup lookup = new MysqlMultiKeyLookup(connectionFactory, "blocks", "id");
+        lookup.setThreadCount(1);
+        lookup.setMaxChunkSize(16);
+
+        final ArrayList<MysqlMultiKeyLookup.Key> keys = new ArrayList<>();
+        for (int i = 0; i < 40; ++i) {
+            keys.add(MysqlMultiKeyLookup.Key.of(i));
+        }
+
+        // Action
+        lookup.lookup(keys);
+
+        // Assert
+        Assert.assertEquals(3, executedQueryCount.get());
+        Assert.assertEquals(2, preparedStatementCount.get());
+    }
+
+    @Test
+    public void should_fall_back_to_in_lists_when_the_temporary_table_cannot_be_created() throws Exception {
+        // Setup
+        final AtomicInteger createTemporaryTableCount = new AtomicInteger(0);
+        final List<String> preparedQueries = new ArrayList<>();
+        final MysqlDatabaseConnectionFactory connectionFactory = new MysqlDatabaseConnectionFactory("localhost", 3306, "test", "user", "password") {
+            @Override
+            public MysqlDatabaseConnection newConnection() {
+                final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "createStatement": {
+                            return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { Statement.class }, (statementProxy, statementMethod, statementArguments) -> {
+                                if (! statementMethod.getName().equals("execute")) { return null; }
+
+                                if (((String) statementArguments[0]).startsWith("CREATE TEMPORARY TABLE")) {
+                                    createTemporaryTableCount.incrementAndGet();
+                                    throw new SQLException("CREATE command denied to user");
+                                }
+                                return false;
+                            });
+                        }
+                        case "prepareStatement": {
+                            synchronized (preparedQueries) {
+                                preparedQueries.add((String) arguments[0]);
+                            }
+                            return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, (statementProxy, statementMethod, statementArguments) -> {
+                                if (! statementMethod.getName().equals("executeQuery")) { return null; }
+
+                                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (resultSetProxy, resultSetMethod, resultSetArguments) -> {
+                                    return (resultSetMethod.getName().equals("next") ? false : null);
+                                });
+                            });
+                        }
+                        default: { return null; }
+                    }
+                });
+                return new MysqlDatabaseConnection(connection, new MysqlRowFactory());
+            }
+        };
+
+        final MysqlMultiKeyLookup lookup = new MysqlMultiKeyLookup(connectionFactory, "blocks", "id");
+        lookup.setThreadCount(1);
+        lookup.setMaxChunkSize(16);
+        lookup.setTemporaryTableThreshold(8);
+
+        final ArrayList<MysqlMultiKeyLookup.Key> keys = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            keys.add(MysqlMultiKeyLookup.Key.of(i));
+        }
+
+        // Action
+        lookup.lookup(keys);
+        lookup.lookup(keys);
+
+        // Assert
+        Assert.assertEquals(1, createTemporaryTableCount.get());
+        Assert.assertEquals(4, preparedQueries.size());
+        for (final String preparedQuery : preparedQueries) {
+            Assert.assertTrue(preparedQuery.startsWith("SELECT * FROM `blocks` WHERE `id` IN (?"));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.mysql.row.MysqlRowFactory;
+import com.softwareverde.database.row.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MysqlOnlineSchemaMigrationTests {
+    @Test
+    public void should_copy_only_columns_shared_with_shadow_table() {
+        // Setup
+        final List<String> columnNames = Arrays.asList("id", "name", "legacy_value", "timestamp");
+        final List<String> shadowColumnNames = Arrays.asList("ID", "name", "timestamp", "new_value");
+
+        // Action
+        final List<String> sharedColumnNames = MysqlOnlineSchemaMigration._getSharedColumnNames(columnNames, shadowColumnNames);
+
+        // Assert
+        Assert.assertEquals(Arrays.asList("id", "name", "timestamp"), sharedColumnNames);
+    }
+
+    @Test
+    public void should_find_key_column_regardless_of_case() {
+        // Setup
+        final List<String> columnNames = Arrays.asList("ID", "name");
+
+        // Action
+        final Boolean containsKeyColumn = MysqlOnlineSchemaMigration._containsColumnName(columnNames, "id");
+        final Boolean containsMissingColumn = MysqlOnlineSchemaMigration._containsColumnName(columnNames, "hash");
+
+        // Assert
+        Assert.assertTrue(containsKeyColumn);
+        Assert.assertFalse(containsMissingColumn);
+    }
+
+    @Test
+    public void should_create_chunk_copy_and_swap_queries() {
+        // Setup
+        final MysqlOnlineSchemaMigration migration = new MysqlOnlineSchemaMigration(null, "blocks", "id", " ADD COLUMN work bigint NOT NULL DEFAULT 0 ");
+        final List<String> columnNames = Arrays.asList("id", "hash");
+
+        // Action
+        final String copyChunkQuery = migration._createCopyChunkQuery(columnNames);
+        final String deleteTriggerQuery = migration._createDeleteTriggerQuery();
+        final String swapQuery = migration._createSwapQuery();
+
+        // Assert
+        Assert.assertEquals("INSERT IGNORE INTO `_blocks_new` (`id`, `hash`) SELECT `id`, `hash` FROM `blocks` WHERE `id` > ? AND `id` <= ? LOCK IN SHARE MODE", copyChunkQuery);
+        Assert.assertEquals("CREATE TRIGGER `_blocks_del` AFTER DELETE ON `blocks` FOR EACH ROW DELETE IGNORE FROM `_blocks_new` WHERE `_blocks_new`.`id` <=> OLD.`id`", deleteTriggerQuery);
+        Assert.assertEquals("RENAME TABLE `blocks` TO `_blocks_old`, `_blocks_new` TO `blocks`", swapQuery);
+    }
+
+    @Test
+    public void should_fail_when_replica_status_remains_unavailable() throws Exception {
+        // Setup
+        final MysqlDatabaseConnection replicaConnection = new MysqlDatabaseConnection(null, new MysqlRowFactory()) {
+            @Override
+            public synchronized List<Row> query(final String query, final String[] parameters) throws DatabaseException {
+                throw new DatabaseException("Access denied; you need (at least one of) the REPLICATION CLIENT privilege(s) for this operation");
+            }
+        };
+
+        final MysqlOnlineSchemaMigration migration = new MysqlOnlineSchemaMigration(null, "blocks", "id", "ADD COLUMN work bigint NOT NULL DEFAULT 0");
+        migration.setMaxThreadsRunning(null);
+        migration.setThrottleIntervalMs(1L);
+        migration.setMaxReplicaStatusUnavailableMs(10L);
+
+        // Action
+        DatabaseException databaseException = null;
+        try {
+            migration._throttle(Collections.singletonList(replicaConnection));
+        }
+        catch (final DatabaseException exception) {
+            databaseException = exception;
+        }
+
+        // Assert
+        Assert.assertNotNull(databaseException);
+        Assert.assertTrue(databaseException.getMessage().startsWith("Replica status was unavailable"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.softwareverde.database.mysql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Properties;
+
+public class MysqlPerformanceProfileTests {
+    @Test
+    public void should_only_set_options_supported_by_driver() {
+        for (final MysqlPerformanceProfile performanceProfile : MysqlPerformanceProfile.values()) {
+            // Action
+            final Properties properties = performanceProfile.getConnectionProperties();
+            MysqlDatabaseConnectionFactory._validateConnectionProperties(properties);
+
+            // Assert
+            Assert.assertFalse(properties.isEmpty());
+        }
+    }
+
+    @Test
+    public void should_reject_unsupported_option() {
+        // Setup
+        final Properties properties = new Properties();
+        properties.setProperty("useServerPrepStatements", "true");
+
+        // Action
+        Boolean exceptionWasThrown = false;
+        try {
+            MysqlDatabaseConnectionFactory._validateConnectionProperties(properties);
+        }
+        catch (final IllegalArgumentException exception) {
+            exceptionWasThrown = true;
+        }
+
+        // Assert
+        Assert.assertTrue(exceptionWasThrown);
+    }
+}
@@ -0,0 +1,162 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.mysql.row.MysqlRow;
+import com.softwareverde.database.mysql.row.MysqlRowFactory;
+import com.softwareverde.database.query.Query;
+import com.softwareverde.database.row.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MysqlQueryResultCacheTests {
+    protected static final List<Row> EMPTY_ROWS = new ArrayList<>();
+
+    /**
+     * A raw connection that only tracks its autocommit state; committing publishes the pending row count.
+     */
+    protected static Connection _newRawConnection(final AtomicInteger committedRowCount, final AtomicInteger pendingRowCount) {
+        final AtomicBoolean autoCommit = new AtomicBoolean(true);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, arguments) -> {
+            switch (method.getName()) {
+                case "getAutoCommit": { return autoCommit.get(); }
+                case "setAutoCommit": { autoCommit.set((Boolean) arguments[0]); return null; }
+                case "commit": { committedRowCount.set(pendingRowCount.get()); return null; }
+                case "rollback": { pendingRowCount.set(committedRowCount.get()); return null; }
+                default: { return null; }
+            }
+        });
+    }
+
+    /**
+     * A connection whose queries return committedRowCount rows, regardless of the query.
+     */
+    protected static class FakeDatabaseConnection extends MysqlDatabaseConnection {
+        protected final AtomicInteger _committedRowCount;
+
+        public FakeDatabaseConnection(final Connection connection, final AtomicInteger committedRowCount, final MysqlQueryResultCache queryResultCache) {
+            super(connection, new MysqlRowFactory());
+            _committedRowCount = committedRowCount;
+            this.setQueryResultCache(queryResultCache);
+        }
+
+        @Override
+        protected List<Row> _query(final Query query) {
+            final ArrayList<Row> rows = new ArrayList<>();
+            for (int i = 0; i < _committedRowCount.get(); ++i) {
+                rows.add(new MysqlRow());
+            }
+            return rows;
+        }
+    }
+
+    @Test
+    public void should_cache_by_parameters_and_invalidate_on_write_to_referenced_table() {
+        // Setup
+        final MysqlQueryResultCache queryResultCache = new MysqlQueryResultCache(60000L);
+        final Query blockQuery0 = new Query("SELECT * FROM blocks WHERE id = ?").setParameter(1L);
+        final Query blockQuery1 = new Query("SELECT * FROM blocks WHERE id = ?").setParameter(2L);
+        final Query transactionQuery = new Query("SELECT t.* FROM transactions t INNER JOIN block_transactions bt ON bt.transaction_id = t.id WHERE bt.block_id = ?").setParameter(1L);
+
+        queryResultCache.put(blockQuery0, EMPTY_ROWS, 60000L, queryResultCache.getInvalidationCount());
+        queryResultCache.put(transactionQuery, EMPTY_ROWS, 60000L, queryResultCache.getInvalidationCount());
+
+        // Action
+        final List<Row> cachedBlockRows0 = queryResultCache.get(new Query("SELECT * FROM blocks WHERE id = ?").setParameter(1L));
+        final List<Row> cachedBlockRows1 = queryResultCache.get(blockQuery1);
+        queryResultCache.invalidate("INSERT INTO `block_transactions` (block_id, transaction_id) VALUES (1, 1)");
+
+        // Assert
+        Assert.assertNotNull(cachedBlockRows0);
+        Assert.assertNull(cachedBlockRows1);
+        Assert.assertNotNull(queryResultCache.get(blockQuery0));
+        Assert.assertNull(queryResultCache.get(transactionQuery));
+        Assert.assertEquals(1L, queryResultCache.getInvalidatedEntryCount().longValue());
+        Assert.assertEquals(2L, queryResultCache.getHitCount().longValue());
+    }
+
+    @Test
+    public void should_not_cache_non_deterministic_queries_or_results_read_before_an_invalidation() {
+        // Setup
+        final MysqlQueryResultCache queryResultCache = new MysqlQueryResultCache(60000L);
+        final Query timeQuery = new Query("SELECT NOW() AS now");
+        final Query lockingQuery = new Query("SELECT * FROM blocks WHERE id = 1 FOR UPDATE");
+        final Query emailQuery = new Query("SELECT * FROM users WHERE email = 'user@example.com'");
+
+        final Long invalidationCount = queryResultCache.getInvalidationCount();
+        queryResultCache.invalidate("UPDATE users SET name = 'name' WHERE id = 1");
+
+        // Action
+        queryResultCache.put(timeQuery, EMPTY_ROWS, 60000L, queryResultCache.getInvalidationCount());
+        queryResultCache.put(lockingQuery, EMPTY_ROWS, 60000L, queryResultCache.getInvalidationCount());
+        queryResultCache.put(emailQuery, EMPTY_ROWS, 60000L, invalidationCount);
+
+        // Assert
+        Assert.assertEquals(0, queryResultCache.getEntryCount().intValue());
+        Assert.assertEquals(1L, queryResultCache.getMissCount().longValue());
+
+        queryResultCache.put(emailQuery, EMPTY_ROWS, 60000L, queryResultCache.getInvalidationCount());
+        Assert.assertNotNull(queryResultCache.get(emailQuery));
+    }
+
+    @Test
+    public void should_evict_least_recently_used_results_when_full() {
+        // Setup
+        final MysqlQueryResultCache queryResultCache = new MysqlQueryResultCache(60000L, 450L);
+        final Query query0 = new Query("SELECT * FROM blocks WHERE id = 0");
+        final Query query1 = new Query("SELECT * FROM blocks WHERE id = 1");
+        final Query query2 = new Query("SELECT * FROM blocks WHERE id = 2");
+
+        // Action
+        queryResultCache.put(query0, EMPTY_ROWS, 60000L, queryResultCache.getInvalidationCount());
+        queryResultCache.put(query1, EMPTY_ROWS, 60000L, queryResultCache.getInvalidationCount());
+        queryResultCache.get(query0);
+        queryResultCache.put(query2, EMPTY_ROWS, 60000L, queryResultCache.getInvalidationCount());
+
+        // Assert
+        Assert.assertEquals(1L, queryResultCache.getEvictionCount().longValue());
+        Assert.assertNotNull(queryResultCache.get(query0));
+        Assert.assertNull(queryResultCache.get(query1));
+        Assert.assertNotNull(queryResultCache.get(query2));
+        Assert.assertTrue(queryResultCache.getByteCount() <= 450L);
+    }
+
+    @Test
+    public void should_not_cache_rows_read_by_another_connection_before_a_write_commits() throws Exception {
+        // Setup
+        final MysqlQueryResultCache queryResultCache = new MysqlQueryResultCache(60000L);
+        final AtomicInteger committedRowCount = new AtomicInteger(1);
+        final AtomicInteger pendingRowCount = new AtomicInteger(1);
+        final Connection writerRawConnection = _newRawConnection(committedRowCount, pendingRowCount);
+        final FakeDatabaseConnection writerConnection = new FakeDatabaseConnection(writerRawConnection, committedRowCount, queryResultCache);
+        final FakeDatabaseConnection readerConnection = new FakeDatabaseConnection(_newRawConnection(committedRowCount, pendingRowCount), committedRowCount, queryResultCache);
+        final Query query = new Query("SELECT * FROM blocks WHERE id > ?").setParameter(0L);
+
+        readerConnection.query(query);
+        Assert.assertEquals(1, queryResultCache.getEntryCount().intValue());
+
+        // Action
+        writerRawConnection.setAutoCommit(false);
+        pendingRowCount.set(2);
+        writerConnection._onWrite("INSERT INTO blocks (id) VALUES (2)");
+        final List<Row> uncommittedRows = readerConnection.query(query);
+        final Integer uncommittedEntryCount = queryResultCache.getEntryCount();
+
+        writerConnection.commit();
+        writerRawConnection.setAutoCommit(true);
+        final List<Row> committedRows = readerConnection.query(query);
+        final List<Row> cachedRows = readerConnection.query(query);
+
+        // Assert
+        Assert.assertEquals(1, uncommittedRows.size());
+        Assert.assertEquals(0, uncommittedEntryCount.intValue());
+        Assert.assertEquals(2, committedRows.size());
+        Assert.assertEquals(2, cachedRows.size());
+        Assert.assertEquals(1L, queryResultCache.getHitCount().longValue());
+    }
+}
@@ -0,0 +1,121 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.mysql.row.MysqlRowFactory;
+import com.softwareverde.database.query.Query;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MysqlSlowQuerySamplerTests {
+    /**
+     * A factory whose connections answer every statement with a single "{}" row, tracking how many are open.
+     */
+    protected static class FakeConnectionFactory extends MysqlDatabaseConnectionFactory {
+        public final AtomicInteger openedConnectionCount = new AtomicInteger(0);
+        public final AtomicInteger openConnectionCount = new AtomicInteger(0);
+
+        protected static <T> T _newProxy(final Class<T> type, final java.lang.reflect.InvocationHandler invocationHandler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, invocationHandler));
+        }
+
+        public FakeConnectionFactory() {
+            super("localhost", 3306, "test", "user", "password");
+        }
+
+        @Override
+        public MysqlDatabaseConnection newConnection() {
+            openedConnectionCount.incrementAndGet();
+            openConnectionCount.incrementAndGet();
+
+            final Connection connection = _newProxy(Connection.class, (proxy, method, arguments) -> {
+                switch (method.getName()) {
+                    case "prepareStatement": {
+                        return _newProxy(PreparedStatement.class, (statementProxy, statementMethod, statementArguments) -> {
+                            if (! statementMethod.getName().equals("executeQuery")) { return null; }
+
+                            final AtomicInteger rowIndex = new AtomicInteger(0);
+                            return _newProxy(ResultSet.class, (resultSetProxy, resultSetMethod, resultSetArguments) -> {
+                                switch (resultSetMethod.getName()) {
+                                    case "next": { return (rowIndex.getAndIncrement() == 0); }
+                                    case "getString": { return "{}"; }
+                                    default: { return null; }
+                                }
+                            });
+                        });
+                    }
+                    case "close": {
+                        openConnectionCount.decrementAndGet();
+                        return null;
+                    }
+                    default: { return null; }
+                }
+            });
+            return new MysqlDatabaseConnection(connection, new MysqlRowFactory());
+        }
+    }
+
+    @Test
+    public void should_retain_most_recent_slow_statements_with_redacted_parameters() {
+        // Setup
+        final Query query = new Query("CALL update_balance(?, ?)").setParameter("secret").setParameter(5L);
+        final long slowDurationNanos = TimeUnit.MILLISECONDS.toNanos(250L);
+
+        try (final MysqlSlowQuerySampler slowQuerySampler = new MysqlSlowQuerySampler(null, 100L, 2)) {
+            // Action
+            slowQuerySampler.onStatementExecuted("CALL first_procedure()", null, slowDurationNanos, 0L, 0L);
+            slowQuerySampler.onStatementExecuted("CALL fast_procedure()", null, TimeUnit.MILLISECONDS.toNanos(5L), 0L, 0L);
+            slowQuerySampler.onStatementFailed("CALL second_procedure()", null, slowDurationNanos);
+            slowQuerySampler.onStatementExecuted(query.getQueryString(), query.getParameters(), slowDurationNanos, 1L, 0L);
+
+            // Assert
+            final List<MysqlSlowQuerySampler.SlowQuery> slowQueries = slowQuerySampler.getSlowQueries();
+            Assert.assertEquals(3L, slowQuerySampler.getSlowQueryCount().longValue());
+            Assert.assertEquals(2, slowQueries.size());
+
+            Assert.assertEquals("CALL second_procedure()", slowQueries.get(0).query);
+            Assert.assertTrue(slowQueries.get(0).isFailure);
+
+            final MysqlSlowQuerySampler.SlowQuery slowQuery = slowQueries.get(1);
+            Assert.assertEquals("CALL update_balance(?, ?)", slowQuery.query);
+            Assert.assertEquals(2, slowQuery.parameters.size());
+            Assert.assertEquals(MysqlSlowQuerySampler.REDACTED_PARAMETER, slowQuery.parameters.get(0));
+            Assert.assertEquals(1L, slowQuery.rowCount.longValue());
+            Assert.assertNull(slowQuery.getExplainJson());
+        }
+    }
+
+    @Test
+    public void should_release_the_explain_connection_once_pending_explains_complete() throws Exception {
+        // Setup
+        final FakeConnectionFactory connectionFactory = new FakeConnectionFactory();
+        final long slowDurationNanos = TimeUnit.MILLISECONDS.toNanos(250L);
+
+        try (final MysqlSlowQuerySampler slowQuerySampler = new MysqlSlowQuerySampler(connectionFactory, 100L)) {
+            // Action
+            slowQuerySampler.onStatementExecuted("SELECT * FROM blocks WHERE id = 1", null, slowDurationNanos, 1L, 0L);
+            slowQuerySampler.onStatementExecuted("SELECT * FROM transactions WHERE id = 1", null, slowDurationNanos, 1L, 0L);
+
+            final long timeoutTime = (System.currentTimeMillis() + 5000L);
+            while ( (slowQuerySampler.getSlowQueries().get(1).getExplainJson() == null) && (System.currentTimeMillis() < timeoutTime) ) {
+                Thread.sleep(10L);
+            }
+            while ( (connectionFactory.openConnectionCount.get() > 0) && (System.currentTimeMillis() < timeoutTime) ) {
+                Thread.sleep(10L);
+            }
+
+            // Assert
+            final List<MysqlSlowQuerySampler.SlowQuery> slowQueries = slowQuerySampler.getSlowQueries();
+            Assert.assertEquals("{}", slowQueries.get(0).getExplainJson());
+            Assert.assertEquals("{}", slowQueries.get(1).getExplainJson());
+            Assert.assertEquals(0, connectionFactory.openConnectionCount.get());
+            Assert.assertTrue(connectionFactory.openedConnectionCount.get() <= 2);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.softwareverde.database.mysql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class MysqlTableScannerTests {
+    @Test
+    public void should_split_key_range_into_contiguous_ranges() {
+        // Action
+        final List<MysqlTableScanner.KeyRange> keyRanges = MysqlTableScanner._splitKeyRange(1L, 10L, 4);
+
+        // Assert
+        Assert.assertEquals(4, keyRanges.size());
+        Assert.assertEquals(1L, keyRanges.get(0).firstKey.longValue());
+        Assert.assertEquals(10L, keyRanges.get(keyRanges.size() - 1).lastKey.longValue());
+        for (int i = 1; i < keyRanges.size(); ++i) {
+            Assert.assertEquals((keyRanges.get(i - 1).lastKey + 1L), keyRanges.get(i).firstKey.longValue());
+        }
+    }
+
+    @Test
+    public void should_not_split_key_range_smaller_than_range_count() {
+        // Action
+        final List<MysqlTableScanner.KeyRange> singleKeyRanges = MysqlTableScanner._splitKeyRange(7L, 7L, 16);
+        final List<MysqlTableScanner.KeyRange> overflowingKeyRanges = MysqlTableScanner._splitKeyRange(Long.MIN_VALUE, Long.MAX_VALUE, 16);
+
+        // Assert
+        Assert.assertEquals(1, singleKeyRanges.size());
+        Assert.assertEquals(7L, singleKeyRanges.get(0).lastKey.longValue());
+        Assert.assertEquals(1, overflowingKeyRanges.size());
+    }
+}
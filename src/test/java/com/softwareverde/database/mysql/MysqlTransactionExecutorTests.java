@@ -0,0 +1,91 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import com.softwareverde.database.mysql.row.MysqlRowFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+public class MysqlTransactionExecutorTests {
+    @Test
+    public void should_classify_deadlocks_and_lock_wait_timeouts_as_retryable() {
+        // Setup
+        final DatabaseException deadlockException = new DatabaseException(new SQLException("Deadlock found when trying to get lock", "40001", 1213));
+        final DatabaseException lockWaitTimeoutException = new DatabaseException(new SQLException("Lock wait timeout exceeded", "HY000", 1205));
+        final DatabaseException duplicateKeyException = new DatabaseException(new SQLException("Duplicate entry", "23000", 1062));
+
+        // Action
+        final Integer deadlockErrorCode = MysqlTransactionExecutor._getRetryableErrorCode(deadlockException);
+        final Integer lockWaitTimeoutErrorCode = MysqlTransactionExecutor._getRetryableErrorCode(lockWaitTimeoutException);
+        final Integer duplicateKeyErrorCode = MysqlTransactionExecutor._getRetryableErrorCode(duplicateKeyException);
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(1213), deadlockErrorCode);
+        Assert.assertEquals(Integer.valueOf(1205), lockWaitTimeoutErrorCode);
+        Assert.assertNull(duplicateKeyErrorCode);
+    }
+
+    @Test
+    public void should_bound_jittered_backoff_by_exponential_ceiling() {
+        for (int i = 0; i < 1000; ++i) {
+            // Action
+            final Long firstBackoffMs = MysqlTransactionExecutor._getBackoffMs(1, 10L, 1000L);
+            final Long thirdBackoffMs = MysqlTransactionExecutor._getBackoffMs(3, 10L, 1000L);
+            final Long lastBackoffMs = MysqlTransactionExecutor._getBackoffMs(64, 10L, 1000L);
+
+            // Assert
+            Assert.assertTrue( (firstBackoffMs >= 0L) && (firstBackoffMs <= 10L) );
+            Assert.assertTrue( (thirdBackoffMs >= 0L) && (thirdBackoffMs <= 40L) );
+            Assert.assertTrue( (lastBackoffMs >= 0L) && (lastBackoffMs <= 1000L) );
+        }
+    }
+
+    @Test
+    public void should_only_count_grouped_units_that_did_not_fail_as_committed() throws Exception {
+        // Setup
+        final List<String> rolledBackSavepointNames = new ArrayList<>();
+        final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, arguments) -> {
+            if (method.getName().equals("rollback")) {
+                rolledBackSavepointNames.add(String.valueOf(arguments[0]));
+            }
+            return null;
+        });
+        final MysqlDatabaseConnection databaseConnection = new MysqlDatabaseConnection(connection, new MysqlRowFactory());
+
+        final MysqlTransactionExecutor transactionExecutor = new MysqlTransactionExecutor(null);
+        final List<MysqlTransactionExecutor.GroupedUnitOfWork<?>> group = new ArrayList<>();
+        group.add(new MysqlTransactionExecutor.GroupedUnitOfWork<>((final MysqlDatabaseConnection unitConnection) -> 1));
+        group.add(new MysqlTransactionExecutor.GroupedUnitOfWork<>((final MysqlDatabaseConnection unitConnection) -> {
+            throw new DatabaseException(new SQLException("Duplicate entry", "23000", 1062));
+        }));
+        group.add(new MysqlTransactionExecutor.GroupedUnitOfWork<>((final MysqlDatabaseConnection unitConnection) -> 3));
+
+        // Action
+        transactionExecutor._runGroup(databaseConnection, group);
+        transactionExecutor._onGroupCommitted(group);
+
+        // Assert
+        Assert.assertEquals(Long.valueOf(2L), transactionExecutor.getCommittedTransactionCount());
+        Assert.assertEquals(Long.valueOf(1L), transactionExecutor.getAbortedTransactionCount());
+        Assert.assertEquals(Long.valueOf(1L), transactionExecutor.getGroupCommitCount());
+        Assert.assertEquals(1, rolledBackSavepointNames.size());
+
+        Assert.assertEquals(1, group.get(0).future.get());
+        Assert.assertEquals(3, group.get(2).future.get());
+
+        Boolean failedUnitWasCompletedExceptionally = false;
+        try {
+            group.get(1).future.get();
+        }
+        catch (final ExecutionException exception) {
+            failedUnitWasCompletedExceptionally = (exception.getCause() instanceof DatabaseException);
+        }
+        Assert.assertTrue(failedUnitWasCompletedExceptionally);
+    }
+}
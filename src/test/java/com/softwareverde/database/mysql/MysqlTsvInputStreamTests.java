@@ -0,0 +1,94 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.util.StringUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+
+public class MysqlTsvInputStreamTests {
+    protected static String _readAll(final InputStream inputStream, final Integer chunkSize) throws Exception {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[chunkSize];
+        int readByteCount;
+        while ((readByteCount = inputStream.read(buffer, 0, buffer.length)) >= 0) {
+            byteArrayOutputStream.write(buffer, 0, readByteCount);
+        }
+        return StringUtil.bytesToString(byteArrayOutputStream.toByteArray());
+    }
+
+    @Test
+    public void should_escape_special_characters_and_nulls() throws Exception {
+        // Setup
+        final Iterator<Object[]> rows = Arrays.asList(
+            new Object[]{ 1L, "tab\there", null },
+            new Object[]{ 2L, "line\nbreak\\slash", true },
+            new Object[]{ 3L, new byte[]{ 0x00, 0x41, 0x0D }, false }
+        ).iterator();
+        final MysqlTsvInputStream inputStream = new MysqlTsvInputStream(() -> (rows.hasNext() ? rows.next() : null));
+
+        // Action
+        final String tsv = _readAll(inputStream, 3);
+
+        // Assert
+        Assert.assertEquals("1\ttab\\there\t\\N\n2\tline\\nbreak\\\\slash\t1\n3\t\\0A\\r\t0\n", tsv);
+        Assert.assertEquals(3L, inputStream.getRowCount().longValue());
+        Assert.assertEquals(-1, inputStream.read());
+    }
+
+    @Test
+    public void should_write_temporal_values_as_mysql_literals() throws Exception {
+        // Setup
+        final LocalDateTime localDateTime = LocalDateTime.of(2024, 2, 29, 13, 45, 7, 123456789);
+        final Iterator<Object[]> rows = Arrays.asList(
+            new Object[]{ localDateTime, LocalDate.of(2024, 2, 29), LocalTime.of(8, 0, 30) },
+            new Object[]{ Timestamp.valueOf(localDateTime), java.sql.Date.valueOf("2024-02-29"), Time.valueOf("08:00:30") },
+            new Object[]{ Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant()), LocalDateTime.of(2024, 2, 29, 0, 0), LocalTime.of(8, 0, 30, 500000000) }
+        ).iterator();
+        final MysqlTsvInputStream inputStream = new MysqlTsvInputStream(() -> (rows.hasNext() ? rows.next() : null));
+
+        // Action
+        final String tsv = _readAll(inputStream, 16);
+
+        // Assert
+        Assert.assertEquals(
+            "2024-02-29 13:45:07.123456\t2024-02-29\t08:00:30\n" +
+            "2024-02-29 13:45:07.123456\t2024-02-29\t08:00:30\n" +
+            "2024-02-29 13:45:07.123\t2024-02-29 00:00:00\t08:00:30.5\n",
+            tsv
+        );
+    }
+
+    @Test
+    public void should_reject_temporal_values_with_a_time_zone() throws Exception {
+        // Setup
+        final Iterator<Object[]> rows = Collections.singletonList(new Object[]{ 1L, Instant.ofEpochSecond(0L) }).iterator();
+        final MysqlTsvInputStream inputStream = new MysqlTsvInputStream(() -> (rows.hasNext() ? rows.next() : null));
+
+        // Action
+        IOException ioException = null;
+        try {
+            _readAll(inputStream, 16);
+        }
+        catch (final IOException exception) {
+            ioException = exception;
+        }
+
+        // Assert
+        Assert.assertNotNull(ioException);
+        Assert.assertTrue(ioException.getCause() instanceof IllegalArgumentException);
+    }
+}
@@ -0,0 +1,57 @@
+package com.softwareverde.database.mysql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ParallelSqlScriptRunnerTests {
+    @Test
+    public void should_detect_created_table_and_foreign_key_references() {
+        // Action
+        final Set<String> tableNames = ParallelSqlScriptRunner._getTouchedTables("CREATE TABLE IF NOT EXISTS `blocks` (\n id int unsigned NOT NULL, previous_block_id int unsigned, FOREIGN KEY (previous_block_id) REFERENCES blocks (id), FOREIGN KEY (id) REFERENCES `schema`.`headers` (id)\n)");
+
+        // Assert
+        Assert.assertEquals(new HashSet<>(Arrays.asList("blocks", "headers")), tableNames);
+    }
+
+    @Test
+    public void should_detect_index_table() {
+        // Action
+        final Set<String> tableNames = ParallelSqlScriptRunner._getTouchedTables("CREATE UNIQUE INDEX blocks_hash_uq ON blocks (hash)");
+
+        // Assert
+        Assert.assertEquals(new HashSet<>(Arrays.asList("blocks")), tableNames);
+    }
+
+    @Test
+    public void should_treat_unrecognized_statements_as_barriers() {
+        // Assert
+        Assert.assertNull(ParallelSqlScriptRunner._getTouchedTables("CREATE PROCEDURE foo() BEGIN SELECT 1; END"));
+        Assert.assertNull(ParallelSqlScriptRunner._getTouchedTables("SET FOREIGN_KEY_CHECKS = 0"));
+        Assert.assertTrue(ParallelSqlScriptRunner._isSessionStatement("SET FOREIGN_KEY_CHECKS = 0"));
+    }
+
+    @Test
+    public void should_treat_comma_separated_table_lists_as_barriers() {
+        // Assert
+        Assert.assertNull(ParallelSqlScriptRunner._getTouchedTables("INSERT INTO a SELECT b.id, c.value FROM b, c WHERE b.id = c.id"));
+        Assert.assertNull(ParallelSqlScriptRunner._getTouchedTables("INSERT INTO a SELECT x.id FROM b AS x , c y WHERE x.id = y.id"));
+        Assert.assertNull(ParallelSqlScriptRunner._getTouchedTables("UPDATE a, b SET b.x = a.x WHERE a.id = b.id"));
+        Assert.assertNull(ParallelSqlScriptRunner._getTouchedTables("UPDATE `a` AS t1, `b` t2 SET t2.x = t1.x"));
+        Assert.assertNull(ParallelSqlScriptRunner._getTouchedTables("DELETE FROM a USING a, b WHERE a.id = b.id"));
+    }
+
+    @Test
+    public void should_not_mistake_column_lists_for_table_lists() {
+        // Action
+        final Set<String> updateTableNames = ParallelSqlScriptRunner._getTouchedTables("UPDATE a SET x = 1, y = 2 WHERE id IN (1, 2)");
+        final Set<String> insertTableNames = ParallelSqlScriptRunner._getTouchedTables("INSERT INTO a (x, y) SELECT x, y FROM b JOIN c USING (id, type) ORDER BY x, y LIMIT 10, 20");
+
+        // Assert
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a")), updateTableNames);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), insertTableNames);
+    }
+}
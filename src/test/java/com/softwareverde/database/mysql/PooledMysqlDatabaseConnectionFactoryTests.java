@@ -0,0 +1,184 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PooledMysqlDatabaseConnectionFactoryTests {
+    /**
+     * The session state of a fake physical connection.
+     */
+    protected static class FakeConnectionState {
+        public Boolean isAutoCommit = true;
+        public Boolean isReadOnly = false;
+        public Integer transactionIsolation = Connection.TRANSACTION_REPEATABLE_READ;
+        public String catalog = "test";
+        public Boolean isClosed = false;
+        public Boolean isValid = true;
+        public Integer validationCount = 0;
+        public Integer rollbackCount = 0;
+    }
+
+    protected static class FakeConnectionPool extends PooledMysqlDatabaseConnectionFactory {
+        public final List<FakeConnectionState> connectionStates = new ArrayList<>();
+
+        public FakeConnectionPool() {
+            super("localhost", 3306, "test", "user", "password");
+        }
+
+        @Override
+        protected Connection _newRawConnection() {
+            final FakeConnectionState state = new FakeConnectionState();
+            synchronized (this.connectionStates) {
+                this.connectionStates.add(state);
+            }
+
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, arguments) -> {
+                switch (method.getName()) {
+                    case "getAutoCommit": { return state.isAutoCommit; }
+                    case "setAutoCommit": { state.isAutoCommit = (Boolean) arguments[0]; return null; }
+                    case "isReadOnly": { return state.isReadOnly; }
+                    case "setReadOnly": { state.isReadOnly = (Boolean) arguments[0]; return null; }
+                    case "getTransactionIsolation": { return state.transactionIsolation; }
+                    case "setTransactionIsolation": { state.transactionIsolation = (Integer) arguments[0]; return null; }
+                    case "getCatalog": { return state.catalog; }
+                    case "setCatalog": { state.catalog = (String) arguments[0]; return null; }
+                    case "isClosed": { return state.isClosed; }
+                    case "close": { state.isClosed = true; return null; }
+                    case "rollback": { state.rollbackCount += 1; return null; }
+                    case "isValid": {
+                        state.validationCount += 1;
+                        return state.isValid;
+                    }
+                    default: { return null; }
+                }
+            });
+        }
+    }
+
+    @Test
+    public void should_time_out_when_all_permits_are_checked_out() throws Exception {
+        // Setup
+        final FakeConnectionPool connectionPool = new FakeConnectionPool();
+        connectionPool.setMaxConnectionCount(1);
+        connectionPool.setConnectionTimeout(10L);
+
+        final MysqlDatabaseConnection databaseConnection = connectionPool.newConnection();
+
+        // Action
+        String errorMessage = null;
+        try {
+            connectionPool.newConnection();
+        }
+        catch (final DatabaseException exception) {
+            errorMessage = exception.getMessage();
+        }
+
+        databaseConnection.close();
+        final MysqlDatabaseConnection reusedDatabaseConnection = connectionPool.newConnection();
+        reusedDatabaseConnection.close();
+        connectionPool.close();
+
+        // Assert
+        Assert.assertNotNull(errorMessage);
+        Assert.assertTrue(errorMessage.startsWith("Timed out waiting for connection"));
+        Assert.assertEquals(1, connectionPool.connectionStates.size());
+    }
+
+    @Test
+    public void should_only_validate_connections_idle_beyond_the_threshold() throws Exception {
+        // Setup
+        final FakeConnectionPool connectionPool = new FakeConnectionPool();
+        connectionPool.newConnection().close();
+
+        // Action
+        connectionPool.newConnection().close();
+        final Integer recentlyReturnedValidationCount = connectionPool.connectionStates.get(0).validationCount;
+
+        connectionPool._idleConnections.peekFirst().lastReturnTime -= 1000L;
+        connectionPool.newConnection().close();
+        final Integer idleValidationCount = connectionPool.connectionStates.get(0).validationCount;
+
+        connectionPool.connectionStates.get(0).isValid = false;
+        connectionPool._idleConnections.peekFirst().lastReturnTime -= 1000L;
+        connectionPool.newConnection().close();
+        connectionPool.close();
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(0), recentlyReturnedValidationCount);
+        Assert.assertEquals(Integer.valueOf(1), idleValidationCount);
+        Assert.assertEquals(2, connectionPool.connectionStates.size());
+        Assert.assertTrue(connectionPool.connectionStates.get(0).isClosed);
+    }
+
+    @Test
+    public void should_evict_connections_idle_beyond_the_maximum_idle_time() throws Exception {
+        // Setup
+        final FakeConnectionPool connectionPool = new FakeConnectionPool();
+        connectionPool.setMaxIdleTime(60000L);
+        connectionPool.newConnection().close();
+        connectionPool._idleConnections.peekFirst().lastReturnTime -= 120000L;
+
+        // Action
+        connectionPool._performMaintenance();
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(0), connectionPool.getIdleConnectionCount());
+        Assert.assertEquals(Integer.valueOf(0), connectionPool.getConnectionCount());
+        Assert.assertTrue(connectionPool.connectionStates.get(0).isClosed);
+
+        connectionPool.close();
+    }
+
+    @Test
+    public void should_close_connections_returned_after_their_maximum_lifetime() throws Exception {
+        // Setup
+        final FakeConnectionPool connectionPool = new FakeConnectionPool();
+        connectionPool.setMaxLifetime(1L);
+        final MysqlDatabaseConnection databaseConnection = connectionPool.newConnection();
+        Thread.sleep(10L);
+
+        // Action
+        databaseConnection.close();
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(0), connectionPool.getIdleConnectionCount());
+        Assert.assertEquals(Integer.valueOf(0), connectionPool.getConnectionCount());
+        Assert.assertTrue(connectionPool.connectionStates.get(0).isClosed);
+
+        connectionPool.close();
+    }
+
+    @Test
+    public void should_reset_session_state_when_connections_are_returned() throws Exception {
+        // Setup
+        final FakeConnectionPool connectionPool = new FakeConnectionPool();
+        final MysqlDatabaseConnection databaseConnection = connectionPool.newConnection();
+        final Connection connection = databaseConnection.getRawConnection();
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.setCatalog("other");
+
+        // Action
+        databaseConnection.close();
+
+        // Assert
+        final FakeConnectionState state = connectionPool.connectionStates.get(0);
+        Assert.assertTrue(state.isAutoCommit);
+        Assert.assertFalse(state.isReadOnly);
+        Assert.assertEquals(Integer.valueOf(Connection.TRANSACTION_REPEATABLE_READ), state.transactionIsolation);
+        Assert.assertEquals("test", state.catalog);
+        Assert.assertEquals(Integer.valueOf(1), state.rollbackCount);
+        Assert.assertFalse(state.isClosed);
+        Assert.assertEquals(Integer.valueOf(1), connectionPool.getIdleConnectionCount());
+
+        connectionPool.close();
+        Assert.assertTrue(state.isClosed);
+    }
+}
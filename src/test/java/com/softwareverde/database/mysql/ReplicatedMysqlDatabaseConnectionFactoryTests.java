@@ -0,0 +1,53 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+public class ReplicatedMysqlDatabaseConnectionFactoryTests {
+    @Test
+    public void should_only_route_reads_to_healthy_replicas_replicating_within_the_lag_threshold() {
+        // Setup
+        final ReplicatedMysqlDatabaseConnectionFactory.Replica replicatingReplica = new ReplicatedMysqlDatabaseConnectionFactory.Replica(null);
+        replicatingReplica.replicationLagSeconds = 2L;
+
+        final ReplicatedMysqlDatabaseConnectionFactory.Replica laggingReplica = new ReplicatedMysqlDatabaseConnectionFactory.Replica(null);
+        laggingReplica.replicationLagSeconds = 30L;
+
+        final ReplicatedMysqlDatabaseConnectionFactory.Replica standaloneReplica = new ReplicatedMysqlDatabaseConnectionFactory.Replica(null);
+        standaloneReplica.replicationLagSeconds = null;
+
+        final ReplicatedMysqlDatabaseConnectionFactory.Replica unreachableReplica = new ReplicatedMysqlDatabaseConnectionFactory.Replica(null);
+        unreachableReplica.replicationLagSeconds = 0L;
+        unreachableReplica.isHealthy = false;
+
+        // Action
+        final Boolean isReplicatingReplicaAvailable = ReplicatedMysqlDatabaseConnectionFactory._isAvailable(replicatingReplica, 5L);
+        final Boolean isLaggingReplicaAvailable = ReplicatedMysqlDatabaseConnectionFactory._isAvailable(laggingReplica, 5L);
+        final Boolean isStandaloneReplicaAvailable = ReplicatedMysqlDatabaseConnectionFactory._isAvailable(standaloneReplica, 5L);
+        final Boolean isUnreachableReplicaAvailable = ReplicatedMysqlDatabaseConnectionFactory._isAvailable(unreachableReplica, 5L);
+
+        // Assert
+        Assert.assertTrue(isReplicatingReplicaAvailable);
+        Assert.assertFalse(isLaggingReplicaAvailable);
+        Assert.assertFalse(isStandaloneReplicaAvailable);
+        Assert.assertFalse(isUnreachableReplicaAvailable);
+    }
+
+    @Test
+    public void should_detect_a_missing_replication_client_privilege() {
+        // Setup
+        final DatabaseException accessDeniedException = new DatabaseException(new SQLException("Access denied; you need (at least one of) the REPLICATION CLIENT privilege(s) for this operation", "42000", 1227));
+        final DatabaseException connectionException = new DatabaseException(new SQLException("Communications link failure", "08S01", 0));
+
+        // Action
+        final Boolean isAccessDeniedMissingPrivilege = ReplicatedMysqlDatabaseConnectionFactory._isMissingPrivilege(accessDeniedException);
+        final Boolean isConnectionExceptionMissingPrivilege = ReplicatedMysqlDatabaseConnectionFactory._isMissingPrivilege(connectionException);
+
+        // Assert
+        Assert.assertTrue(isAccessDeniedMissingPrivilege);
+        Assert.assertFalse(isConnectionExceptionMissingPrivilege);
+    }
+}
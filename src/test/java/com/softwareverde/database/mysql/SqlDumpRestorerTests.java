@@ -0,0 +1,188 @@
+package com.softwareverde.database.mysql;
+
+import com.softwareverde.database.DatabaseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SqlDumpRestorerTests {
+    /**
+     * Records the statements sent to the server; statements containing failingText fail when executed.
+     */
+    protected static class FakeServer {
+        public final List<List<String>> executedBatches = new ArrayList<>();
+        public final List<String> executedStatements = new ArrayList<>();
+        public Integer commitCount = 0;
+        public Integer rollbackCount = 0;
+        public String failingText = null;
+
+        protected Statement _newStatement() {
+            final List<String> pendingBatch = new ArrayList<>();
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { Statement.class }, (proxy, method, arguments) -> {
+                switch (method.getName()) {
+                    case "addBatch": {
+                        pendingBatch.add((String) arguments[0]);
+                        return null;
+                    }
+                    case "clearBatch": {
+                        pendingBatch.clear();
+                        return null;
+                    }
+                    case "executeBatch": {
+                        final int[] updateCounts = new int[pendingBatch.size()];
+                        boolean hasFailed = false;
+                        for (int i = 0; i < updateCounts.length; ++i) {
+                            final boolean isFailure = ( (failingText != null) && pendingBatch.get(i).contains(failingText) );
+                            hasFailed = (hasFailed || isFailure);
+                            updateCounts[i] = (isFailure ? Statement.EXECUTE_FAILED : 1);
+                        }
+                        if (hasFailed) { throw new BatchUpdateException("Duplicate entry", updateCounts); }
+
+                        executedBatches.add(new ArrayList<>(pendingBatch));
+                        return updateCounts;
+                    }
+                    case "execute": {
+                        final String statement = (String) arguments[0];
+                        if ( (failingText != null) && statement.contains(failingText) ) { throw new SQLException("Syntax error"); }
+
+                        executedStatements.add(statement);
+                        return false;
+                    }
+                    default: { return null; }
+                }
+            });
+        }
+
+        public Connection newConnection() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, arguments) -> {
+                switch (method.getName()) {
+                    case "createStatement": { return _newStatement(); }
+                    case "getAutoCommit": { return true; }
+                    case "commit": { commitCount += 1; return null; }
+                    case "rollback": { rollbackCount += 1; return null; }
+                    default: { return null; }
+                }
+            });
+        }
+    }
+
+    @Test
+    public void should_classify_dml_statements_as_batchable() {
+        // Assert
+        Assert.assertTrue(SqlDumpRestorer._isDml("INSERT INTO `blocks` VALUES (1)"));
+        Assert.assertTrue(SqlDumpRestorer._isDml("replace into `blocks` VALUES (1)"));
+        Assert.assertTrue(SqlDumpRestorer._isDml("UPDATE `blocks` SET `id` = 2"));
+        Assert.assertTrue(SqlDumpRestorer._isDml("DELETE FROM `blocks`"));
+        Assert.assertFalse(SqlDumpRestorer._isDml("CREATE TABLE `inserts` (id INT)"));
+        Assert.assertFalse(SqlDumpRestorer._isDml("/*!40000 ALTER TABLE `blocks` DISABLE KEYS */"));
+        Assert.assertFalse(SqlDumpRestorer._isDml("LOCK TABLES `blocks` WRITE"));
+        Assert.assertFalse(SqlDumpRestorer._isDml("INSERTED"));
+    }
+
+    @Test
+    public void should_batch_consecutive_dml_and_commit_per_transaction() throws Exception {
+        // Setup
+        final FakeServer server = new FakeServer();
+        final SqlDumpRestorer sqlDumpRestorer = new SqlDumpRestorer(server.newConnection());
+        sqlDumpRestorer.setDisableChecks(false);
+        sqlDumpRestorer.setBatchStatementCount(2);
+        sqlDumpRestorer.setTransactionStatementCount(3);
+
+        final String script =
+            "INSERT INTO t VALUES (1);\n" +
+            "INSERT INTO t VALUES (2); INSERT INTO t VALUES (3);\n" +
+            "INSERT INTO t VALUES (4);\n" +
+            "INSERT INTO t VALUES (5);\n" +
+            "CREATE TABLE u (id INT);\n" +
+            "INSERT INTO u VALUES (6);\n" +
+            "INSERT INTO u VALUES (7);\n";
+
+        // Action
+        sqlDumpRestorer.restore(new StringReader(script));
+
+        // Assert
+        Assert.assertEquals(Arrays.asList(
+            Arrays.asList("INSERT INTO t VALUES (1)", "INSERT INTO t VALUES (2)"),
+            Arrays.asList("INSERT INTO t VALUES (3)"),
+            Arrays.asList("INSERT INTO t VALUES (4)", "INSERT INTO t VALUES (5)"),
+            Arrays.asList("INSERT INTO u VALUES (6)", "INSERT INTO u VALUES (7)")
+        ), server.executedBatches);
+        Assert.assertEquals(Arrays.asList("CREATE TABLE u (id INT)"), server.executedStatements);
+        Assert.assertEquals(Integer.valueOf(3), server.commitCount);
+        Assert.assertEquals(Long.valueOf(8L), sqlDumpRestorer.getStatementCount());
+    }
+
+    @Test
+    public void should_report_the_line_of_the_failed_statement_within_a_batch() {
+        // Setup
+        final FakeServer server = new FakeServer();
+        server.failingText = "(2)";
+        final SqlDumpRestorer sqlDumpRestorer = new SqlDumpRestorer(server.newConnection());
+        sqlDumpRestorer.setDisableChecks(false);
+
+        final String script =
+            "CREATE TABLE t (id INT);\n" +
+            "INSERT INTO t VALUES (1);\n" +
+            "\n" +
+            "INSERT INTO t\n" +
+            "  VALUES (2);\n" +
+            "INSERT INTO t VALUES (3);\n";
+
+        // Action
+        String errorMessage = null;
+        try {
+            sqlDumpRestorer.restore(new StringReader(script));
+        }
+        catch (final DatabaseException exception) {
+            errorMessage = exception.getCause().getMessage();
+        }
+
+        // Assert
+        Assert.assertNotNull(errorMessage);
+        Assert.assertTrue(errorMessage.contains("(line 4)"));
+        Assert.assertTrue(errorMessage.contains("VALUES (2)"));
+        Assert.assertEquals(Integer.valueOf(1), server.rollbackCount);
+    }
+
+    @Test
+    public void should_truncate_long_statements_in_error_messages() {
+        // Setup
+        final FakeServer server = new FakeServer();
+        server.failingText = "CREATE";
+        final SqlDumpRestorer sqlDumpRestorer = new SqlDumpRestorer(server.newConnection());
+        sqlDumpRestorer.setDisableChecks(false);
+
+        final StringBuilder statement = new StringBuilder("CREATE TABLE t (");
+        for (int i = 0; i < 1000; ++i) {
+            if (i > 0) { statement.append(", "); }
+            statement.append("column_");
+            statement.append(i);
+            statement.append(" INT");
+        }
+        statement.append(")");
+
+        // Action
+        String errorMessage = null;
+        try {
+            sqlDumpRestorer.restore(new StringReader("SET NAMES utf8mb4;\n" + statement + ";\n"));
+        }
+        catch (final DatabaseException exception) {
+            errorMessage = exception.getCause().getMessage();
+        }
+
+        // Assert
+        Assert.assertNotNull(errorMessage);
+        Assert.assertTrue(errorMessage.contains("(line 2)"));
+        Assert.assertTrue(errorMessage.contains("... (" + statement.length() + " characters)"));
+        Assert.assertTrue(errorMessage.length() < 400);
+    }
+}
@@ -0,0 +1,95 @@
+package com.softwareverde.database.mysql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SqlScriptTokenizerTests {
+    protected static List<String> _tokenize(final String script) throws Exception {
+        final SqlScriptTokenizer tokenizer = new SqlScriptTokenizer(new StringReader(script));
+        final List<String> statements = new ArrayList<>();
+        String statement;
+        while ((statement = tokenizer.nextStatement()) != null) {
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    @Test
+    public void should_split_multiple_statements_per_line() throws Exception {
+        // Action
+        final List<String> statements = _tokenize("SELECT 1; SELECT 2;\nSELECT 3");
+
+        // Assert
+        Assert.assertArrayEquals(new String[]{ "SELECT 1", "SELECT 2", "SELECT 3" }, statements.toArray(new String[0]));
+    }
+
+    @Test
+    public void should_ignore_delimiters_within_strings_identifiers_and_comments() throws Exception {
+        // Setup
+        final String script =
+            "INSERT INTO `a;b` VALUES ('x;y', \"it\\\"s;\", 'don''t;');\n" +
+            "-- comment; with delimiter\n" +
+            "# another; comment\n" +
+            "SELECT /* block; comment */ 1;\n" +
+            "/*!40101 SET NAMES utf8mb4 */;\n" +
+            "SELECT 5--3;\n";
+
+        // Action
+        final List<String> statements = _tokenize(script);
+
+        // Assert
+        Assert.assertArrayEquals(new String[]{
+            "INSERT INTO `a;b` VALUES ('x;y', \"it\\\"s;\", 'don''t;')",
+            "SELECT   1",
+            "/*!40101 SET NAMES utf8mb4 */",
+            "SELECT 5--3"
+        }, statements.toArray(new String[0]));
+    }
+
+    @Test
+    public void should_honor_delimiter_directives() throws Exception {
+        // Setup
+        final String script =
+            "DELIMITER $$\n" +
+            "CREATE PROCEDURE foo()\n" +
+            "BEGIN\n" +
+            "    SELECT 1;\n" +
+            "END$$\n" +
+            "DELIMITER ;\n" +
+            "SELECT 2;\n" +
+            "-- DELIMITER //\n" +
+            "SELECT 3//\n";
+
+        // Action
+        final List<String> statements = _tokenize(script);
+
+        // Assert
+        Assert.assertArrayEquals(new String[]{
+            "CREATE PROCEDURE foo()\nBEGIN\n    SELECT 1;\nEND",
+            "SELECT 2",
+            "SELECT 3"
+        }, statements.toArray(new String[0]));
+    }
+
+    @Test
+    public void should_report_the_starting_and_ending_line_of_each_statement() throws Exception {
+        // Setup
+        final SqlScriptTokenizer tokenizer = new SqlScriptTokenizer(new StringReader("SELECT 1;\n\n-- comment\nSELECT\n  2;\n"));
+
+        // Action
+        tokenizer.nextStatement();
+        final Integer firstStartingLineNumber = tokenizer.getStartingLineNumber();
+        tokenizer.nextStatement();
+        final Integer secondStartingLineNumber = tokenizer.getStartingLineNumber();
+        final Integer secondEndingLineNumber = tokenizer.getLineNumber();
+
+        // Assert
+        Assert.assertEquals(Integer.valueOf(1), firstStartingLineNumber);
+        Assert.assertEquals(Integer.valueOf(4), secondStartingLineNumber);
+        Assert.assertEquals(Integer.valueOf(5), secondEndingLineNumber);
+    }
+}
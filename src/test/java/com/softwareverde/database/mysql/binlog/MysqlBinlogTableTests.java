@@ -0,0 +1,153 @@
+package com.softwareverde.database.mysql.binlog;
+
+import com.softwareverde.database.row.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+public class MysqlBinlogTableTests {
+    @Test
+    public void should_parse_enum_values_with_escaped_quotes() {
+        // Setup
+        final String columnType = "enum('new','it''s done','a,b')";
+
+        // Action
+        final List<String> values = MysqlBinlogTable._parseValues(columnType);
+
+        // Assert
+        Assert.assertEquals(Arrays.asList("new", "it's done", "a,b"), values);
+    }
+
+    @Test
+    public void should_convert_binlog_values_to_jdbc_representations() {
+        // Setup
+        final MysqlBinlogTable table = new MysqlBinlogTable("test", "items", Arrays.asList(
+            new MysqlBinlogTable.Column("id", "int", "int(10) unsigned"),
+            new MysqlBinlogTable.Column("total", "bigint", "bigint(20) unsigned"),
+            new MysqlBinlogTable.Column("price", "decimal", "decimal(10,2)"),
+            new MysqlBinlogTable.Column("name", "varchar", "varchar(255)"),
+            new MysqlBinlogTable.Column("status", "enum", "enum('new','done')"),
+            new MysqlBinlogTable.Column("flags", "set", "set('a','b','c')"),
+            new MysqlBinlogTable.Column("created", "datetime", "datetime")
+        ));
+
+        final Serializable[] rowImage = new Serializable[] {
+            -1,
+            -1L,
+            new BigDecimal("12.50"),
+            "caf\u00e9".getBytes(StandardCharsets.UTF_8),
+            2,
+            5L,
+            1577836800000000L
+        };
+
+        // Action
+        final Row row = table.toRow(rowImage, null);
+
+        // Assert
+        Assert.assertEquals(Long.valueOf(4294967295L), row.getLong("id"));
+        Assert.assertEquals("18446744073709551615", row.getString("total"));
+        Assert.assertEquals("12.50", row.getString("price"));
+        Assert.assertEquals("caf\u00e9", row.getString("name"));
+        Assert.assertEquals("done", row.getString("status"));
+        Assert.assertEquals("a,c", row.getString("flags"));
+        Assert.assertEquals("2020-01-01 00:00:00", row.getString("created"));
+    }
+
+    @Test
+    public void should_leave_columns_excluded_from_minimal_row_image_null() {
+        // Setup
+        final MysqlBinlogTable table = new MysqlBinlogTable("test", "items", Arrays.asList(
+            new MysqlBinlogTable.Column("id", "bigint", "bigint(20)"),
+            new MysqlBinlogTable.Column("name", "varchar", "varchar(255)"),
+            new MysqlBinlogTable.Column("score", "double", "double")
+        ));
+
+        final BitSet includedColumns = new BitSet();
+        includedColumns.set(0);
+        includedColumns.set(2);
+
+        // Action
+        final Row row = table.toRow(new Serializable[] { 7L, 1.5D }, includedColumns);
+
+        // Assert
+        Assert.assertEquals(Long.valueOf(7L), row.getLong("id"));
+        Assert.assertNull(row.getString("name"));
+        Assert.assertEquals(Double.valueOf(1.5D), row.getDouble("score"));
+    }
+
+    @Test
+    public void should_decode_character_columns_with_their_character_set() {
+        // Setup
+        final MysqlBinlogTable table = new MysqlBinlogTable("test", "items", Arrays.asList(
+            new MysqlBinlogTable.Column("latin1_name", "varchar", "varchar(255)", "latin1"),
+            new MysqlBinlogTable.Column("utf8_name", "char", "char(8)", "utf8mb4"),
+            new MysqlBinlogTable.Column("description", "text", "text", "cp1251")
+        ));
+
+        final Serializable[] rowImage = new Serializable[] {
+            new byte[] { 'c', 'a', 'f', (byte) 0xE9 },
+            "caf\u00e9".getBytes(StandardCharsets.UTF_8),
+            new byte[] { (byte) 0xE4, (byte) 0xE0 }
+        };
+
+        // Action
+        final Row row = table.toRow(rowImage, null);
+
+        // Assert
+        Assert.assertEquals("caf\u00e9", row.getString("latin1_name"));
+        Assert.assertEquals("caf\u00e9", row.getString("utf8_name"));
+        Assert.assertEquals("\u0434\u0430", row.getString("description"));
+    }
+
+    @Test
+    public void should_format_fractional_seconds_to_the_column_precision() {
+        // Setup
+        final MysqlBinlogTable table = new MysqlBinlogTable("test", "events", Arrays.asList(
+            new MysqlBinlogTable.Column("created", "datetime", "datetime(6)"),
+            new MysqlBinlogTable.Column("updated", "timestamp", "timestamp(3)"),
+            new MysqlBinlogTable.Column("deleted", "datetime", "datetime"),
+            new MysqlBinlogTable.Column("day", "date", "date")
+        ));
+
+        final long epochMicros = 1577836800123456L; // 2020-01-01 00:00:00.123456
+        final Serializable[] rowImage = new Serializable[] { epochMicros, epochMicros, epochMicros, epochMicros };
+
+        // Action
+        final Row row = table.toRow(rowImage, null);
+
+        // Assert
+        Assert.assertEquals("2020-01-01 00:00:00.123456", row.getString("created"));
+        Assert.assertEquals("2020-01-01 00:00:00.123", row.getString("updated"));
+        Assert.assertEquals("2020-01-01 00:00:00", row.getString("deleted"));
+        Assert.assertEquals("2020-01-01", row.getString("day"));
+    }
+
+    @Test
+    public void should_format_time_from_its_duration() {
+        // Setup
+        final MysqlBinlogTable table = new MysqlBinlogTable("test", "durations", Arrays.asList(
+            new MysqlBinlogTable.Column("long_duration", "time", "time"),
+            new MysqlBinlogTable.Column("negative_duration", "time", "time"),
+            new MysqlBinlogTable.Column("fractional_duration", "time", "time(6)")
+        ));
+
+        final long longDurationMicros = (((838L * 3600L) + (59L * 60L) + 59L) * 1000000L);
+        final long negativeDurationMicros = -(((1L * 3600L) + (30L * 60L)) * 1000000L);
+        final long fractionalDurationMicros = ((5L * 1000000L) + 250L);
+
+        // Action
+        final Row row = table.toRow(new Serializable[] { longDurationMicros, negativeDurationMicros, fractionalDurationMicros }, null);
+
+        // Assert
+        Assert.assertEquals("838:59:59", row.getString("long_duration"));
+        Assert.assertEquals("-01:30:00", row.getString("negative_duration"));
+        Assert.assertEquals("00:00:05.000250", row.getString("fractional_duration"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.softwareverde.database.mysql.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MysqlQueryMetricsTests {
+    @Test
+    public void should_fingerprint_statements_differing_only_by_literals_and_list_lengths_identically() {
+        // Setup
+        final String query0 = "SELECT id FROM users WHERE name = 'alice' AND age > 30 AND id IN (1, 2, 3)";
+        final String query1 = "SELECT id\n  FROM users   WHERE name = \"bob\" AND age > 4.5 AND id IN (7) -- comment";
+        final String query2 = "INSERT INTO table1 (id, value) VALUES (1, 'a'), (2, 'it''s'), (3, 'c')";
+
+        // Action
+        final String fingerprint0 = SqlFingerprint.fingerprint(query0);
+        final String fingerprint1 = SqlFingerprint.fingerprint(query1);
+        final String fingerprint2 = SqlFingerprint.fingerprint(query2);
+
+        // Assert
+        Assert.assertEquals("SELECT id FROM users WHERE name = ? AND age > ? AND id IN (?+)", fingerprint0);
+        Assert.assertEquals(fingerprint0, fingerprint1);
+        Assert.assertEquals("INSERT INTO table1 (id, value) VALUES (?+)", fingerprint2);
+    }
+
+    @Test
+    public void should_aggregate_statement_metrics_by_fingerprint() {
+        // Setup
+        final MysqlQueryMetrics queryMetrics = new MysqlQueryMetrics();
+
+        // Action
+        for (int i = 1; i <= 100; ++i) {
+            queryMetrics.onStatementExecuted("SELECT * FROM blocks WHERE id = " + i, null, (i * 1000L), 1L, 64L);
+        }
+        queryMetrics.onStatementFailed("SELECT * FROM blocks WHERE id = 0", null, 1000L);
+        queryMetrics.onConnectionAcquired(5000L);
+
+        // Assert
+        final MysqlQueryMetrics.Snapshot snapshot = queryMetrics.getSnapshot();
+        Assert.assertEquals(1, snapshot.statements.size());
+
+        final MysqlQueryMetrics.StatementSnapshot statementSnapshot = snapshot.statements.get(0);
+        Assert.assertEquals("SELECT * FROM blocks WHERE id = ?", statementSnapshot.fingerprint);
+        Assert.assertEquals(100L, statementSnapshot.getExecutionCount().longValue());
+        Assert.assertEquals(1L, statementSnapshot.errorCount.longValue());
+        Assert.assertEquals(100L, statementSnapshot.rowCount.longValue());
+        Assert.assertEquals(6400L, statementSnapshot.byteCount.longValue());
+        Assert.assertEquals(100000L, statementSnapshot.latency.getMax());
+
+        final long medianNanos = statementSnapshot.latency.getValueAtPercentile(50D);
+        Assert.assertTrue(Math.abs(medianNanos - 50000L) <= (50000L * 0.04D));
+        Assert.assertEquals(1L, snapshot.connectionAcquireLatency.getCount());
+    }
+}
@@ -0,0 +1,212 @@
+package com.softwareverde.database.mysql.row;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+public class MysqlColumnarRowTests {
+    protected static class Column {
+        public final String name;
+        public final Integer sqlType;
+        public final Boolean isSigned;
+
+        public Column(final String name, final Integer sqlType, final Boolean isSigned) {
+            this.name = name;
+            this.sqlType = sqlType;
+            this.isSigned = isSigned;
+        }
+    }
+
+    protected static ResultSetMetaData _newResultSetMetaData(final List<Column> columns) {
+        return (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class }, (proxy, method, arguments) -> {
+            switch (method.getName()) {
+                case "getColumnCount": { return columns.size(); }
+                case "getColumnLabel": { return columns.get(((Integer) arguments[0]) - 1).name; }
+                case "getColumnType": { return columns.get(((Integer) arguments[0]) - 1).sqlType; }
+                case "isSigned": { return columns.get(((Integer) arguments[0]) - 1).isSigned; }
+                case "getColumnDisplaySize": { return 20; }
+                default: { return null; }
+            }
+        });
+    }
+
+    /**
+     * Returns a single-row ResultSet; values are returned via the getter matching their type (null values as SQL NULL).
+     */
+    protected static ResultSet _newResultSet(final List<Column> columns, final Object[] values) {
+        final ResultSetMetaData resultSetMetaData = _newResultSetMetaData(columns);
+        final Object[] lastValue = new Object[1];
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, (proxy, method, arguments) -> {
+            switch (method.getName()) {
+                case "getMetaData": { return resultSetMetaData; }
+                case "wasNull": { return (lastValue[0] == null); }
+                case "getLong": {
+                    lastValue[0] = values[((Integer) arguments[0]) - 1];
+                    return (lastValue[0] != null ? ((Number) lastValue[0]).longValue() : 0L);
+                }
+                case "getDouble": {
+                    lastValue[0] = values[((Integer) arguments[0]) - 1];
+                    return (lastValue[0] != null ? ((Number) lastValue[0]).doubleValue() : 0D);
+                }
+                case "getBytes":
+                case "getString": {
+                    lastValue[0] = values[((Integer) arguments[0]) - 1];
+                    return lastValue[0];
+                }
+                default: { return null; }
+            }
+        });
+    }
+
+    @Test
+    public void should_resolve_storage_types_from_metadata() throws Exception {
+        // Setup
+        final ResultSetMetaData resultSetMetaData = _newResultSetMetaData(Arrays.asList(
+            new Column("id", Types.INTEGER, true),
+            new Column("signed_value", Types.BIGINT, true),
+            new Column("unsigned_value", Types.BIGINT, false),
+            new Column("amount", Types.DECIMAL, true),
+            new Column("ratio", Types.DOUBLE, true),
+            new Column("hash", Types.VARBINARY, false),
+            new Column("name", Types.VARCHAR, false)
+        ));
+
+        // Action
+        final MysqlColumnIndex columnIndex = MysqlColumnIndex.fromResultSetMetaData(resultSetMetaData);
+
+        // Assert
+        Assert.assertEquals(7, columnIndex.getColumnCount());
+        Assert.assertEquals(MysqlColumnIndex.StorageType.LONG, columnIndex.getStorageType(0));
+        Assert.assertEquals(MysqlColumnIndex.StorageType.LONG, columnIndex.getStorageType(1));
+        Assert.assertEquals(MysqlColumnIndex.StorageType.STRING, columnIndex.getStorageType(2));
+        Assert.assertEquals(MysqlColumnIndex.StorageType.STRING, columnIndex.getStorageType(3));
+        Assert.assertEquals(MysqlColumnIndex.StorageType.DOUBLE, columnIndex.getStorageType(4));
+        Assert.assertEquals(MysqlColumnIndex.StorageType.BYTES, columnIndex.getStorageType(5));
+        Assert.assertEquals(MysqlColumnIndex.StorageType.STRING, columnIndex.getStorageType(6));
+        Assert.assertEquals(3, columnIndex.getPrimitiveSlotCount());
+        Assert.assertEquals(4, columnIndex.getObjectSlotCount());
+    }
+
+    @Test
+    public void should_find_columns_case_insensitively_preferring_exact_matches() {
+        // Setup
+        final MysqlColumnIndex.StorageType[] storageTypes = { MysqlColumnIndex.StorageType.LONG, MysqlColumnIndex.StorageType.LONG, MysqlColumnIndex.StorageType.STRING };
+        final MysqlColumnIndex columnIndex = MysqlColumnIndex.fromStorageTypes(Arrays.asList("id", "ID", "Block_Hash"), storageTypes);
+
+        // Action
+        final int lowerCaseIndex = columnIndex.getColumnIndex("id");
+        final int upperCaseIndex = columnIndex.getColumnIndex("ID");
+        final int mixedCaseIndex = columnIndex.getColumnIndex("block_hash");
+        final int missingIndex = columnIndex.getColumnIndex("hash");
+
+        // Assert
+        Assert.assertEquals(0, lowerCaseIndex);
+        Assert.assertEquals(1, upperCaseIndex);
+        Assert.assertEquals(2, mixedCaseIndex);
+        Assert.assertEquals(-1, missingIndex);
+    }
+
+    @Test
+    public void should_read_nulls_of_every_storage_type_as_null() throws Exception {
+        // Setup
+        final List<Column> columns = Arrays.asList(
+            new Column("id", Types.INTEGER, true),
+            new Column("ratio", Types.DOUBLE, true),
+            new Column("hash", Types.VARBINARY, false),
+            new Column("name", Types.VARCHAR, false),
+            new Column("count", Types.BIGINT, true)
+        );
+        final MysqlColumnarRowFactory rowFactory = new MysqlColumnarRowFactory();
+
+        // Action
+        final MysqlColumnarRow row = rowFactory.fromResultSet(_newResultSet(columns, new Object[] { null, null, null, null, 0L }));
+
+        // Assert
+        Assert.assertNull(row.getLong("id"));
+        Assert.assertNull(row.getInteger("id"));
+        Assert.assertNull(row.getString("id"));
+        Assert.assertNull(row.getDouble("ratio"));
+        Assert.assertNull(row.getBoolean("ratio"));
+        Assert.assertNull(row.getBytes("hash"));
+        Assert.assertNull(row.getString("name"));
+        Assert.assertEquals(Long.valueOf(0L), row.getLong("COUNT"));
+        Assert.assertFalse(row.getBoolean("count"));
+        Assert.assertNull(row.getLong("missing_column"));
+    }
+
+    @Test
+    public void should_preserve_unsigned_bigint_and_decimal_values_as_strings() throws Exception {
+        // Setup
+        final List<Column> columns = Arrays.asList(
+            new Column("unsigned_value", Types.BIGINT, false),
+            new Column("amount", Types.DECIMAL, true)
+        );
+        final MysqlColumnarRowFactory rowFactory = new MysqlColumnarRowFactory();
+
+        // Action
+        final MysqlColumnarRow row = rowFactory.fromResultSet(_newResultSet(columns, new Object[] { "18446744073709551615", "12345678901234567890.123456789" }));
+
+        // Assert
+        Assert.assertEquals("18446744073709551615", row.getString("unsigned_value"));
+        Assert.assertNull(row.getLong("unsigned_value"));
+        Assert.assertEquals("12345678901234567890.123456789", row.getString("amount"));
+        Assert.assertEquals(1.2345678901234567E19D, row.getDouble("amount"), 1.0D);
+        Assert.assertNull(row.getLong("amount"));
+    }
+
+    @Test
+    public void should_truncate_decimal_strings_read_as_longs() {
+        // Assert
+        Assert.assertEquals(Long.valueOf(12L), MysqlColumnarRow._parseLong("12.75"));
+        Assert.assertEquals(Long.valueOf(-12L), MysqlColumnarRow._parseLong(" -12.75 "));
+        Assert.assertEquals(Long.valueOf(Long.MAX_VALUE), MysqlColumnarRow._parseLong("9223372036854775807"));
+        Assert.assertNull(MysqlColumnarRow._parseLong("9223372036854775808"));
+        Assert.assertNull(MysqlColumnarRow._parseLong("abc"));
+    }
+
+    @Test
+    public void should_store_values_by_storage_type_and_treat_missing_values_as_null() {
+        // Setup
+        final MysqlColumnIndex.StorageType[] storageTypes = { MysqlColumnIndex.StorageType.LONG, MysqlColumnIndex.StorageType.DOUBLE, MysqlColumnIndex.StorageType.STRING, MysqlColumnIndex.StorageType.LONG };
+        final MysqlColumnIndex columnIndex = MysqlColumnIndex.fromStorageTypes(Arrays.asList("id", "ratio", "name", "parent_id"), storageTypes);
+
+        // Action
+        final MysqlColumnarRow row = MysqlColumnarRow.fromValues(columnIndex, new Object[] { 7, 0.5F, "\u00e9" });
+
+        // Assert
+        Assert.assertEquals(Long.valueOf(7L), row.getLong("id"));
+        Assert.assertEquals("7", row.getString("id"));
+        Assert.assertEquals(Double.valueOf(0.5D), row.getDouble("ratio"));
+        Assert.assertEquals("\u00e9", row.getString("name"));
+        Assert.assertArrayEquals(new byte[] { (byte) 0xC3, (byte) 0xA9 }, row.getBytes("name"));
+        Assert.assertNull(row.getLong("parent_id"));
+    }
+
+    @Test
+    public void should_count_materialized_bytes_only_when_enabled() throws Exception {
+        // Setup
+        final List<Column> columns = Arrays.asList(
+            new Column("id", Types.INTEGER, true),
+            new Column("name", Types.VARCHAR, false)
+        );
+        final MysqlColumnarRowFactory rowFactory = new MysqlColumnarRowFactory();
+
+        // Action
+        rowFactory.fromResultSet(_newResultSet(columns, new Object[] { 1L, "block" }));
+        final long disabledByteCount = rowFactory.getMaterializedByteCount();
+
+        rowFactory.setByteCountingEnabled(true);
+        rowFactory.fromResultSet(_newResultSet(columns, new Object[] { 2L, "block" }));
+        final long enabledByteCount = rowFactory.getMaterializedByteCount();
+
+        // Assert
+        Assert.assertEquals(0L, disabledByteCount);
+        Assert.assertEquals(13L, enabledByteCount);
+    }
+}